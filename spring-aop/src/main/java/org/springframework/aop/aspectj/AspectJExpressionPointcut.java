@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,18 +18,29 @@ package org.springframework.aop.aspectj;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import org.aopalliance.intercept.MethodInvocation;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.aspectj.weaver.Shadow;
+import org.aspectj.weaver.internal.tools.PointcutExpressionImpl;
+import org.aspectj.weaver.patterns.AndPointcut;
+import org.aspectj.weaver.patterns.KindedPointcut;
 import org.aspectj.weaver.patterns.NamePattern;
+import org.aspectj.weaver.patterns.OrPointcut;
+import org.aspectj.weaver.patterns.Pointcut;
 import org.aspectj.weaver.reflect.ReflectionWorld.ReflectionWorldException;
 import org.aspectj.weaver.reflect.ShadowMatchImpl;
 import org.aspectj.weaver.tools.ContextBasedMatcher;
@@ -57,9 +68,11 @@ import org.springframework.beans.factory.BeanFactoryUtils;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.annotation.BeanFactoryAnnotationUtils;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.core.MethodClassKey;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
@@ -73,6 +86,12 @@ import org.springframework.util.StringUtils;
  * <p>Naturally, as this is to be processed by Spring AOP's proxy-based model,
  * only method execution pointcuts are supported.
  *
+ * <p>The parsed expression and its match results are shared between all equal
+ * pointcuts for the same ClassLoader and BeanFactory, e.g. across advisors
+ * declared with the same expression, and are computed without a lock. Methods
+ * whose name cannot possibly match the {@code execution} designators of the
+ * expression are rejected upfront, without consulting the AspectJ weaver.
+ *
  * @author Rob Harrop
  * @author Adrian Colyer
  * @author Rod Johnson
@@ -103,6 +122,16 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 
 	private static final Log logger = LogFactory.getLog(AspectJExpressionPointcut.class);
 
+	private static final ShadowMatch NO_MATCH = new ShadowMatchImpl(org.aspectj.util.FuzzyBoolean.NO, null, null, null);
+
+	/**
+	 * Matching state shared between equal pointcuts of the same BeanFactory,
+	 * which is weakly referenced: neither the keys nor the shared states keep
+	 * a BeanFactory or its ClassLoader from being garbage collected.
+	 */
+	private static final Map<BeanFactory, Map<MatchingStateKey, MatchingState>> sharedMatchingStates =
+			Collections.synchronizedMap(new WeakHashMap<>());
+
 	@Nullable
 	private Class<?> pointcutDeclarationScope;
 
@@ -119,7 +148,8 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 	@Nullable
 	private transient PointcutExpression pointcutExpression;
 
-	private transient Map<Method, ShadowMatch> shadowMatchCache = new ConcurrentHashMap<>(32);
+	@Nullable
+	private transient MatchingState matchingState;
 
 
 	/**
@@ -195,11 +225,58 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 		}
 		if (this.pointcutExpression == null) {
 			this.pointcutClassLoader = determinePointcutClassLoader();
-			this.pointcutExpression = buildPointcutExpression(this.pointcutClassLoader);
+			MatchingState matchingState = obtainSharedMatchingState(this.pointcutClassLoader);
+			this.matchingState = matchingState;
+			this.pointcutExpression = matchingState.pointcutExpression;
 		}
 		return this.pointcutExpression;
 	}
 
+	/**
+	 * Return the matching state for this pointcut, lazily building it if necessary.
+	 */
+	private MatchingState obtainMatchingState() {
+		obtainPointcutExpression();
+		MatchingState matchingState = this.matchingState;
+		Assert.state(matchingState != null, "No MatchingState available");
+		return matchingState;
+	}
+
+	/**
+	 * Obtain the matching state for an equal pointcut of the same BeanFactory
+	 * from the shared cache, parsing the expression for the given ClassLoader
+	 * if not present yet.
+	 * <p>Pointcuts without a BeanFactory, as well as subclasses which may
+	 * customize {@link #getCurrentProxiedBeanName()}, use their own state.
+	 */
+	private MatchingState obtainSharedMatchingState(@Nullable ClassLoader classLoader) {
+		BeanFactory beanFactory = this.beanFactory;
+		if (!isMatchingStateShared() || beanFactory == null) {
+			return new MatchingState(buildPointcutExpression(classLoader));
+		}
+		Map<MatchingStateKey, MatchingState> matchingStates =
+				sharedMatchingStates.computeIfAbsent(beanFactory, bf -> new ConcurrentReferenceHashMap<>(64));
+		MatchingStateKey key = new MatchingStateKey(resolveExpression(), this.pointcutDeclarationScope,
+				this.pointcutParameterNames, this.pointcutParameterTypes, classLoader);
+		MatchingState matchingState = matchingStates.get(key);
+		if (matchingState == null) {
+			matchingState = new MatchingState(buildPointcutExpression(classLoader));
+			MatchingState existing = matchingStates.putIfAbsent(key, matchingState);
+			if (existing != null) {
+				matchingState = existing;
+			}
+		}
+		return matchingState;
+	}
+
+	/**
+	 * Determine whether this pointcut shares its matching state with equal
+	 * pointcuts of the same BeanFactory.
+	 */
+	private boolean isMatchingStateShared() {
+		return (this.beanFactory != null && getClass() == AspectJExpressionPointcut.class);
+	}
+
 	/**
 	 * Determine the ClassLoader to use for pointcut evaluation.
 	 */
@@ -241,10 +318,23 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 		PointcutParser parser = PointcutParser
 				.getPointcutParserSupportingSpecifiedPrimitivesAndUsingSpecifiedClassLoaderForResolution(
 						SUPPORTED_PRIMITIVES, classLoader);
-		parser.registerPointcutDesignatorHandler(new BeanPointcutDesignatorHandler());
+		parser.registerPointcutDesignatorHandler(createBeanPointcutDesignatorHandler());
 		return parser;
 	}
 
+	/**
+	 * Create the handler for the {@code bean()} pointcut designator. A shared
+	 * matching state must not hold on to this pointcut or the BeanFactory.
+	 */
+	private BeanPointcutDesignatorHandler createBeanPointcutDesignatorHandler() {
+		if (isMatchingStateShared()) {
+			WeakReference<BeanFactory> beanFactoryRef = new WeakReference<>(this.beanFactory);
+			return new BeanPointcutDesignatorHandler(
+					ProxyCreationContext::getCurrentProxiedBeanName, beanFactoryRef::get);
+		}
+		return new BeanPointcutDesignatorHandler(this::getCurrentProxiedBeanName, () -> this.beanFactory);
+	}
+
 
 	/**
 	 * If a pointcut expression has been specified in XML, the user cannot
@@ -426,6 +516,20 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 	}
 
 	private ShadowMatch getTargetShadowMatch(Method method, Class<?> targetClass) {
+		MatchingState matchingState = obtainMatchingState();
+		if (!matchingState.mayMatchMethodName(method.getName())) {
+			return NO_MATCH;
+		}
+		MethodClassKey cacheKey = new MethodClassKey(method, targetClass);
+		ShadowMatch shadowMatch = matchingState.targetShadowMatchCache.get(cacheKey);
+		if (shadowMatch == null) {
+			shadowMatch = getShadowMatch(resolveTargetMethod(method, targetClass), method);
+			matchingState.targetShadowMatchCache.put(cacheKey, shadowMatch);
+		}
+		return shadowMatch;
+	}
+
+	private Method resolveTargetMethod(Method method, Class<?> targetClass) {
 		Method targetMethod = AopUtils.getMostSpecificMethod(method, targetClass);
 		if (targetMethod.getDeclaringClass().isInterface()) {
 			// Try to build the most specific interface possible for inherited methods to be
@@ -444,76 +548,86 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 				}
 			}
 		}
-		return getShadowMatch(targetMethod, method);
+		return targetMethod;
 	}
 
 	private ShadowMatch getShadowMatch(Method targetMethod, Method originalMethod) {
-		// Avoid lock contention for known Methods through concurrent access...
-		ShadowMatch shadowMatch = this.shadowMatchCache.get(targetMethod);
+		// No lock: concurrent computations for the same Method yield equivalent
+		// results, with the first one registered being reused from then on.
+		MatchingState matchingState = obtainMatchingState();
+		ShadowMatch shadowMatch = matchingState.shadowMatchCache.get(targetMethod);
 		if (shadowMatch == null) {
-			synchronized (this.shadowMatchCache) {
-				// Not found - now check again with full lock...
-				PointcutExpression fallbackExpression = null;
-				shadowMatch = this.shadowMatchCache.get(targetMethod);
-				if (shadowMatch == null) {
-					Method methodToMatch = targetMethod;
+			if (!matchingState.mayMatchMethodName(targetMethod.getName())) {
+				shadowMatch = NO_MATCH;
+			}
+			else {
+				shadowMatch = computeShadowMatch(targetMethod, originalMethod);
+			}
+			ShadowMatch existing = matchingState.shadowMatchCache.putIfAbsent(targetMethod, shadowMatch);
+			if (existing != null) {
+				shadowMatch = existing;
+			}
+		}
+		return shadowMatch;
+	}
+
+	private ShadowMatch computeShadowMatch(Method targetMethod, Method originalMethod) {
+		PointcutExpression fallbackExpression = null;
+		ShadowMatch shadowMatch = null;
+		Method methodToMatch = targetMethod;
+		try {
+			try {
+				shadowMatch = obtainPointcutExpression().matchesMethodExecution(methodToMatch);
+			}
+			catch (ReflectionWorldException ex) {
+				// Failed to introspect target method, probably because it has been loaded
+				// in a special ClassLoader. Let's try the declaring ClassLoader instead...
+				try {
+					fallbackExpression = getFallbackPointcutExpression(methodToMatch.getDeclaringClass());
+					if (fallbackExpression != null) {
+						shadowMatch = fallbackExpression.matchesMethodExecution(methodToMatch);
+					}
+				}
+				catch (ReflectionWorldException ex2) {
+					fallbackExpression = null;
+				}
+			}
+			if (targetMethod != originalMethod && (shadowMatch == null ||
+					(shadowMatch.neverMatches() && Proxy.isProxyClass(targetMethod.getDeclaringClass())))) {
+				// Fall back to the plain original method in case of no resolvable match or a
+				// negative match on a proxy class (which doesn't carry any annotations on its
+				// redeclared methods).
+				methodToMatch = originalMethod;
+				try {
+					shadowMatch = obtainPointcutExpression().matchesMethodExecution(methodToMatch);
+				}
+				catch (ReflectionWorldException ex) {
+					// Could neither introspect the target class nor the proxy class ->
+					// let's try the original method's declaring class before we give up...
 					try {
-						try {
-							shadowMatch = obtainPointcutExpression().matchesMethodExecution(methodToMatch);
-						}
-						catch (ReflectionWorldException ex) {
-							// Failed to introspect target method, probably because it has been loaded
-							// in a special ClassLoader. Let's try the declaring ClassLoader instead...
-							try {
-								fallbackExpression = getFallbackPointcutExpression(methodToMatch.getDeclaringClass());
-								if (fallbackExpression != null) {
-									shadowMatch = fallbackExpression.matchesMethodExecution(methodToMatch);
-								}
-							}
-							catch (ReflectionWorldException ex2) {
-								fallbackExpression = null;
-							}
-						}
-						if (targetMethod != originalMethod && (shadowMatch == null ||
-								(shadowMatch.neverMatches() && Proxy.isProxyClass(targetMethod.getDeclaringClass())))) {
-							// Fall back to the plain original method in case of no resolvable match or a
-							// negative match on a proxy class (which doesn't carry any annotations on its
-							// redeclared methods).
-							methodToMatch = originalMethod;
-							try {
-								shadowMatch = obtainPointcutExpression().matchesMethodExecution(methodToMatch);
-							}
-							catch (ReflectionWorldException ex) {
-								// Could neither introspect the target class nor the proxy class ->
-								// let's try the original method's declaring class before we give up...
-								try {
-									fallbackExpression = getFallbackPointcutExpression(methodToMatch.getDeclaringClass());
-									if (fallbackExpression != null) {
-										shadowMatch = fallbackExpression.matchesMethodExecution(methodToMatch);
-									}
-								}
-								catch (ReflectionWorldException ex2) {
-									fallbackExpression = null;
-								}
-							}
+						fallbackExpression = getFallbackPointcutExpression(methodToMatch.getDeclaringClass());
+						if (fallbackExpression != null) {
+							shadowMatch = fallbackExpression.matchesMethodExecution(methodToMatch);
 						}
 					}
-					catch (Throwable ex) {
-						// Possibly AspectJ 1.8.10 encountering an invalid signature
-						logger.debug("PointcutExpression matching rejected target method", ex);
+					catch (ReflectionWorldException ex2) {
 						fallbackExpression = null;
 					}
-					if (shadowMatch == null) {
-						shadowMatch = new ShadowMatchImpl(org.aspectj.util.FuzzyBoolean.NO, null, null, null);
-					}
-					else if (shadowMatch.maybeMatches() && fallbackExpression != null) {
-						shadowMatch = new DefensiveShadowMatch(shadowMatch,
-								fallbackExpression.matchesMethodExecution(methodToMatch));
-					}
-					this.shadowMatchCache.put(targetMethod, shadowMatch);
 				}
 			}
 		}
+		catch (Throwable ex) {
+			// Possibly AspectJ 1.8.10 encountering an invalid signature
+			logger.debug("PointcutExpression matching rejected target method", ex);
+			fallbackExpression = null;
+		}
+		if (shadowMatch == null) {
+			shadowMatch = NO_MATCH;
+		}
+		else if (shadowMatch.maybeMatches() && fallbackExpression != null) {
+			shadowMatch = new DefensiveShadowMatch(shadowMatch,
+					fallbackExpression.matchesMethodExecution(methodToMatch));
+		}
 		return shadowMatch;
 	}
 
@@ -575,8 +689,7 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 		ois.defaultReadObject();
 
 		// Initialize transient fields.
-		// pointcutExpression will be initialized lazily by checkReadyToMatch()
-		this.shadowMatchCache = new ConcurrentHashMap<>(32);
+		// pointcutExpression and matchingState will be initialized lazily by obtainPointcutExpression()
 	}
 
 
@@ -588,10 +701,21 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 	 * automatically by examining a thread local variable and therefore a matching
 	 * context need not be set on the pointcut.
 	 */
-	private class BeanPointcutDesignatorHandler implements PointcutDesignatorHandler {
+	private static class BeanPointcutDesignatorHandler implements PointcutDesignatorHandler {
 
 		private static final String BEAN_DESIGNATOR_NAME = "bean";
 
+		private final Supplier<String> proxiedBeanNameSupplier;
+
+		private final Supplier<BeanFactory> beanFactorySupplier;
+
+		public BeanPointcutDesignatorHandler(
+				Supplier<String> proxiedBeanNameSupplier, Supplier<BeanFactory> beanFactorySupplier) {
+
+			this.proxiedBeanNameSupplier = proxiedBeanNameSupplier;
+			this.beanFactorySupplier = beanFactorySupplier;
+		}
+
 		@Override
 		public String getDesignatorName() {
 			return BEAN_DESIGNATOR_NAME;
@@ -599,7 +723,7 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 
 		@Override
 		public ContextBasedMatcher parse(String expression) {
-			return new BeanContextMatcher(expression);
+			return new BeanContextMatcher(expression, this.proxiedBeanNameSupplier, this.beanFactorySupplier);
 		}
 	}
 
@@ -611,12 +735,20 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 	 * For static match tests, this matcher abstains to allow the overall
 	 * pointcut to match even when negation is used with the bean() pointcut.
 	 */
-	private class BeanContextMatcher implements ContextBasedMatcher {
+	private static class BeanContextMatcher implements ContextBasedMatcher {
 
 		private final NamePattern expressionPattern;
 
-		public BeanContextMatcher(String expression) {
+		private final Supplier<String> proxiedBeanNameSupplier;
+
+		private final Supplier<BeanFactory> beanFactorySupplier;
+
+		public BeanContextMatcher(String expression,
+				Supplier<String> proxiedBeanNameSupplier, Supplier<BeanFactory> beanFactorySupplier) {
+
 			this.expressionPattern = new NamePattern(expression);
+			this.proxiedBeanNameSupplier = proxiedBeanNameSupplier;
+			this.beanFactorySupplier = beanFactorySupplier;
 		}
 
 		@Override
@@ -649,7 +781,7 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 		}
 
 		private FuzzyBoolean contextMatch(@Nullable Class<?> targetType) {
-			String advisedBeanName = getCurrentProxiedBeanName();
+			String advisedBeanName = this.proxiedBeanNameSupplier.get();
 			if (advisedBeanName == null) {  // no proxy creation in progress
 				// abstain; can't return YES, since that will make pointcut with negation fail
 				return FuzzyBoolean.MAYBE;
@@ -670,7 +802,7 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 
 		private boolean matchesBean(String advisedBeanName) {
 			return BeanFactoryAnnotationUtils.isQualifierMatch(
-					this.expressionPattern::matches, advisedBeanName, beanFactory);
+					this.expressionPattern::matches, advisedBeanName, this.beanFactorySupplier.get());
 		}
 	}
 
@@ -718,4 +850,120 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 		}
 	}
 
+
+
+	/**
+	 * Cache key for {@link MatchingState} instances shared between equal pointcuts
+	 * of the same BeanFactory. The ClassLoader is compared by identity.
+	 */
+	private static final class MatchingStateKey {
+
+		private final String expression;
+
+		@Nullable
+		private final Class<?> declarationScope;
+
+		private final String[] parameterNames;
+
+		private final Class<?>[] parameterTypes;
+
+		@Nullable
+		private final ClassLoader classLoader;
+
+		public MatchingStateKey(String expression, @Nullable Class<?> declarationScope, String[] parameterNames,
+				Class<?>[] parameterTypes, @Nullable ClassLoader classLoader) {
+
+			this.expression = expression;
+			this.declarationScope = declarationScope;
+			this.parameterNames = parameterNames.clone();
+			this.parameterTypes = parameterTypes.clone();
+			this.classLoader = classLoader;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof MatchingStateKey)) {
+				return false;
+			}
+			MatchingStateKey otherKey = (MatchingStateKey) other;
+			return (this.expression.equals(otherKey.expression) &&
+					this.declarationScope == otherKey.declarationScope &&
+					Arrays.equals(this.parameterNames, otherKey.parameterNames) &&
+					Arrays.equals(this.parameterTypes, otherKey.parameterTypes) &&
+					this.classLoader == otherKey.classLoader);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.expression.hashCode() * 29 + ObjectUtils.nullSafeHashCode(this.declarationScope);
+		}
+	}
+
+
+	/**
+	 * The parsed expression along with its match results per method and
+	 * per method on a specific target class, and a method name filter
+	 * derived from the expression's structure.
+	 */
+	private static final class MatchingState {
+
+		final PointcutExpression pointcutExpression;
+
+		final Map<Method, ShadowMatch> shadowMatchCache = new ConcurrentHashMap<>(32);
+
+		final Map<MethodClassKey, ShadowMatch> targetShadowMatchCache = new ConcurrentHashMap<>(32);
+
+		@Nullable
+		private final Predicate<String> methodNameFilter;
+
+		public MatchingState(PointcutExpression pointcutExpression) {
+			this.pointcutExpression = pointcutExpression;
+			this.methodNameFilter = (pointcutExpression instanceof PointcutExpressionImpl ?
+					buildMethodNameFilter(((PointcutExpressionImpl) pointcutExpression).getUnderlyingPointcut()) :
+					null);
+		}
+
+		/**
+		 * Determine whether a method with the given name could possibly match.
+		 * A {@code false} result is definitive; {@code true} requires a full match.
+		 */
+		public boolean mayMatchMethodName(String methodName) {
+			return (this.methodNameFilter == null || this.methodNameFilter.test(methodName));
+		}
+
+		/**
+		 * Derive a conservative method name filter from the given pointcut:
+		 * method execution designators contribute their name pattern, combined
+		 * according to the enclosing {@code &&} and {@code ||} operators.
+		 * @return the filter, or {@code null} if any method name may match
+		 */
+		@Nullable
+		private static Predicate<String> buildMethodNameFilter(@Nullable Pointcut pointcut) {
+			if (pointcut instanceof KindedPointcut) {
+				KindedPointcut kindedPointcut = (KindedPointcut) pointcut;
+				if (kindedPointcut.getKind() == Shadow.MethodExecution) {
+					NamePattern namePattern = kindedPointcut.getSignature().getName();
+					return (namePattern.isAny() ? null : namePattern::matches);
+				}
+			}
+			else if (pointcut instanceof AndPointcut) {
+				AndPointcut andPointcut = (AndPointcut) pointcut;
+				Predicate<String> left = buildMethodNameFilter(andPointcut.getLeft());
+				Predicate<String> right = buildMethodNameFilter(andPointcut.getRight());
+				return (left == null ? right : (right == null ? left : left.and(right)));
+			}
+			else if (pointcut instanceof OrPointcut) {
+				OrPointcut orPointcut = (OrPointcut) pointcut;
+				Predicate<String> left = buildMethodNameFilter(orPointcut.getLeft());
+				Predicate<String> right = buildMethodNameFilter(orPointcut.getRight());
+				return (left == null || right == null ? null : left.or(right));
+			}
+			// Negations and all other designators leave the method name unconstrained.
+			return null;
+		}
+	}
+
 }
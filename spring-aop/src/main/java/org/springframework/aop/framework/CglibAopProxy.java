@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.aopalliance.aop.Advice;
 import org.aopalliance.intercept.MethodInvocation;
@@ -337,7 +338,7 @@ class CglibAopProxy implements AopProxy, Serializable {
 				List<Object> chain = this.advised.getInterceptorsAndDynamicInterceptionAdvice(method, rootClass);
 				fixedCallbacks[x] = new FixedChainStaticTargetInterceptor(
 						chain, this.advised.getTargetSource().getTarget(), this.advised.getTargetClass());
-				this.fixedInterceptorMap.put(methods.toString(), x);
+				this.fixedInterceptorMap.put(method.toString(), x);
 			}
 
 			// Now copy both the callbacks from mainCallbacks
@@ -658,6 +659,13 @@ class CglibAopProxy implements AopProxy, Serializable {
 
 		private final AdvisedSupport advised;
 
+		/**
+		 * Interceptor chains per method, resolved on first invocation once the
+		 * configuration is {@link AdvisedSupport#isFrozen() frozen}.
+		 */
+		@Nullable
+		private transient volatile Map<Method, List<Object>> frozenChains;
+
 		public DynamicAdvisedInterceptor(AdvisedSupport advised) {
 			this.advised = advised;
 		}
@@ -678,7 +686,8 @@ class CglibAopProxy implements AopProxy, Serializable {
 				// Get as late as possible to minimize the time we "own" the target, in case it comes from a pool...
 				target = targetSource.getTarget();
 				Class<?> targetClass = (target != null ? target.getClass() : null);
-				List<Object> chain = this.advised.getInterceptorsAndDynamicInterceptionAdvice(method, targetClass);
+				List<Object> chain = (this.advised.isFrozen() ? getFrozenChain(method, targetClass) :
+						this.advised.getInterceptorsAndDynamicInterceptionAdvice(method, targetClass));
 				Object retVal;
 				// Check whether we only have one InvokerInterceptor: that is,
 				// no real advice, but just reflective invocation of the target.
@@ -708,6 +717,20 @@ class CglibAopProxy implements AopProxy, Serializable {
 			}
 		}
 
+		private List<Object> getFrozenChain(Method method, @Nullable Class<?> targetClass) {
+			Map<Method, List<Object>> frozenChains = this.frozenChains;
+			if (frozenChains == null) {
+				frozenChains = new ConcurrentHashMap<>(32);
+				this.frozenChains = frozenChains;
+			}
+			List<Object> chain = frozenChains.get(method);
+			if (chain == null) {
+				chain = this.advised.getInterceptorsAndDynamicInterceptionAdvice(method, targetClass);
+				frozenChains.put(method, chain);
+			}
+			return chain;
+		}
+
 		@Override
 		public boolean equals(Object other) {
 			return (this == other ||
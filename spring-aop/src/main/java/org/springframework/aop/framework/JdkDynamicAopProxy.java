@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,9 +18,12 @@ package org.springframework.aop.framework;
 
 import java.io.Serializable;
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.aopalliance.intercept.MethodInvocation;
 import org.apache.commons.logging.Log;
@@ -31,6 +34,7 @@ import org.springframework.aop.RawTargetAccess;
 import org.springframework.aop.TargetSource;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.core.DecoratingProxy;
+import org.springframework.core.DirectMethodInvoker;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
@@ -92,6 +96,13 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 	 */
 	private boolean hashCodeDefined;
 
+	/**
+	 * Dispatch state per method, pre-linked on first invocation once the
+	 * configuration is {@link AdvisedSupport#isFrozen() frozen}.
+	 */
+	@Nullable
+	private transient volatile Map<Method, PreLinkedMethod> preLinkedMethods;
+
 
 	/**
 	 * Construct a new JdkDynamicAopProxy for the given AOP configuration.
@@ -156,6 +167,10 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 	@Override
 	@Nullable
 	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		if (this.advised.isFrozen()) {
+			return invokePreLinked(proxy, method, args);
+		}
+
 		Object oldProxy = null;
 		boolean setProxyContext = false;
 		// 获取被代理对象的来源
@@ -253,6 +268,145 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 		}
 	}
 
+	/**
+	 * Variant of {@link #invoke} for a frozen configuration: the method
+	 * classification and the interceptor chain are resolved once per method
+	 * and reused for subsequent invocations, and the target method is called
+	 * through a generated {@link DirectMethodInvoker} rather than reflectively.
+	 * @since 5.1.13
+	 */
+	@Nullable
+	private Object invokePreLinked(Object proxy, Method method, @Nullable Object[] args) throws Throwable {
+		PreLinkedMethod linked = getPreLinkedMethod(method);
+		switch (linked.dispatch) {
+			case PreLinkedMethod.EQUALS:
+				return equals(args[0]);
+			case PreLinkedMethod.HASH_CODE:
+				return hashCode();
+			case PreLinkedMethod.DECORATED_CLASS:
+				return AopProxyUtils.ultimateTargetClass(this.advised);
+			case PreLinkedMethod.ADVISED:
+				if (!this.advised.opaque) {
+					return AopUtils.invokeJoinpointUsingReflection(this.advised, method, args);
+				}
+		}
+
+		Object oldProxy = null;
+		boolean setProxyContext = false;
+		TargetSource targetSource = this.advised.targetSource;
+		Object target = null;
+
+		try {
+			if (this.advised.exposeProxy) {
+				// Make invocation available if necessary.
+				oldProxy = AopContext.setCurrentProxy(proxy);
+				setProxyContext = true;
+			}
+
+			target = targetSource.getTarget();
+			Class<?> targetClass = (target != null ? target.getClass() : null);
+
+			// The chain cannot change anymore: resolve it on first invocation only.
+			List<Object> chain = linked.chain;
+			if (chain == null) {
+				chain = this.advised.getInterceptorsAndDynamicInterceptionAdvice(method, targetClass);
+				linked.chain = chain;
+			}
+
+			Object retVal;
+			if (chain.isEmpty()) {
+				Object[] argsToUse = (linked.varArgs ? AopProxyUtils.adaptArgumentsIfNecessary(method, args) :
+						(args != null ? args : PreLinkedMethod.NO_ARGS));
+				retVal = invokeJoinpoint(linked, target, argsToUse);
+			}
+			else {
+				// The AOP Alliance contract requires a MethodInvocation per call.
+				retVal = new PreLinkedMethodInvocation(proxy, target, method, args, targetClass, chain, linked).proceed();
+			}
+
+			// Massage return value if necessary.
+			Class<?> returnType = linked.returnType;
+			if (retVal != null && retVal == target &&
+					returnType != Object.class && returnType.isInstance(proxy) &&
+					!RawTargetAccess.class.isAssignableFrom(method.getDeclaringClass())) {
+				retVal = proxy;
+			}
+			else if (retVal == null && returnType != Void.TYPE && returnType.isPrimitive()) {
+				throw new AopInvocationException(
+						"Null return value from advice does not match primitive return type for: " + method);
+			}
+			return retVal;
+		}
+		finally {
+			if (target != null && !targetSource.isStatic()) {
+				// Must have come from TargetSource.
+				targetSource.releaseTarget(target);
+			}
+			if (setProxyContext) {
+				// Restore old proxy.
+				AopContext.setCurrentProxy(oldProxy);
+			}
+		}
+	}
+
+	/**
+	 * Invoke the target method of the given pre-linked method, directly if
+	 * possible, with the same exception semantics as
+	 * {@link AopUtils#invokeJoinpointUsingReflection}.
+	 */
+	@Nullable
+	private static Object invokeJoinpoint(PreLinkedMethod linked, @Nullable Object target, Object[] args)
+			throws Throwable {
+
+		DirectMethodInvoker invoker = linked.invoker;
+		if (invoker == null) {
+			return AopUtils.invokeJoinpointUsingReflection(target, linked.method, args);
+		}
+		try {
+			return invoker.invoke(target, args);
+		}
+		catch (InvocationTargetException ex) {
+			// Invoked method threw a checked exception.
+			// We must rethrow it. The client won't see the interceptor.
+			throw ex.getTargetException();
+		}
+		catch (IllegalArgumentException ex) {
+			throw new AopInvocationException("AOP configuration seems to be invalid: tried calling method [" +
+					linked.method + "] on target [" + target + "]", ex);
+		}
+	}
+
+	private PreLinkedMethod getPreLinkedMethod(Method method) {
+		Map<Method, PreLinkedMethod> preLinkedMethods = this.preLinkedMethods;
+		if (preLinkedMethods == null) {
+			preLinkedMethods = new ConcurrentHashMap<>(32);
+			this.preLinkedMethods = preLinkedMethods;
+		}
+		PreLinkedMethod linked = preLinkedMethods.get(method);
+		if (linked == null) {
+			int dispatch;
+			if (!this.equalsDefined && AopUtils.isEqualsMethod(method)) {
+				dispatch = PreLinkedMethod.EQUALS;
+			}
+			else if (!this.hashCodeDefined && AopUtils.isHashCodeMethod(method)) {
+				dispatch = PreLinkedMethod.HASH_CODE;
+			}
+			else if (method.getDeclaringClass() == DecoratingProxy.class) {
+				dispatch = PreLinkedMethod.DECORATED_CLASS;
+			}
+			else if (method.getDeclaringClass().isInterface() &&
+					method.getDeclaringClass().isAssignableFrom(Advised.class)) {
+				dispatch = PreLinkedMethod.ADVISED;
+			}
+			else {
+				dispatch = PreLinkedMethod.CHAIN;
+			}
+			linked = new PreLinkedMethod(method, dispatch);
+			preLinkedMethods.put(method, linked);
+		}
+		return linked;
+	}
+
 
 	/**
 	 * Equality means interfaces, advisors and TargetSource are equal.
@@ -296,4 +450,69 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 		return JdkDynamicAopProxy.class.hashCode() * 13 + this.advised.getTargetSource().hashCode();
 	}
 
+
+	/**
+	 * Dispatch state for a proxied method in a frozen configuration.
+	 */
+	private static final class PreLinkedMethod {
+
+		static final Object[] NO_ARGS = new Object[0];
+
+		static final int CHAIN = 0;
+
+		static final int EQUALS = 1;
+
+		static final int HASH_CODE = 2;
+
+		static final int DECORATED_CLASS = 3;
+
+		static final int ADVISED = 4;
+
+		final Method method;
+
+		final int dispatch;
+
+		final Class<?> returnType;
+
+		final boolean varArgs;
+
+		@Nullable
+		final DirectMethodInvoker invoker;
+
+		@Nullable
+		volatile List<Object> chain;
+
+		PreLinkedMethod(Method method, int dispatch) {
+			this.method = method;
+			this.dispatch = dispatch;
+			this.returnType = method.getReturnType();
+			this.varArgs = method.isVarArgs();
+			this.invoker = (dispatch == CHAIN ? DirectMethodInvoker.forMethod(method) : null);
+		}
+	}
+
+
+	/**
+	 * MethodInvocation for a pre-linked method, invoking the target method
+	 * through the method's {@link DirectMethodInvoker} if available.
+	 */
+	private static class PreLinkedMethodInvocation extends ReflectiveMethodInvocation {
+
+		private final PreLinkedMethod linked;
+
+		public PreLinkedMethodInvocation(Object proxy, @Nullable Object target, Method method,
+				@Nullable Object[] arguments, @Nullable Class<?> targetClass,
+				List<Object> interceptorsAndDynamicMethodMatchers, PreLinkedMethod linked) {
+
+			super(proxy, target, method, arguments, targetClass, interceptorsAndDynamicMethodMatchers);
+			this.linked = linked;
+		}
+
+		@Override
+		@Nullable
+		protected Object invokeJoinpoint() throws Throwable {
+			return JdkDynamicAopProxy.invokeJoinpoint(this.linked, this.target, this.arguments);
+		}
+	}
+
 }
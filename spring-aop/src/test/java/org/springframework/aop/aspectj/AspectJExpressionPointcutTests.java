@@ -31,10 +31,13 @@ import org.springframework.aop.MethodMatcher;
 import org.springframework.aop.Pointcut;
 import org.springframework.aop.framework.ProxyFactory;
 import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.tests.sample.beans.IOther;
 import org.springframework.tests.sample.beans.ITestBean;
 import org.springframework.tests.sample.beans.TestBean;
 import org.springframework.tests.sample.beans.subpkg.DeepBean;
+import org.springframework.util.ClassUtils;
 
 import static org.junit.Assert.*;
 
@@ -306,6 +309,59 @@ public class AspectJExpressionPointcutTests {
 		assertEquals("execution(* *(..)) && args(String) && this(Object)",expr.getPointcutExpression());
 	}
 
+	@Test
+	public void testEqualPointcutsShareParsedExpression() {
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		AspectJExpressionPointcut pc1 = getPointcut("execution(* *..TestBean.*Age(..))", beanFactory);
+		AspectJExpressionPointcut pc2 = getPointcut("execution(* *..TestBean.*Age(..))", beanFactory);
+		AspectJExpressionPointcut pc3 = getPointcut("execution(* *..TestBean.get*(..))", beanFactory);
+		assertSame(pc1.getPointcutExpression(), pc2.getPointcutExpression());
+		assertNotSame(pc1.getPointcutExpression(), pc3.getPointcutExpression());
+
+		assertTrue(pc1.matches(getAge, TestBean.class));
+		assertTrue(pc2.matches(setAge, TestBean.class));
+		assertFalse(pc2.matches(setSomeNumber, TestBean.class));
+	}
+
+	@Test
+	public void testPointcutsShareParsedExpressionPerBeanFactory() {
+		String expression = "execution(* *..TestBean.*Age(..))";
+		AspectJExpressionPointcut pc1 = getPointcut(expression, new DefaultListableBeanFactory());
+		AspectJExpressionPointcut pc2 = getPointcut(expression, new DefaultListableBeanFactory());
+		assertNotSame(pc1.getPointcutExpression(), pc2.getPointcutExpression());
+
+		AspectJExpressionPointcut pc3 = (AspectJExpressionPointcut) getPointcut(expression);
+		AspectJExpressionPointcut pc4 = (AspectJExpressionPointcut) getPointcut(expression);
+		assertNotSame(pc3.getPointcutExpression(), pc4.getPointcutExpression());
+	}
+
+	@Test
+	public void testMethodNameFilterWithCompositeExpressions() {
+		Pointcut disjunction = getPointcut("execution(* get*(..)) || execution(* set*(..))");
+		assertTrue(disjunction.getMethodMatcher().matches(getAge, TestBean.class));
+		assertTrue(disjunction.getMethodMatcher().matches(setSomeNumber, TestBean.class));
+		assertFalse(disjunction.getMethodMatcher().matches(
+				ClassUtils.getMethod(TestBean.class, "absquatulate"), TestBean.class));
+
+		Pointcut conjunction = getPointcut("execution(* set*(..)) && args(int)");
+		assertTrue(conjunction.getMethodMatcher().matches(setAge, TestBean.class));
+		assertFalse(conjunction.getMethodMatcher().matches(getAge, TestBean.class));
+
+		Pointcut negation = getPointcut("!execution(* get*(..))");
+		assertFalse(negation.getMethodMatcher().matches(getAge, TestBean.class));
+		assertTrue(negation.getMethodMatcher().matches(setAge, TestBean.class));
+
+		Pointcut withoutName = getPointcut("execution(* set*(..)) || within(org.springframework.tests.sample.beans.TestBean)");
+		assertTrue(withoutName.getMethodMatcher().matches(getAge, TestBean.class));
+	}
+
+	private AspectJExpressionPointcut getPointcut(String expression, BeanFactory beanFactory) {
+		AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+		pointcut.setExpression(expression);
+		pointcut.setBeanFactory(beanFactory);
+		return pointcut;
+	}
+
 	private Pointcut getPointcut(String expression) {
 		AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
 		pointcut.setExpression(expression);
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.aop.aspectj;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.junit.Test;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.tests.sample.beans.CountingTestBean;
+import org.springframework.tests.sample.beans.DerivedTestBean;
+import org.springframework.tests.sample.beans.IndexedTestBean;
+import org.springframework.tests.sample.beans.NestedTestBean;
+import org.springframework.tests.sample.beans.NumberTestBean;
+import org.springframework.tests.sample.beans.Person;
+import org.springframework.tests.sample.beans.Pet;
+import org.springframework.tests.sample.beans.SerializablePerson;
+import org.springframework.tests.sample.beans.TestBean;
+import org.springframework.util.StopWatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Benchmarks for auto-proxy style proxy creation with many AspectJ expression
+ * pointcuts, i.e. determining the eligible advisors per bean and creating the
+ * proxy, as performed by an auto-proxy creator during context refresh.
+ *
+ * <p>NOTE: No assertions on timing!
+ */
+public class AspectJPointcutMatchingBenchmarkTests {
+
+	/** Increase this if you want meaningful results! */
+	private static final int BEANS = 5_000;
+
+	private static final int POINTCUTS = 200;
+
+	private static final Class<?>[] BEAN_CLASSES = new Class<?>[] {
+			TestBean.class, DerivedTestBean.class, CountingTestBean.class, NestedTestBean.class,
+			IndexedTestBean.class, NumberTestBean.class, Pet.class, SerializablePerson.class};
+
+	private static final String[] EXPRESSIONS = new String[] {
+			"execution(* org.springframework.tests.sample.beans.*.get*(..))",
+			"execution(* org.springframework.tests.sample.beans.*.set%s(..))",
+			"execution(* *..TestBean.*%s(..)) && args(..)",
+			"execution(* *(..)) && within(org.springframework.tests.sample.beans.Pet)",
+			"execution(* *..*Bean.is%s(..)) || execution(* *..*Bean.has%s(..))",
+			"execution(* %s*(..)) && this(org.springframework.tests.sample.beans.ITestBean)",
+			"execution(* org.springframework.tests.sample.beans.Person.*(..))",
+			"@annotation(java.lang.Deprecated)"};
+
+	private static final String[] NAMES = new String[] {"Name", "Age", "Spouse", "Touchy", "Value"};
+
+
+	@Test
+	public void timeProxyCreation() {
+		Assume.group(TestGroup.PERFORMANCE);
+
+		// Warm up before measuring
+		createProxies(findEligibleAdvisors(createAdvisors(POINTCUTS / 4), BEANS / 4));
+
+		StopWatch sw = new StopWatch(BEANS + " beans, " + POINTCUTS + " pointcuts");
+		sw.start("Advisor matching");
+		List<List<Advisor>> eligibleAdvisors = findEligibleAdvisors(createAdvisors(POINTCUTS), BEANS);
+		sw.stop();
+		sw.start("Proxy creation");
+		int advisedBeans = createProxies(eligibleAdvisors);
+		sw.stop();
+		System.out.println(sw.prettyPrint());
+
+		assertTrue(advisedBeans > 0);
+	}
+
+	/**
+	 * Create the given number of advisors, with recurring expressions
+	 * as typically found with advisors declared by several aspects.
+	 */
+	private static List<Advisor> createAdvisors(int count) {
+		List<Advisor> advisors = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			String name = NAMES[(i / EXPRESSIONS.length) % NAMES.length];
+			String expression = EXPRESSIONS[i % EXPRESSIONS.length].replace("%s", name);
+			AspectJExpressionPointcutAdvisor advisor = new AspectJExpressionPointcutAdvisor();
+			advisor.setExpression(expression);
+			advisor.setAdvice((MethodInterceptor) invocation -> invocation.proceed());
+			advisors.add(advisor);
+		}
+		return advisors;
+	}
+
+	private static List<List<Advisor>> findEligibleAdvisors(List<Advisor> advisors, int beans) {
+		List<List<Advisor>> result = new ArrayList<>(beans);
+		for (int i = 0; i < beans; i++) {
+			result.add(AopUtils.findAdvisorsThatCanApply(advisors, BEAN_CLASSES[i % BEAN_CLASSES.length]));
+		}
+		return result;
+	}
+
+	private static int createProxies(List<List<Advisor>> eligibleAdvisors) {
+		int advisedBeans = 0;
+		for (int i = 0; i < eligibleAdvisors.size(); i++) {
+			if (!eligibleAdvisors.get(i).isEmpty()) {
+				ProxyFactory pf = new ProxyFactory();
+				pf.setTargetClass(BEAN_CLASSES[i % BEAN_CLASSES.length]);
+				pf.setProxyTargetClass(true);
+				pf.addAdvisors(eligibleAdvisors.get(i));
+				assertNotNull(pf.getProxy());
+				advisedBeans++;
+			}
+		}
+		return advisedBeans;
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -34,6 +34,8 @@ import org.springframework.aop.support.AopUtils;
 import org.springframework.aop.support.DefaultIntroductionAdvisor;
 import org.springframework.aop.support.DefaultPointcutAdvisor;
 import org.springframework.aop.support.DelegatingIntroductionInterceptor;
+import org.springframework.aop.target.HotSwappableTargetSource;
+import org.springframework.core.DecoratingProxy;
 import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 import org.springframework.core.annotation.Order;
 import org.springframework.tests.TimeStamped;
@@ -380,6 +382,95 @@ public class ProxyFactoryTests {
 		assertEquals("tb", proxy.getName());
 	}
 
+	@Test
+	public void testFrozenJdkProxy() {
+		TestBean target = new TestBean("tb");
+		ProxyFactory pf = new ProxyFactory(target);
+		NopInterceptor nop = new NopInterceptor();
+		pf.addAdvice(nop);
+		pf.setFrozen(true);
+		ITestBean proxy = (ITestBean) pf.getProxy();
+		assertTrue(AopUtils.isJdkDynamicProxy(proxy));
+
+		for (int i = 0; i < 3; i++) {
+			proxy.setAge(i);
+			assertEquals(i, proxy.getAge());
+		}
+		assertEquals(6, nop.getCount());
+		assertEquals(proxy, pf.getProxy());
+		assertEquals(proxy.hashCode(), pf.getProxy().hashCode());
+		assertTrue(((Advised) proxy).isFrozen());
+		assertEquals(1, ((Advised) proxy).getAdvisors().length);
+		assertSame(TestBean.class, ((DecoratingProxy) proxy).getDecoratedClass());
+	}
+
+	@Test
+	public void testFrozenJdkProxyRethrowsTargetException() {
+		for (int interceptorCount = 0; interceptorCount < 2; interceptorCount++) {
+			ProxyFactory pf = new ProxyFactory(new TestBean());
+			for (int i = 0; i < interceptorCount; i++) {
+				pf.addAdvice(new NopInterceptor());
+			}
+			pf.setFrozen(true);
+			ITestBean proxy = (ITestBean) pf.getProxy();
+
+			Exception ex = new Exception();
+			try {
+				proxy.exceptional(ex);
+				fail("Should have thrown Exception");
+			}
+			catch (Throwable thrown) {
+				assertSame(ex, thrown);
+			}
+		}
+	}
+
+	@Test
+	public void testFrozenCglibProxy() {
+		TestBean target = new TestBean("tb");
+		ProxyFactory pf = new ProxyFactory(target);
+		pf.setProxyTargetClass(true);
+		NopInterceptor nop = new NopInterceptor();
+		pf.addAdvice(nop);
+		pf.setFrozen(true);
+		TestBean proxy = (TestBean) pf.getProxy();
+		assertTrue(AopUtils.isCglibProxy(proxy));
+
+		for (int i = 0; i < 3; i++) {
+			proxy.setAge(i);
+			assertEquals(i, proxy.getAge());
+		}
+		assertEquals(6, nop.getCount());
+		assertEquals(2, target.getAge());
+	}
+
+	@Test
+	public void testFrozenCglibProxyWithDynamicTarget() {
+		HotSwappableTargetSource targetSource = new HotSwappableTargetSource(new TestBean("tb1"));
+		ProxyFactory pf = new ProxyFactory();
+		pf.setTargetSource(targetSource);
+		pf.setProxyTargetClass(true);
+		NopInterceptor nop = new NopInterceptor();
+		pf.addAdvice(nop);
+		pf.setFrozen(true);
+		TestBean proxy = (TestBean) pf.getProxy();
+
+		assertEquals("tb1", proxy.getName());
+		targetSource.swap(new TestBean("tb2"));
+		assertEquals("tb2", proxy.getName());
+		assertEquals(2, nop.getCount());
+	}
+
+	@Test
+	public void testFrozenJdkProxyWithOpaqueConfig() {
+		ProxyFactory pf = new ProxyFactory(new TestBean());
+		pf.addInterface(ITestBean.class);
+		pf.setOpaque(true);
+		pf.setFrozen(true);
+		Object proxy = pf.getProxy();
+		assertFalse(proxy instanceof Advised);
+	}
+
 
 	@SuppressWarnings("serial")
 	private static class TimestampIntroductionInterceptor extends DelegatingIntroductionInterceptor
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.junit.Test;
+
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.tests.sample.beans.ITestBean;
+import org.springframework.tests.sample.beans.TestBean;
+import org.springframework.util.StopWatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Benchmarks for invocations through JDK and CGLIB proxies with an
+ * increasing number of interceptors, for frozen and non-frozen configurations.
+ *
+ * <p>NOTE: No assertions on timing!
+ */
+public class ProxyInvocationBenchmarkTests {
+
+	/** Increase this if you want meaningful results! */
+	private static final int INVOCATIONS = 2_000_000;
+
+	private static final int[] INTERCEPTOR_COUNTS = new int[] {0, 1, 3, 6};
+
+
+	@Test
+	public void timeJdkProxyInvocations() {
+		Assume.group(TestGroup.PERFORMANCE);
+		timeInvocations(false);
+	}
+
+	@Test
+	public void timeCglibProxyInvocations() {
+		Assume.group(TestGroup.PERFORMANCE);
+		timeInvocations(true);
+	}
+
+	private void timeInvocations(boolean proxyTargetClass) {
+		StopWatch sw = new StopWatch((proxyTargetClass ? "CGLIB" : "JDK") + " proxy invocations");
+		for (int interceptorCount : INTERCEPTOR_COUNTS) {
+			for (boolean frozen : new boolean[] {false, true}) {
+				ITestBean proxy = createProxy(proxyTargetClass, interceptorCount, frozen);
+				// Warm up before measuring
+				invoke(proxy, INVOCATIONS / 4);
+				sw.start(interceptorCount + " interceptors" + (frozen ? ", frozen" : ""));
+				invoke(proxy, INVOCATIONS);
+				sw.stop();
+			}
+		}
+		System.out.println(sw.prettyPrint());
+	}
+
+	private static ITestBean createProxy(boolean proxyTargetClass, int interceptorCount, boolean frozen) {
+		TestBean target = new TestBean();
+		ProxyFactory pf = new ProxyFactory(target);
+		pf.setProxyTargetClass(proxyTargetClass);
+		for (int i = 0; i < interceptorCount; i++) {
+			pf.addAdvice((MethodInterceptor) invocation -> invocation.proceed());
+		}
+		pf.setFrozen(frozen);
+		return (ITestBean) pf.getProxy();
+	}
+
+	private static void invoke(ITestBean proxy, int invocations) {
+		for (int i = 0; i < invocations; i++) {
+			proxy.setAge(i);
+			assertEquals(i, proxy.getAge());
+		}
+	}
+
+}
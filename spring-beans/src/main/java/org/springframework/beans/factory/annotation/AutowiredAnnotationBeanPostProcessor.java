@@ -507,11 +507,12 @@ public class AutowiredAnnotationBeanPostProcessor extends InstantiationAwareBean
 		// 用于存储所有需要注入的元素
 		List<InjectionMetadata.InjectedElement> elements = new ArrayList<>();
 		Class<?> targetClass = clazz;
+		InjectionMetadataIndex index = InjectionMetadataIndexLoader.loadIndex(clazz.getClassLoader());
 
 		do {
 			final List<InjectionMetadata.InjectedElement> currElements = new ArrayList<>();
 			// 遍历bean的所有field
-			ReflectionUtils.doWithLocalFields(targetClass, field -> {
+			ReflectionUtils.FieldCallback fieldCallback = field -> {
 				// 查找field的@Autowired/@Value/@Inject注解属性
 				AnnotationAttributes ann = findAutowiredAnnotation(field);
 				if (ann != null) {
@@ -536,9 +537,9 @@ public class AutowiredAnnotationBeanPostProcessor extends InstantiationAwareBean
 					// 构造注入点添加到集合中
 					currElements.add(new AutowiredFieldElement(field, required));
 				}
-			});
+			};
 			// 遍历bean的所有Methods, 跟上一段代码类似
-			ReflectionUtils.doWithLocalMethods(targetClass, method -> {
+			ReflectionUtils.MethodCallback methodCallback = method -> {
 				// 根据当前方法寻找相关的桥接方法(跟泛型有关)
 				Method bridgedMethod = BridgeMethodResolver.findBridgedMethod(method);
 				if (!BridgeMethodResolver.isVisibilityBridgeMethodPair(method, bridgedMethod)) {
@@ -566,7 +567,19 @@ public class AutowiredAnnotationBeanPostProcessor extends InstantiationAwareBean
 					PropertyDescriptor pd = BeanUtils.findPropertyForMethod(bridgedMethod, clazz);
 					currElements.add(new AutowiredMethodElement(method, required, pd));
 				}
-			});
+			};
+
+			InjectionMetadataIndex.AnnotatedMembers members = (index != null ?
+					index.getAnnotatedMembers(targetClass, this.autowiredAnnotationTypes) : null);
+			if (members != null) {
+				// Indexed at compile time: only introspect the members known to be annotated
+				members.doWithFields(fieldCallback);
+				members.doWithMethods(methodCallback);
+			}
+			else {
+				ReflectionUtils.doWithLocalFields(targetClass, fieldCallback);
+				ReflectionUtils.doWithLocalMethods(targetClass, methodCallback);
+			}
 
 			elements.addAll(0, currElements);
 			// 递归当前类的父类
@@ -231,6 +231,14 @@ public class InitDestroyAnnotationBeanPostProcessor
 		// 用于存储当前类及父类的销毁方法
 		List<LifecycleElement> destroyMethods = new ArrayList<>();
 		Class<?> targetClass = clazz;
+		InjectionMetadataIndex index = InjectionMetadataIndexLoader.loadIndex(clazz.getClassLoader());
+		List<Class<? extends Annotation>> annotationTypes = new ArrayList<>(2);
+		if (this.initAnnotationType != null) {
+			annotationTypes.add(this.initAnnotationType);
+		}
+		if (this.destroyAnnotationType != null) {
+			annotationTypes.add(this.destroyAnnotationType);
+		}
 
 		do {
 			// 用于存储当前类的初始化方法
@@ -238,7 +246,7 @@ public class InitDestroyAnnotationBeanPostProcessor
 			// 用于存储当前类的销毁方法
 			final List<LifecycleElement> currDestroyMethods = new ArrayList<>();
 			// 遍历当前class所有的方法
-			ReflectionUtils.doWithLocalMethods(targetClass, method -> {
+			ReflectionUtils.MethodCallback methodCallback = method -> {
 				// 判断方法上是否存在初始化注解: @PostConstruct
 				if (this.initAnnotationType != null && method.isAnnotationPresent(this.initAnnotationType)) {
 					LifecycleElement element = new LifecycleElement(method);
@@ -254,7 +262,16 @@ public class InitDestroyAnnotationBeanPostProcessor
 						logger.trace("Found destroy method on class [" + clazz.getName() + "]: " + method);
 					}
 				}
-			});
+			};
+			InjectionMetadataIndex.AnnotatedMembers members = (index != null ?
+					index.getAnnotatedMembers(targetClass, annotationTypes) : null);
+			if (members != null) {
+				// Indexed at compile time: only introspect the methods known to be annotated
+				members.doWithMethods(methodCallback);
+			}
+			else {
+				ReflectionUtils.doWithLocalMethods(targetClass, methodCallback);
+			}
 			// 将初始化方法加入集合, 父类初始化方法从头部插入, 说明初始化调用时, 会先执行父类的初始化方法.
 			initMethods.addAll(0, currInitMethods);
 			// 将销毁方法加入集合, 父类销毁方法插入尾部, 销毁从子类开始销毁
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Provide access to the injection members that are defined in
+ * {@code META-INF/spring.injection}, as generated by the
+ * {@code spring-context-indexer} annotation processor.
+ *
+ * <p>The index lists the fields and methods that each compiled class declares
+ * with one of the {@linkplain #INDEXED_ANNOTATION_TYPES indexed annotation types},
+ * either directly or as a meta-annotation. Post-processors building injection or
+ * lifecycle metadata may introspect these members only, rather than walking all
+ * declared members of the class through reflection. The index is keyed by class
+ * name, with each entry a comma-separated list of member descriptors:
+ * <pre class="code">
+ * com.example.MyService=org.springframework.beans.factory.annotation.Autowired#repository,\
+ *         javax.annotation.PostConstruct#init()
+ * </pre>
+ *
+ * <p>A class without an entry has not been indexed and needs to be introspected
+ * as usual; an entry without members means that the class does not declare any
+ * annotated members at all. Method parameter types are separated by {@code ;}.
+ *
+ * @since 5.1.13
+ * @see InjectionMetadataIndexLoader
+ */
+public class InjectionMetadataIndex {
+
+	/**
+	 * The annotation types that the index records members for.
+	 */
+	public static final Set<String> INDEXED_ANNOTATION_TYPES = Collections.unmodifiableSet(new LinkedHashSet<>(
+			Arrays.asList("org.springframework.beans.factory.annotation.Autowired",
+					"org.springframework.beans.factory.annotation.Value", "javax.inject.Inject",
+					"javax.annotation.Resource", "javax.annotation.PostConstruct", "javax.annotation.PreDestroy",
+					"javax.xml.ws.WebServiceRef", "javax.ejb.EJB")));
+
+	private static final Log logger = LogFactory.getLog(InjectionMetadataIndex.class);
+
+
+	private final Map<String, List<Entry>> index;
+
+
+	InjectionMetadataIndex(List<Properties> content) {
+		this.index = parseIndex(content);
+	}
+
+
+	/**
+	 * Return the members declared by the given class that are annotated with
+	 * one of the given annotation types, in declaration order.
+	 * <p>Indexed members are only resolved against the class itself: the caller
+	 * is expected to check the actual annotations of each member, as it would
+	 * for members found through reflection. Since the index does not cover the
+	 * interfaces of the class, their default methods are always included,
+	 * analogous to {@link ReflectionUtils#doWithLocalMethods}.
+	 * @param clazz the class to check
+	 * @param annotationTypes the annotation types of interest
+	 * @return the annotated members, or {@code null} if the class is not
+	 * indexed, if any of the annotation types is not indexed or if the entry
+	 * does not match the class anymore
+	 */
+	@Nullable
+	public AnnotatedMembers getAnnotatedMembers(Class<?> clazz,
+			Collection<? extends Class<? extends Annotation>> annotationTypes) {
+
+		List<Entry> entries = this.index.get(clazz.getName());
+		if (entries == null) {
+			return null;
+		}
+		Set<String> annotationTypeNames = new LinkedHashSet<>(annotationTypes.size());
+		for (Class<? extends Annotation> annotationType : annotationTypes) {
+			if (!INDEXED_ANNOTATION_TYPES.contains(annotationType.getName())) {
+				return null;
+			}
+			annotationTypeNames.add(annotationType.getName());
+		}
+
+		Set<Field> fields = new LinkedHashSet<>();
+		Set<Method> methods = new LinkedHashSet<>();
+		for (Entry entry : entries) {
+			if (annotationTypeNames.contains(entry.annotationType)) {
+				try {
+					if (entry.parameterTypes == null) {
+						fields.add(clazz.getDeclaredField(entry.name));
+					}
+					else {
+						Class<?>[] parameterTypes = new Class<?>[entry.parameterTypes.length];
+						for (int i = 0; i < parameterTypes.length; i++) {
+							parameterTypes[i] = ClassUtils.forName(entry.parameterTypes[i], clazz.getClassLoader());
+						}
+						methods.add(clazz.getDeclaredMethod(entry.name, parameterTypes));
+					}
+				}
+				catch (ReflectiveOperationException | LinkageError ex) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Ignoring outdated injection index entry for class [" + clazz.getName() +
+								"]: " + ex);
+					}
+					return null;
+				}
+			}
+		}
+		for (Class<?> ifc : clazz.getInterfaces()) {
+			for (Method ifcMethod : ifc.getMethods()) {
+				if (!Modifier.isAbstract(ifcMethod.getModifiers())) {
+					methods.add(ifcMethod);
+				}
+			}
+		}
+		return new AnnotatedMembers(new ArrayList<>(fields), new ArrayList<>(methods));
+	}
+
+	private static Map<String, List<Entry>> parseIndex(List<Properties> content) {
+		Map<String, List<Entry>> index = new HashMap<>();
+		for (Properties entry : content) {
+			entry.forEach((type, values) -> {
+				List<Entry> entries = new ArrayList<>();
+				for (String member : StringUtils.commaDelimitedListToStringArray((String) values)) {
+					if (StringUtils.hasText(member)) {
+						entries.add(new Entry(member.trim()));
+					}
+				}
+				index.put((String) type, entries);
+			});
+		}
+		return index;
+	}
+
+
+	/**
+	 * The annotated members of a class, as returned by
+	 * {@link #getAnnotatedMembers(Class, Collection)}.
+	 */
+	public static final class AnnotatedMembers {
+
+		private final List<Field> fields;
+
+		private final List<Method> methods;
+
+		AnnotatedMembers(List<Field> fields, List<Method> methods) {
+			this.fields = fields;
+			this.methods = methods;
+		}
+
+		/**
+		 * Return the annotated fields.
+		 */
+		public List<Field> getFields() {
+			return this.fields;
+		}
+
+		/**
+		 * Return the annotated methods.
+		 */
+		public List<Method> getMethods() {
+			return this.methods;
+		}
+
+		/**
+		 * Invoke the given callback on all annotated fields, analogous to
+		 * {@link ReflectionUtils#doWithLocalFields}.
+		 * @param fc the callback to invoke for each field
+		 * @throws IllegalStateException if introspection fails
+		 */
+		public void doWithFields(ReflectionUtils.FieldCallback fc) {
+			for (Field field : this.fields) {
+				try {
+					fc.doWith(field);
+				}
+				catch (IllegalAccessException ex) {
+					throw new IllegalStateException("Not allowed to access field '" + field.getName() + "': " + ex);
+				}
+			}
+		}
+
+		/**
+		 * Invoke the given callback on all annotated methods, analogous to
+		 * {@link ReflectionUtils#doWithLocalMethods}.
+		 * @param mc the callback to invoke for each method
+		 * @throws IllegalStateException if introspection fails
+		 */
+		public void doWithMethods(ReflectionUtils.MethodCallback mc) {
+			for (Method method : this.methods) {
+				try {
+					mc.doWith(method);
+				}
+				catch (IllegalAccessException ex) {
+					throw new IllegalStateException("Not allowed to access method '" + method.getName() + "': " + ex);
+				}
+			}
+		}
+	}
+
+
+	private static class Entry {
+
+		private final String annotationType;
+
+		private final String name;
+
+		@Nullable
+		private final String[] parameterTypes;
+
+		Entry(String descriptor) {
+			int separator = descriptor.indexOf('#');
+			if (separator == -1) {
+				throw new IllegalArgumentException("Invalid injection member descriptor [" + descriptor + "]");
+			}
+			this.annotationType = descriptor.substring(0, separator);
+			String member = descriptor.substring(separator + 1);
+			int parametersStart = member.indexOf('(');
+			if (parametersStart != -1 && member.endsWith(")")) {
+				this.name = member.substring(0, parametersStart);
+				this.parameterTypes = StringUtils.delimitedListToStringArray(
+						member.substring(parametersStart + 1, member.length() - 1), ";");
+			}
+			else {
+				this.name = member;
+				this.parameterTypes = null;
+			}
+		}
+	}
+
+}
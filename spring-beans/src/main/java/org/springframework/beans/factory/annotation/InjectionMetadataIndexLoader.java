@@ -0,0 +1,120 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.annotation;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.SpringProperties;
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+/**
+ * Candidate injection members index loading mechanism for internal use within the framework.
+ *
+ * @since 5.1.13
+ * @see InjectionMetadataIndex
+ */
+public final class InjectionMetadataIndexLoader {
+
+	/**
+	 * The location to look for injection members.
+	 * <p>Can be present in multiple JAR files.
+	 */
+	public static final String INJECTION_RESOURCE_LOCATION = "META-INF/spring.injection";
+
+	/**
+	 * System property that instructs Spring to ignore the index, i.e.
+	 * to always return {@code null} from {@link #loadIndex(ClassLoader)}.
+	 * <p>Shared with the candidate components index: switching this flag to
+	 * {@code true} makes Spring fall back to regular reflective introspection.
+	 */
+	public static final String IGNORE_INDEX = "spring.index.ignore";
+
+
+	private static final boolean shouldIgnoreIndex = SpringProperties.getFlag(IGNORE_INDEX);
+
+	private static final Log logger = LogFactory.getLog(InjectionMetadataIndexLoader.class);
+
+	private static final ConcurrentMap<ClassLoader, Object> cache = new ConcurrentReferenceHashMap<>();
+
+	private static final Object NO_INDEX = new Object();
+
+
+	private InjectionMetadataIndexLoader() {
+	}
+
+
+	/**
+	 * Load and instantiate the {@link InjectionMetadataIndex} from
+	 * {@value #INJECTION_RESOURCE_LOCATION}, using the given class loader. If no
+	 * index is available, return {@code null}.
+	 * @param classLoader the ClassLoader to use for loading (can be {@code null} to use the default)
+	 * @return the index to use or {@code null} if no index was found
+	 * @throws IllegalArgumentException if any module index cannot
+	 * be loaded or if an error occurs while creating {@link InjectionMetadataIndex}
+	 */
+	@Nullable
+	public static InjectionMetadataIndex loadIndex(@Nullable ClassLoader classLoader) {
+		ClassLoader classLoaderToUse = classLoader;
+		if (classLoaderToUse == null) {
+			classLoaderToUse = InjectionMetadataIndexLoader.class.getClassLoader();
+		}
+		// Cache the absence of an index as well, since this is called for every bean class
+		Object index = cache.computeIfAbsent(classLoaderToUse, InjectionMetadataIndexLoader::doLoadIndex);
+		return (index != NO_INDEX ? (InjectionMetadataIndex) index : null);
+	}
+
+	private static Object doLoadIndex(ClassLoader classLoader) {
+		if (shouldIgnoreIndex) {
+			return NO_INDEX;
+		}
+
+		try {
+			Enumeration<URL> urls = classLoader.getResources(INJECTION_RESOURCE_LOCATION);
+			if (!urls.hasMoreElements()) {
+				return NO_INDEX;
+			}
+			List<Properties> result = new ArrayList<>();
+			while (urls.hasMoreElements()) {
+				URL url = urls.nextElement();
+				Properties properties = PropertiesLoaderUtils.loadProperties(new UrlResource(url));
+				result.add(properties);
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Loaded " + result.size() + " injection index(es)");
+			}
+			int totalCount = result.stream().mapToInt(Properties::size).sum();
+			return (totalCount > 0 ? new InjectionMetadataIndex(result) : NO_INDEX);
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Unable to load indexes from location [" +
+					INJECTION_RESOURCE_LOCATION + "]", ex);
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -27,6 +27,7 @@ import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.HierarchicalBeanFactory;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.core.convert.ConversionService;
+import org.springframework.core.metrics.ApplicationStartup;
 import org.springframework.lang.Nullable;
 import org.springframework.util.StringValueResolver;
 
@@ -283,6 +284,26 @@ public interface ConfigurableBeanFactory extends HierarchicalBeanFactory, Single
 	 */
 	AccessControlContext getAccessControlContext();
 
+	/**
+	 * Set the {@code ApplicationStartup} for this bean factory.
+	 * <p>This allows the application context to record metrics during application startup.
+	 * <p>The default implementation is empty, for bean factories which do not
+	 * record any startup steps.
+	 * @param applicationStartup the new application startup
+	 * @since 5.1.13
+	 */
+	default void setApplicationStartup(ApplicationStartup applicationStartup) {
+	}
+
+	/**
+	 * Return the {@code ApplicationStartup} for this bean factory.
+	 * <p>The default implementation returns {@link ApplicationStartup#DEFAULT}.
+	 * @since 5.1.13
+	 */
+	default ApplicationStartup getApplicationStartup() {
+		return ApplicationStartup.DEFAULT;
+	}
+
 	/**
 	 * Copy all relevant configuration from the given other factory.
 	 * <p>Should include all standard configuration settings as well as
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -79,6 +79,7 @@ import org.springframework.core.NamedThreadLocal;
 import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.core.PriorityOrdered;
 import org.springframework.core.ResolvableType;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.core.type.AnnotationMetadata;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
@@ -635,7 +636,14 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 			 *
 			 * 里面第二次调用后置处理器: 推断构造方法
  			 */
-			instanceWrapper = createBeanInstance(beanName, mbd, args);
+			StartupStep instantiateStep = getApplicationStartup().start("spring.beans.instantiate")
+					.tag("beanName", beanName);
+			try {
+				instanceWrapper = createBeanInstance(beanName, mbd, args);
+			}
+			finally {
+				instantiateStep.end();
+			}
 		}
 		// 从BeanWrapper中得到实例化出来的bean对象
 		final Object bean = instanceWrapper.getWrappedInstance();
@@ -687,10 +695,24 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		try {
 			// level:a 填充属性，也就是依赖注入
 			// 里面会完成第五次和第六次后置处理器的调用
-			populateBean(beanName, mbd, instanceWrapper);
+			StartupStep populateStep = getApplicationStartup().start("spring.beans.populate")
+					.tag("beanName", beanName);
+			try {
+				populateBean(beanName, mbd, instanceWrapper);
+			}
+			finally {
+				populateStep.end();
+			}
 			// 执行后置处理器的调用(第七次和第八次)，aop就是在这完成的处理
 			// level:a 初始化Bean
-			exposedObject = initializeBean(beanName, exposedObject, mbd);
+			StartupStep initializeStep = getApplicationStartup().start("spring.beans.initialize")
+					.tag("beanName", beanName);
+			try {
+				exposedObject = initializeBean(beanName, exposedObject, mbd);
+			}
+			finally {
+				initializeStep.end();
+			}
 		}
 		catch (Throwable ex) {
 			if (ex instanceof BeanCreationException && beanName.equals(((BeanCreationException) ex).getBeanName())) {
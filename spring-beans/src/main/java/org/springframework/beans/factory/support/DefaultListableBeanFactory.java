@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,6 +24,8 @@ import java.io.Serializable;
 import java.lang.annotation.Annotation;
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
 import java.lang.reflect.Method;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
@@ -31,6 +33,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -39,7 +42,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -48,6 +54,7 @@ import javax.inject.Provider;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.PropertyValue;
 import org.springframework.beans.TypeConverter;
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.BeanCurrentlyInCreationException;
@@ -73,8 +80,11 @@ import org.springframework.beans.factory.config.BeanDefinitionHolder;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
 import org.springframework.beans.factory.config.DependencyDescriptor;
 import org.springframework.beans.factory.config.NamedBeanHolder;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.core.MethodParameter;
 import org.springframework.core.OrderComparator;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.annotation.AnnotationUtils;
@@ -155,6 +165,10 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	@Nullable
 	private Comparator<Object> dependencyComparator;
 
+	/** Optional Executor for pre-instantiating singletons concurrently. */
+	@Nullable
+	private Executor preInstantiationExecutor;
+
 	/** Resolver to use for checking if a bean definition is an autowire candidate. */
 	private AutowireCandidateResolver autowireCandidateResolver = new SimpleAutowireCandidateResolver();
 
@@ -290,6 +304,40 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		return this.dependencyComparator;
 	}
 
+	/**
+	 * Set an {@link Executor} for pre-instantiating non-lazy singletons
+	 * concurrently, e.g. a fixed-size thread pool. Default is none, creating
+	 * one singleton after the other in registration order.
+	 * <p>Singletons are scheduled according to the dependencies known before
+	 * creation: "depends-on" relationships, factory beans, bean references in
+	 * constructor arguments and property values, and the candidates for the
+	 * parameters of autowired constructors and of already resolved factory
+	 * methods. Each singleton is only created once all of those have been
+	 * created, whereas independent singletons may be created at the same time.
+	 * Dependencies that only show up at creation time, e.g. through autowired
+	 * fields and methods which only the post-processors know about, are
+	 * coordinated by {@linkplain #setAllowConcurrentSingletonCreation concurrent
+	 * singleton creation}, which setting an executor switches on.
+	 * <p>{@link SmartInitializingSingleton} callbacks are still invoked one after
+	 * the other, once all singletons have been created.
+	 * @since 5.1.13
+	 * @see #preInstantiateSingletons()
+	 * @see #getSingletonCreationNanos()
+	 */
+	public void setPreInstantiationExecutor(@Nullable Executor preInstantiationExecutor) {
+		this.preInstantiationExecutor = preInstantiationExecutor;
+		setAllowConcurrentSingletonCreation(preInstantiationExecutor != null);
+	}
+
+	/**
+	 * Return the Executor for pre-instantiating singletons concurrently, if any.
+	 * @since 5.1.13
+	 */
+	@Nullable
+	public Executor getPreInstantiationExecutor() {
+		return this.preInstantiationExecutor;
+	}
+
 	/**
 	 * Set a custom autowire candidate resolver for this BeanFactory to use
 	 * when deciding whether a bean definition should be considered as a
@@ -327,6 +375,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			this.allowBeanDefinitionOverriding = otherListableFactory.allowBeanDefinitionOverriding;
 			this.allowEagerClassLoading = otherListableFactory.allowEagerClassLoading;
 			this.dependencyComparator = otherListableFactory.dependencyComparator;
+			setPreInstantiationExecutor(otherListableFactory.preInstantiationExecutor);
 			// A clone of the AutowireCandidateResolver since it is potentially BeanFactoryAware...
 			setAutowireCandidateResolver(
 					BeanUtils.instantiateClass(otherListableFactory.getAutowireCandidateResolver().getClass()));
@@ -867,58 +916,13 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 
 		// Trigger initialization of all non-lazy singleton beans...
 		// 触发所有非延迟加载单例beans的初始化，主要步骤为调用getBean
-		for (String beanName : beanNames) {
-			/**
-			 * 因为不是所有的BD的类型都是一样的, 通过@Component/@Bean/xml等注册bean的方式不同, 所以需要在这将其合并, 方便后续处理.
-			 * 一个描述bean的BeanDefinition，可以是RootBeanDefinition、ChildBeanDefinition、GenericBeanDefinition等众多BD的一种，
-			 * 但是这些BeanDefinition可能包含的bean信息都不全，可以通过{@link BeanDefinition#setParentName(String)}指定父BeanDefinition
-			 * 这里合并就是要将描述bean的所有BeanDefinition合并成一个RootBeanDefinition,
-			 *
-			 * level:a 获取合并后的BeanDefinition: 当前BD没指定的属性用父BD的属性, 指定了就用自己的，
-			 * beanDefinitionMap.get(beanName)
-			 *
-			 */
-			RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
-			// 判断当前BeanDefinition是否非抽象，是否单例，是否非Lazy初始化
-			// 注意这里是指BeanDefinition抽象, 不是Bean抽象, 在之前的扫描过程中, 如果class是抽象的, 就已经过滤了(LookUp注解除外), 这里说的是BD的抽象, 在xml中配置bean的时候有属性可配置BD的抽象.
-			// 抽象BD的主要用途: 自己不会生成Bean, 但是可以给别的BD当父类, 让子类继承父类的属性(实操很少见到).
-			if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
-				// 判断是否为工厂bean
-				if (isFactoryBean(beanName)) {
-					// 如果是FactoryBean则加上&, 获取FactoryBean的实例对象
-					Object bean = getBean(FACTORY_BEAN_PREFIX + beanName);
-					if (bean instanceof FactoryBean) {
-						final FactoryBean<?> factory = (FactoryBean<?>) bean;
-						/**
-						 * 是否立即初始化
-						 * 其实实现FactoryBean接口的实现类, 是不会在初始化spring时第一时间存入容器的, 可以理解为类似懒加载
-						 * 但是可以通过实现SmartFactoryBean接口, 重写isEagerInit()方法, 返回true, 来实现在初始化spring时第一时间存入容器
-						 */
-						boolean isEagerInit;
-						if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
-							isEagerInit = AccessController.doPrivileged((PrivilegedAction<Boolean>)
-											((SmartFactoryBean<?>) factory)::isEagerInit,
-									getAccessControlContext());
-						}
-						else {
-							// 判断bean是否实现了SmartFactoryBean接口, 且重写了isEagerInit方法, 获取重写的值.
-							isEagerInit = (factory instanceof SmartFactoryBean &&
-									((SmartFactoryBean<?>) factory).isEagerInit());
-						}
-						// 如果立即初始化: 只有当实现的是SmartFactoryBean的接口且重写了isEagerInit方法返回true, 才会立即初始化
-						if (isEagerInit) {
-							//  调用getBean()方法, 创建FactoryBean创建的实例对象
-							getBean(beanName);
-						}
-					}
-				}
-				else {
-					/**
-					 * 开始实例bean,这里其实是应该创建bean，为什么要getbean？
-					 * 1、getBean()是个通用方法，很多地方都有使用，这里跟循环依赖有关
-					 */
-					getBean(beanName);
-				}
+		Executor executor = this.preInstantiationExecutor;
+		if (executor != null) {
+			preInstantiateSingletonsConcurrently(beanNames, executor);
+		}
+		else {
+			for (String beanName : beanNames) {
+				preInstantiateSingleton(beanName);
 			}
 		}
 
@@ -946,6 +950,274 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		}
 	}
 
+	/**
+	 * Trigger the initialization of the given bean, if it is a non-lazy singleton.
+	 * @param beanName the name of the bean
+	 * @see #preInstantiateSingletons()
+	 */
+	private void preInstantiateSingleton(String beanName) {
+		/**
+		 * 因为不是所有的BD的类型都是一样的, 通过@Component/@Bean/xml等注册bean的方式不同, 所以需要在这将其合并, 方便后续处理.
+		 * 一个描述bean的BeanDefinition，可以是RootBeanDefinition、ChildBeanDefinition、GenericBeanDefinition等众多BD的一种，
+		 * 但是这些BeanDefinition可能包含的bean信息都不全，可以通过{@link BeanDefinition#setParentName(String)}指定父BeanDefinition
+		 * 这里合并就是要将描述bean的所有BeanDefinition合并成一个RootBeanDefinition,
+		 *
+		 * level:a 获取合并后的BeanDefinition: 当前BD没指定的属性用父BD的属性, 指定了就用自己的，
+		 * beanDefinitionMap.get(beanName)
+		 *
+		 */
+		RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+		// 判断当前BeanDefinition是否非抽象，是否单例，是否非Lazy初始化
+		// 注意这里是指BeanDefinition抽象, 不是Bean抽象, 在之前的扫描过程中, 如果class是抽象的, 就已经过滤了(LookUp注解除外), 这里说的是BD的抽象, 在xml中配置bean的时候有属性可配置BD的抽象.
+		// 抽象BD的主要用途: 自己不会生成Bean, 但是可以给别的BD当父类, 让子类继承父类的属性(实操很少见到).
+		if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
+			// 判断是否为工厂bean
+			if (isFactoryBean(beanName)) {
+				// 如果是FactoryBean则加上&, 获取FactoryBean的实例对象
+				Object bean = getBean(FACTORY_BEAN_PREFIX + beanName);
+				if (bean instanceof FactoryBean) {
+					final FactoryBean<?> factory = (FactoryBean<?>) bean;
+					/**
+					 * 是否立即初始化
+					 * 其实实现FactoryBean接口的实现类, 是不会在初始化spring时第一时间存入容器的, 可以理解为类似懒加载
+					 * 但是可以通过实现SmartFactoryBean接口, 重写isEagerInit()方法, 返回true, 来实现在初始化spring时第一时间存入容器
+					 */
+					boolean isEagerInit;
+					if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
+						isEagerInit = AccessController.doPrivileged((PrivilegedAction<Boolean>)
+										((SmartFactoryBean<?>) factory)::isEagerInit,
+								getAccessControlContext());
+					}
+					else {
+						// 判断bean是否实现了SmartFactoryBean接口, 且重写了isEagerInit方法, 获取重写的值.
+						isEagerInit = (factory instanceof SmartFactoryBean &&
+								((SmartFactoryBean<?>) factory).isEagerInit());
+					}
+					// 如果立即初始化: 只有当实现的是SmartFactoryBean的接口且重写了isEagerInit方法返回true, 才会立即初始化
+					if (isEagerInit) {
+						//  调用getBean()方法, 创建FactoryBean创建的实例对象
+						getBean(beanName);
+					}
+				}
+			}
+			else {
+				/**
+				 * 开始实例bean,这里其实是应该创建bean，为什么要getbean？
+				 * 1、getBean()是个通用方法，很多地方都有使用，这里跟循环依赖有关
+				 */
+				getBean(beanName);
+			}
+		}
+	}
+
+	/**
+	 * Trigger the initialization of the given beans through the given executor,
+	 * once the singletons that each of them declares a dependency on have been
+	 * initialized, and wait for all of them to complete.
+	 * @param beanNames the names of the beans
+	 * @param executor the executor to use
+	 * @see #setPreInstantiationExecutor
+	 */
+	private void preInstantiateSingletonsConcurrently(List<String> beanNames, Executor executor) {
+		Set<String> singletonNames = new LinkedHashSet<>();
+		for (String beanName : beanNames) {
+			RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+			if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
+				singletonNames.add(beanName);
+			}
+		}
+		Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>(singletonNames.size());
+		for (String beanName : singletonNames) {
+			schedulePreInstantiation(beanName, singletonNames, futures, new HashSet<>(), executor);
+		}
+		try {
+			CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+		}
+		catch (CompletionException ex) {
+			// Report the failure of the first bean in registration order
+			for (CompletableFuture<Void> future : futures.values()) {
+				if (future.isCompletedExceptionally()) {
+					try {
+						future.join();
+					}
+					catch (CompletionException failure) {
+						ex = failure;
+						break;
+					}
+				}
+			}
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException("Concurrent pre-instantiation of singletons failed", cause);
+		}
+	}
+
+	private CompletableFuture<Void> schedulePreInstantiation(String beanName, Set<String> singletonNames,
+			Map<String, CompletableFuture<Void>> futures, Set<String> beanNamesInScheduling, Executor executor) {
+
+		CompletableFuture<Void> future = futures.get(beanName);
+		if (future != null) {
+			return future;
+		}
+		beanNamesInScheduling.add(beanName);
+		RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+		Set<String> dependencies = getDeclaredDependencies(bd);
+		collectAutowiredDependencies(beanName, bd, dependencies);
+		List<CompletableFuture<Void>> dependencyFutures = new ArrayList<>();
+		for (String dependency : dependencies) {
+			String dependencyName = transformedBeanName(dependency);
+			// Circular dependencies are left to circular reference resolution at creation time
+			if (singletonNames.contains(dependencyName) && !beanNamesInScheduling.contains(dependencyName)) {
+				dependencyFutures.add(schedulePreInstantiation(
+						dependencyName, singletonNames, futures, beanNamesInScheduling, executor));
+			}
+		}
+		beanNamesInScheduling.remove(beanName);
+		future = CompletableFuture.allOf(dependencyFutures.toArray(new CompletableFuture<?>[0]))
+				.thenRunAsync(() -> preInstantiateSingleton(beanName), executor);
+		futures.put(beanName, future);
+		return future;
+	}
+
+	/**
+	 * Determine the names of the beans that the given bean definition declares
+	 * a dependency on, without resolving any autowired dependencies.
+	 */
+	private Set<String> getDeclaredDependencies(BeanDefinition bd) {
+		Set<String> dependencies = new LinkedHashSet<>();
+		String[] dependsOn = bd.getDependsOn();
+		if (dependsOn != null) {
+			dependencies.addAll(Arrays.asList(dependsOn));
+		}
+		if (bd.getFactoryBeanName() != null) {
+			dependencies.add(bd.getFactoryBeanName());
+		}
+		if (bd.hasConstructorArgumentValues()) {
+			ConstructorArgumentValues cav = bd.getConstructorArgumentValues();
+			for (ConstructorArgumentValues.ValueHolder valueHolder : cav.getIndexedArgumentValues().values()) {
+				collectBeanReferences(valueHolder.getValue(), dependencies);
+			}
+			for (ConstructorArgumentValues.ValueHolder valueHolder : cav.getGenericArgumentValues()) {
+				collectBeanReferences(valueHolder.getValue(), dependencies);
+			}
+		}
+		if (bd.hasPropertyValues()) {
+			for (PropertyValue pv : bd.getPropertyValues().getPropertyValues()) {
+				collectBeanReferences(pv.getValue(), dependencies);
+			}
+		}
+		return dependencies;
+	}
+
+	/**
+	 * Determine the candidates for the parameters of the constructor or factory
+	 * method that the given bean definition is going to be autowired through,
+	 * as far as this is possible without creating any beans. Candidates that
+	 * cannot be determined upfront are left to creation time.
+	 */
+	private void collectAutowiredDependencies(String beanName, RootBeanDefinition mbd, Set<String> dependencies) {
+		if (mbd.getInstanceSupplier() != null || mbd.hasConstructorArgumentValues()) {
+			return;
+		}
+		Executable executable = null;
+		try {
+			if (mbd.getFactoryMethodName() != null) {
+				executable = mbd.getResolvedFactoryMethod();
+			}
+			else {
+				Class<?> beanClass = resolveBeanClass(mbd, beanName);
+				Constructor<?>[] ctors = determineConstructorsFromBeanPostProcessors(beanClass, beanName);
+				if (ctors == null && beanClass != null &&
+						mbd.getResolvedAutowireMode() == AUTOWIRE_CONSTRUCTOR) {
+					ctors = beanClass.getConstructors();
+				}
+				if (ctors != null && ctors.length == 1) {
+					executable = ctors[0];
+				}
+			}
+		}
+		catch (Throwable ex) {
+			// Not determinable upfront: leave it to creation time
+			if (logger.isTraceEnabled()) {
+				logger.trace("Could not determine autowired dependencies of bean '" + beanName + "'", ex);
+			}
+		}
+		if (executable == null) {
+			return;
+		}
+		for (int i = 0; i < executable.getParameterCount(); i++) {
+			Class<?> dependencyType = getEagerDependencyType(
+					ResolvableType.forMethodParameter(MethodParameter.forExecutable(executable, i)));
+			if (dependencyType != null) {
+				for (String candidate : getBeanNamesForType(dependencyType, true, false)) {
+					if (!candidate.equals(beanName)) {
+						dependencies.add(candidate);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Determine the bean type that an autowired parameter of the given type
+	 * requires to be created before the bean that declares it, if any.
+	 */
+	@Nullable
+	private static Class<?> getEagerDependencyType(ResolvableType type) {
+		Class<?> rawType = type.resolve();
+		if (rawType == null || ObjectFactory.class.isAssignableFrom(rawType) ||
+				rawType == javaxInjectProviderClass) {
+			return null;
+		}
+		if (rawType == Optional.class) {
+			rawType = type.getGeneric(0).resolve();
+		}
+		else if (rawType.isArray()) {
+			rawType = type.getComponentType().resolve();
+		}
+		else if (Collection.class.isAssignableFrom(rawType)) {
+			rawType = type.asCollection().resolveGeneric();
+		}
+		else if (Map.class.isAssignableFrom(rawType)) {
+			rawType = type.asMap().resolveGeneric(1);
+		}
+		if (rawType == null || rawType == Object.class || BeanUtils.isSimpleProperty(rawType)) {
+			return null;
+		}
+		return rawType;
+	}
+
+	private void collectBeanReferences(@Nullable Object value, Set<String> dependencies) {
+		if (value instanceof RuntimeBeanReference) {
+			RuntimeBeanReference reference = (RuntimeBeanReference) value;
+			if (!reference.isToParent()) {
+				dependencies.add(reference.getBeanName());
+			}
+		}
+		else if (value instanceof BeanDefinitionHolder) {
+			dependencies.addAll(getDeclaredDependencies(((BeanDefinitionHolder) value).getBeanDefinition()));
+		}
+		else if (value instanceof BeanDefinition) {
+			dependencies.addAll(getDeclaredDependencies((BeanDefinition) value));
+		}
+		else if (value instanceof Collection) {
+			for (Object element : (Collection<?>) value) {
+				collectBeanReferences(element, dependencies);
+			}
+		}
+		else if (value instanceof Map) {
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				collectBeanReferences(entry.getKey(), dependencies);
+				collectBeanReferences(entry.getValue(), dependencies);
+			}
+		}
+	}
+
 
 	//---------------------------------------------------------------------
 	// Implementation of BeanDefinitionRegistry interface
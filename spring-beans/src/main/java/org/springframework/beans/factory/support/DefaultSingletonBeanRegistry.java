@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,15 +16,18 @@
 
 package org.springframework.beans.factory.support;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.BeanCreationNotAllowedException;
@@ -70,6 +73,10 @@ import org.springframework.util.StringUtils;
  */
 public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements SingletonBeanRegistry {
 
+	/** Marker returned when a singleton creation has been claimed in concurrent mode. */
+	static final Object SINGLETON_CREATION_CLAIMED = new Object();
+
+
     // Spring的三级缓存
 
 	// 1、singletonObjects 单例池，spring bean实例化完成了，存入单例池，需要就去get
@@ -162,6 +169,59 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 */
 	private final Map<String, Set<String>> dependenciesForBeanMap = new ConcurrentHashMap<>(64);
 
+	/** Whether singletons may be created concurrently by multiple threads. */
+	private volatile boolean allowConcurrentSingletonCreation = false;
+
+	/** Singletons being created in concurrent mode: bean name to creation in progress. */
+	private final Map<String, SingletonCreation> singletonCreations = new ConcurrentHashMap<>(16);
+
+	/** Threads waiting for another thread's singleton in concurrent mode: thread to bean name. */
+	private final Map<Thread, String> singletonWaitingThreads = new HashMap<>(16);
+
+	/** Creation times of singletons, including their dependencies: bean name to nanoseconds. */
+	private final Map<String, Long> singletonCreationNanos = new ConcurrentHashMap<>(256);
+
+
+	/**
+	 * Set whether to allow singletons to be created concurrently by multiple
+	 * threads. Default is "false", creating one singleton at a time while
+	 * holding the {@linkplain #getSingletonMutex() singleton mutex}.
+	 * <p>When switched on, the singleton mutex is only held for registry updates.
+	 * A thread requesting a singleton that another thread is currently creating
+	 * waits for it to be completed, unless that other thread is (indirectly)
+	 * waiting for the requesting thread in turn: such a circular reference is
+	 * resolved through an early singleton reference, just like within a single
+	 * thread, or rejected with a {@link BeanCurrentlyInCreationException}.
+	 * The same applies to a thread which holds the singleton mutex already,
+	 * since the other thread needs the mutex to complete the singleton.
+	 * @since 5.1.13
+	 * @see DefaultListableBeanFactory#setPreInstantiationExecutor
+	 */
+	public void setAllowConcurrentSingletonCreation(boolean allowConcurrentSingletonCreation) {
+		this.allowConcurrentSingletonCreation = allowConcurrentSingletonCreation;
+	}
+
+	/**
+	 * Return whether to allow singletons to be created concurrently by multiple threads.
+	 * @since 5.1.13
+	 */
+	public boolean isAllowConcurrentSingletonCreation() {
+		return this.allowConcurrentSingletonCreation;
+	}
+
+	/**
+	 * Return the time it took to create each singleton created by this registry
+	 * so far, in nanoseconds, including the creation of any dependencies that it
+	 * triggered. Meant for measuring startup behavior.
+	 * <p>Only recorded while {@linkplain #setAllowConcurrentSingletonCreation
+	 * concurrent singleton creation} is allowed.
+	 * @return an unmodifiable view of the creation times, keyed by bean name
+	 * @since 5.1.13
+	 */
+	public Map<String, Long> getSingletonCreationNanos() {
+		return Collections.unmodifiableMap(this.singletonCreationNanos);
+	}
+
 
 	@Override
 	public void registerSingleton(String beanName, Object singletonObject) throws IllegalStateException {
@@ -253,7 +313,8 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
  		 */
 		Object singletonObject = this.singletonObjects.get(beanName);
 		// 如果单例对象为空，且当前单例对象正在创建中
-		if (singletonObject == null && isSingletonCurrentlyInCreation(beanName)) {
+		if (singletonObject == null && isSingletonCurrentlyInCreation(beanName) &&
+				!isSingletonCurrentlyInCreationByOtherThread(beanName)) {
 			synchronized (this.singletonObjects) {
 				/**
 				 * 尝试从三级缓 存中获取对象(早期对象)
@@ -303,6 +364,9 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 */
 	public Object getSingleton(String beanName, ObjectFactory<?> singletonFactory) {
 		Assert.notNull(beanName, "Bean name must not be null");
+		if (this.allowConcurrentSingletonCreation) {
+			return getSingletonConcurrently(beanName, singletonFactory);
+		}
 		synchronized (this.singletonObjects) {
 			// 尝试从单例缓存池中获取对象
 			Object singletonObject = this.singletonObjects.get(beanName);
@@ -386,6 +450,214 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		}
 	}
 
+	/**
+	 * Variant of {@link #getSingleton(String, ObjectFactory)} for concurrent
+	 * singleton creation, only holding the singleton mutex for registry updates.
+	 * @see #setAllowConcurrentSingletonCreation
+	 */
+	private Object getSingletonConcurrently(String beanName, ObjectFactory<?> singletonFactory) {
+		Object existingObject = claimSingletonCreation(beanName, () -> {
+			if (this.singletonsCurrentlyInDestruction) {
+				throw new BeanCreationNotAllowedException(beanName,
+						"Singleton bean creation not allowed while singletons of this factory are in destruction " +
+						"(Do not request a bean from a BeanFactory in a destroy method implementation!)");
+			}
+			return this.singletonObjects.get(beanName);
+		});
+		if (existingObject != null && existingObject != SINGLETON_CREATION_CLAIMED) {
+			return existingObject;
+		}
+		// Otherwise claimed by the current thread, possibly further up the stack:
+		// rejected as an unresolvable circular reference by beforeSingletonCreation
+		boolean creatingThread = (existingObject == SINGLETON_CREATION_CLAIMED);
+
+		try {
+			synchronized (this.singletonObjects) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Creating shared instance of singleton bean '" + beanName + "'");
+				}
+				beforeSingletonCreation(beanName);
+			}
+			Object singletonObject;
+			boolean newSingleton = false;
+			try {
+				long startTime = System.nanoTime();
+				singletonObject = singletonFactory.getObject();
+				this.singletonCreationNanos.put(beanName, System.nanoTime() - startTime);
+				newSingleton = true;
+			}
+			catch (IllegalStateException ex) {
+				// Has the singleton object implicitly appeared in the meantime ->
+				// if yes, proceed with it since the exception indicates that state.
+				singletonObject = this.singletonObjects.get(beanName);
+				if (singletonObject == null) {
+					throw ex;
+				}
+			}
+			finally {
+				synchronized (this.singletonObjects) {
+					afterSingletonCreation(beanName);
+				}
+			}
+			if (newSingleton) {
+				addSingleton(beanName, singletonObject);
+			}
+			return singletonObject;
+		}
+		finally {
+			if (creatingThread) {
+				releaseSingletonCreation(beanName);
+			}
+		}
+	}
+
+	/**
+	 * Claim the creation of the given singleton for the current thread in
+	 * concurrent mode, waiting while another thread is creating it.
+	 * <p>Waiting happens on the creation in progress, not on the singleton mutex,
+	 * so that sections synchronized on the mutex further up the stack remain
+	 * exclusive. If the current thread holds the mutex, it does not wait at all:
+	 * the creating thread needs the mutex to complete, so this is treated like a
+	 * cycle of threads waiting for each other.
+	 * @param beanName the name of the bean
+	 * @param existingObject lookup for the object to return if already available,
+	 * called with the singleton mutex held
+	 * @return {@link #SINGLETON_CREATION_CLAIMED} if claimed, {@code null} if
+	 * claimed by the current thread already, or else the existing object or an
+	 * early reference to it
+	 * @see #releaseSingletonCreation
+	 */
+	@Nullable
+	Object claimSingletonCreation(String beanName, Supplier<Object> existingObject) {
+		Thread currentThread = Thread.currentThread();
+		boolean holdingMutex = Thread.holdsLock(this.singletonObjects);
+		while (true) {
+			SingletonCreation awaited;
+			long wakeUps;
+			synchronized (this.singletonObjects) {
+				Object singletonObject = existingObject.get();
+				if (singletonObject != null) {
+					return singletonObject;
+				}
+				awaited = this.singletonCreations.get(beanName);
+				if (awaited == null) {
+					this.singletonCreations.put(beanName, new SingletonCreation(currentThread));
+					return SINGLETON_CREATION_CLAIMED;
+				}
+				if (awaited.thread == currentThread) {
+					return null;
+				}
+				List<String> waitCycle = (holdingMutex ? Collections.singletonList(beanName) :
+						findSingletonWaitCycle(beanName, currentThread));
+				if (waitCycle != null) {
+					// Waiting would deadlock: resolve like a circular reference within a single thread,
+					// or let another thread within the cycle do so
+					singletonObject = getEarlySingletonReference(beanName);
+					if (singletonObject != null) {
+						return singletonObject;
+					}
+					if (holdingMutex) {
+						throw new BeanCurrentlyInCreationException(beanName, "Requested bean is currently in " +
+								"creation in thread [" + awaited.thread.getName() + "] while holding the singleton mutex");
+					}
+					if (waitCycle.stream().noneMatch(name -> this.earlySingletonObjects.containsKey(name) ||
+							this.singletonFactories.containsKey(name))) {
+						throw new BeanCurrentlyInCreationException(beanName);
+					}
+					for (String awaitedName : waitCycle) {
+						SingletonCreation creation = this.singletonCreations.get(awaitedName);
+						if (creation != null) {
+							creation.wakeUp();
+						}
+					}
+				}
+				this.singletonWaitingThreads.put(currentThread, beanName);
+				wakeUps = awaited.getWakeUps();
+			}
+			try {
+				awaited.await(wakeUps);
+			}
+			catch (InterruptedException ex) {
+				currentThread.interrupt();
+				throw new BeanCreationException(beanName,
+						"Interrupted while waiting for singleton creation in thread [" + awaited.thread.getName() + "]");
+			}
+			finally {
+				synchronized (this.singletonObjects) {
+					this.singletonWaitingThreads.remove(currentThread);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Release the creation of the given singleton claimed by the current thread,
+	 * letting any threads waiting for it continue.
+	 * @param beanName the name of the bean
+	 * @see #claimSingletonCreation
+	 */
+	void releaseSingletonCreation(String beanName) {
+		SingletonCreation creation;
+		synchronized (this.singletonObjects) {
+			creation = this.singletonCreations.remove(beanName);
+		}
+		if (creation != null) {
+			creation.complete();
+		}
+	}
+
+	/**
+	 * Determine whether the given singleton is currently being created by
+	 * another thread, in which case no early reference may be handed out.
+	 */
+	private boolean isSingletonCurrentlyInCreationByOtherThread(String beanName) {
+		SingletonCreation creation = this.singletonCreations.get(beanName);
+		return (creation != null && creation.thread != Thread.currentThread());
+	}
+
+	/**
+	 * Determine whether waiting for the given singleton would close a cycle of
+	 * threads waiting for each other's singletons.
+	 * @return the names of the singletons awaited within the cycle,
+	 * or {@code null} if there is no such cycle
+	 */
+	@Nullable
+	private List<String> findSingletonWaitCycle(String beanName, Thread currentThread) {
+		List<String> awaitedNames = new ArrayList<>();
+		Set<Thread> visitedThreads = new HashSet<>();
+		String awaitedName = beanName;
+		while (awaitedName != null) {
+			awaitedNames.add(awaitedName);
+			SingletonCreation creation = this.singletonCreations.get(awaitedName);
+			if (creation == null || !visitedThreads.add(creation.thread)) {
+				return null;
+			}
+			if (creation.thread == currentThread) {
+				return awaitedNames;
+			}
+			awaitedName = this.singletonWaitingThreads.get(creation.thread);
+		}
+		return null;
+	}
+
+	/**
+	 * Obtain an early reference to the given singleton, if exposed by its
+	 * creating thread. To be called with the singleton mutex held.
+	 */
+	@Nullable
+	private Object getEarlySingletonReference(String beanName) {
+		Object singletonObject = this.earlySingletonObjects.get(beanName);
+		if (singletonObject == null) {
+			ObjectFactory<?> singletonFactory = this.singletonFactories.get(beanName);
+			if (singletonFactory != null) {
+				singletonObject = singletonFactory.getObject();
+				this.earlySingletonObjects.put(beanName, singletonObject);
+				this.singletonFactories.remove(beanName);
+			}
+		}
+		return singletonObject;
+	}
+
 	/**
 	 * Register an Exception that happened to get suppressed during the creation of a
 	 * singleton bean instance, e.g. a temporary circular reference resolution problem.
@@ -411,6 +683,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 			this.singletonFactories.remove(beanName);
 			this.earlySingletonObjects.remove(beanName);
 			this.registeredSingletons.remove(beanName);
+			this.singletonCreationNanos.remove(beanName);
 		}
 	}
 
@@ -663,6 +936,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 			this.singletonFactories.clear();
 			this.earlySingletonObjects.clear();
 			this.registeredSingletons.clear();
+			this.singletonCreationNanos.clear();
 			this.singletonsCurrentlyInDestruction = false;
 		}
 	}
@@ -769,4 +1043,49 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		return this.singletonObjects;
 	}
 
+
+	/**
+	 * A singleton creation in progress in concurrent mode, serving as a latch
+	 * for the threads waiting for it.
+	 */
+	private static final class SingletonCreation {
+
+		final Thread thread;
+
+		private long wakeUps;
+
+		private boolean completed;
+
+		SingletonCreation(Thread thread) {
+			this.thread = thread;
+		}
+
+		synchronized long getWakeUps() {
+			return this.wakeUps;
+		}
+
+		/**
+		 * Let the waiting threads check for a cycle between threads again.
+		 */
+		synchronized void wakeUp() {
+			this.wakeUps++;
+			notifyAll();
+		}
+
+		synchronized void complete() {
+			this.completed = true;
+			notifyAll();
+		}
+
+		/**
+		 * Wait until the creation is completed, or until woken up since the
+		 * given number of wake-ups.
+		 */
+		synchronized void await(long wakeUps) throws InterruptedException {
+			while (!this.completed && this.wakeUps == wakeUps) {
+				wait();
+			}
+		}
+	}
+
 }
@@ -97,44 +97,11 @@ public abstract class FactoryBeanRegistrySupport extends DefaultSingletonBeanReg
 	protected Object getObjectFromFactoryBean(FactoryBean<?> factory, String beanName, boolean shouldPostProcess) {
 		// 如果为单例, 且单例池中存在
 		if (factory.isSingleton() && containsSingleton(beanName)) {
+			if (isAllowConcurrentSingletonCreation()) {
+				return getSingletonObjectFromFactoryBeanConcurrently(factory, beanName, shouldPostProcess);
+			}
 			synchronized (getSingletonMutex()) {
-				// 再从缓存中获取
-				Object object = this.factoryBeanObjectCache.get(beanName);
-				// 如果不存在
-				if (object == null) {
-					// 调用FactoryBean的getObject()方法, 创建bean
-					object = doGetObjectFromFactoryBean(factory, beanName);
-					// Only post-process and store if not put there already during getObject() call above
-					// (e.g. because of circular reference processing triggered by custom getBean calls)
-					Object alreadyThere = this.factoryBeanObjectCache.get(beanName);
-					if (alreadyThere != null) {
-						object = alreadyThere;
-					}
-					else {
-						if (shouldPostProcess) {
-							if (isSingletonCurrentlyInCreation(beanName)) {
-								// Temporarily return non-post-processed object, not storing it yet..
-								return object;
-							}
-							beforeSingletonCreation(beanName);
-							try {
-								object = postProcessObjectFromFactoryBean(object, beanName);
-							}
-							catch (Throwable ex) {
-								throw new BeanCreationException(beanName,
-										"Post-processing of FactoryBean's singleton object failed", ex);
-							}
-							finally {
-								afterSingletonCreation(beanName);
-							}
-						}
-						if (containsSingleton(beanName)) {
-							// 存入factoryBean缓存
-							this.factoryBeanObjectCache.put(beanName, object);
-						}
-					}
-				}
-				return object;
+				return getSingletonObjectFromFactoryBean(factory, beanName, shouldPostProcess);
 			}
 		}
 		else {
@@ -153,6 +120,76 @@ public abstract class FactoryBeanRegistrySupport extends DefaultSingletonBeanReg
 		}
 	}
 
+	/**
+	 * Variant of {@link #getObjectFromFactoryBean} for concurrent singleton
+	 * creation: instead of synchronizing on the singleton mutex, the creation
+	 * of the object is claimed for the current thread, with other threads
+	 * waiting for it.
+	 * @see #setAllowConcurrentSingletonCreation
+	 */
+	private Object getSingletonObjectFromFactoryBeanConcurrently(
+			FactoryBean<?> factory, String beanName, boolean shouldPostProcess) {
+
+		Object existingObject = claimSingletonCreation(beanName, () -> this.factoryBeanObjectCache.get(beanName));
+		if (existingObject != null && existingObject != SINGLETON_CREATION_CLAIMED) {
+			return existingObject;
+		}
+		try {
+			return getSingletonObjectFromFactoryBean(factory, beanName, shouldPostProcess);
+		}
+		finally {
+			if (existingObject == SINGLETON_CREATION_CLAIMED) {
+				releaseSingletonCreation(beanName);
+			}
+		}
+	}
+
+	/**
+	 * Obtain the singleton object to expose from the given FactoryBean, to be
+	 * called by one thread at a time.
+	 */
+	private Object getSingletonObjectFromFactoryBean(
+			FactoryBean<?> factory, String beanName, boolean shouldPostProcess) {
+
+		// 再从缓存中获取
+		Object object = this.factoryBeanObjectCache.get(beanName);
+		// 如果不存在
+		if (object == null) {
+			// 调用FactoryBean的getObject()方法, 创建bean
+			object = doGetObjectFromFactoryBean(factory, beanName);
+			// Only post-process and store if not put there already during getObject() call above
+			// (e.g. because of circular reference processing triggered by custom getBean calls)
+			Object alreadyThere = this.factoryBeanObjectCache.get(beanName);
+			if (alreadyThere != null) {
+				object = alreadyThere;
+			}
+			else {
+				if (shouldPostProcess) {
+					if (isSingletonCurrentlyInCreation(beanName)) {
+						// Temporarily return non-post-processed object, not storing it yet..
+						return object;
+					}
+					beforeSingletonCreation(beanName);
+					try {
+						object = postProcessObjectFromFactoryBean(object, beanName);
+					}
+					catch (Throwable ex) {
+						throw new BeanCreationException(beanName,
+								"Post-processing of FactoryBean's singleton object failed", ex);
+					}
+					finally {
+						afterSingletonCreation(beanName);
+					}
+				}
+				if (containsSingleton(beanName)) {
+					// 存入factoryBean缓存
+					this.factoryBeanObjectCache.put(beanName, object);
+				}
+			}
+		}
+		return object;
+	}
+
 	/**
 	 * Obtain an object to expose from the given FactoryBean.
 	 * @param factory the FactoryBean instance
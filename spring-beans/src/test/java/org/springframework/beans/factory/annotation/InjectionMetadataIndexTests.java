@@ -0,0 +1,201 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.annotation;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.annotation.PostConstruct;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.tests.sample.beans.TestBean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link InjectionMetadataIndex}, using the index
+ * in {@code META-INF/spring.injection} of the test resources.
+ */
+public class InjectionMetadataIndexTests {
+
+	private final InjectionMetadataIndex index =
+			InjectionMetadataIndexLoader.loadIndex(getClass().getClassLoader());
+
+	private DefaultListableBeanFactory bf;
+
+
+	@Before
+	public void setup() {
+		this.bf = new DefaultListableBeanFactory();
+		AutowiredAnnotationBeanPostProcessor bpp = new AutowiredAnnotationBeanPostProcessor();
+		bpp.setBeanFactory(this.bf);
+		this.bf.addBeanPostProcessor(bpp);
+		InitDestroyAnnotationBeanPostProcessor lifecycleBpp = new InitDestroyAnnotationBeanPostProcessor();
+		lifecycleBpp.setInitAnnotationType(PostConstruct.class);
+		this.bf.addBeanPostProcessor(lifecycleBpp);
+		this.bf.registerBeanDefinition("testBean", new RootBeanDefinition(TestBean.class));
+	}
+
+
+	@Test
+	public void getAnnotatedMembers() throws Exception {
+		InjectionMetadataIndex.AnnotatedMembers members =
+				this.index.getAnnotatedMembers(IndexedBean.class, Collections.singleton(Autowired.class));
+		assertEquals(Collections.singletonList(IndexedBean.class.getDeclaredField("testBean")), members.getFields());
+		assertEquals(Collections.singletonList(IndexedBean.class.getDeclaredMethod("setSpouse", TestBean.class)),
+				members.getMethods());
+
+		members = this.index.getAnnotatedMembers(IndexedBean.class, Collections.singleton(PostConstruct.class));
+		assertTrue(members.getFields().isEmpty());
+		assertEquals(Collections.singletonList(IndexedBean.class.getDeclaredMethod("init")), members.getMethods());
+	}
+
+	@Test
+	public void getAnnotatedMembersWithUnindexedClass() {
+		assertNull(this.index.getAnnotatedMembers(UnindexedBaseBean.class, Collections.singleton(Autowired.class)));
+	}
+
+	@Test
+	public void getAnnotatedMembersWithUnindexedAnnotationType() {
+		assertNull(this.index.getAnnotatedMembers(IndexedBean.class,
+				Arrays.asList(Autowired.class, Qualifier.class)));
+	}
+
+	@Test
+	public void getAnnotatedMembersWithOutdatedEntry() {
+		assertNull(this.index.getAnnotatedMembers(OutdatedIndexBean.class, Collections.singleton(Autowired.class)));
+	}
+
+	@Test
+	public void indexedBean() {
+		this.bf.registerBeanDefinition("bean", new RootBeanDefinition(IndexedBean.class));
+		IndexedBean bean = this.bf.getBean("bean", IndexedBean.class);
+		assertSame(this.bf.getBean("testBean"), bean.testBean);
+		assertSame(this.bf.getBean("testBean"), bean.spouse);
+		assertTrue(bean.initialized);
+	}
+
+	@Test
+	public void partiallyIndexedBean() {
+		this.bf.registerBeanDefinition("bean", new RootBeanDefinition(PartiallyIndexedBean.class));
+		PartiallyIndexedBean bean = this.bf.getBean("bean", PartiallyIndexedBean.class);
+		assertSame(this.bf.getBean("testBean"), bean.testBean);
+		// Not listed in the index, hence not introspected
+		assertNull(bean.spouse);
+	}
+
+	@Test
+	public void outdatedIndexFallsBackToIntrospection() {
+		this.bf.registerBeanDefinition("bean", new RootBeanDefinition(OutdatedIndexBean.class));
+		OutdatedIndexBean bean = this.bf.getBean("bean", OutdatedIndexBean.class);
+		assertSame(this.bf.getBean("testBean"), bean.testBean);
+		assertSame(this.bf.getBean("testBean"), bean.spouse);
+	}
+
+	@Test
+	public void indexedSubclassOfUnindexedBean() {
+		this.bf.registerBeanDefinition("bean", new RootBeanDefinition(IndexedSubclassBean.class));
+		IndexedSubclassBean bean = this.bf.getBean("bean", IndexedSubclassBean.class);
+		assertSame(this.bf.getBean("testBean"), bean.testBean);
+	}
+
+	@Test
+	public void indexedBeanWithDefaultMethodInjection() {
+		this.bf.registerBeanDefinition("bean", new RootBeanDefinition(IndexedDefaultMethodBean.class));
+		IndexedDefaultMethodBean bean = this.bf.getBean("bean", IndexedDefaultMethodBean.class);
+		assertSame(this.bf.getBean("testBean"), bean.testBean);
+	}
+
+
+	public static class IndexedBean {
+
+		@Autowired
+		private TestBean testBean;
+
+		private TestBean spouse;
+
+		private boolean initialized;
+
+		@Autowired
+		public void setSpouse(TestBean spouse) {
+			this.spouse = spouse;
+		}
+
+		@PostConstruct
+		public void init() {
+			this.initialized = true;
+		}
+	}
+
+
+	public static class PartiallyIndexedBean {
+
+		@Autowired
+		private TestBean testBean;
+
+		@Autowired
+		private TestBean spouse;
+	}
+
+
+	public static class OutdatedIndexBean {
+
+		@Autowired
+		private TestBean testBean;
+
+		@Autowired
+		private TestBean spouse;
+	}
+
+
+	public static class UnindexedBaseBean {
+
+		@Autowired
+		protected TestBean testBean;
+	}
+
+
+	public static class IndexedSubclassBean extends UnindexedBaseBean {
+	}
+
+
+	public interface DefaultMethodInjection {
+
+		@Autowired
+		default void injectTestBean(TestBean testBean) {
+			setTestBean(testBean);
+		}
+
+		void setTestBean(TestBean testBean);
+	}
+
+
+	public static class IndexedDefaultMethodBean implements DefaultMethodInjection {
+
+		private TestBean testBean;
+
+		@Override
+		public void setTestBean(TestBean testBean) {
+			this.testBean = testBean;
+		}
+	}
+
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessorAdapter;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for concurrent singleton pre-instantiation in
+ * {@link DefaultListableBeanFactory}.
+ */
+public class ConcurrentPreInstantiationTests {
+
+	private static final List<String> creationOrder = Collections.synchronizedList(new ArrayList<>());
+
+	private static final CyclicBarrier barrier = new CyclicBarrier(2);
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+	private final DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+
+
+	@Before
+	public void setup() {
+		creationOrder.clear();
+		barrier.reset();
+		AutowiredAnnotationBeanPostProcessor bpp = new AutowiredAnnotationBeanPostProcessor();
+		bpp.setBeanFactory(this.bf);
+		this.bf.addBeanPostProcessor(bpp);
+		this.bf.setPreInstantiationExecutor(this.executor);
+	}
+
+	@After
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+
+	@Test
+	public void independentSingletonsAreCreatedConcurrently() {
+		for (int i = 0; i < 4; i++) {
+			this.bf.registerBeanDefinition("slow" + i, new RootBeanDefinition(SlowBean.class));
+		}
+		long start = System.nanoTime();
+		this.bf.preInstantiateSingletons();
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		assertTrue("Took " + elapsed + " ms", elapsed < 4 * SlowBean.DELAY);
+		for (int i = 0; i < 4; i++) {
+			assertTrue(this.bf.containsSingleton("slow" + i));
+			assertTrue(this.bf.getSingletonCreationNanos().get("slow" + i) >=
+					TimeUnit.MILLISECONDS.toNanos(SlowBean.DELAY));
+		}
+	}
+
+	@Test
+	public void declaredDependenciesAreCreatedFirst() {
+		RootBeanDefinition dependent = new RootBeanDefinition(RecordingBean.class);
+		dependent.setDependsOn("middle");
+		this.bf.registerBeanDefinition("dependent", dependent);
+		RootBeanDefinition middle = new RootBeanDefinition(RecordingBean.class);
+		middle.getConstructorArgumentValues().addGenericArgumentValue(new RuntimeBeanReference("dependency"));
+		this.bf.registerBeanDefinition("middle", middle);
+		this.bf.registerBeanDefinition("dependency", new RootBeanDefinition(RecordingBean.class));
+		this.bf.registerAlias("dependency", "alias");
+		RootBeanDefinition other = new RootBeanDefinition(RecordingBean.class);
+		other.getPropertyValues().add("dependency", new RuntimeBeanReference("alias"));
+		this.bf.registerBeanDefinition("other", other);
+		this.bf.preInstantiateSingletons();
+
+		assertEquals(4, creationOrder.size());
+		assertTrue(creationOrder.indexOf("dependency") < creationOrder.indexOf("middle"));
+		assertTrue(creationOrder.indexOf("middle") < creationOrder.indexOf("dependent"));
+		assertTrue(creationOrder.indexOf("dependency") < creationOrder.indexOf("other"));
+		assertSame(this.bf.getBean("dependency"), this.bf.getBean("middle", RecordingBean.class).dependency);
+	}
+
+	@Test
+	public void autowiredConstructorDependenciesAreScheduledFirst() {
+		List<String> instantiationOrder = Collections.synchronizedList(new ArrayList<>());
+		this.bf.addBeanPostProcessor(new InstantiationAwareBeanPostProcessorAdapter() {
+			@Override
+			public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+				instantiationOrder.add(beanName);
+				return null;
+			}
+		});
+		ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor();
+		this.bf.setPreInstantiationExecutor(singleThreadExecutor);
+		this.bf.registerBeanDefinition("constructorAutowiring", new RootBeanDefinition(ConstructorAutowiringBean.class));
+		RootBeanDefinition factoryMethodBean = new RootBeanDefinition(ConstructorAutowiringBean.class);
+		factoryMethodBean.setFactoryMethodName("create");
+		factoryMethodBean.setAutowireMode(RootBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+		this.bf.registerBeanDefinition("factoryMethodAutowiring", factoryMethodBean);
+		this.bf.registerBeanDefinition("recording", new RootBeanDefinition(RecordingBean.class));
+		// Resolves the factory method, as type prediction does for regular contexts
+		assertEquals(ConstructorAutowiringBean.class, this.bf.getType("factoryMethodAutowiring"));
+		try {
+			this.bf.preInstantiateSingletons();
+		}
+		finally {
+			singleThreadExecutor.shutdownNow();
+		}
+
+		assertEquals(3, instantiationOrder.size());
+		assertEquals("recording", instantiationOrder.get(0));
+		assertSame(this.bf.getBean("recording"),
+				this.bf.getBean("constructorAutowiring", ConstructorAutowiringBean.class).dependency);
+		assertSame(this.bf.getBean("recording"),
+				this.bf.getBean("factoryMethodAutowiring", ConstructorAutowiringBean.class).dependency);
+	}
+
+	@Test
+	public void autowiredDependencyCreatedByOtherThread() {
+		this.bf.registerBeanDefinition("autowiring", new RootBeanDefinition(AutowiringBean.class));
+		this.bf.registerBeanDefinition("slow", new RootBeanDefinition(SlowBean.class));
+		this.bf.preInstantiateSingletons();
+
+		assertSame(this.bf.getBean("slow"), this.bf.getBean("autowiring", AutowiringBean.class).slowBean);
+		assertTrue(this.bf.getBean("slow", SlowBean.class).initialized);
+	}
+
+	@Test
+	public void circularReferenceAcrossThreads() {
+		this.bf.registerBeanDefinition("a", new RootBeanDefinition(CircularA.class));
+		this.bf.registerBeanDefinition("b", new RootBeanDefinition(CircularB.class));
+		this.bf.preInstantiateSingletons();
+
+		CircularA a = this.bf.getBean(CircularA.class);
+		CircularB b = this.bf.getBean(CircularB.class);
+		assertSame(b, a.b);
+		assertSame(a, b.a);
+	}
+
+	@Test
+	public void factoryBeanObjectCreatedOnceAcrossThreads() {
+		this.bf.registerBeanDefinition("slow", new RootBeanDefinition(SlowBean.class));
+		this.bf.registerBeanDefinition("product", new RootBeanDefinition(ProductFactoryBean.class));
+		for (int i = 0; i < 3; i++) {
+			this.bf.registerBeanDefinition("consumer" + i, new RootBeanDefinition(ProductConsumer.class));
+		}
+		this.bf.preInstantiateSingletons();
+
+		Product product = this.bf.getBean(Product.class);
+		assertEquals(1, this.bf.getBean("&product", ProductFactoryBean.class).objectCount.get());
+		for (int i = 0; i < 3; i++) {
+			assertSame(product, this.bf.getBean("consumer" + i, ProductConsumer.class).product);
+		}
+	}
+
+	@Test(expected = BeanCreationException.class)
+	public void failureIsPropagated() {
+		this.bf.registerBeanDefinition("slow", new RootBeanDefinition(SlowBean.class));
+		this.bf.registerBeanDefinition("failing", new RootBeanDefinition(FailingBean.class));
+		this.bf.preInstantiateSingletons();
+	}
+
+	@Test
+	public void creationTimesClearedOnDestruction() {
+		this.bf.registerBeanDefinition("slow", new RootBeanDefinition(SlowBean.class));
+		this.bf.preInstantiateSingletons();
+		assertTrue(this.bf.getSingletonCreationNanos().get("slow") >= TimeUnit.MILLISECONDS.toNanos(SlowBean.DELAY));
+
+		this.bf.destroySingletons();
+		assertTrue(this.bf.getSingletonCreationNanos().isEmpty());
+	}
+
+	@Test
+	public void noCreationTimesWithoutExecutor() {
+		this.bf.setPreInstantiationExecutor(null);
+		assertFalse(this.bf.isAllowConcurrentSingletonCreation());
+		this.bf.registerBeanDefinition("slow", new RootBeanDefinition(SlowBean.class));
+		this.bf.preInstantiateSingletons();
+		assertTrue(this.bf.containsSingleton("slow"));
+		assertTrue(this.bf.getSingletonCreationNanos().isEmpty());
+	}
+
+
+	public static class SlowBean {
+
+		static final long DELAY = 200;
+
+		volatile boolean initialized;
+
+		public SlowBean() throws InterruptedException {
+			Thread.sleep(DELAY);
+			this.initialized = true;
+		}
+	}
+
+
+	public static class RecordingBean implements BeanNameAware {
+
+		RecordingBean dependency;
+
+		public RecordingBean() {
+		}
+
+		public RecordingBean(RecordingBean dependency) {
+			this.dependency = dependency;
+		}
+
+		public void setDependency(RecordingBean dependency) {
+			this.dependency = dependency;
+		}
+
+		@Override
+		public void setBeanName(String name) {
+			creationOrder.add(name);
+		}
+	}
+
+
+	public static class ConstructorAutowiringBean {
+
+		final RecordingBean dependency;
+
+		public ConstructorAutowiringBean(RecordingBean dependency) {
+			this.dependency = dependency;
+		}
+
+		public static ConstructorAutowiringBean create(RecordingBean dependency) {
+			return new ConstructorAutowiringBean(dependency);
+		}
+	}
+
+
+	public static class AutowiringBean {
+
+		@Autowired
+		SlowBean slowBean;
+	}
+
+
+	public static class CircularA {
+
+		@Autowired
+		CircularB b;
+
+		public CircularA() throws Exception {
+			// Make sure that both beans are in creation at the same time
+			barrier.await(5, TimeUnit.SECONDS);
+		}
+	}
+
+
+	public static class CircularB {
+
+		@Autowired
+		CircularA a;
+
+		public CircularB() throws Exception {
+			barrier.await(5, TimeUnit.SECONDS);
+		}
+	}
+
+
+	public static class Product {
+	}
+
+
+	public static class ProductFactoryBean implements FactoryBean<Product>, BeanFactoryAware {
+
+		final AtomicInteger objectCount = new AtomicInteger();
+
+		private BeanFactory beanFactory;
+
+		@Override
+		public void setBeanFactory(BeanFactory beanFactory) {
+			this.beanFactory = beanFactory;
+		}
+
+		@Override
+		public Product getObject() {
+			this.objectCount.incrementAndGet();
+			// Wait for a singleton which is created by another thread
+			this.beanFactory.getBean(SlowBean.class);
+			return new Product();
+		}
+
+		@Override
+		public Class<?> getObjectType() {
+			return Product.class;
+		}
+	}
+
+
+	public static class ProductConsumer {
+
+		@Autowired
+		Product product;
+	}
+
+
+	public static class FailingBean {
+
+		public FailingBean() {
+			throw new IllegalStateException("Expected failure");
+		}
+	}
+
+}
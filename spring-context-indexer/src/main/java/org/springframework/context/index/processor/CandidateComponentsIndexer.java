@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -40,6 +40,10 @@ import javax.lang.model.element.TypeElement;
  * Annotation {@link Processor} that writes {@link CandidateComponentsMetadata}
  * file for spring components.
  *
+ * <p>As of 5.1.13, also writes the injection members of each compiled class
+ * to {@code META-INF/spring.injection}, for annotation post-processors to
+ * build injection metadata without introspecting all declared members.
+ *
  * @author Stephane Nicoll
  * @author Juergen Hoeller
  * @since 5.0
@@ -53,10 +57,16 @@ public class CandidateComponentsIndexer implements Processor {
 
 	private MetadataCollector metadataCollector;
 
+	private MetadataStore injectionMetadataStore;
+
+	private MetadataCollector injectionMetadataCollector;
+
 	private TypeHelper typeHelper;
 
 	private List<StereotypesProvider> stereotypesProviders;
 
+	private InjectionMembersProvider injectionMembersProvider;
+
 
 	@Override
 	public Set<String> getSupportedOptions() {
@@ -79,11 +89,15 @@ public class CandidateComponentsIndexer implements Processor {
 		this.typeHelper = new TypeHelper(env);
 		this.metadataStore = new MetadataStore(env);
 		this.metadataCollector = new MetadataCollector(env, this.metadataStore.readMetadata());
+		this.injectionMembersProvider = new InjectionMembersProvider(this.typeHelper);
+		this.injectionMetadataStore = new MetadataStore(env, MetadataStore.INJECTION_METADATA_PATH);
+		this.injectionMetadataCollector = new MetadataCollector(env, this.injectionMetadataStore.readMetadata());
 	}
 
 	@Override
 	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
 		this.metadataCollector.processing(roundEnv);
+		this.injectionMetadataCollector.processing(roundEnv);
 		roundEnv.getRootElements().forEach(this::processElement);
 		if (roundEnv.processingOver()) {
 			writeMetaData();
@@ -119,13 +133,21 @@ public class CandidateComponentsIndexer implements Processor {
 		if (!stereotypes.isEmpty()) {
 			this.metadataCollector.add(new ItemMetadata(this.typeHelper.getType(element), stereotypes));
 		}
+		Set<String> injectionMembers = this.injectionMembersProvider.getInjectionMembers(element);
+		if (injectionMembers != null) {
+			this.injectionMetadataCollector.add(new ItemMetadata(this.typeHelper.getType(element), injectionMembers));
+		}
 	}
 
 	private void writeMetaData() {
-		CandidateComponentsMetadata metadata = this.metadataCollector.getMetadata();
+		writeMetaData(this.metadataStore, this.metadataCollector.getMetadata());
+		writeMetaData(this.injectionMetadataStore, this.injectionMetadataCollector.getMetadata());
+	}
+
+	private void writeMetaData(MetadataStore store, CandidateComponentsMetadata metadata) {
 		if (!metadata.getItems().isEmpty()) {
 			try {
-				this.metadataStore.writeMetadata(metadata);
+				store.writeMetadata(metadata);
 			}
 			catch (IOException ex) {
 				throw new IllegalStateException("Failed to write metadata", ex);
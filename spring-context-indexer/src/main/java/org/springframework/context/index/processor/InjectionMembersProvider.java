@@ -0,0 +1,134 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index.processor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+
+/**
+ * Provide the descriptors of the injection members declared by an {@link Element},
+ * i.e. the fields and methods annotated with one of the {@link #ANNOTATION_TYPES},
+ * either directly or through a meta-annotation.
+ *
+ * <p>A descriptor consists of the annotation type and the member, separated by
+ * {@code #}: the name of a field, or the name of a method followed by its erased
+ * parameter types, separated by {@code ;} and enclosed in parentheses.
+ *
+ * @since 5.1.13
+ */
+class InjectionMembersProvider {
+
+	/**
+	 * The annotation types to record members for, matching the ones
+	 * that Spring's annotation post-processors introspect.
+	 */
+	static final List<String> ANNOTATION_TYPES = Collections.unmodifiableList(Arrays.asList(
+			"org.springframework.beans.factory.annotation.Autowired",
+			"org.springframework.beans.factory.annotation.Value", "javax.inject.Inject",
+			"javax.annotation.Resource", "javax.annotation.PostConstruct", "javax.annotation.PreDestroy",
+			"javax.xml.ws.WebServiceRef", "javax.ejb.EJB"));
+
+	private final TypeHelper typeHelper;
+
+
+	InjectionMembersProvider(TypeHelper typeHelper) {
+		this.typeHelper = typeHelper;
+	}
+
+
+	/**
+	 * Return the descriptors of the injection members of the given {@link Element}.
+	 * @param element the element to handle
+	 * @return the descriptors (possibly empty), or {@code null} if the element is not
+	 * a class or cannot be indexed reliably
+	 */
+	public Set<String> getInjectionMembers(Element element) {
+		if (element.getKind() != ElementKind.CLASS || mayDeclareVisibilityBridges(element)) {
+			return null;
+		}
+		Set<String> members = new LinkedHashSet<>();
+		for (Element enclosed : element.getEnclosedElements()) {
+			ElementKind kind = enclosed.getKind();
+			if (kind == ElementKind.FIELD || kind == ElementKind.METHOD) {
+				Set<String> annotationTypes = new LinkedHashSet<>();
+				for (AnnotationMirror annotation : enclosed.getAnnotationMirrors()) {
+					collectAnnotationTypes(annotation, annotationTypes, new HashSet<>());
+				}
+				for (String annotationType : annotationTypes) {
+					members.add(annotationType + "#" + getMember(enclosed));
+				}
+			}
+		}
+		return members;
+	}
+
+	/**
+	 * Determine whether the compiler may generate visibility bridge methods for
+	 * public methods inherited from a non-public superclass: those do not show up
+	 * in the source model, so that such a class is left to runtime introspection.
+	 */
+	private boolean mayDeclareVisibilityBridges(Element element) {
+		if (!element.getModifiers().contains(Modifier.PUBLIC)) {
+			return false;
+		}
+		Element superClass = this.typeHelper.getSuperClass(element);
+		while (superClass != null) {
+			if (!superClass.getModifiers().contains(Modifier.PUBLIC) &&
+					superClass.getEnclosedElements().stream().anyMatch(e -> e.getKind() == ElementKind.METHOD &&
+							e.getModifiers().contains(Modifier.PUBLIC))) {
+				return true;
+			}
+			superClass = this.typeHelper.getSuperClass(superClass);
+		}
+		return false;
+	}
+
+	private void collectAnnotationTypes(AnnotationMirror annotation, Set<String> result, Set<String> visited) {
+		String type = this.typeHelper.getType(annotation);
+		if (!visited.add(type) || type.startsWith("java.lang")) {
+			return;
+		}
+		if (ANNOTATION_TYPES.contains(type)) {
+			result.add(type);
+		}
+		for (AnnotationMirror metaAnnotation : annotation.getAnnotationType().asElement().getAnnotationMirrors()) {
+			collectAnnotationTypes(metaAnnotation, result, visited);
+		}
+	}
+
+	private String getMember(Element member) {
+		String name = member.getSimpleName().toString();
+		if (member.getKind() != ElementKind.METHOD) {
+			return name;
+		}
+		return name + ((ExecutableElement) member).getParameters().stream()
+				.map(parameter -> this.typeHelper.getErasedType(parameter.asType()))
+				.collect(Collectors.joining(";", "(", ")"));
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -34,11 +34,26 @@ class MetadataStore {
 
 	static final String METADATA_PATH = "META-INF/spring.components";
 
+	static final String INJECTION_METADATA_PATH = "META-INF/spring.injection";
+
 	private final ProcessingEnvironment environment;
 
+	private final String path;
+
 
 	public MetadataStore(ProcessingEnvironment environment) {
+		this(environment, METADATA_PATH);
+	}
+
+	/**
+	 * Create a new {@code MetadataStore} for the given location.
+	 * @param environment the processing environment of the build
+	 * @param path the location of the metadata, relative to the class output
+	 * @since 5.1.13
+	 */
+	public MetadataStore(ProcessingEnvironment environment, String path) {
 		this.environment = environment;
+		this.path = path;
 	}
 
 
@@ -71,11 +86,11 @@ class MetadataStore {
 	}
 
 	private FileObject getMetadataResource() throws IOException {
-		return this.environment.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", METADATA_PATH);
+		return this.environment.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", this.path);
 	}
 
 	private FileObject createMetadataResource() throws IOException {
-		return this.environment.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", METADATA_PATH);
+		return this.environment.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", this.path);
 	}
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,7 +20,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Properties;
 import java.util.Set;
 
@@ -43,7 +43,10 @@ abstract class PropertiesMarshaller {
 		Properties props = new Properties();
 		props.load(in);
 		props.forEach((type, value) -> {
-			Set<String> candidates = new HashSet<>(Arrays.asList(((String) value).split(",")));
+			Set<String> candidates = new LinkedHashSet<>();
+			if (!((String) value).isEmpty()) {
+				candidates.addAll(Arrays.asList(((String) value).split(",")));
+			}
 			result.add(new ItemMetadata((String) type, candidates));
 		});
 		return result;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,7 +25,9 @@ import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.QualifiedNameable;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Types;
 
@@ -73,6 +75,24 @@ class TypeHelper {
 		return type.toString();
 	}
 
+	/**
+	 * Return the name of the erasure of the specified type, in the form that
+	 * {@code ClassUtils.forName} resolves: the binary name for declared types
+	 * and a {@code []} suffix for arrays.
+	 * @since 5.1.13
+	 */
+	public String getErasedType(TypeMirror type) {
+		TypeMirror erasure = this.types.erasure(type);
+		if (erasure.getKind() == TypeKind.ARRAY) {
+			return getErasedType(((ArrayType) erasure).getComponentType()) + "[]";
+		}
+		if (erasure instanceof DeclaredType) {
+			TypeElement typeElement = (TypeElement) ((DeclaredType) erasure).asElement();
+			return this.env.getElementUtils().getBinaryName(typeElement).toString();
+		}
+		return erasure.toString();
+	}
+
 	private String getQualifiedName(Element element) {
 		if (element instanceof QualifiedNameable) {
 			return ((QualifiedNameable) element).getQualifiedName().toString();
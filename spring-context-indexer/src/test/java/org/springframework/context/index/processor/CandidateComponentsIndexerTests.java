@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -48,6 +48,8 @@ import org.springframework.context.index.sample.SampleService;
 import org.springframework.context.index.sample.cdi.SampleManagedBean;
 import org.springframework.context.index.sample.cdi.SampleNamed;
 import org.springframework.context.index.sample.cdi.SampleTransactional;
+import org.springframework.context.index.sample.injection.SampleBridgedComponent;
+import org.springframework.context.index.sample.injection.SampleInjectedComponent;
 import org.springframework.context.index.sample.jpa.SampleConverter;
 import org.springframework.context.index.sample.jpa.SampleEmbeddable;
 import org.springframework.context.index.sample.jpa.SampleEntity;
@@ -230,6 +232,39 @@ public class CandidateComponentsIndexerTests {
 		assertThat(metadata.getItems(), hasSize(0));
 	}
 
+	@Test
+	public void injectionMembers() {
+		CandidateComponentsMetadata metadata = compileInjectionMembers(SampleInjectedComponent.class);
+		String autowired = "org.springframework.beans.factory.annotation.Autowired";
+		assertThat(metadata, hasComponent(SampleInjectedComponent.class.getName(),
+				autowired + "#service",
+				"org.springframework.beans.factory.annotation.Value#name",
+				"javax.annotation.Resource#repository",
+				autowired + "#meta",
+				autowired + "#setEntries(java.util.List;int[])",
+				"javax.annotation.PostConstruct#init()"));
+	}
+
+	@Test
+	public void injectionMembersWithoutAnnotatedMembers() {
+		CandidateComponentsMetadata metadata = compileInjectionMembers(SampleNone.class);
+		assertThat(metadata, hasComponent(SampleNone.class.getName()));
+		assertThat(metadata.getItems(), hasSize(1));
+	}
+
+	@Test
+	public void injectionMembersWithVisibilityBridgesAreIgnored() {
+		CandidateComponentsMetadata metadata = compileInjectionMembers(SampleBridgedComponent.class);
+		assertThat(metadata.getItems(), hasSize(1));
+		assertThat(metadata.getItems().get(0).getType(), not(SampleBridgedComponent.class.getName()));
+	}
+
+	@Test
+	public void injectionMembersOnInterfaceAreIgnored() {
+		CandidateComponentsMetadata metadata = compileInjectionMembers(Repo.class);
+		assertThat(metadata.getItems(), hasSize(0));
+	}
+
 	private void testComponent(Class<?>... classes) {
 		CandidateComponentsMetadata metadata = compile(classes);
 		for (Class<?> c : classes) {
@@ -256,10 +291,19 @@ public class CandidateComponentsIndexerTests {
 		return readGeneratedMetadata(this.compiler.getOutputLocation());
 	}
 
+	private CandidateComponentsMetadata compileInjectionMembers(Class<?>... types) {
+		CandidateComponentsIndexer processor = new CandidateComponentsIndexer();
+		this.compiler.getTask(types).call(processor);
+		return readGeneratedMetadata(this.compiler.getOutputLocation(), MetadataStore.INJECTION_METADATA_PATH);
+	}
+
 	private CandidateComponentsMetadata readGeneratedMetadata(File outputLocation) {
+		return readGeneratedMetadata(outputLocation, MetadataStore.METADATA_PATH);
+	}
+
+	private CandidateComponentsMetadata readGeneratedMetadata(File outputLocation, String path) {
 		try {
-			File metadataFile = new File(outputLocation,
-					MetadataStore.METADATA_PATH);
+			File metadataFile = new File(outputLocation, path);
 			if (metadataFile.isFile()) {
 				return PropertiesMarshaller.read(new FileInputStream(metadataFile));
 			}
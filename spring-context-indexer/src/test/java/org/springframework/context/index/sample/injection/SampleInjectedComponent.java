@@ -0,0 +1,62 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index.sample.injection;
+
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.index.sample.SampleRepository;
+import org.springframework.context.index.sample.SampleService;
+import org.springframework.stereotype.Component;
+
+/**
+ * Test candidate declaring injection members.
+ */
+@Component
+public class SampleInjectedComponent {
+
+	@Autowired
+	private SampleService service;
+
+	@Value("${sample.name}")
+	private String name;
+
+	@Resource
+	private SampleRepository repository;
+
+	@SampleAutowired
+	private Object meta;
+
+	private String notInjected;
+
+
+	@Autowired
+	public void setEntries(List<String> entries, int[] weights) {
+	}
+
+	@PostConstruct
+	public void init() {
+	}
+
+	public void notInjected() {
+	}
+
+}
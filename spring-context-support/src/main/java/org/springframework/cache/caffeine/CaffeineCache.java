@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,9 @@
 
 package org.springframework.cache.caffeine;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.function.Function;
 
@@ -99,6 +102,15 @@ public class CaffeineCache extends AbstractValueAdaptingCache {
 		return (T) fromStoreValue(this.cache.get(key, new LoadFunction(valueLoader)));
 	}
 
+	@Override
+	public Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+		Map<Object, Object> storeValues = (this.cache instanceof LoadingCache ?
+				((LoadingCache<Object, Object>) this.cache).getAll(keys) : this.cache.getAllPresent(keys));
+		Map<Object, ValueWrapper> result = new LinkedHashMap<>(storeValues.size());
+		storeValues.forEach((key, storeValue) -> result.put(key, toValueWrapper(storeValue)));
+		return result;
+	}
+
 	@Override
 	@Nullable
 	protected Object lookup(Object key) {
@@ -110,6 +122,13 @@ public class CaffeineCache extends AbstractValueAdaptingCache {
 		this.cache.put(key, toStoreValue(value));
 	}
 
+	@Override
+	public void putAll(Map<?, ?> values) {
+		Map<Object, Object> storeValues = new LinkedHashMap<>(values.size());
+		values.forEach((key, value) -> storeValues.put(key, toStoreValue(value)));
+		this.cache.putAll(storeValues);
+	}
+
 	@Override
 	@Nullable
 	public ValueWrapper putIfAbsent(Object key, @Nullable final Object value) {
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.invalidation;
+
+import java.io.Serializable;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * An invalidation message for a single key, or for all entries, of a named cache.
+ *
+ * <p>Keys have to be serializable if the {@link CacheInvalidationTransport} in
+ * use serializes messages, as is the case for the default key generation strategy.
+ *
+ * @since 5.1.13
+ * @see CacheInvalidationTransport
+ */
+@SuppressWarnings("serial")
+public final class CacheInvalidation implements Serializable {
+
+	private final String origin;
+
+	private final String cacheName;
+
+	@Nullable
+	private final Object key;
+
+
+	/**
+	 * Create a new {@code CacheInvalidation}.
+	 * @param origin the identifier of the node publishing the invalidation
+	 * @param cacheName the name of the affected cache
+	 * @param key the affected key, or {@code null} to invalidate all entries
+	 */
+	public CacheInvalidation(String origin, String cacheName, @Nullable Object key) {
+		Assert.notNull(origin, "Origin must not be null");
+		Assert.notNull(cacheName, "Cache name must not be null");
+		this.origin = origin;
+		this.cacheName = cacheName;
+		this.key = key;
+	}
+
+
+	/**
+	 * Return the identifier of the node publishing the invalidation.
+	 */
+	public String getOrigin() {
+		return this.origin;
+	}
+
+	/**
+	 * Return the name of the affected cache.
+	 */
+	public String getCacheName() {
+		return this.cacheName;
+	}
+
+	/**
+	 * Return the affected key, or {@code null} if all entries are invalidated.
+	 */
+	@Nullable
+	public Object getKey() {
+		return this.key;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheInvalidation for cache '" + this.cacheName + "' and " +
+				(this.key != null ? "key [" + this.key + "]" : "all keys") + " from " + this.origin;
+	}
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.invalidation;
+
+import java.util.function.Consumer;
+
+/**
+ * Strategy for exchanging {@link CacheInvalidation} messages between the
+ * nodes of a deployment, e.g. through a message broker.
+ *
+ * <p>Delivery is expected to be best effort: a lost invalidation leaves a
+ * stale entry in a local tier until it is evicted or expires, so local tiers
+ * should be bounded by a time-to-live for any data that must not stay stale.
+ *
+ * @since 5.1.13
+ * @see NearCacheManager
+ * @see InMemoryCacheInvalidationTransport
+ */
+public interface CacheInvalidationTransport {
+
+	/**
+	 * Publish the given invalidation to all subscribers, including
+	 * subscribers on the local node.
+	 * @param invalidation the invalidation to publish
+	 */
+	void publish(CacheInvalidation invalidation);
+
+	/**
+	 * Register a subscriber for invalidations published by any node.
+	 * @param subscriber the callback to invoke for each invalidation
+	 */
+	void subscribe(Consumer<CacheInvalidation> subscriber);
+
+}
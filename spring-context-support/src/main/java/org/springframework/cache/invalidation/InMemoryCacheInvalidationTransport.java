@@ -0,0 +1,52 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.invalidation;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.springframework.util.Assert;
+
+/**
+ * {@link CacheInvalidationTransport} delivering invalidations to all subscribers
+ * within the same JVM, synchronously within {@link #publish}.
+ *
+ * <p>Useful for testing, or for several application contexts in one JVM
+ * which cache the same data.
+ *
+ * @since 5.1.13
+ */
+public class InMemoryCacheInvalidationTransport implements CacheInvalidationTransport {
+
+	private final List<Consumer<CacheInvalidation>> subscribers = new CopyOnWriteArrayList<>();
+
+
+	@Override
+	public void publish(CacheInvalidation invalidation) {
+		for (Consumer<CacheInvalidation> subscriber : this.subscribers) {
+			subscriber.accept(invalidation);
+		}
+	}
+
+	@Override
+	public void subscribe(Consumer<CacheInvalidation> subscriber) {
+		Assert.notNull(subscriber, "Subscriber must not be null");
+		this.subscribers.add(subscriber);
+	}
+
+}
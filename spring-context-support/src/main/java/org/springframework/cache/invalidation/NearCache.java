@@ -0,0 +1,170 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.invalidation;
+
+import java.util.concurrent.Callable;
+
+import org.springframework.cache.Cache;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+
+/**
+ * {@link Cache} combining a local tier with a target cache, as exposed
+ * by {@link NearCacheManager}.
+ *
+ * <p>Within a Spring-managed transaction, {@link #put}, {@link #evict} and
+ * {@link #clear} are performed in the after-commit phase only, analogous to
+ * {@link org.springframework.cache.transaction.TransactionAwareCacheDecorator}.
+ *
+ * @since 5.1.13
+ */
+class NearCache implements Cache {
+
+	private static final boolean transactionSynchronizationPresent = ClassUtils.isPresent(
+			"org.springframework.transaction.support.TransactionSynchronizationManager",
+			NearCache.class.getClassLoader());
+
+
+	private final Cache targetCache;
+
+	private final Cache localCache;
+
+	private final NearCacheManager cacheManager;
+
+
+	NearCache(Cache targetCache, Cache localCache, NearCacheManager cacheManager) {
+		this.targetCache = targetCache;
+		this.localCache = localCache;
+		this.cacheManager = cacheManager;
+	}
+
+
+	public Cache getLocalCache() {
+		return this.localCache;
+	}
+
+	@Override
+	public String getName() {
+		return this.targetCache.getName();
+	}
+
+	@Override
+	public Object getNativeCache() {
+		return this.targetCache.getNativeCache();
+	}
+
+	@Override
+	@Nullable
+	public ValueWrapper get(Object key) {
+		ValueWrapper wrapper = this.localCache.get(key);
+		if (wrapper == null) {
+			wrapper = this.targetCache.get(key);
+			if (wrapper != null) {
+				this.localCache.put(key, wrapper.get());
+			}
+		}
+		return wrapper;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	@Nullable
+	public <T> T get(Object key, @Nullable Class<T> type) {
+		ValueWrapper wrapper = get(key);
+		Object value = (wrapper != null ? wrapper.get() : null);
+		if (value != null && type != null && !type.isInstance(value)) {
+			throw new IllegalStateException(
+					"Cached value is not of required type [" + type.getName() + "]: " + value);
+		}
+		return (T) value;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	@Nullable
+	public <T> T get(Object key, Callable<T> valueLoader) {
+		ValueWrapper wrapper = this.localCache.get(key);
+		if (wrapper != null) {
+			return (T) wrapper.get();
+		}
+		T value = this.targetCache.get(key, valueLoader);
+		this.localCache.put(key, value);
+		return value;
+	}
+
+	@Override
+	public void put(Object key, @Nullable Object value) {
+		afterCommit(() -> {
+			this.targetCache.put(key, value);
+			this.localCache.put(key, value);
+			this.cacheManager.publishInvalidation(getName(), key);
+		});
+	}
+
+	@Override
+	@Nullable
+	public ValueWrapper putIfAbsent(Object key, @Nullable Object value) {
+		ValueWrapper existing = this.targetCache.putIfAbsent(key, value);
+		if (existing != null) {
+			this.localCache.put(key, existing.get());
+		}
+		else {
+			this.localCache.put(key, value);
+			this.cacheManager.publishInvalidation(getName(), key);
+		}
+		return existing;
+	}
+
+	@Override
+	public void evict(Object key) {
+		afterCommit(() -> {
+			this.targetCache.evict(key);
+			this.localCache.evict(key);
+			this.cacheManager.publishInvalidation(getName(), key);
+		});
+	}
+
+	@Override
+	public void clear() {
+		afterCommit(() -> {
+			this.targetCache.clear();
+			this.localCache.clear();
+			this.cacheManager.publishInvalidation(getName(), null);
+		});
+	}
+
+	/**
+	 * Perform the given write operation in the after-commit phase if a
+	 * transaction is active, or immediately otherwise.
+	 */
+	private void afterCommit(Runnable operation) {
+		if (transactionSynchronizationPresent && TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					operation.run();
+				}
+			});
+		}
+		else {
+			operation.run();
+		}
+	}
+
+}
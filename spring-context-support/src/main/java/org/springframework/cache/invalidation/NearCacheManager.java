@@ -0,0 +1,207 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.invalidation;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Two-level {@link CacheManager} decorating a target CacheManager with a local
+ * cache tier per node, and keeping the local tiers of all nodes coherent through
+ * {@link CacheInvalidation} messages exchanged via a {@link CacheInvalidationTransport}.
+ *
+ * <p>Reads are served from the local tier if possible, falling back to the target
+ * cache and populating the local tier with the value found there. Writes go to
+ * both tiers and publish an invalidation for the affected key (or for all keys on
+ * {@link Cache#clear()}), which evicts the key from the local tiers of all other
+ * nodes. Within a Spring-managed transaction, {@code put}, {@code evict} and
+ * {@code clear} are deferred to the after-commit phase as a whole, analogous to
+ * {@link org.springframework.cache.transaction.TransactionAwareCacheDecorator}:
+ * neither tier is written and no invalidation is published before the transaction
+ * commits, and nothing at all happens on rollback. Immediate operations such as
+ * {@code putIfAbsent} cannot be deferred and take effect right away.
+ *
+ * <p>The target CacheManager is typically backed by a shared cache store. Without a
+ * shared store, a {@link org.springframework.cache.support.NoOpCacheManager} may be
+ * used as target, with the local tiers holding the only copies.
+ *
+ * <p>The local tier defaults to a {@link ConcurrentMapCacheManager}. Since delivery
+ * of invalidations is best effort, a local tier with a
+ * {@link ConcurrentMapCacheManager#setTimeToLive time-to-live} bounds the staleness
+ * caused by lost messages or by a read racing with a concurrent invalidation.
+ *
+ * @since 5.1.13
+ * @see #setTargetCacheManager
+ * @see #setLocalCacheManager
+ * @see #setTransport
+ */
+public class NearCacheManager implements CacheManager, InitializingBean {
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private final String origin = UUID.randomUUID().toString();
+
+	private final ConcurrentMap<String, NearCache> cacheMap = new ConcurrentHashMap<>(16);
+
+	@Nullable
+	private CacheManager targetCacheManager;
+
+	private CacheManager localCacheManager = new ConcurrentMapCacheManager();
+
+	@Nullable
+	private CacheInvalidationTransport transport;
+
+
+	/**
+	 * Create a new NearCacheManager, setting the target CacheManager and the
+	 * transport through the {@link #setTargetCacheManager} and {@link #setTransport}
+	 * bean properties.
+	 */
+	public NearCacheManager() {
+	}
+
+	/**
+	 * Create a new NearCacheManager for the given target CacheManager and transport.
+	 * @param targetCacheManager the target CacheManager to decorate
+	 * @param transport the transport for invalidation messages
+	 */
+	public NearCacheManager(CacheManager targetCacheManager, CacheInvalidationTransport transport) {
+		Assert.notNull(targetCacheManager, "Target CacheManager must not be null");
+		Assert.notNull(transport, "CacheInvalidationTransport must not be null");
+		this.targetCacheManager = targetCacheManager;
+		this.transport = transport;
+		afterPropertiesSet();
+	}
+
+
+	/**
+	 * Set the target CacheManager to decorate.
+	 */
+	public void setTargetCacheManager(CacheManager targetCacheManager) {
+		this.targetCacheManager = targetCacheManager;
+	}
+
+	/**
+	 * Set the CacheManager providing the local tier, with one local cache
+	 * per target cache of the same name.
+	 * <p>Default is a dynamic, unbounded {@link ConcurrentMapCacheManager}.
+	 */
+	public void setLocalCacheManager(CacheManager localCacheManager) {
+		Assert.notNull(localCacheManager, "Local CacheManager must not be null");
+		this.localCacheManager = localCacheManager;
+	}
+
+	/**
+	 * Set the transport for exchanging invalidation messages with other nodes.
+	 */
+	public void setTransport(CacheInvalidationTransport transport) {
+		this.transport = transport;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		if (this.targetCacheManager == null) {
+			throw new IllegalArgumentException("Property 'targetCacheManager' is required");
+		}
+		if (this.transport == null) {
+			throw new IllegalArgumentException("Property 'transport' is required");
+		}
+		this.transport.subscribe(this::handleInvalidation);
+	}
+
+	/**
+	 * Return the identifier of this node, as exposed through
+	 * {@link CacheInvalidation#getOrigin()} for invalidations it publishes.
+	 */
+	public String getOrigin() {
+		return this.origin;
+	}
+
+
+	@Override
+	@Nullable
+	public Cache getCache(String name) {
+		Cache cache = this.cacheMap.get(name);
+		if (cache != null) {
+			return cache;
+		}
+		Assert.state(this.targetCacheManager != null, "No target CacheManager set");
+		Cache targetCache = this.targetCacheManager.getCache(name);
+		if (targetCache == null) {
+			return null;
+		}
+		Cache localCache = this.localCacheManager.getCache(name);
+		Assert.state(localCache != null, () -> "No local cache available for name '" + name + "'");
+		return this.cacheMap.computeIfAbsent(name, key -> new NearCache(targetCache, localCache, this));
+	}
+
+	@Override
+	public Collection<String> getCacheNames() {
+		Assert.state(this.targetCacheManager != null, "No target CacheManager set");
+		return this.targetCacheManager.getCacheNames();
+	}
+
+
+	/**
+	 * Publish an invalidation of the given key, or of all keys, to other nodes.
+	 */
+	void publishInvalidation(String cacheName, @Nullable Object key) {
+		CacheInvalidation invalidation = new CacheInvalidation(this.origin, cacheName, key);
+		Assert.state(this.transport != null, "No CacheInvalidationTransport set");
+		try {
+			this.transport.publish(invalidation);
+		}
+		catch (RuntimeException ex) {
+			// Local tiers of other nodes stay stale until evicted or expired
+			if (logger.isWarnEnabled()) {
+				logger.warn("Failed to publish " + invalidation, ex);
+			}
+		}
+	}
+
+	private void handleInvalidation(CacheInvalidation invalidation) {
+		if (this.origin.equals(invalidation.getOrigin())) {
+			return;
+		}
+		NearCache cache = this.cacheMap.get(invalidation.getCacheName());
+		if (cache != null) {
+			if (logger.isTraceEnabled()) {
+				logger.trace("Received " + invalidation);
+			}
+			Object key = invalidation.getKey();
+			if (key != null) {
+				cache.getLocalCache().evict(key);
+			}
+			else {
+				cache.getLocalCache().clear();
+			}
+		}
+	}
+
+}
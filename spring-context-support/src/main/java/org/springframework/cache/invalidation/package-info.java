@@ -0,0 +1,10 @@
+/**
+ * Near-cache support for the org.springframework.cache package, combining a
+ * local cache tier with invalidation messages exchanged between nodes.
+ */
+@NonNullApi
+@NonNullFields
+package org.springframework.cache.invalidation;
+
+import org.springframework.lang.NonNullApi;
+import org.springframework.lang.NonNullFields;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,10 @@
 
 package org.springframework.cache.jcache;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.concurrent.Callable;
 
 import javax.cache.Cache;
@@ -89,11 +93,26 @@ public class JCacheCache extends AbstractValueAdaptingCache {
 		}
 	}
 
+	@Override
+	public Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+		Map<Object, Object> storeValues = this.cache.getAll(new LinkedHashSet<>(keys));
+		Map<Object, ValueWrapper> result = new LinkedHashMap<>(storeValues.size());
+		storeValues.forEach((key, storeValue) -> result.put(key, toValueWrapper(storeValue)));
+		return result;
+	}
+
 	@Override
 	public void put(Object key, @Nullable Object value) {
 		this.cache.put(key, toStoreValue(value));
 	}
 
+	@Override
+	public void putAll(Map<?, ?> values) {
+		Map<Object, Object> storeValues = new LinkedHashMap<>(values.size());
+		values.forEach((key, value) -> storeValues.put(key, toStoreValue(value)));
+		this.cache.putAll(storeValues);
+	}
+
 	@Override
 	@Nullable
 	public ValueWrapper putIfAbsent(Object key, @Nullable Object value) {
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.invalidation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * {@link CacheInvalidationTransport} exchanging serialized invalidations with
+ * peers over loopback TCP connections, for testing purposes only.
+ *
+ * @since 5.1.13
+ */
+class LoopbackSocketCacheInvalidationTransport implements CacheInvalidationTransport, Closeable {
+
+	private final ServerSocket serverSocket;
+
+	private final List<Consumer<CacheInvalidation>> subscribers = new CopyOnWriteArrayList<>();
+
+	private final List<ObjectOutputStream> peers = new CopyOnWriteArrayList<>();
+
+	private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+
+
+	LoopbackSocketCacheInvalidationTransport() throws IOException {
+		this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		Thread acceptor = new Thread(this::acceptConnections, "invalidation-acceptor-" + getPort());
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+
+	public int getPort() {
+		return this.serverSocket.getLocalPort();
+	}
+
+	public void connect(int port) throws IOException {
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		this.sockets.add(socket);
+		this.peers.add(new ObjectOutputStream(socket.getOutputStream()));
+	}
+
+	@Override
+	public void publish(CacheInvalidation invalidation) {
+		deliver(invalidation);
+		for (ObjectOutputStream peer : this.peers) {
+			synchronized (peer) {
+				try {
+					peer.writeObject(invalidation);
+					peer.flush();
+					peer.reset();
+				}
+				catch (IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void subscribe(Consumer<CacheInvalidation> subscriber) {
+		this.subscribers.add(subscriber);
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.serverSocket.close();
+		for (Socket socket : this.sockets) {
+			socket.close();
+		}
+	}
+
+	private void deliver(CacheInvalidation invalidation) {
+		for (Consumer<CacheInvalidation> subscriber : this.subscribers) {
+			subscriber.accept(invalidation);
+		}
+	}
+
+	private void acceptConnections() {
+		try {
+			while (!this.serverSocket.isClosed()) {
+				Socket socket = this.serverSocket.accept();
+				this.sockets.add(socket);
+				Thread reader = new Thread(() -> readInvalidations(socket), "invalidation-reader-" + getPort());
+				reader.setDaemon(true);
+				reader.start();
+			}
+		}
+		catch (IOException ex) {
+			// Server socket closed
+		}
+	}
+
+	private void readInvalidations(Socket socket) {
+		try (ObjectInputStream in = new ObjectInputStream(socket.getInputStream())) {
+			while (true) {
+				deliver((CacheInvalidation) in.readObject());
+			}
+		}
+		catch (IOException | ClassNotFoundException ex) {
+			// Connection closed
+		}
+	}
+
+}
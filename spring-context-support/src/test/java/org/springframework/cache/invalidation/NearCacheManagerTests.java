@@ -0,0 +1,205 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.invalidation;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.tests.transaction.CallCountingTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.interceptor.DefaultTransactionAttribute;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link NearCacheManager}.
+ *
+ * @since 5.1.13
+ */
+public class NearCacheManagerTests {
+
+	private final CacheManager sharedCacheManager = new ConcurrentMapCacheManager();
+
+	private final CacheInvalidationTransport transport = new InMemoryCacheInvalidationTransport();
+
+	private final NearCacheManager node1 = new NearCacheManager(this.sharedCacheManager, this.transport);
+
+	private final NearCacheManager node2 = new NearCacheManager(this.sharedCacheManager, this.transport);
+
+
+	@Test
+	public void getCache() {
+		Cache cache = this.node1.getCache("testCache");
+		assertTrue(cache instanceof NearCache);
+		assertSame(cache, this.node1.getCache("testCache"));
+		assertSame(this.sharedCacheManager.getCache("testCache").getNativeCache(), cache.getNativeCache());
+		assertTrue(this.node1.getCacheNames().contains("testCache"));
+	}
+
+	@Test
+	public void readPopulatesLocalTier() {
+		this.sharedCacheManager.getCache("testCache").put("key", "value");
+		NearCache cache = (NearCache) this.node1.getCache("testCache");
+		assertNull(cache.getLocalCache().get("key"));
+		assertEquals("value", cache.get("key", String.class));
+		assertEquals("value", cache.getLocalCache().get("key").get());
+	}
+
+	@Test
+	public void putInvalidatesOtherNodes() {
+		NearCache cache1 = (NearCache) this.node1.getCache("testCache");
+		NearCache cache2 = (NearCache) this.node2.getCache("testCache");
+		cache1.put("key", "value1");
+		assertEquals("value1", cache2.get("key").get());
+		assertNotNull(cache2.getLocalCache().get("key"));
+
+		cache1.put("key", "value2");
+		assertEquals("value2", cache1.getLocalCache().get("key").get());
+		assertNull(cache2.getLocalCache().get("key"));
+		assertEquals("value2", cache2.get("key").get());
+	}
+
+	@Test
+	public void evictAndClearInvalidateOtherNodes() {
+		NearCache cache1 = (NearCache) this.node1.getCache("testCache");
+		NearCache cache2 = (NearCache) this.node2.getCache("testCache");
+		cache1.put("key1", "value1");
+		cache1.put("key2", "value2");
+		cache2.get("key1");
+		cache2.get("key2");
+
+		cache1.evict("key1");
+		assertNull(cache2.getLocalCache().get("key1"));
+		assertNull(cache2.get("key1"));
+		assertNotNull(cache2.getLocalCache().get("key2"));
+
+		cache1.clear();
+		assertNull(cache2.getLocalCache().get("key2"));
+	}
+
+	@Test
+	public void getWithValueLoader() {
+		NearCache cache1 = (NearCache) this.node1.getCache("testCache");
+		NearCache cache2 = (NearCache) this.node2.getCache("testCache");
+		assertEquals("value", cache1.get("key", () -> "value"));
+		assertEquals("value", cache2.get("key", () -> {
+			throw new IllegalStateException("Should not have been invoked");
+		}));
+		assertEquals("value", cache2.getLocalCache().get("key").get());
+	}
+
+	@Test
+	public void invalidationPublishedAfterCommit() {
+		PlatformTransactionManager txManager = new CallCountingTransactionManager();
+		NearCache cache1 = (NearCache) this.node1.getCache("testCache");
+		NearCache cache2 = (NearCache) this.node2.getCache("testCache");
+		cache1.put("key", "value1");
+		cache2.get("key");
+
+		TransactionStatus status = txManager.getTransaction(
+				new DefaultTransactionAttribute(TransactionDefinition.PROPAGATION_REQUIRED));
+		cache1.put("key", "value2");
+		assertEquals("value1", cache1.getLocalCache().get("key").get());
+		assertEquals("value1", this.sharedCacheManager.getCache("testCache").get("key").get());
+		assertEquals("value1", cache2.getLocalCache().get("key").get());
+		txManager.commit(status);
+
+		assertEquals("value2", cache1.getLocalCache().get("key").get());
+		assertNull(cache2.getLocalCache().get("key"));
+		assertEquals("value2", cache2.get("key").get());
+	}
+
+	@Test
+	public void writesDiscardedAfterRollback() {
+		PlatformTransactionManager txManager = new CallCountingTransactionManager();
+		NearCache cache1 = (NearCache) this.node1.getCache("testCache");
+		NearCache cache2 = (NearCache) this.node2.getCache("testCache");
+		cache1.put("key", "value1");
+		cache2.get("key");
+
+		TransactionStatus status = txManager.getTransaction(
+				new DefaultTransactionAttribute(TransactionDefinition.PROPAGATION_REQUIRED));
+		cache1.put("key", "value2");
+		cache1.clear();
+		txManager.rollback(status);
+
+		assertEquals("value1", cache1.getLocalCache().get("key").get());
+		assertEquals("value1", this.sharedCacheManager.getCache("testCache").get("key").get());
+		assertEquals("value1", cache2.getLocalCache().get("key").get());
+	}
+
+	@Test
+	public void invalidationNotPublishedAfterRollback() {
+		PlatformTransactionManager txManager = new CallCountingTransactionManager();
+		NearCache cache1 = (NearCache) this.node1.getCache("testCache");
+		NearCache cache2 = (NearCache) this.node2.getCache("testCache");
+		cache1.put("key", "value1");
+		cache2.get("key");
+
+		TransactionStatus status = txManager.getTransaction(
+				new DefaultTransactionAttribute(TransactionDefinition.PROPAGATION_REQUIRED));
+		cache1.evict("key");
+		txManager.rollback(status);
+
+		assertEquals("value1", cache1.getLocalCache().get("key").get());
+		assertEquals("value1", cache2.getLocalCache().get("key").get());
+	}
+
+	@Test
+	public void localTiersOverLoopbackSockets() throws Exception {
+		try (LoopbackSocketCacheInvalidationTransport transport1 = new LoopbackSocketCacheInvalidationTransport();
+				LoopbackSocketCacheInvalidationTransport transport2 = new LoopbackSocketCacheInvalidationTransport()) {
+			transport1.connect(transport2.getPort());
+			transport2.connect(transport1.getPort());
+			NearCacheManager remoteNode = new NearCacheManager(new NoOpCacheManager(), transport1);
+			NearCacheManager localNode = new NearCacheManager(new NoOpCacheManager(), transport2);
+			Cache cache1 = remoteNode.getCache("testCache");
+			Cache cache2 = localNode.getCache("testCache");
+			// Subscribed after the near caches, so notified once the local tiers have been invalidated
+			CountDownLatch receivedRemotely = new CountDownLatch(1);
+			transport1.subscribe(invalidation -> {
+				if (invalidation.getOrigin().equals(localNode.getOrigin())) {
+					receivedRemotely.countDown();
+				}
+			});
+			CountDownLatch received = new CountDownLatch(1);
+			transport2.subscribe(invalidation -> {
+				if (invalidation.getOrigin().equals(remoteNode.getOrigin())) {
+					received.countDown();
+				}
+			});
+
+			cache2.put("key", "value1");
+			assertEquals("value1", cache2.get("key").get());
+			assertTrue(receivedRemotely.await(5, TimeUnit.SECONDS));
+
+			cache1.put("key", "value2");
+			assertTrue(received.await(5, TimeUnit.SECONDS));
+			assertNull(cache2.get("key"));
+			assertEquals("value2", cache1.get("key").get());
+		}
+	}
+
+}
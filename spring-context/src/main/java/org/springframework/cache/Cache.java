@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,12 @@
 
 package org.springframework.cache;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 import org.springframework.lang.Nullable;
 
@@ -100,6 +105,70 @@ public interface Cache {
 	@Nullable
 	<T> T get(Object key, Callable<T> valueLoader);
 
+	/**
+	 * Return the values to which this cache maps the specified keys.
+	 * <p>The returned map only contains entries for keys that the cache
+	 * contains a mapping for, with each value (which may be {@code null}
+	 * itself) contained within a {@link ValueWrapper}.
+	 * <p>The default implementation performs a {@link #get(Object)} call
+	 * for each key. Implementations backed by a cache provider with native
+	 * bulk operations should override this method accordingly.
+	 * @param keys the keys whose associated values are to be returned
+	 * @return the values to which this cache maps the specified keys
+	 * (never {@code null})
+	 * @since 5.1.13
+	 * @see #get(Object)
+	 */
+	default Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+		Map<Object, ValueWrapper> result = new LinkedHashMap<>(keys.size());
+		for (Object key : keys) {
+			ValueWrapper wrapper = get(key);
+			if (wrapper != null) {
+				result.put(key, wrapper);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return the value to which this cache maps the specified key, with the
+	 * lookup potentially happening asynchronously.
+	 * <p>The returned future completes with {@code null} if the cache contains
+	 * no mapping for this key; otherwise with the cached value (which may be
+	 * {@code null} itself) contained within a {@link ValueWrapper}.
+	 * <p>The default implementation completes the future right away, with the
+	 * result of a blocking {@link #get(Object)} call.
+	 * @param key the key whose associated value is to be returned
+	 * @return a future for the value to which this cache maps the specified key
+	 * @since 5.1.13
+	 * @see #get(Object)
+	 */
+	default CompletableFuture<ValueWrapper> retrieve(Object key) {
+		return CompletableFuture.completedFuture(get(key));
+	}
+
+	/**
+	 * Return the value to which this cache maps the specified key, obtaining
+	 * that value from the future supplied by {@code valueLoader} if necessary.
+	 * This method is the asynchronous counterpart of {@link #get(Object, Callable)}.
+	 * <p>If possible, implementations should ensure that the loading operation
+	 * is only triggered once in case of concurrent access on the same key.
+	 * <p>If the future supplied by the {@code valueLoader} completes exceptionally,
+	 * the returned future completes with the same exception and no value is cached.
+	 * <p>The default implementation performs a blocking {@link #get(Object)}
+	 * lookup and a {@link #putIfAbsent(Object, Object)} once the loaded value is
+	 * available. Concurrent misses on the same key of the same cache share the
+	 * pending load, so the {@code valueLoader} is invoked once for all of them.
+	 * @param key the key whose associated value is to be returned
+	 * @param valueLoader the supplier of a future for the value to cache
+	 * @return a future for the value to which this cache maps the specified key
+	 * @since 5.1.13
+	 * @see #get(Object, Callable)
+	 */
+	default <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+		return InFlightRetrievals.retrieve(this, key, valueLoader);
+	}
+
 	/**
 	 * Associate the specified value with the specified key in this cache.
 	 * <p>If the cache previously contained a mapping for this key, the old
@@ -109,6 +178,19 @@ public interface Cache {
 	 */
 	void put(Object key, @Nullable Object value);
 
+	/**
+	 * Associate all of the specified key-value pairs in this cache.
+	 * <p>The default implementation performs a {@link #put(Object, Object)}
+	 * call for each entry. Implementations backed by a cache provider with
+	 * native bulk operations should override this method accordingly.
+	 * @param values the key-value pairs to associate
+	 * @since 5.1.13
+	 * @see #put(Object, Object)
+	 */
+	default void putAll(Map<?, ?> values) {
+		values.forEach(this::put);
+	}
+
 	/**
 	 * Atomically associate the specified value with the specified key in this cache
 	 * if it is not set already.
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Registry of the value loads currently in flight for
+ * {@link Cache#retrieve(Object, Supplier)}, so that concurrent misses on the
+ * same key of the same cache share a single invocation of the value loader.
+ *
+ * <p>An entry is only held while its load is pending: it is removed once the
+ * loaded value has been stored in the cache, or once the load has failed.
+ *
+ * @since 5.1.13
+ */
+final class InFlightRetrievals {
+
+	private static final ConcurrentMap<RetrievalKey, CompletableFuture<Object>> retrievals =
+			new ConcurrentHashMap<>(64);
+
+
+	private InFlightRetrievals() {
+	}
+
+
+	@SuppressWarnings("unchecked")
+	static <T> CompletableFuture<T> retrieve(Cache cache, Object key, Supplier<CompletableFuture<T>> valueLoader) {
+		Cache.ValueWrapper wrapper = cache.get(key);
+		if (wrapper != null) {
+			return CompletableFuture.completedFuture((T) wrapper.get());
+		}
+
+		RetrievalKey retrievalKey = new RetrievalKey(cache, key);
+		CompletableFuture<Object> promise = new CompletableFuture<>();
+		CompletableFuture<Object> inFlight = retrievals.computeIfAbsent(retrievalKey, k -> promise);
+		if (inFlight != promise) {
+			return (CompletableFuture<T>) inFlight;
+		}
+
+		// A load that completed in the meantime has stored its value already
+		wrapper = cache.get(key);
+		if (wrapper != null) {
+			complete(retrievalKey, promise, wrapper.get(), null);
+			return (CompletableFuture<T>) promise;
+		}
+
+		CompletableFuture<T> loaded;
+		try {
+			loaded = valueLoader.get();
+		}
+		catch (RuntimeException | Error ex) {
+			complete(retrievalKey, promise, null, ex);
+			throw ex;
+		}
+		loaded.whenComplete((value, ex) -> {
+			Object result = value;
+			if (ex == null) {
+				try {
+					// A value stored concurrently by other means wins
+					Cache.ValueWrapper existing = cache.putIfAbsent(key, value);
+					if (existing != null) {
+						result = existing.get();
+					}
+				}
+				catch (Throwable putEx) {
+					ex = putEx;
+				}
+			}
+			complete(retrievalKey, promise, result, ex);
+		});
+		return (CompletableFuture<T>) promise;
+	}
+
+	private static void complete(RetrievalKey retrievalKey, CompletableFuture<Object> promise,
+			@Nullable Object value, @Nullable Throwable ex) {
+
+		retrievals.remove(retrievalKey, promise);
+		if (ex != null) {
+			promise.completeExceptionally(ex);
+		}
+		else {
+			promise.complete(value);
+		}
+	}
+
+
+	/**
+	 * Key of an in-flight load: the cache, compared by identity, and the
+	 * cache key.
+	 */
+	private static final class RetrievalKey {
+
+		private final Cache cache;
+
+		private final Object key;
+
+		RetrievalKey(Cache cache, Object key) {
+			this.cache = cache;
+			this.key = key;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof RetrievalKey)) {
+				return false;
+			}
+			RetrievalKey otherKey = (RetrievalKey) other;
+			return (this.cache == otherKey.cache && this.key.equals(otherKey.key));
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(this.cache) * 31 + this.key.hashCode();
+		}
+	}
+
+}
@@ -0,0 +1,658 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import java.lang.reflect.Array;
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToLongBiFunction;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * A {@link ConcurrentMap} bounded by a maximum number of entries (or a maximum
+ * total weight), with an optional time-to-live for each entry. Suitable as
+ * {@link ConcurrentMapCache} store where an unbounded {@link ConcurrentHashMap}
+ * is not an option.
+ *
+ * <p>Reads are served lock-free from a {@link ConcurrentHashMap}. Eviction order
+ * is maintained per segment under a lock, following a <em>segmented LRU</em>
+ * policy: new entries enter a probationary queue and are promoted to a protected
+ * queue when read again, so that a burst of one-time accesses cannot flush out
+ * frequently used entries. Evictions pick the least recently used probationary
+ * entry first. Reads only record their access if the corresponding segment lock
+ * is available immediately, trading exact recency for uncontended reads.
+ *
+ * <p>The bound is enforced per segment, with the maximum split evenly across
+ * segments; a map may therefore evict slightly before the total bound is reached.
+ * Entries expire a fixed time after they have been written. Expired entries are
+ * never returned but are only removed lazily, on access or when they reach the
+ * eviction end of their queue, so they may still be included in {@link #size()}.
+ *
+ * <p>This map does not allow {@code null} keys or values. {@link #computeIfAbsent}
+ * is atomic, with the mapping function invoked while holding the segment lock.
+ *
+ * @since 5.1.13
+ * @param <K> the key type
+ * @param <V> the value type
+ * @see ConcurrentMapCacheManager#setMaximumSize
+ * @see ConcurrentMapCacheManager#setTimeToLive
+ */
+public class BoundedConcurrentMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+	private static final int MAXIMUM_SEGMENTS = 16;
+
+	private static final long MINIMUM_SEGMENT_WEIGHT = 16;
+
+	/**
+	 * Percentage of each segment's maximum weight reserved for protected entries.
+	 */
+	private static final int PROTECTED_PERCENTAGE = 80;
+
+
+	private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>(256);
+
+	private final Segment[] segments;
+
+	@Nullable
+	private final ToLongBiFunction<? super K, ? super V> weigher;
+
+	private final long timeToLiveNanos;
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	private final LongAdder evictionCount = new LongAdder();
+
+	@Nullable
+	private volatile Set<Map.Entry<K, V>> entrySet;
+
+
+	/**
+	 * Create a new {@code BoundedConcurrentMap} with the given maximum number of entries.
+	 * @param maximumSize the maximum number of entries
+	 */
+	public BoundedConcurrentMap(long maximumSize) {
+		this(maximumSize, null, null);
+	}
+
+	/**
+	 * Create a new {@code BoundedConcurrentMap} with the given maximum number of entries
+	 * and time-to-live.
+	 * @param maximumSize the maximum number of entries
+	 * @param timeToLive the duration after which an entry expires once written,
+	 * or {@code null} for no expiration
+	 */
+	public BoundedConcurrentMap(long maximumSize, @Nullable Duration timeToLive) {
+		this(maximumSize, null, timeToLive);
+	}
+
+	/**
+	 * Create a new {@code BoundedConcurrentMap} with the given maximum total weight,
+	 * determining the weight of each entry through the given weigher.
+	 * @param maximumWeight the maximum total weight of all entries (or the maximum
+	 * number of entries if no weigher is specified)
+	 * @param weigher the function determining the non-negative weight of an entry,
+	 * or {@code null} for a weight of 1 per entry
+	 * @param timeToLive the duration after which an entry expires once written,
+	 * or {@code null} for no expiration
+	 */
+	@SuppressWarnings("unchecked")
+	public BoundedConcurrentMap(long maximumWeight, @Nullable ToLongBiFunction<? super K, ? super V> weigher,
+			@Nullable Duration timeToLive) {
+
+		Assert.isTrue(maximumWeight >= 0, "Maximum weight must not be negative");
+		Assert.isTrue(timeToLive == null || !timeToLive.isNegative(), "Time-to-live must not be negative");
+		this.weigher = weigher;
+		this.timeToLiveNanos = (timeToLive != null ? timeToLive.toNanos() : 0);
+		int segmentCount = 1;
+		while (segmentCount < MAXIMUM_SEGMENTS && maximumWeight / (segmentCount * 2) >= MINIMUM_SEGMENT_WEIGHT) {
+			segmentCount <<= 1;
+		}
+		this.segments = (Segment[]) Array.newInstance(Segment.class, segmentCount);
+		for (int i = 0; i < segmentCount; i++) {
+			long segmentWeight = maximumWeight / segmentCount + (i < maximumWeight % segmentCount ? 1 : 0);
+			this.segments[i] = new Segment(segmentWeight);
+		}
+	}
+
+
+	@Override
+	@Nullable
+	public V get(@Nullable Object key) {
+		Node<K, V> node = (key != null ? this.data.get(key) : null);
+		if (node == null) {
+			this.missCount.increment();
+			return null;
+		}
+		Segment segment = getSegmentForKey(node.key);
+		if (isExpired(node, System.nanoTime())) {
+			segment.removeExpired(node);
+			this.missCount.increment();
+			return null;
+		}
+		this.hitCount.increment();
+		segment.tryRecordAccess(node);
+		return node.value;
+	}
+
+	@Override
+	public boolean containsKey(@Nullable Object key) {
+		Node<K, V> node = (key != null ? this.data.get(key) : null);
+		return (node != null && !isExpired(node, System.nanoTime()));
+	}
+
+	@Override
+	@Nullable
+	public V put(K key, V value) {
+		return getValue(getSegmentForKey(key).put(key, value, false));
+	}
+
+	@Override
+	@Nullable
+	public V putIfAbsent(K key, V value) {
+		return getValue(getSegmentForKey(key).put(key, value, true));
+	}
+
+	@Override
+	@Nullable
+	public V remove(@Nullable Object key) {
+		if (key == null) {
+			return null;
+		}
+		return getValue(getSegmentForKey(key).remove(key, null));
+	}
+
+	@Override
+	public boolean remove(@Nullable Object key, @Nullable Object value) {
+		if (key == null || value == null) {
+			return false;
+		}
+		return (getSegmentForKey(key).remove(key, value) != null);
+	}
+
+	@Override
+	@Nullable
+	public V replace(K key, V value) {
+		return getValue(getSegmentForKey(key).replace(key, null, value));
+	}
+
+	@Override
+	public boolean replace(K key, V oldValue, V newValue) {
+		Assert.notNull(oldValue, "Old value must not be null");
+		return (getSegmentForKey(key).replace(key, oldValue, newValue) != null);
+	}
+
+	@Override
+	@Nullable
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+		return getSegmentForKey(key).computeIfAbsent(key, mappingFunction);
+	}
+
+	@Override
+	public void clear() {
+		for (Segment segment : this.segments) {
+			segment.clear();
+		}
+	}
+
+	@Override
+	public int size() {
+		return this.data.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.data.isEmpty();
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		Set<Map.Entry<K, V>> entrySet = this.entrySet;
+		if (entrySet == null) {
+			entrySet = new EntrySet();
+			this.entrySet = entrySet;
+		}
+		return entrySet;
+	}
+
+
+	/**
+	 * Return the total weight of all entries currently held, including
+	 * expired entries which have not been removed yet.
+	 */
+	public long getWeightedSize() {
+		long weightedSize = 0;
+		for (Segment segment : this.segments) {
+			weightedSize += segment.weight;
+		}
+		return weightedSize;
+	}
+
+	/**
+	 * Return the number of {@link #get} and {@link #computeIfAbsent} calls
+	 * which found a live entry.
+	 */
+	public long getHitCount() {
+		return this.hitCount.sum();
+	}
+
+	/**
+	 * Return the number of {@link #get} and {@link #computeIfAbsent} calls
+	 * which did not find a live entry.
+	 */
+	public long getMissCount() {
+		return this.missCount.sum();
+	}
+
+	/**
+	 * Return the number of entries removed because of the size bound
+	 * or because they have expired.
+	 */
+	public long getEvictionCount() {
+		return this.evictionCount.sum();
+	}
+
+
+	private Segment getSegmentForKey(Object key) {
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+		return this.segments[hash & (this.segments.length - 1)];
+	}
+
+	private Node<K, V> createNode(K key, V value, long now) {
+		long weight = (this.weigher != null ? this.weigher.applyAsLong(key, value) : 1);
+		Assert.isTrue(weight >= 0, "Weight must not be negative");
+		return new Node<>(key, value, weight, now + this.timeToLiveNanos);
+	}
+
+	private boolean isExpired(Node<K, V> node, long now) {
+		return (this.timeToLiveNanos > 0 && now - node.expirationTime >= 0);
+	}
+
+	@Nullable
+	private static <V> V getValue(@Nullable Node<?, V> node) {
+		return (node != null ? node.value : null);
+	}
+
+
+	/**
+	 * A single segment, holding the eviction queues for a subset of the keys.
+	 * All modifications of the underlying data happen while holding the lock.
+	 */
+	@SuppressWarnings("serial")
+	private final class Segment extends ReentrantLock {
+
+		private final LinkedHashMap<K, Node<K, V>> probation = new LinkedHashMap<>();
+
+		private final LinkedHashMap<K, Node<K, V>> protectedNodes = new LinkedHashMap<>();
+
+		private final long maximumWeight;
+
+		private final long maximumProtectedWeight;
+
+		private volatile long weight;
+
+		private long protectedWeight;
+
+		public Segment(long maximumWeight) {
+			this.maximumWeight = maximumWeight;
+			this.maximumProtectedWeight = maximumWeight / 100 * PROTECTED_PERCENTAGE +
+					maximumWeight % 100 * PROTECTED_PERCENTAGE / 100;
+		}
+
+		/**
+		 * Add or replace the entry for the given key.
+		 * @return the previous live node, if any
+		 */
+		@Nullable
+		public Node<K, V> put(K key, V value, boolean onlyIfAbsent) {
+			Assert.notNull(value, "Value must not be null");
+			lock();
+			try {
+				long now = System.nanoTime();
+				Node<K, V> existing = getLiveNode(key, now);
+				if (existing != null && onlyIfAbsent) {
+					recordAccess(existing);
+					return existing;
+				}
+				link(createNode(key, value, now), existing);
+				evict(now);
+				return existing;
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		/**
+		 * Replace the entry for the given key, if present and mapped to the given
+		 * expected value (if any).
+		 * @return the previous live node, or {@code null} if nothing was replaced
+		 */
+		@Nullable
+		public Node<K, V> replace(K key, @Nullable V expectedValue, V value) {
+			Assert.notNull(value, "Value must not be null");
+			lock();
+			try {
+				long now = System.nanoTime();
+				Node<K, V> existing = getLiveNode(key, now);
+				if (existing == null || (expectedValue != null && !ObjectUtils.nullSafeEquals(existing.value, expectedValue))) {
+					return null;
+				}
+				link(createNode(key, value, now), existing);
+				evict(now);
+				return existing;
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		/**
+		 * Remove the entry for the given key, if mapped to the given expected
+		 * value (if any).
+		 * @return the removed live node, or {@code null} if nothing was removed
+		 */
+		@Nullable
+		public Node<K, V> remove(Object key, @Nullable Object expectedValue) {
+			lock();
+			try {
+				Node<K, V> existing = getLiveNode(key, System.nanoTime());
+				if (existing == null || (expectedValue != null && !ObjectUtils.nullSafeEquals(existing.value, expectedValue))) {
+					return null;
+				}
+				unlink(existing);
+				return existing;
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		/**
+		 * Remove the given expired node, unless it has been replaced or
+		 * removed in the meantime.
+		 */
+		public void removeExpired(Node<K, V> node) {
+			lock();
+			try {
+				if (data.get(node.key) == node) {
+					unlink(node);
+					evictionCount.increment();
+				}
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		@Nullable
+		public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+			lock();
+			try {
+				long now = System.nanoTime();
+				Node<K, V> existing = getLiveNode(key, now);
+				if (existing != null) {
+					hitCount.increment();
+					recordAccess(existing);
+					return existing.value;
+				}
+				missCount.increment();
+				V value = mappingFunction.apply(key);
+				if (value == null) {
+					return null;
+				}
+				long written = System.nanoTime();
+				link(createNode(key, value, written), null);
+				evict(written);
+				return value;
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		public void clear() {
+			lock();
+			try {
+				this.probation.forEach(data::remove);
+				this.protectedNodes.forEach(data::remove);
+				this.probation.clear();
+				this.protectedNodes.clear();
+				this.weight = 0;
+				this.protectedWeight = 0;
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		/**
+		 * Record a read access to the given node, unless another thread
+		 * currently holds the lock.
+		 */
+		public void tryRecordAccess(Node<K, V> node) {
+			if (tryLock()) {
+				try {
+					recordAccess(node);
+				}
+				finally {
+					unlock();
+				}
+			}
+		}
+
+		@Nullable
+		private Node<K, V> getLiveNode(Object key, long now) {
+			Node<K, V> node = data.get(key);
+			if (node != null && isExpired(node, now)) {
+				unlink(node);
+				evictionCount.increment();
+				return null;
+			}
+			return node;
+		}
+
+		private void recordAccess(Node<K, V> node) {
+			if (!node.linked) {
+				return;
+			}
+			if (node.isProtected) {
+				// Move to the most recently used end of the protected queue
+				this.protectedNodes.remove(node.key);
+				this.protectedNodes.put(node.key, node);
+				return;
+			}
+			// Promote from probation to protected, demoting the least recently
+			// used protected entries to probation if needed
+			this.probation.remove(node.key);
+			this.protectedNodes.put(node.key, node);
+			node.isProtected = true;
+			this.protectedWeight += node.weight;
+			while (this.protectedWeight > this.maximumProtectedWeight && this.protectedNodes.size() > 1) {
+				Node<K, V> demoted = this.protectedNodes.values().iterator().next();
+				this.protectedNodes.remove(demoted.key);
+				this.protectedWeight -= demoted.weight;
+				demoted.isProtected = false;
+				this.probation.put(demoted.key, demoted);
+			}
+		}
+
+		private void link(Node<K, V> node, @Nullable Node<K, V> replaced) {
+			if (replaced != null) {
+				unlink(replaced);
+				// A replaced entry retains its protected status
+				if (replaced.isProtected) {
+					node.isProtected = true;
+					this.protectedNodes.put(node.key, node);
+					this.protectedWeight += node.weight;
+				}
+			}
+			if (!node.isProtected) {
+				this.probation.put(node.key, node);
+			}
+			node.linked = true;
+			this.weight += node.weight;
+			data.put(node.key, node);
+		}
+
+		private void unlink(Node<K, V> node) {
+			if (node.isProtected) {
+				this.protectedNodes.remove(node.key);
+				this.protectedWeight -= node.weight;
+			}
+			else {
+				this.probation.remove(node.key);
+			}
+			node.linked = false;
+			this.weight -= node.weight;
+			data.remove(node.key, node);
+		}
+
+		private void evict(long now) {
+			// Drop expired entries at the eviction end first
+			Node<K, V> head;
+			while ((head = first(this.probation)) != null && isExpired(head, now)) {
+				unlink(head);
+				evictionCount.increment();
+			}
+			while (this.weight > this.maximumWeight) {
+				Node<K, V> victim = first(this.probation);
+				if (victim == null) {
+					victim = first(this.protectedNodes);
+				}
+				if (victim == null) {
+					break;
+				}
+				unlink(victim);
+				evictionCount.increment();
+			}
+		}
+
+		@Nullable
+		private Node<K, V> first(LinkedHashMap<K, Node<K, V>> queue) {
+			return (!queue.isEmpty() ? queue.values().iterator().next() : null);
+		}
+	}
+
+
+	/**
+	 * An immutable key-value pair along with its weight and expiration time.
+	 * The queue state is only accessed while holding the segment lock.
+	 */
+	private static final class Node<K, V> {
+
+		final K key;
+
+		final V value;
+
+		final long weight;
+
+		final long expirationTime;
+
+		boolean linked;
+
+		boolean isProtected;
+
+		Node(K key, V value, long weight, long expirationTime) {
+			this.key = key;
+			this.value = value;
+			this.weight = weight;
+			this.expirationTime = expirationTime;
+		}
+	}
+
+
+	/**
+	 * Weakly consistent view of the live entries.
+	 */
+	private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator() {
+			return new EntryIterator();
+		}
+
+		@Override
+		public int size() {
+			return BoundedConcurrentMap.this.size();
+		}
+
+		@Override
+		public void clear() {
+			BoundedConcurrentMap.this.clear();
+		}
+	}
+
+
+	private class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+		private final Iterator<Node<K, V>> nodes = data.values().iterator();
+
+		private final long now = System.nanoTime();
+
+		@Nullable
+		private Node<K, V> next;
+
+		@Nullable
+		private Node<K, V> last;
+
+		@Override
+		public boolean hasNext() {
+			while (this.next == null && this.nodes.hasNext()) {
+				Node<K, V> candidate = this.nodes.next();
+				if (!isExpired(candidate, this.now)) {
+					this.next = candidate;
+				}
+			}
+			return (this.next != null);
+		}
+
+		@Override
+		public Map.Entry<K, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			this.last = this.next;
+			this.next = null;
+			return new SimpleImmutableEntry<>(this.last.key, this.last.value);
+		}
+
+		@Override
+		public void remove() {
+			Assert.state(this.last != null, "No element to remove");
+			BoundedConcurrentMap.this.remove(this.last.key, this.last.value);
+			this.last = null;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,18 +16,21 @@
 
 package org.springframework.cache.concurrent;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.ToLongBiFunction;
 
 import org.springframework.beans.factory.BeanClassLoaderAware;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.core.serializer.support.SerializationDelegate;
 import org.springframework.lang.Nullable;
+import org.springframework.util.ObjectUtils;
 
 /**
  * {@link CacheManager} implementation that lazily builds {@link ConcurrentMapCache}
@@ -35,8 +38,12 @@ import org.springframework.lang.Nullable;
  * the set of cache names is pre-defined through {@link #setCacheNames}, with no
  * dynamic creation of further cache regions at runtime.
  *
- * <p>Note: This is by no means a sophisticated CacheManager; it comes with no
- * cache configuration options. However, it may be useful for testing or simple
+ * <p>Caches are unbounded by default. A {@link #setMaximumSize maximum size}
+ * and/or a {@link #setTimeToLive time-to-live} switch all caches to a
+ * {@link BoundedConcurrentMap} store with segmented LRU eviction.
+ *
+ * <p>Note: This is by no means a sophisticated CacheManager; it comes with only
+ * basic cache configuration options. However, it may be useful for testing or simple
  * caching scenarios. For advanced local caching needs, consider
  * {@link org.springframework.cache.jcache.JCacheCacheManager},
  * {@link org.springframework.cache.ehcache.EhCacheCacheManager},
@@ -56,6 +63,14 @@ public class ConcurrentMapCacheManager implements CacheManager, BeanClassLoaderA
 
 	private boolean storeByValue = false;
 
+	private long maximumSize = -1;
+
+	@Nullable
+	private ToLongBiFunction<Object, Object> weigher;
+
+	@Nullable
+	private Duration timeToLive;
+
 	@Nullable
 	private SerializationDelegate serialization;
 
@@ -146,6 +161,74 @@ public class ConcurrentMapCacheManager implements CacheManager, BeanClassLoaderA
 		return this.storeByValue;
 	}
 
+	/**
+	 * Specify the maximum number of entries for each cache in this cache manager,
+	 * or the maximum total weight if a {@link #setWeigher weigher} is specified.
+	 * <p>Default is -1, for unbounded caches.
+	 * <p>Note: A change of the maximum size will reset all existing caches,
+	 * if any, to reconfigure them with the new bound.
+	 * @since 5.1.13
+	 * @see BoundedConcurrentMap
+	 */
+	public void setMaximumSize(long maximumSize) {
+		if (maximumSize != this.maximumSize) {
+			this.maximumSize = maximumSize;
+			recreateCaches();
+		}
+	}
+
+	/**
+	 * Return the maximum number of entries (or maximum total weight)
+	 * for each cache in this cache manager, or -1 if unbounded.
+	 * @since 5.1.13
+	 */
+	public long getMaximumSize() {
+		return this.maximumSize;
+	}
+
+	/**
+	 * Specify a function determining the weight of each cache entry, turning
+	 * the {@link #setMaximumSize maximum size} into a maximum total weight,
+	 * e.g. an estimate of the memory held by the entries.
+	 * <p>The function is invoked with the key and the store value, i.e. an
+	 * internal holder for {@code null} values or the serialized form of the
+	 * value in {@link #setStoreByValue store-by-value} mode.
+	 * <p>Note: A change of the weigher will reset all existing caches,
+	 * if any, to reconfigure them with the new weigher.
+	 * @since 5.1.13
+	 */
+	public void setWeigher(@Nullable ToLongBiFunction<Object, Object> weigher) {
+		if (weigher != this.weigher) {
+			this.weigher = weigher;
+			recreateCaches();
+		}
+	}
+
+	/**
+	 * Specify the duration after which a cache entry expires once written,
+	 * for all caches in this cache manager.
+	 * <p>Default is none, for entries which do not expire.
+	 * <p>Note: A change of the time-to-live will reset all existing caches,
+	 * if any, to reconfigure them with the new expiration.
+	 * @since 5.1.13
+	 */
+	public void setTimeToLive(@Nullable Duration timeToLive) {
+		if (!ObjectUtils.nullSafeEquals(timeToLive, this.timeToLive)) {
+			this.timeToLive = timeToLive;
+			recreateCaches();
+		}
+	}
+
+	/**
+	 * Return the duration after which a cache entry expires once written,
+	 * or {@code null} if entries do not expire.
+	 * @since 5.1.13
+	 */
+	@Nullable
+	public Duration getTimeToLive() {
+		return this.timeToLive;
+	}
+
 	@Override
 	public void setBeanClassLoader(ClassLoader classLoader) {
 		this.serialization = new SerializationDelegate(classLoader);
@@ -190,9 +273,15 @@ public class ConcurrentMapCacheManager implements CacheManager, BeanClassLoaderA
 	 */
 	protected Cache createConcurrentMapCache(String name) {
 		SerializationDelegate actualSerialization = (isStoreByValue() ? this.serialization : null);
-		return new ConcurrentMapCache(name, new ConcurrentHashMap<>(256),
-				isAllowNullValues(), actualSerialization);
+		return new ConcurrentMapCache(name, createStore(), isAllowNullValues(), actualSerialization);
+	}
 
+	private ConcurrentMap<Object, Object> createStore() {
+		if (this.maximumSize < 0 && this.timeToLive == null) {
+			return new ConcurrentHashMap<>(256);
+		}
+		long maximumWeight = (this.maximumSize >= 0 ? this.maximumSize : Long.MAX_VALUE);
+		return new BoundedConcurrentMap<>(maximumWeight, this.weigher, this.timeToLive);
 	}
 
 }
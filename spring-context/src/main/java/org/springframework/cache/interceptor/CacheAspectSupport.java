@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.cache.interceptor;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -25,11 +26,21 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Supplier;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import org.springframework.aop.framework.AopProxyUtils;
 import org.springframework.aop.support.AopUtils;
@@ -44,6 +55,8 @@ import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.context.expression.AnnotatedElementKey;
 import org.springframework.core.BridgeMethodResolver;
+import org.springframework.core.ReactiveAdapter;
+import org.springframework.core.ReactiveAdapterRegistry;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
@@ -69,6 +82,14 @@ import org.springframework.util.function.SupplierUtils;
  * used for determining caching operations, a {@link KeyGenerator} will build the
  * cache keys, and a {@link CacheResolver} will resolve the actual cache(s) to use.
  *
+ * <p>Methods declared to return a {@link CompletableFuture} or {@link CompletionStage},
+ * or a reactive type supported by the {@link ReactiveAdapterRegistry} (with Reactor
+ * on the classpath) are cached by their emitted value rather than by the returned
+ * handle: the cache is only
+ * updated once the value is available, and cache hits are exposed as an already
+ * completed future or publisher. Multi-value publishers are cached as a
+ * {@code List} of all emitted elements.
+ *
  * <p>Note: A cache aspect is serializable but does not perform any actual caching
  * after deserialization.
  *
@@ -83,12 +104,25 @@ import org.springframework.util.function.SupplierUtils;
 public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		implements BeanFactoryAware, InitializingBean, SmartInitializingSingleton {
 
+	private static final boolean reactorPresent = ClassUtils.isPresent(
+			"reactor.core.publisher.Flux", CacheAspectSupport.class.getClassLoader());
+
+
 	protected final Log logger = LogFactory.getLog(getClass());
 
 	private final Map<CacheOperationCacheKey, CacheOperationMetadata> metadataCache = new ConcurrentHashMap<>(1024);
 
 	private final CacheOperationExpressionEvaluator evaluator = new CacheOperationExpressionEvaluator();
 
+	@Nullable
+	private final ReactiveCachingHandler reactiveCachingHandler = (reactorPresent ? new ReactiveCachingHandler() : null);
+
+	private final ConcurrentMap<Object, InFlightInvocation> inFlightInvocations = new ConcurrentHashMap<>(64);
+
+	private boolean coalesceConcurrentMisses = false;
+
+	private Duration coalescingTimeout = Duration.ofSeconds(30);
+
 	@Nullable
 	private CacheOperationSource cacheOperationSource;
 
@@ -194,6 +228,61 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		this.cacheResolver = SingletonSupplier.of(new SimpleCacheResolver(cacheManager));
 	}
 
+	/**
+	 * Specify whether concurrent misses for the same key(s) of a {@code @Cacheable}
+	 * method should share a single invocation of the method, with the invocations
+	 * arriving while it is in progress waiting for its result instead of calling
+	 * through as well. This protects the underlying resource from a stampede when
+	 * a frequently requested entry is missing, with any {@link Cache} implementation
+	 * and for any number of caches per operation.
+	 * <p>Asynchronous results are shared until they are available: concurrent
+	 * invocations receive the same {@link CompletionStage}, or a reactive type
+	 * which joins the subscription in progress, if any.
+	 * <p>Only applies to operations without {@code @CachePut} or {@code @CacheEvict}
+	 * declarations, which need to see every invocation. In contrast to
+	 * {@link org.springframework.cache.annotation.Cacheable#sync()}, misses are
+	 * only coalesced within this cache aspect, not across the nodes of a
+	 * distributed cache.
+	 * <p>Default is "false".
+	 * @since 5.1.13
+	 */
+	public void setCoalesceConcurrentMisses(boolean coalesceConcurrentMisses) {
+		this.coalesceConcurrentMisses = coalesceConcurrentMisses;
+	}
+
+	/**
+	 * Return whether concurrent misses for the same key(s) share a single invocation.
+	 * @since 5.1.13
+	 */
+	public boolean isCoalesceConcurrentMisses() {
+		return this.coalesceConcurrentMisses;
+	}
+
+	/**
+	 * Specify for how long an invocation in progress may be shared with
+	 * concurrent misses, counting from its start.
+	 * <p>Invocations waiting for a result which is not available in time call
+	 * through instead. An asynchronous result is not shared beyond the timeout
+	 * either, which also applies to a reactive result that nobody subscribes to
+	 * or a {@link CompletionStage} that never completes.
+	 * <p>Default is 30 seconds.
+	 * @since 5.1.13
+	 * @see #setCoalesceConcurrentMisses
+	 */
+	public void setCoalescingTimeout(Duration coalescingTimeout) {
+		Assert.isTrue(!coalescingTimeout.isNegative() && !coalescingTimeout.isZero(),
+				"Coalescing timeout must be positive");
+		this.coalescingTimeout = coalescingTimeout;
+	}
+
+	/**
+	 * Return for how long an invocation in progress may be shared with concurrent misses.
+	 * @since 5.1.13
+	 */
+	public Duration getCoalescingTimeout() {
+		return this.coalescingTimeout;
+	}
+
 	/**
 	 * Set the containing {@link BeanFactory} for {@link CacheManager} and other
 	 * service lookups.
@@ -377,6 +466,18 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 			if (isConditionPassing(context, CacheOperationExpressionEvaluator.NO_RESULT)) {
 				Object key = generateKey(context, CacheOperationExpressionEvaluator.NO_RESULT);
 				Cache cache = context.getCaches().iterator().next();
+				if (isCompletionStage(method)) {
+					return cache.retrieve(key, () -> {
+						CompletionStage<?> stage = (CompletionStage<?>) invokeOperation(invoker);
+						return (stage != null ? stage.toCompletableFuture() : CompletableFuture.completedFuture(null));
+					});
+				}
+				if (this.reactiveCachingHandler != null) {
+					Object returnValue = this.reactiveCachingHandler.executeSynchronized(invoker, method, cache, key);
+					if (returnValue != null) {
+						return returnValue;
+					}
+				}
 				try {
 					return wrapCacheValue(method, cache.get(key, () -> unwrapReturnValue(invokeOperation(invoker))));
 				}
@@ -407,19 +508,100 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 					CacheOperationExpressionEvaluator.NO_RESULT, cachePutRequests);
 		}
 
-		Object cacheValue;
-		Object returnValue;
-
 		if (cacheHit != null && !hasCachePut(contexts)) {
 			// If there are no put requests, just use the cache hit
-			cacheValue = cacheHit.get();
-			returnValue = wrapCacheValue(method, cacheValue);
+			Object cacheValue = cacheHit.get();
+			Object returnValue = wrapCacheValue(method, cacheValue);
+			performCachePutsAndEvicts(contexts, cacheValue, cachePutRequests);
+			return returnValue;
 		}
-		else {
-			// Invoke the method if we don't have a cache hit
-			returnValue = invokeOperation(invoker);
-			cacheValue = unwrapReturnValue(returnValue);
+
+		// Invoke the method if we don't have a cache hit, sharing the invocation
+		// with concurrent misses for the same key(s) if possible
+		if (cacheHit == null && this.coalesceConcurrentMisses && isCoalescible(contexts, cachePutRequests)) {
+			return invokeCoalesced(invoker, method, contexts, cachePutRequests);
+		}
+		return invokeAndCache(invoker, method, contexts, cachePutRequests);
+	}
+
+	@Nullable
+	private Object invokeAndCache(CacheOperationInvoker invoker, Method method, CacheOperationContexts contexts,
+			List<CachePutRequest> cachePutRequests) {
+
+		Object returnValue = invokeOperation(invoker);
+		// Defer puts and late evictions until an asynchronous result is available
+		Object asyncReturnValue = deferCachePutsAndEvicts(method, contexts, returnValue, cachePutRequests);
+		if (asyncReturnValue != null) {
+			return asyncReturnValue;
 		}
+		performCachePutsAndEvicts(contexts, unwrapReturnValue(returnValue), cachePutRequests);
+		return returnValue;
+	}
+
+	private boolean isCoalescible(CacheOperationContexts contexts, List<CachePutRequest> cachePutRequests) {
+		// Only plain @Cacheable misses: other operations have to see every invocation
+		return (!cachePutRequests.isEmpty() && contexts.get(CachePutOperation.class).isEmpty() &&
+				contexts.get(CacheEvictOperation.class).isEmpty());
+	}
+
+	@Nullable
+	private Object invokeCoalesced(CacheOperationInvoker invoker, Method method, CacheOperationContexts contexts,
+			List<CachePutRequest> cachePutRequests) {
+
+		List<Object> inFlightKey = new ArrayList<>(cachePutRequests.size() * 2 + 1);
+		inFlightKey.add(method);
+		for (CachePutRequest cachePutRequest : cachePutRequests) {
+			inFlightKey.add(cachePutRequest.context.getCacheNames());
+			inFlightKey.add(cachePutRequest.key);
+		}
+
+		InFlightInvocation inFlight = new InFlightInvocation();
+		InFlightInvocation existing = this.inFlightInvocations.putIfAbsent(inFlightKey, inFlight);
+		if (existing != null) {
+			if (existing.leader != Thread.currentThread()) {
+				try {
+					return existing.await(this.coalescingTimeout);
+				}
+				catch (TimeoutException ex) {
+					// Not available in time: stop sharing that invocation and call through
+					this.inFlightInvocations.remove(inFlightKey, existing);
+				}
+			}
+			// Reentrant invocation for the same key(s) on the leading thread, or timed out
+			return invokeAndCache(invoker, method, contexts, cachePutRequests);
+		}
+
+		Runnable release = () -> this.inFlightInvocations.remove(inFlightKey, inFlight);
+		Object returnValue;
+		try {
+			returnValue = invokeAndCache(invoker, method, contexts, cachePutRequests);
+		}
+		catch (RuntimeException | Error ex) {
+			release.run();
+			inFlight.result.completeExceptionally(ex);
+			throw ex;
+		}
+
+		// Asynchronous results stay shared until they are available
+		Object sharedReturnValue = null;
+		if (isCompletionStage(method) && returnValue instanceof CompletionStage) {
+			((CompletionStage<?>) returnValue).whenComplete((result, ex) -> release.run());
+			sharedReturnValue = returnValue;
+		}
+		else if (this.reactiveCachingHandler != null && returnValue != null) {
+			sharedReturnValue = this.reactiveCachingHandler.shareWhileInFlight(
+					method, returnValue, release, this.coalescingTimeout);
+		}
+		if (sharedReturnValue == null) {
+			release.run();
+			sharedReturnValue = returnValue;
+		}
+		inFlight.result.complete(sharedReturnValue);
+		return sharedReturnValue;
+	}
+
+	private void performCachePutsAndEvicts(CacheOperationContexts contexts, @Nullable Object cacheValue,
+			List<CachePutRequest> cachePutRequests) {
 
 		// Collect any explicit @CachePuts
 		collectPutRequests(contexts.get(CachePutOperation.class), cacheValue, cachePutRequests);
@@ -431,12 +613,35 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 
 		// Process any late evictions
 		processCacheEvicts(contexts.get(CacheEvictOperation.class), false, cacheValue);
+	}
 
-		return returnValue;
+	@Nullable
+	private Object deferCachePutsAndEvicts(Method method, CacheOperationContexts contexts,
+			@Nullable Object returnValue, List<CachePutRequest> cachePutRequests) {
+
+		if (isCompletionStage(method) && returnValue instanceof CompletionStage) {
+			return ((CompletionStage<?>) returnValue).thenApply(result -> {
+				performCachePutsAndEvicts(contexts, result, cachePutRequests);
+				return result;
+			});
+		}
+		if (this.reactiveCachingHandler != null && returnValue != null) {
+			return this.reactiveCachingHandler.deferCachePutsAndEvicts(method, contexts, returnValue, cachePutRequests);
+		}
+		return null;
 	}
 
 	@Nullable
 	private Object wrapCacheValue(Method method, @Nullable Object cacheValue) {
+		if (isCompletionStage(method)) {
+			return CompletableFuture.completedFuture(cacheValue);
+		}
+		if (this.reactiveCachingHandler != null) {
+			Object returnValue = this.reactiveCachingHandler.wrapCacheValue(method, cacheValue);
+			if (returnValue != null) {
+				return returnValue;
+			}
+		}
 		if (method.getReturnType() == Optional.class &&
 				(cacheValue == null || cacheValue.getClass() != Optional.class)) {
 			return Optional.ofNullable(cacheValue);
@@ -449,6 +654,16 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		return ObjectUtils.unwrapOptional(returnValue);
 	}
 
+	/**
+	 * Whether the declared return type of the given method is a future type
+	 * that a cache hit can be exposed as, i.e. {@link CompletableFuture} or
+	 * {@link CompletionStage}. Other future types are cached as returned.
+	 */
+	private static boolean isCompletionStage(Method method) {
+		Class<?> returnType = method.getReturnType();
+		return (returnType == CompletableFuture.class || returnType == CompletionStage.class);
+	}
+
 	private boolean hasCachePut(CacheOperationContexts contexts) {
 		// Evaluate the conditions *without* the result object because we don't have it yet...
 		Collection<CacheOperationContext> cachePutContexts = contexts.get(CachePutOperation.class);
@@ -824,6 +1039,199 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 	}
 
 
+	/**
+	 * Inner class to avoid a hard dependency on the Reactive Streams API at runtime.
+	 */
+	private class ReactiveCachingHandler {
+
+		private final ReactiveAdapterRegistry registry = ReactiveAdapterRegistry.getSharedInstance();
+
+		@Nullable
+		public Object executeSynchronized(CacheOperationInvoker invoker, Method method, Cache cache, Object key) {
+			ReactiveAdapter adapter = getAdapter(method.getReturnType());
+			if (adapter == null) {
+				return null;
+			}
+			if (adapter.isMultiValue()) {
+				CompletableFuture<List<Object>> cachedFuture = cache.retrieve(key, () ->
+						Flux.from(adapter.toPublisher(invokeOperation(invoker))).collectList().toFuture());
+				return adapter.fromPublisher(Mono.fromFuture(cachedFuture).flatMapIterable(list -> list));
+			}
+			else {
+				CompletableFuture<?> cachedFuture = cache.retrieve(key, () ->
+						Mono.from(adapter.toPublisher(invokeOperation(invoker))).toFuture());
+				return adapter.fromPublisher(Mono.fromFuture(cachedFuture));
+			}
+		}
+
+		@Nullable
+		public Object deferCachePutsAndEvicts(Method method, CacheOperationContexts contexts,
+				Object returnValue, List<CachePutRequest> cachePutRequests) {
+
+			ReactiveAdapter adapter = getAdapter(method.getReturnType());
+			if (adapter == null) {
+				return null;
+			}
+			if (adapter.isMultiValue()) {
+				return adapter.fromPublisher(Flux.from(adapter.toPublisher(returnValue)).collectList()
+						.doOnNext(list -> performCachePutsAndEvicts(contexts, list, cachePutRequests))
+						.flatMapIterable(list -> list));
+			}
+			else {
+				return adapter.fromPublisher(Mono.from(adapter.toPublisher(returnValue))
+						.doOnSuccess(value -> performCachePutsAndEvicts(contexts, value, cachePutRequests)));
+			}
+		}
+
+		@Nullable
+		public Object wrapCacheValue(Method method, @Nullable Object cacheValue) {
+			ReactiveAdapter adapter = getAdapter(method.getReturnType());
+			if (adapter == null) {
+				return null;
+			}
+			if (adapter.isMultiValue()) {
+				return adapter.fromPublisher(cacheValue instanceof Iterable ?
+						Flux.fromIterable((Iterable<?>) cacheValue) : Mono.justOrEmpty(cacheValue).flux());
+			}
+			else {
+				return adapter.fromPublisher(Mono.justOrEmpty(cacheValue));
+			}
+		}
+
+		@Nullable
+		public Object shareWhileInFlight(Method method, Object returnValue, Runnable release, Duration timeout) {
+			ReactiveAdapter adapter = getAdapter(method.getReturnType());
+			if (adapter == null) {
+				return null;
+			}
+			// Release after the timeout at the latest, even if no subscription arrives
+			Disposable timeoutRelease = Mono.delay(timeout).subscribe(tick -> release.run());
+			Runnable releaseOnce = () -> {
+				timeoutRelease.dispose();
+				release.run();
+			};
+			if (adapter.isMultiValue()) {
+				Mono<List<Object>> source = Flux.from(adapter.<Object>toPublisher(returnValue)).collectList();
+				return adapter.fromPublisher(new SharedSubscription<>(source, releaseOnce).share()
+						.flatMapIterable(list -> list));
+			}
+			else {
+				Mono<Object> source = Mono.from(adapter.toPublisher(returnValue));
+				return adapter.fromPublisher(new SharedSubscription<>(source, releaseOnce).share());
+			}
+		}
+
+		@Nullable
+		private ReactiveAdapter getAdapter(Class<?> returnType) {
+			// Based on the declared type, consistently for cache hits and misses
+			ReactiveAdapter adapter = this.registry.getAdapter(returnType);
+			// Values of a no-value type such as Completable are not cacheable
+			return (adapter != null && !adapter.isNoValue() ? adapter : null);
+		}
+	}
+
+
+	/**
+	 * A subscription to a source which concurrent subscribers join while
+	 * it is in progress, instead of subscribing to the source again.
+	 */
+	private static class SharedSubscription<T> {
+
+		private final Mono<T> source;
+
+		private final Runnable release;
+
+		@Nullable
+		private CompletableFuture<T> inProgress;
+
+		public SharedSubscription(Mono<T> source, Runnable release) {
+			this.source = source;
+			this.release = release;
+		}
+
+		public Mono<T> share() {
+			return Mono.defer(this::subscribeOrJoin);
+		}
+
+		private Mono<T> subscribeOrJoin() {
+			CompletableFuture<T> future;
+			synchronized (this) {
+				if (this.inProgress != null) {
+					// Subscribe again if the subscription in progress gets cancelled
+					return Mono.fromFuture(this.inProgress).onErrorResume(CancellationException.class, ex -> share());
+				}
+				future = new CompletableFuture<>();
+				this.inProgress = future;
+			}
+			return this.source
+					.doOnSuccess(value -> {
+						complete(future);
+						future.complete(value);
+					})
+					.doOnError(ex -> {
+						complete(future);
+						future.completeExceptionally(ex);
+					})
+					.doOnCancel(() -> {
+						complete(future);
+						future.cancel(false);
+					})
+					// Released on completion, error and cancellation alike
+					.doFinally(signal -> this.release.run());
+		}
+
+		private synchronized void complete(CompletableFuture<T> future) {
+			if (this.inProgress == future) {
+				this.inProgress = null;
+			}
+		}
+	}
+
+
+	/**
+	 * An invocation in progress, for other invocations to wait for.
+	 */
+	private static class InFlightInvocation {
+
+		private final Thread leader = Thread.currentThread();
+
+		private final long startTime = System.nanoTime();
+
+		private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+		/**
+		 * Wait for the result of this invocation, for the remainder of the
+		 * given timeout counting from the start of the invocation.
+		 * @throws TimeoutException if the result is not available in time,
+		 * or if the waiting thread got interrupted
+		 */
+		@Nullable
+		public Object await(Duration timeout) throws TimeoutException {
+			long remaining = timeout.toNanos() - (System.nanoTime() - this.startTime);
+			if (remaining <= 0) {
+				throw new TimeoutException();
+			}
+			try {
+				return this.result.get(remaining, TimeUnit.NANOSECONDS);
+			}
+			catch (ExecutionException ex) {
+				Throwable cause = ex.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new IllegalStateException(cause);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new TimeoutException("Interrupted while waiting for in-flight invocation");
+			}
+		}
+	}
+
+
 	private static final class CacheOperationCacheKey implements Comparable<CacheOperationCacheKey> {
 
 		private final CacheOperation cacheOperation;
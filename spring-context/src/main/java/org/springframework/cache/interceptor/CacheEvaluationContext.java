@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,6 +21,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.context.expression.MethodParameterBindings;
 import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.lang.Nullable;
 
@@ -53,6 +54,12 @@ class CacheEvaluationContext extends MethodBasedEvaluationContext {
 		super(rootObject, method, arguments, parameterNameDiscoverer);
 	}
 
+	CacheEvaluationContext(Object rootObject, Method method, Object[] arguments,
+			MethodParameterBindings parameterBindings) {
+
+		super(rootObject, method, arguments, parameterBindings);
+	}
+
 
 	/**
 	 * Add the specified variable name as unavailable for that context.
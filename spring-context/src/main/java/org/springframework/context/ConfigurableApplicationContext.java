@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,6 +24,7 @@ import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.env.Environment;
 import org.springframework.core.io.ProtocolResolver;
+import org.springframework.core.metrics.ApplicationStartup;
 import org.springframework.lang.Nullable;
 
 /**
@@ -147,6 +148,27 @@ public interface ConfigurableApplicationContext extends ApplicationContext, Life
 	 */
 	void addProtocolResolver(ProtocolResolver resolver);
 
+	/**
+	 * Set the {@link ApplicationStartup} for this application context.
+	 * <p>This allows the application context to record metrics
+	 * during startup.
+	 * <p>The default implementation is empty, for application contexts which
+	 * do not record any startup steps.
+	 * @param applicationStartup the new application startup
+	 * @since 5.1.13
+	 */
+	default void setApplicationStartup(ApplicationStartup applicationStartup) {
+	}
+
+	/**
+	 * Return the {@link ApplicationStartup} for this application context.
+	 * <p>The default implementation returns {@link ApplicationStartup#DEFAULT}.
+	 * @since 5.1.13
+	 */
+	default ApplicationStartup getApplicationStartup() {
+		return ApplicationStartup.DEFAULT;
+	}
+
 	/**
 	 * Load or refresh the persistent representation of the configuration,
 	 * which might an XML file, properties file, or relational database schema.
@@ -57,6 +57,8 @@ import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.annotation.InitDestroyAnnotationBeanPostProcessor;
 import org.springframework.beans.factory.annotation.InjectionMetadata;
+import org.springframework.beans.factory.annotation.InjectionMetadataIndex;
+import org.springframework.beans.factory.annotation.InjectionMetadataIndexLoader;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.DependencyDescriptor;
@@ -382,11 +384,20 @@ public class CommonAnnotationBeanPostProcessor extends InitDestroyAnnotationBean
 		//  用于存储所有需要注入的元素
 		List<InjectionMetadata.InjectedElement> elements = new ArrayList<>();
 		Class<?> targetClass = clazz;
+		InjectionMetadataIndex index = InjectionMetadataIndexLoader.loadIndex(clazz.getClassLoader());
+		List<Class<? extends Annotation>> annotationTypes = new ArrayList<>(3);
+		annotationTypes.add(Resource.class);
+		if (webServiceRefClass != null) {
+			annotationTypes.add(webServiceRefClass);
+		}
+		if (ejbRefClass != null) {
+			annotationTypes.add(ejbRefClass);
+		}
 
 		do {
 			final List<InjectionMetadata.InjectedElement> currElements = new ArrayList<>();
 			// 遍历bean的所有field
-			ReflectionUtils.doWithLocalFields(targetClass, field -> {
+			ReflectionUtils.FieldCallback fieldCallback = field -> {
 				if (webServiceRefClass != null && field.isAnnotationPresent(webServiceRefClass)) {
 					if (Modifier.isStatic(field.getModifiers())) {
 						throw new IllegalStateException("@WebServiceRef annotation is not supported on static fields");
@@ -410,9 +421,9 @@ public class CommonAnnotationBeanPostProcessor extends InitDestroyAnnotationBean
 						currElements.add(new ResourceElement(field, field, null));
 					}
 				}
-			});
+			};
 			// 遍历bean的所有方法
-			ReflectionUtils.doWithLocalMethods(targetClass, method -> {
+			ReflectionUtils.MethodCallback methodCallback = method -> {
 				Method bridgedMethod = BridgeMethodResolver.findBridgedMethod(method);
 				if (!BridgeMethodResolver.isVisibilityBridgeMethodPair(method, bridgedMethod)) {
 					return;
@@ -452,7 +463,19 @@ public class CommonAnnotationBeanPostProcessor extends InitDestroyAnnotationBean
 						}
 					}
 				}
-			});
+			};
+
+			InjectionMetadataIndex.AnnotatedMembers members = (index != null ?
+					index.getAnnotatedMembers(targetClass, annotationTypes) : null);
+			if (members != null) {
+				// Indexed at compile time: only introspect the members known to be annotated
+				members.doWithFields(fieldCallback);
+				members.doWithMethods(methodCallback);
+			}
+			else {
+				ReflectionUtils.doWithLocalFields(targetClass, fieldCallback);
+				ReflectionUtils.doWithLocalMethods(targetClass, methodCallback);
+			}
 
 			elements.addAll(0, currElements);
 			targetClass = targetClass.getSuperclass();
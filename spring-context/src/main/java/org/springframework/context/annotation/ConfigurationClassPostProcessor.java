@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,14 +16,17 @@
 
 package org.springframework.context.annotation;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -36,6 +39,7 @@ import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinitionHolder;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessorAdapter;
 import org.springframework.beans.factory.config.SingletonBeanRegistry;
@@ -50,12 +54,15 @@ import org.springframework.beans.factory.support.BeanNameGenerator;
 import org.springframework.context.EnvironmentAware;
 import org.springframework.context.ResourceLoaderAware;
 import org.springframework.context.annotation.ConfigurationClassEnhancer.EnhancedConfiguration;
+import org.springframework.core.Conventions;
 import org.springframework.core.Ordered;
 import org.springframework.core.PriorityOrdered;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.StandardEnvironment;
 import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.core.type.AnnotationMetadata;
 import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
 import org.springframework.core.type.classreading.MetadataReaderFactory;
@@ -98,6 +105,9 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 	private static final String IMPORT_REGISTRY_BEAN_NAME =
 			ConfigurationClassPostProcessor.class.getName() + ".importRegistry";
 
+	private static final String IMPORTING_CLASS_ATTRIBUTE =
+			Conventions.getQualifiedAttributeName(ConfigurationClassPostProcessor.class, "importingClass");
+
 
 	private final Log logger = LogFactory.getLog(getClass());
 
@@ -314,6 +324,7 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 
 		// Return immediately if no @Configuration classes were found
 		if (configCandidates.isEmpty()) {
+			registerImportRegistry(registry, null);
 			return;
 		}
 
@@ -341,6 +352,9 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 			this.environment = new StandardEnvironment();
 		}
 
+		ApplicationStartup applicationStartup = (registry instanceof ConfigurableBeanFactory ?
+				((ConfigurableBeanFactory) registry).getApplicationStartup() : ApplicationStartup.DEFAULT);
+
 		// Parse each @Configuration class 解析每个@Configuration类
 		// 构建一个配置类解析器对象，该解析器会解析上述所有的配置类，产生一组ConfigurationClass对象，然后从这组ConfigurationClass对象中加载BD
 		ConfigurationClassParser parser = new ConfigurationClassParser(
@@ -351,6 +365,7 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 		Set<ConfigurationClass> alreadyParsed = new HashSet<>(configCandidates.size());
 		// 递归解析配置类, 有可能通过解析一个配置类, 得到了新的配置类, 比如扫描和@Import
 		do {
+			StartupStep processConfig = applicationStartup.start("spring.context.config-classes.parse");
 			/**
 			 * 遍历解析所有配置类: 解析@PropertySource/@ComponentScan/@Import/@ImportResource/@Bean等, 只有@ComponentScan扫描出来的类加入了BD, 其他都只缓存到配置类的集合中
 			 * 在这个解析过程中会进行扫描, 导入等步骤, 在这些步骤中极有可能会找到其他的配置类
@@ -374,6 +389,7 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 			 */
 			this.reader.loadBeanDefinitions(configClasses);
 			alreadyParsed.addAll(configClasses);
+			processConfig.tag("classCount", () -> String.valueOf(configClasses.size())).end();
 
 			candidates.clear();
 			if (registry.getBeanDefinitionCount() > candidateNames.length) {
@@ -398,8 +414,19 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 		while (!candidates.isEmpty());
 
 		// Register the ImportRegistry as a bean in order to support ImportAware @Configuration classes
-		if (sbr != null && !sbr.containsSingleton(IMPORT_REGISTRY_BEAN_NAME)) {
-			sbr.registerSingleton(IMPORT_REGISTRY_BEAN_NAME, parser.getImportRegistry());
+		registerImportRegistry(registry, parser.getImportRegistry());
+
+		// Record importing classes on the imported configuration classes' bean definitions,
+		// for the ImportRegistry to be restorable along with the definitions themselves
+		ImportRegistry importRegistry = parser.getImportRegistry();
+		for (ConfigurationClass configClass : alreadyParsed) {
+			String beanName = configClass.getBeanName();
+			AnnotationMetadata importingClass =
+					importRegistry.getImportingClassFor(configClass.getMetadata().getClassName());
+			if (beanName != null && importingClass != null && registry.containsBeanDefinition(beanName)) {
+				BeanDefinition beanDef = registry.getBeanDefinition(beanName);
+				beanDef.setAttribute(IMPORTING_CLASS_ATTRIBUTE, importingClass.getClassName());
+			}
 		}
 
 		if (this.metadataReaderFactory instanceof CachingMetadataReaderFactory) {
@@ -409,6 +436,37 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 		}
 	}
 
+	/**
+	 * Register the ImportRegistry for the given registry, taking the importing
+	 * classes recorded on configuration class bean definitions that have been
+	 * processed before into account, e.g. when restored from a bean definition
+	 * snapshot, along with any configuration classes parsed in this pass.
+	 * @param registry the registry to register the ImportRegistry with
+	 * @param parsedImportRegistry the ImportRegistry for the configuration
+	 * classes parsed in this pass, or {@code null} if none
+	 */
+	private void registerImportRegistry(BeanDefinitionRegistry registry,
+			@Nullable ImportRegistry parsedImportRegistry) {
+
+		if (!(registry instanceof SingletonBeanRegistry) ||
+				((SingletonBeanRegistry) registry).containsSingleton(IMPORT_REGISTRY_BEAN_NAME)) {
+			return;
+		}
+		Map<String, String> importingClasses = new HashMap<>();
+		for (String beanName : registry.getBeanDefinitionNames()) {
+			BeanDefinition beanDef = registry.getBeanDefinition(beanName);
+			Object importingClass = beanDef.getAttribute(IMPORTING_CLASS_ATTRIBUTE);
+			if (importingClass instanceof String && beanDef.getBeanClassName() != null) {
+				importingClasses.put(beanDef.getBeanClassName(), (String) importingClass);
+			}
+		}
+		ImportRegistry importRegistry = (importingClasses.isEmpty() ? parsedImportRegistry :
+				new RestoredImportRegistry(importingClasses, this.metadataReaderFactory, parsedImportRegistry));
+		if (importRegistry != null) {
+			((SingletonBeanRegistry) registry).registerSingleton(IMPORT_REGISTRY_BEAN_NAME, importRegistry);
+		}
+	}
+
 	/**
 	 * 遍历BDMap找到所有的full配置类, 将这些full配置类的beanClass替换为其代理类
 	 * Post-processes a BeanFactory in search of Configuration class BeanDefinitions;
@@ -417,6 +475,7 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 	 * @see ConfigurationClassEnhancer
 	 */
 	public void enhanceConfigurationClasses(ConfigurableListableBeanFactory beanFactory) {
+		StartupStep enhanceConfigClasses = beanFactory.getApplicationStartup().start("spring.context.config-classes.enhance");
 		// 用于存放全配置类 也就是加了@Configuration的
 		Map<String, AbstractBeanDefinition> configBeanDefs = new LinkedHashMap<>();
 		// beanFactory.getBeanDefinitionNames() 相当于bdmap中的key
@@ -442,6 +501,7 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 		// 如果没有全配置类为空，直接返回
 		if (configBeanDefs.isEmpty()) {
 			// nothing to enhance -> return immediately
+			enhanceConfigClasses.end();
 			return;
 		}
 
@@ -479,6 +539,7 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 				throw new IllegalStateException("Cannot load configuration class: " + beanDef.getBeanClassName(), ex);
 			}
 		}
+		enhanceConfigClasses.tag("classCount", () -> String.valueOf(configBeanDefs.keySet().size())).end();
 	}
 
 
@@ -513,4 +574,53 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 		}
 	}
 
+
+	/**
+	 * ImportRegistry for configuration classes that have not been parsed in the
+	 * current run, lazily reading the metadata of recorded importing classes,
+	 * and delegating to the ImportRegistry of the parsed ones otherwise.
+	 */
+	private static class RestoredImportRegistry implements ImportRegistry {
+
+		private final Map<String, String> importingClasses;
+
+		private final MetadataReaderFactory metadataReaderFactory;
+
+		@Nullable
+		private final ImportRegistry parsedImportRegistry;
+
+		public RestoredImportRegistry(Map<String, String> importingClasses,
+				MetadataReaderFactory metadataReaderFactory, @Nullable ImportRegistry parsedImportRegistry) {
+
+			this.importingClasses = new ConcurrentHashMap<>(importingClasses);
+			this.metadataReaderFactory = metadataReaderFactory;
+			this.parsedImportRegistry = parsedImportRegistry;
+		}
+
+		@Override
+		@Nullable
+		public AnnotationMetadata getImportingClassFor(String importedClass) {
+			String importingClass = this.importingClasses.get(importedClass);
+			if (importingClass == null) {
+				return (this.parsedImportRegistry != null ?
+						this.parsedImportRegistry.getImportingClassFor(importedClass) : null);
+			}
+			try {
+				return this.metadataReaderFactory.getMetadataReader(importingClass).getAnnotationMetadata();
+			}
+			catch (IOException ex) {
+				throw new IllegalStateException(
+						"Failed to read metadata of importing class [" + importingClass + "]", ex);
+			}
+		}
+
+		@Override
+		public void removeImportingClass(String importingClass) {
+			this.importingClasses.values().removeIf(importingClass::equals);
+			if (this.parsedImportRegistry != null) {
+				this.parsedImportRegistry.removeImportingClass(importingClass);
+			}
+		}
+	}
+
 }
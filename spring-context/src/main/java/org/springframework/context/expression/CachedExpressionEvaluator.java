@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,13 +16,24 @@
 
 package org.springframework.context.expression;
 
+import java.lang.reflect.Method;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.core.DefaultParameterNameDiscoverer;
 import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.SpringProperties;
+import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpression;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.util.ObjectUtils;
 
 /**
@@ -35,10 +46,20 @@ import org.springframework.util.ObjectUtils;
  */
 public abstract class CachedExpressionEvaluator {
 
+	private static final String COMPILER_MODE_PROPERTY_NAME = "spring.expression.compiler.mode";
+
+
 	private final SpelExpressionParser parser;
 
+	private final boolean compileEagerly;
+
 	private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
 
+	private final Map<Method, MethodParameterBindings> parameterBindingsCache = new ConcurrentHashMap<>(64);
+
+	private final Set<Expression> eagerlyCompiledExpressions =
+			Collections.newSetFromMap(new ConcurrentReferenceHashMap<>(64));
+
 
 	/**
 	 * Create a new instance with the specified {@link SpelExpressionParser}.
@@ -46,13 +67,22 @@ public abstract class CachedExpressionEvaluator {
 	protected CachedExpressionEvaluator(SpelExpressionParser parser) {
 		Assert.notNull(parser, "SpelExpressionParser must not be null");
 		this.parser = parser;
+		this.compileEagerly = false;
 	}
 
 	/**
 	 * Create a new instance with a default {@link SpelExpressionParser}.
+	 * <p>Unless a compiler mode has been set through the
+	 * {@code spring.expression.compiler.mode} property, expressions are
+	 * compiled as soon as they have been evaluated once and are compilable,
+	 * reverting to interpreted mode if a compiled expression fails at runtime.
+	 * @see #getValue(Expression, EvaluationContext, Class)
 	 */
 	protected CachedExpressionEvaluator() {
-		this(new SpelExpressionParser());
+		boolean compilerModeConfigured = (SpringProperties.getProperty(COMPILER_MODE_PROPERTY_NAME) != null);
+		this.parser = (compilerModeConfigured ? new SpelExpressionParser() :
+				new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.MIXED, null)));
+		this.compileEagerly = !compilerModeConfigured;
 	}
 
 
@@ -71,6 +101,22 @@ public abstract class CachedExpressionEvaluator {
 		return this.parameterNameDiscoverer;
 	}
 
+	/**
+	 * Return the shared {@link MethodParameterBindings} for the specified method,
+	 * determining them through the {@link #getParameterNameDiscoverer() parameter
+	 * name discoverer} on first access.
+	 * @param method the method to bind parameters for
+	 * @since 5.1.13
+	 */
+	protected MethodParameterBindings getParameterBindings(Method method) {
+		MethodParameterBindings bindings = this.parameterBindingsCache.get(method);
+		if (bindings == null) {
+			bindings = MethodParameterBindings.forMethod(method, getParameterNameDiscoverer());
+			this.parameterBindingsCache.put(method, bindings);
+		}
+		return bindings;
+	}
+
 
 	/**
 	 * Return the {@link Expression} for the specified SpEL value
@@ -95,6 +141,30 @@ public abstract class CachedExpressionEvaluator {
 		return new ExpressionKey(elementKey, expression);
 	}
 
+	/**
+	 * Evaluate the specified {@link Expression} against the given context.
+	 * <p>When using the default parser, a SpEL expression is compiled right
+	 * after its first evaluation, rather than after a number of interpreted
+	 * evaluations. Compilation is only attempted eagerly once: an expression
+	 * which cannot be compiled yet is left to the regular mixed mode threshold.
+	 * @param expression the expression to evaluate
+	 * @param context the context to evaluate the expression against
+	 * @param expectedType the expected result type (may be {@code null})
+	 * @return the evaluation result
+	 * @since 5.1.13
+	 */
+	@Nullable
+	protected <T> T getValue(Expression expression, EvaluationContext context, @Nullable Class<T> expectedType) {
+		T value = expression.getValue(context, expectedType);
+		if (this.compileEagerly && expression instanceof SpelExpression &&
+				this.eagerlyCompiledExpressions.add(expression)) {
+			// Only attempt once, whether successful or not: after a failed attempt or a
+			// failure at runtime, the regular mixed mode threshold applies for (re)compilation.
+			((SpelExpression) expression).compileExpression();
+		}
+		return value;
+	}
+
 
 	/**
 	 * An expression key.
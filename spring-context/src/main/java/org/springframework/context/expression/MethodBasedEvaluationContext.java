@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,6 +22,7 @@ import java.util.Arrays;
 import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
 
 /**
@@ -45,8 +46,12 @@ public class MethodBasedEvaluationContext extends StandardEvaluationContext {
 
 	private final Object[] arguments;
 
+	@Nullable
 	private final ParameterNameDiscoverer parameterNameDiscoverer;
 
+	@Nullable
+	private final MethodParameterBindings parameterBindings;
+
 	private boolean argumentsLoaded = false;
 
 
@@ -57,6 +62,27 @@ public class MethodBasedEvaluationContext extends StandardEvaluationContext {
 		this.method = method;
 		this.arguments = arguments;
 		this.parameterNameDiscoverer = parameterNameDiscoverer;
+		this.parameterBindings = null;
+	}
+
+	/**
+	 * Create a new context for the given method, resolving the method arguments
+	 * through pre-determined parameter bindings rather than registering them as
+	 * variables on first access.
+	 * @param rootObject the root object
+	 * @param method the method
+	 * @param arguments the method arguments
+	 * @param parameterBindings the bindings for the parameters of the method
+	 * @since 5.1.13
+	 */
+	public MethodBasedEvaluationContext(Object rootObject, Method method, Object[] arguments,
+			MethodParameterBindings parameterBindings) {
+
+		super(rootObject);
+		this.method = method;
+		this.arguments = arguments;
+		this.parameterNameDiscoverer = null;
+		this.parameterBindings = parameterBindings;
 	}
 
 
@@ -67,6 +93,9 @@ public class MethodBasedEvaluationContext extends StandardEvaluationContext {
 		if (variable != null) {
 			return variable;
 		}
+		if (this.parameterBindings != null) {
+			return this.parameterBindings.resolve(name, this.arguments);
+		}
 		if (!this.argumentsLoaded) {
 			lazyLoadArguments();
 			this.argumentsLoaded = true;
@@ -84,7 +113,15 @@ public class MethodBasedEvaluationContext extends StandardEvaluationContext {
 			return;
 		}
 
+		if (this.parameterBindings != null) {
+			for (String name : this.parameterBindings.getVariableNames()) {
+				setVariable(name, this.parameterBindings.resolve(name, this.arguments));
+			}
+			return;
+		}
+
 		// Expose indexed variables as well as parameter names (if discoverable)
+		Assert.state(this.parameterNameDiscoverer != null, "No ParameterNameDiscoverer");
 		String[] paramNames = this.parameterNameDiscoverer.getParameterNames(this.method);
 		int paramCount = (paramNames != null ? paramNames.length : this.method.getParameterCount());
 		int argsCount = this.arguments.length;
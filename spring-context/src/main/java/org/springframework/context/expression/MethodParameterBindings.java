@@ -0,0 +1,107 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.expression;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.lang.Nullable;
+
+/**
+ * Positional bindings of SpEL variable names to the parameters of a method,
+ * following the conventions of {@link MethodBasedEvaluationContext}: {@code aX}
+ * and {@code pX} aliases where X is the index of the parameter, as well as the
+ * parameter names (if discoverable).
+ *
+ * <p>Bindings are determined once per method and may be shared across any number
+ * of evaluation contexts, resolving variables against the actual arguments on
+ * demand instead of discovering parameter names and registering variables for
+ * every evaluation.
+ *
+ * @since 5.1.13
+ * @see MethodBasedEvaluationContext#MethodBasedEvaluationContext(Object, Method, Object[], MethodParameterBindings)
+ * @see CachedExpressionEvaluator#getParameterBindings(Method)
+ */
+public final class MethodParameterBindings {
+
+	private final Map<String, Integer> parameterIndexes;
+
+	private final int parameterCount;
+
+
+	private MethodParameterBindings(Map<String, Integer> parameterIndexes, int parameterCount) {
+		this.parameterIndexes = parameterIndexes;
+		this.parameterCount = parameterCount;
+	}
+
+
+	/**
+	 * Return the names of all variables bound to a parameter.
+	 */
+	public Set<String> getVariableNames() {
+		return this.parameterIndexes.keySet();
+	}
+
+	/**
+	 * Resolve the value of the given variable against the given arguments.
+	 * <p>If more arguments than parameters are given, the remaining arguments
+	 * are exposed as vararg array for the last parameter.
+	 * @param name the name of the variable
+	 * @param arguments the actual arguments of the method invocation
+	 * @return the value of the variable, or {@code null} if the variable is not
+	 * bound to a parameter or the corresponding argument is {@code null}
+	 */
+	@Nullable
+	public Object resolve(String name, Object[] arguments) {
+		Integer index = this.parameterIndexes.get(name);
+		if (index == null) {
+			return null;
+		}
+		int i = index;
+		int argsCount = arguments.length;
+		if (argsCount > this.parameterCount && i == this.parameterCount - 1) {
+			return Arrays.copyOfRange(arguments, i, argsCount);
+		}
+		return (argsCount > i ? arguments[i] : null);
+	}
+
+
+	/**
+	 * Determine the bindings for the given method.
+	 * @param method the method to bind parameters for
+	 * @param parameterNameDiscoverer the discoverer to use for parameter names
+	 */
+	public static MethodParameterBindings forMethod(Method method, ParameterNameDiscoverer parameterNameDiscoverer) {
+		String[] paramNames = parameterNameDiscoverer.getParameterNames(method);
+		int paramCount = (paramNames != null ? paramNames.length : method.getParameterCount());
+		Map<String, Integer> parameterIndexes = new HashMap<>(paramCount * 4);
+		for (int i = 0; i < paramCount; i++) {
+			parameterIndexes.put("a" + i, i);
+			parameterIndexes.put("p" + i, i);
+			if (paramNames != null && paramNames[i] != null) {
+				parameterIndexes.put(paramNames[i], i);
+			}
+		}
+		return new MethodParameterBindings(Collections.unmodifiableMap(parameterIndexes), paramCount);
+	}
+
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.metrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.core.NamedThreadLocal;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ApplicationStartup} implementation that buffers ended
+ * {@link StartupStep steps} in memory, for later inspection or export as JSON.
+ *
+ * <p>Steps are kept in a ring buffer of fixed capacity: once the buffer is full,
+ * each newly ended step replaces the oldest one. Each step records its start
+ * and end time (as given by {@link System#nanoTime()}), the name of the thread
+ * that started it and its tags. The parent of a step is the step that was last
+ * started and not yet ended on the same thread.
+ *
+ * <p>Typical usage, before the context gets refreshed:
+ * <pre class="code">
+ * BufferingApplicationStartup startup = new BufferingApplicationStartup(2048);
+ * context.setApplicationStartup(startup);
+ * context.refresh();
+ * startup.writeJson(writer);
+ * </pre>
+ *
+ * @since 5.1.13
+ * @see org.springframework.context.ConfigurableApplicationContext#setApplicationStartup
+ */
+public class BufferingApplicationStartup implements ApplicationStartup {
+
+	private final AtomicLong idSeq = new AtomicLong();
+
+	private final ThreadLocal<BufferedStartupStep> currentStep = new NamedThreadLocal<>("Current startup step");
+
+	private final BufferedStartupStep[] buffer;
+
+	private long endedCount;
+
+
+	/**
+	 * Create a new buffering {@code ApplicationStartup}.
+	 * @param capacity the maximum number of steps to keep
+	 */
+	public BufferingApplicationStartup(int capacity) {
+		Assert.isTrue(capacity > 0, "Capacity must be greater than 0");
+		this.buffer = new BufferedStartupStep[capacity];
+	}
+
+
+	@Override
+	public StartupStep start(String name) {
+		Assert.notNull(name, "Step name must not be null");
+		BufferedStartupStep parent = this.currentStep.get();
+		BufferedStartupStep step = new BufferedStartupStep(this, this.idSeq.incrementAndGet(), name, parent);
+		this.currentStep.set(step);
+		return step;
+	}
+
+	private void record(BufferedStartupStep step) {
+		if (this.currentStep.get() == step) {
+			if (step.parent != null) {
+				this.currentStep.set(step.parent);
+			}
+			else {
+				this.currentStep.remove();
+			}
+		}
+		synchronized (this.buffer) {
+			this.buffer[(int) (this.endedCount % this.buffer.length)] = step;
+			this.endedCount++;
+		}
+	}
+
+	/**
+	 * Return the buffered steps, in the order in which they ended.
+	 */
+	public List<BufferedStartupStep> getBufferedSteps() {
+		synchronized (this.buffer) {
+			int size = (int) Math.min(this.endedCount, this.buffer.length);
+			List<BufferedStartupStep> steps = new ArrayList<>(size);
+			for (long i = this.endedCount - size; i < this.endedCount; i++) {
+				steps.add(this.buffer[(int) (i % this.buffer.length)]);
+			}
+			return steps;
+		}
+	}
+
+	/**
+	 * Return the number of ended steps that have been evicted from the buffer.
+	 */
+	public long getDroppedStepCount() {
+		synchronized (this.buffer) {
+			return Math.max(0, this.endedCount - this.buffer.length);
+		}
+	}
+
+	/**
+	 * Write the buffered steps to the given {@link Writer}, as a JSON document
+	 * with the number of dropped steps and an array of steps.
+	 * @param writer the writer to write to
+	 * @throws IOException in case of I/O errors
+	 */
+	public void writeJson(Writer writer) throws IOException {
+		List<BufferedStartupStep> steps = getBufferedSteps();
+		writer.write("{\"droppedSteps\":");
+		writer.write(Long.toString(getDroppedStepCount()));
+		writer.write(",\"steps\":[");
+		for (int i = 0; i < steps.size(); i++) {
+			if (i > 0) {
+				writer.write(',');
+			}
+			steps.get(i).writeJson(writer);
+		}
+		writer.write("]}");
+	}
+
+	/**
+	 * Return the buffered steps as a JSON document.
+	 * @see #writeJson(Writer)
+	 */
+	public String toJson() {
+		StringWriter writer = new StringWriter();
+		try {
+			writeJson(writer);
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return writer.toString();
+	}
+
+	private static void writeJsonString(Writer writer, String value) throws IOException {
+		writer.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			if (ch == '"' || ch == '\\') {
+				writer.write('\\');
+				writer.write(ch);
+			}
+			else if (ch < 0x20) {
+				writer.write(String.format("\\u%04x", (int) ch));
+			}
+			else {
+				writer.write(ch);
+			}
+		}
+		writer.write('"');
+	}
+
+
+	/**
+	 * {@link StartupStep} recorded by a {@link BufferingApplicationStartup}.
+	 */
+	public static final class BufferedStartupStep implements StartupStep {
+
+		private final BufferingApplicationStartup applicationStartup;
+
+		private final long id;
+
+		private final String name;
+
+		@Nullable
+		private final BufferedStartupStep parent;
+
+		private final String threadName;
+
+		private final long startTime;
+
+		private final List<Tag> tags = new ArrayList<>(2);
+
+		private volatile long endTime = -1;
+
+		BufferedStartupStep(BufferingApplicationStartup applicationStartup, long id, String name,
+				@Nullable BufferedStartupStep parent) {
+
+			this.applicationStartup = applicationStartup;
+			this.id = id;
+			this.name = name;
+			this.parent = parent;
+			this.threadName = Thread.currentThread().getName();
+			this.startTime = System.nanoTime();
+		}
+
+		@Override
+		public String getName() {
+			return this.name;
+		}
+
+		@Override
+		public long getId() {
+			return this.id;
+		}
+
+		@Override
+		@Nullable
+		public Long getParentId() {
+			return (this.parent != null ? this.parent.id : null);
+		}
+
+		/**
+		 * Return the name of the thread that started this step.
+		 */
+		public String getThreadName() {
+			return this.threadName;
+		}
+
+		/**
+		 * Return the {@link System#nanoTime()} at which this step started.
+		 */
+		public long getStartTime() {
+			return this.startTime;
+		}
+
+		/**
+		 * Return the {@link System#nanoTime()} at which this step ended,
+		 * or {@code -1} if it has not ended yet.
+		 */
+		public long getEndTime() {
+			return this.endTime;
+		}
+
+		/**
+		 * Return the duration of this step in nanoseconds,
+		 * or {@code -1} if it has not ended yet.
+		 */
+		public long getDuration() {
+			long endTime = this.endTime;
+			return (endTime != -1 ? endTime - this.startTime : -1);
+		}
+
+		@Override
+		public StartupStep tag(String key, String value) {
+			Assert.notNull(key, "Tag key must not be null");
+			Assert.notNull(value, "Tag value must not be null");
+			Assert.state(this.endTime == -1, "StartupStep has already ended");
+			this.tags.add(new BufferedTag(key, value));
+			return this;
+		}
+
+		@Override
+		public StartupStep tag(String key, Supplier<String> value) {
+			return tag(key, value.get());
+		}
+
+		@Override
+		public Tags getTags() {
+			List<Tag> tags = Collections.unmodifiableList(this.tags);
+			return tags::iterator;
+		}
+
+		@Override
+		public void end() {
+			Assert.state(this.endTime == -1, "StartupStep has already ended");
+			this.endTime = System.nanoTime();
+			this.applicationStartup.record(this);
+		}
+
+		void writeJson(Writer writer) throws IOException {
+			writer.write("{\"id\":");
+			writer.write(Long.toString(this.id));
+			writer.write(",\"parentId\":");
+			writer.write(this.parent != null ? Long.toString(this.parent.id) : "null");
+			writer.write(",\"name\":");
+			writeJsonString(writer, this.name);
+			writer.write(",\"thread\":");
+			writeJsonString(writer, this.threadName);
+			writer.write(",\"startTime\":");
+			writer.write(Long.toString(this.startTime));
+			writer.write(",\"endTime\":");
+			writer.write(Long.toString(this.endTime));
+			writer.write(",\"tags\":{");
+			for (Iterator<Tag> it = this.tags.iterator(); it.hasNext();) {
+				Tag tag = it.next();
+				writeJsonString(writer, tag.getKey());
+				writer.write(':');
+				writeJsonString(writer, tag.getValue());
+				if (it.hasNext()) {
+					writer.write(',');
+				}
+			}
+			writer.write("}}");
+		}
+
+		@Override
+		public String toString() {
+			return "StartupStep '" + this.name + "' [" + this.id + "]";
+		}
+	}
+
+
+	private static final class BufferedTag implements StartupStep.Tag {
+
+		private final String key;
+
+		private final String value;
+
+		BufferedTag(String key, String value) {
+			this.key = key;
+			this.value = value;
+		}
+
+		@Override
+		public String getKey() {
+			return this.key;
+		}
+
+		@Override
+		public String getValue() {
+			return this.value;
+		}
+	}
+
+}
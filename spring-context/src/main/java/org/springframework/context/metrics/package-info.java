@@ -0,0 +1,9 @@
+/**
+ * Support package for recording application startup metrics.
+ */
+@NonNullApi
+@NonNullFields
+package org.springframework.context.metrics;
+
+import org.springframework.lang.NonNullApi;
+import org.springframework.lang.NonNullFields;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -46,6 +46,8 @@ import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
@@ -190,6 +192,9 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	/** Statically specified listeners. */
 	private final Set<ApplicationListener<?>> applicationListeners = new LinkedHashSet<>();
 
+	/** Whether listeners may currently be added by multiple threads, during parallel pre-instantiation. */
+	private volatile boolean concurrentListenerRegistration;
+
 	/** Local listeners registered before refresh. */
 	@Nullable
 	private Set<ApplicationListener<?>> earlyApplicationListeners;
@@ -198,6 +203,9 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	@Nullable
 	private Set<ApplicationEvent> earlyApplicationEvents;
 
+	/** Application startup metrics. **/
+	private ApplicationStartup applicationStartup = ApplicationStartup.DEFAULT;
+
 
 	/**
 	 * Create a new AbstractApplicationContext with no parent.
@@ -499,7 +507,25 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		if (this.applicationEventMulticaster != null) {
 			this.applicationEventMulticaster.addApplicationListener(listener);
 		}
-		this.applicationListeners.add(listener);
+		if (this.concurrentListenerRegistration) {
+			synchronized (this.applicationListeners) {
+				this.applicationListeners.add(listener);
+			}
+		}
+		else {
+			this.applicationListeners.add(listener);
+		}
+	}
+
+	@Override
+	public void setApplicationStartup(ApplicationStartup applicationStartup) {
+		Assert.notNull(applicationStartup, "applicationStartup should not be null");
+		this.applicationStartup = applicationStartup;
+	}
+
+	@Override
+	public ApplicationStartup getApplicationStartup() {
+		return this.applicationStartup;
 	}
 
 	/**
@@ -512,6 +538,8 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	@Override
 	public void refresh() throws BeansException, IllegalStateException {
 		synchronized (this.startupShutdownMonitor) {
+			StartupStep contextRefresh = this.applicationStartup.start("spring.context.refresh");
+
 			// Prepare this context for refreshing.
 			// 刷新预处理，加载参数设置到Environment中，保存容器的启动时间，启动标志等
 			prepareRefresh();
@@ -537,18 +565,24 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 			try {
 				// Allows post-processing of the bean factory in context subclasses.
 				// 模版方法
-				postProcessBeanFactory(beanFactory);
-
-				// Invoke factory processors registered as beans in the context.
-				/**
-				 * 扫描 --> class --> parse --> BeanDefinition --> put beanDefinitionMap
-				 * 执行spring内置和自定义的BeanFactoryPostProcessor（bean工厂后置处理器）
-				 */
-				invokeBeanFactoryPostProcessors(beanFactory);
-
-				// Register bean processors that intercept bean creation.
-				// 注册BeanPostProcessor（实例化bean后置处理器）
-				registerBeanPostProcessors(beanFactory);
+				StartupStep beanPostProcess = this.applicationStartup.start("spring.context.beans.post-process");
+				try {
+					postProcessBeanFactory(beanFactory);
+
+					// Invoke factory processors registered as beans in the context.
+					/**
+					 * 扫描 --> class --> parse --> BeanDefinition --> put beanDefinitionMap
+					 * 执行spring内置和自定义的BeanFactoryPostProcessor（bean工厂后置处理器）
+					 */
+					invokeBeanFactoryPostProcessors(beanFactory);
+
+					// Register bean processors that intercept bean creation.
+					// 注册BeanPostProcessor（实例化bean后置处理器）
+					registerBeanPostProcessors(beanFactory);
+				}
+				finally {
+					beanPostProcess.end();
+				}
 
 				// Initialize message source for this context.
 				// 初始化国际化资源处理器
@@ -612,6 +646,7 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 				// Reset common introspection caches in Spring's core, since we
 				// might not ever need metadata for singleton beans anymore...
 				resetCommonCaches();
+				contextRefresh.end();
 			}
 		}
 	}
@@ -709,6 +744,7 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		// Tell the internal bean factory to use the context's class loader etc.
 		// 设置类加载器
 		beanFactory.setBeanClassLoader(getClassLoader());
+		beanFactory.setApplicationStartup(getApplicationStartup());
 		// 设置springEL表达式解析器
 		beanFactory.setBeanExpressionResolver(new StandardBeanExpressionResolver(beanFactory.getBeanClassLoader()));
 		// 属性编辑器支持
@@ -984,7 +1020,15 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		 * 实例化所有非懒加载的单例对象
 		 * @see DefaultListableBeanFactory#preInstantiateSingletons()
 		 */
-		beanFactory.preInstantiateSingletons();
+		// Listener beans may be detected by several threads at once with a pre-instantiation executor
+		this.concurrentListenerRegistration = (beanFactory instanceof DefaultListableBeanFactory &&
+				((DefaultListableBeanFactory) beanFactory).getPreInstantiationExecutor() != null);
+		try {
+			beanFactory.preInstantiateSingletons();
+		}
+		finally {
+			this.concurrentListenerRegistration = false;
+		}
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,6 +23,7 @@ import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextException;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.lang.Nullable;
 
 /**
@@ -130,13 +131,20 @@ public abstract class AbstractRefreshableApplicationContext extends AbstractAppl
 			// 创建默认的Bean工厂
 			DefaultListableBeanFactory beanFactory = createBeanFactory();
 			beanFactory.setSerializationId(getId());
+			beanFactory.setApplicationStartup(getApplicationStartup());
 			// 自定义
 			customizeBeanFactory(beanFactory);
 			/**
 			 * 通过bean工厂加载Bean定义
 			 * @see org.springframework.web.context.support.AnnotationConfigWebApplicationContext#loadBeanDefinitions(DefaultListableBeanFactory)
 			 */
-			loadBeanDefinitions(beanFactory);
+			StartupStep loadBeanDefinitions = getApplicationStartup().start("spring.context.bean-definitions.load");
+			try {
+				loadBeanDefinitions(beanFactory);
+			}
+			finally {
+				loadBeanDefinitions.tag("count", () -> String.valueOf(beanFactory.getBeanDefinitionCount())).end();
+			}
 			synchronized (this.beanFactoryMonitor) {
 				this.beanFactory = beanFactory;
 			}
@@ -0,0 +1,993 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.support;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.ConstructorArgumentValues.ValueHolder;
+import org.springframework.beans.factory.config.RuntimeBeanNameReference;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.ChildBeanDefinition;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * A compact binary snapshot of the bean definitions in a
+ * {@link BeanDefinitionRegistry}, allowing a later startup of the same
+ * application to register the resolved definitions directly instead of
+ * scanning the classpath and parsing configuration classes again.
+ *
+ * <p>A snapshot is meant to be {@linkplain #capture captured} once all
+ * {@link org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor
+ * BeanDefinitionRegistryPostProcessors} have run, but before any regular
+ * {@link org.springframework.beans.factory.config.BeanFactoryPostProcessor}
+ * had a chance to modify the definitions (e.g. resolving placeholders).
+ * Definition attributes are retained, so that configuration classes which
+ * have been processed already are recognized as such when restored.
+ *
+ * <p>Only declarative state can be captured: bean class names, scopes,
+ * flags, factory methods, and constructor argument and property values
+ * consisting of simple values, {@link TypedStringValue TypedStringValues}
+ * and bean references. Definitions with instance suppliers, method overrides,
+ * qualifiers, inner beans or managed collections are not supported and
+ * cause {@link #capture} to fail, in which case callers are expected to keep
+ * using regular bean definition processing. Annotated bean definitions, as
+ * registered for components and {@code @Bean} methods, are restored as such,
+ * reading their annotation metadata from the class files on first access.
+ *
+ * <p>Resolved constructors, factory methods and injection points are not
+ * part of a snapshot: they are reflective state of the loaded bean classes,
+ * which the bean factory determines at instantiation time anyway, whereas
+ * the cost avoided by a snapshot is the discovery of the definitions.
+ *
+ * <p>Each snapshot carries a fingerprint of the environment that it has
+ * been captured in, typically including a {@linkplain #computeClasspathHash
+ * classpath hash} and an {@linkplain #computeEnvironmentHash environment hash}
+ * over the {@linkplain #getPropertyNames() properties read} while processing
+ * the captured definitions, for callers to discard snapshots that do not
+ * match the current environment anymore.
+ *
+ * @since 5.1.13
+ * @see GenericApplicationContext#setBeanDefinitionSnapshotFile
+ */
+public final class BeanDefinitionSnapshot {
+
+	private static final int MAGIC = 0x53424453;
+
+	private static final short VERSION = 2;
+
+	private static final byte ROOT_BEAN_DEFINITION = 0;
+
+	private static final byte GENERIC_BEAN_DEFINITION = 1;
+
+	private static final byte ANNOTATED_ROOT_BEAN_DEFINITION = 2;
+
+	private static final byte ANNOTATED_GENERIC_BEAN_DEFINITION = 3;
+
+	private static final byte NULL_VALUE = 0;
+
+	private static final byte STRING_VALUE = 1;
+
+	private static final byte BOOLEAN_VALUE = 2;
+
+	private static final byte INTEGER_VALUE = 3;
+
+	private static final byte LONG_VALUE = 4;
+
+	private static final byte SHORT_VALUE = 5;
+
+	private static final byte BYTE_VALUE = 6;
+
+	private static final byte FLOAT_VALUE = 7;
+
+	private static final byte DOUBLE_VALUE = 8;
+
+	private static final byte CHARACTER_VALUE = 9;
+
+	private static final byte CLASS_VALUE = 10;
+
+	private static final byte ENUM_VALUE = 11;
+
+	private static final byte TYPED_STRING_VALUE = 12;
+
+	private static final byte BEAN_REFERENCE_VALUE = 13;
+
+	private static final byte BEAN_NAME_REFERENCE_VALUE = 14;
+
+
+	private final String fingerprint;
+
+	private final Set<String> propertyNames;
+
+	private final byte[] content;
+
+
+	private BeanDefinitionSnapshot(String fingerprint, Set<String> propertyNames, byte[] content) {
+		this.fingerprint = fingerprint;
+		this.propertyNames = Collections.unmodifiableSet(propertyNames);
+		this.content = content;
+	}
+
+
+	/**
+	 * Return the fingerprint of the environment that this snapshot has been
+	 * captured in.
+	 */
+	public String getFingerprint() {
+		return this.fingerprint;
+	}
+
+	/**
+	 * Return the names of the properties that the fingerprint covers, i.e.
+	 * the properties read while processing the captured bean definitions.
+	 * @see #computeEnvironmentHash
+	 */
+	public Set<String> getPropertyNames() {
+		return this.propertyNames;
+	}
+
+	/**
+	 * Write this snapshot to the given stream.
+	 * @param outputStream the stream to write to (left open)
+	 * @throws IOException in case of I/O errors
+	 */
+	public void writeTo(OutputStream outputStream) throws IOException {
+		DataOutputStream out = new DataOutputStream(outputStream);
+		out.writeInt(MAGIC);
+		out.writeShort(VERSION);
+		out.writeUTF(this.fingerprint);
+		out.writeInt(this.propertyNames.size());
+		for (String propertyName : this.propertyNames) {
+			out.writeUTF(propertyName);
+		}
+		out.writeInt(this.content.length);
+		out.write(this.content);
+		out.flush();
+	}
+
+	/**
+	 * Register the bean definitions and aliases contained in this snapshot
+	 * with the given registry, replacing any existing definitions of the same
+	 * name.
+	 * @param registry the registry to register the bean definitions with
+	 * @param classLoader the ClassLoader to resolve class values with
+	 * @return the number of bean definitions registered
+	 * @throws BeanDefinitionStoreException if the snapshot content could not
+	 * be read, in which case the registry remains unchanged
+	 */
+	public int registerBeanDefinitions(BeanDefinitionRegistry registry, @Nullable ClassLoader classLoader)
+			throws BeanDefinitionStoreException {
+
+		Map<String, AbstractBeanDefinition> beanDefinitions = new LinkedHashMap<>();
+		Map<String, String> decoratedBeanNames = new LinkedHashMap<>();
+		Map<String, String> aliases = new LinkedHashMap<>();
+		MetadataSource metadataSource = new MetadataSource(classLoader);
+		try {
+			SnapshotInput in = new SnapshotInput(this.content);
+			int beanCount = in.readInt();
+			for (int i = 0; i < beanCount; i++) {
+				String beanName = in.readString();
+				beanDefinitions.put(beanName, readBeanDefinition(in, classLoader, metadataSource));
+				String decoratedBeanName = in.readString();
+				if (decoratedBeanName != null) {
+					decoratedBeanNames.put(beanName, decoratedBeanName);
+				}
+			}
+			int aliasCount = in.readInt();
+			for (int i = 0; i < aliasCount; i++) {
+				aliases.put(in.readString(), in.readString());
+			}
+		}
+		catch (IOException | ClassNotFoundException ex) {
+			throw new BeanDefinitionStoreException("Failed to read bean definition snapshot", ex);
+		}
+
+		beanDefinitions.forEach((beanName, beanDefinition) -> {
+			if (registry.containsBeanDefinition(beanName)) {
+				registry.removeBeanDefinition(beanName);
+			}
+			registry.registerBeanDefinition(beanName, beanDefinition);
+		});
+		decoratedBeanNames.forEach((beanName, decoratedBeanName) -> {
+			RootBeanDefinition beanDefinition = (RootBeanDefinition) beanDefinitions.get(beanName);
+			BeanDefinition decoratedDefinition = registry.getBeanDefinition(decoratedBeanName);
+			beanDefinition.setDecoratedDefinition(new BeanDefinitionHolder(decoratedDefinition, decoratedBeanName));
+			beanDefinition.setOriginatingBeanDefinition(decoratedDefinition);
+		});
+		aliases.forEach((alias, beanName) -> registry.registerAlias(beanName, alias));
+		return beanDefinitions.size();
+	}
+
+	@Override
+	public String toString() {
+		return "BeanDefinitionSnapshot with fingerprint [" + this.fingerprint + "] (" +
+				this.content.length + " bytes)";
+	}
+
+
+	/**
+	 * Capture the bean definitions and aliases currently held by the given
+	 * registry, with a fingerprint that does not cover any properties.
+	 * @param registry the registry to capture
+	 * @param fingerprint the fingerprint of the current environment
+	 * @return the snapshot
+	 * @throws BeanDefinitionStoreException if any of the bean definitions
+	 * cannot be represented in a snapshot
+	 */
+	public static BeanDefinitionSnapshot capture(BeanDefinitionRegistry registry, String fingerprint)
+			throws BeanDefinitionStoreException {
+
+		return capture(registry, fingerprint, Collections.emptySet());
+	}
+
+	/**
+	 * Capture the bean definitions and aliases currently held by the given registry.
+	 * @param registry the registry to capture
+	 * @param fingerprint the fingerprint of the current environment
+	 * @param propertyNames the names of the properties that the fingerprint covers
+	 * @return the snapshot
+	 * @throws BeanDefinitionStoreException if any of the bean definitions
+	 * cannot be represented in a snapshot
+	 */
+	public static BeanDefinitionSnapshot capture(BeanDefinitionRegistry registry, String fingerprint,
+			Collection<String> propertyNames) throws BeanDefinitionStoreException {
+
+		SnapshotOutput out = new SnapshotOutput();
+		try {
+			String[] beanNames = registry.getBeanDefinitionNames();
+			List<String[]> aliases = new ArrayList<>();
+			out.writeInt(beanNames.length);
+			for (String beanName : beanNames) {
+				BeanDefinition beanDefinition = registry.getBeanDefinition(beanName);
+				out.writeString(beanName);
+				writeBeanDefinition(out, beanName, beanDefinition);
+				out.writeString(getDecoratedBeanName(registry, beanName, beanDefinition));
+				for (String alias : registry.getAliases(beanName)) {
+					aliases.add(new String[] {alias, beanName});
+				}
+			}
+			out.writeInt(aliases.size());
+			for (String[] alias : aliases) {
+				out.writeString(alias[0]);
+				out.writeString(alias[1]);
+			}
+			return new BeanDefinitionSnapshot(fingerprint, new TreeSet<>(propertyNames), out.toByteArray());
+		}
+		catch (IOException ex) {
+			// Not expected for an in-memory stream
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Read a snapshot from the given stream.
+	 * @param inputStream the stream to read from (left open)
+	 * @return the snapshot
+	 * @throws IOException in case of I/O errors, or if the stream does not
+	 * contain a snapshot written by this version of the framework
+	 */
+	public static BeanDefinitionSnapshot readFrom(InputStream inputStream) throws IOException {
+		DataInputStream in = new DataInputStream(inputStream);
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a bean definition snapshot");
+		}
+		short version = in.readShort();
+		if (version != VERSION) {
+			throw new IOException("Unsupported bean definition snapshot version " + version);
+		}
+		String fingerprint = in.readUTF();
+		int propertyCount = in.readInt();
+		Set<String> propertyNames = new TreeSet<>();
+		for (int i = 0; i < propertyCount; i++) {
+			propertyNames.add(in.readUTF());
+		}
+		byte[] content = new byte[in.readInt()];
+		in.readFully(content);
+		return new BeanDefinitionSnapshot(fingerprint, propertyNames, content);
+	}
+
+	/**
+	 * Compute a hash over the classpath of the given ClassLoader, changing
+	 * whenever an entry is added, removed or modified.
+	 * <p>Considers the URLs of any {@link URLClassLoader} in the ClassLoader
+	 * hierarchy as well as the "java.class.path" system property, taking the
+	 * size and last-modified timestamp of each entry into account. Directory
+	 * entries are not traversed: their own timestamp only changes when files
+	 * are added to or removed from them directly, so snapshots are primarily
+	 * meant for packaged applications rather than exploded class directories.
+	 * @param classLoader the ClassLoader to compute the hash for
+	 * @return the classpath hash, as a hex string
+	 */
+	public static String computeClasspathHash(@Nullable ClassLoader classLoader) {
+		Set<File> entries = new LinkedHashSet<>();
+		for (ClassLoader cl = classLoader; cl != null; cl = cl.getParent()) {
+			if (cl instanceof URLClassLoader) {
+				for (URL url : ((URLClassLoader) cl).getURLs()) {
+					if ("file".equals(url.getProtocol())) {
+						entries.add(new File(StringUtils.cleanPath(url.getPath())));
+					}
+				}
+			}
+		}
+		String classPath = System.getProperty("java.class.path");
+		if (classPath != null) {
+			for (String entry : StringUtils.tokenizeToStringArray(classPath, File.pathSeparator)) {
+				entries.add(new File(entry));
+			}
+		}
+
+		StringBuilder state = new StringBuilder();
+		for (File entry : entries) {
+			state.append(entry.getAbsolutePath()).append(':').append(entry.length()).append(':')
+					.append(entry.lastModified()).append('\n');
+		}
+		return DigestUtils.md5DigestAsHex(state.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Compute a hash over the given properties of the given Environment,
+	 * changing whenever the active or default profiles or the value of any
+	 * of the properties change, including a property appearing or disappearing.
+	 * <p>The properties are typically the ones that have been read while
+	 * processing the bean definitions of a snapshot, e.g. by
+	 * {@link org.springframework.context.annotation.Conditional} annotations
+	 * or placeholders in component scan packages.
+	 * @param environment the Environment to compute the hash for
+	 * @param propertyNames the names of the properties to take into account
+	 * @return the environment hash, as a hex string
+	 */
+	public static String computeEnvironmentHash(Environment environment, Collection<String> propertyNames) {
+		StringBuilder state = new StringBuilder();
+		state.append(StringUtils.arrayToCommaDelimitedString(environment.getActiveProfiles())).append('\n');
+		state.append(StringUtils.arrayToCommaDelimitedString(environment.getDefaultProfiles())).append('\n');
+		for (String propertyName : new TreeSet<>(propertyNames)) {
+			String value;
+			try {
+				value = environment.getProperty(propertyName);
+			}
+			catch (IllegalArgumentException ex) {
+				// Unresolvable nested placeholder
+				value = ex.getMessage();
+			}
+			state.append(propertyName).append('=').append(value).append('\n');
+		}
+		return DigestUtils.md5DigestAsHex(state.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+
+	private static void writeBeanDefinition(SnapshotOutput out, String beanName, BeanDefinition beanDefinition)
+			throws IOException {
+
+		AbstractBeanDefinition bd = checkSupported(beanName, beanDefinition);
+		if (bd instanceof AnnotatedBeanDefinition) {
+			AnnotatedBeanDefinition annotatedBd = (AnnotatedBeanDefinition) bd;
+			MethodMetadata factoryMethodMetadata = annotatedBd.getFactoryMethodMetadata();
+			if (bd instanceof RootBeanDefinition) {
+				if (factoryMethodMetadata == null) {
+					throw unsupported(beanName, bd, "annotated root bean definition without factory method");
+				}
+				out.writeByte(ANNOTATED_ROOT_BEAN_DEFINITION);
+				out.writeString(annotatedBd.getMetadata().getClassName());
+				out.writeString(factoryMethodMetadata.getDeclaringClassName());
+			}
+			else {
+				if (factoryMethodMetadata != null) {
+					throw unsupported(beanName, bd, "factory method metadata");
+				}
+				out.writeByte(ANNOTATED_GENERIC_BEAN_DEFINITION);
+				out.writeString(annotatedBd.getMetadata().getClassName());
+			}
+		}
+		else {
+			out.writeByte(bd instanceof RootBeanDefinition ? ROOT_BEAN_DEFINITION : GENERIC_BEAN_DEFINITION);
+		}
+		out.writeString(bd.getParentName());
+		out.writeString(bd.getBeanClassName());
+		out.writeString(bd.getScope());
+		out.writeBoolean(bd.isAbstract());
+		out.writeBoolean(bd.isLazyInit());
+		out.writeInt(bd.getAutowireMode());
+		out.writeInt(bd.getDependencyCheck());
+		writeStringArray(out, bd.getDependsOn());
+		out.writeBoolean(bd.isAutowireCandidate());
+		out.writeBoolean(bd.isPrimary());
+		out.writeBoolean(bd.isNonPublicAccessAllowed());
+		out.writeBoolean(bd.isLenientConstructorResolution());
+		out.writeString(bd.getFactoryBeanName());
+		out.writeString(bd.getFactoryMethodName());
+		out.writeString(bd.getInitMethodName());
+		out.writeBoolean(bd.isEnforceInitMethod());
+		out.writeString(bd.getDestroyMethodName());
+		out.writeBoolean(bd.isEnforceDestroyMethod());
+		out.writeBoolean(bd.isSynthetic());
+		out.writeInt(bd.getRole());
+		out.writeString(bd.getDescription());
+		out.writeString(bd.getResourceDescription());
+
+		ConstructorArgumentValues args = bd.getConstructorArgumentValues();
+		out.writeInt(args.getIndexedArgumentValues().size());
+		for (Map.Entry<Integer, ValueHolder> entry : args.getIndexedArgumentValues().entrySet()) {
+			out.writeInt(entry.getKey());
+			writeValueHolder(out, beanName, entry.getValue());
+		}
+		out.writeInt(args.getGenericArgumentValues().size());
+		for (ValueHolder valueHolder : args.getGenericArgumentValues()) {
+			writeValueHolder(out, beanName, valueHolder);
+		}
+
+		PropertyValue[] pvs = bd.getPropertyValues().getPropertyValues();
+		out.writeInt(pvs.length);
+		for (PropertyValue pv : pvs) {
+			out.writeString(pv.getName());
+			writeValue(out, beanName, pv.getValue());
+			out.writeBoolean(pv.isOptional());
+		}
+
+		String[] attributeNames = bd.attributeNames();
+		out.writeInt(attributeNames.length);
+		for (String attributeName : attributeNames) {
+			out.writeString(attributeName);
+			writeValue(out, beanName, bd.getAttribute(attributeName));
+		}
+	}
+
+	private static AbstractBeanDefinition checkSupported(String beanName, BeanDefinition beanDefinition) {
+		Class<?> type = beanDefinition.getClass();
+		if (!(type == RootBeanDefinition.class || type == GenericBeanDefinition.class ||
+				type == ChildBeanDefinition.class || (beanDefinition instanceof AnnotatedBeanDefinition &&
+				(beanDefinition instanceof RootBeanDefinition || beanDefinition instanceof GenericBeanDefinition)))) {
+			throw unsupported(beanName, beanDefinition, "bean definition type [" + type.getName() + "]");
+		}
+		AbstractBeanDefinition bd = (AbstractBeanDefinition) beanDefinition;
+		if (bd.getInstanceSupplier() != null) {
+			throw unsupported(beanName, bd, "instance supplier");
+		}
+		if (bd.hasMethodOverrides()) {
+			throw unsupported(beanName, bd, "method overrides");
+		}
+		if (!bd.getQualifiers().isEmpty()) {
+			throw unsupported(beanName, bd, "qualifiers");
+		}
+		if (bd instanceof RootBeanDefinition) {
+			RootBeanDefinition rbd = (RootBeanDefinition) bd;
+			if (rbd.getTargetType() != null || rbd.getQualifiedElement() != null) {
+				throw unsupported(beanName, bd, "target type");
+			}
+		}
+		return bd;
+	}
+
+	@Nullable
+	private static String getDecoratedBeanName(BeanDefinitionRegistry registry, String beanName,
+			BeanDefinition beanDefinition) {
+
+		BeanDefinitionHolder decorated = (beanDefinition instanceof RootBeanDefinition ?
+				((RootBeanDefinition) beanDefinition).getDecoratedDefinition() : null);
+		if (decorated == null) {
+			return null;
+		}
+		// Only a decorated definition registered in its own right (e.g. a scoped proxy target) can be restored
+		String decoratedBeanName = decorated.getBeanName();
+		if (!ObjectUtils.isEmpty(decorated.getAliases()) || !registry.containsBeanDefinition(decoratedBeanName) ||
+				registry.getBeanDefinition(decoratedBeanName) != decorated.getBeanDefinition()) {
+			throw unsupported(beanName, beanDefinition, "decorated definition [" + decoratedBeanName + "]");
+		}
+		return decoratedBeanName;
+	}
+
+	private static void writeValueHolder(SnapshotOutput out, String beanName, ValueHolder valueHolder)
+			throws IOException {
+
+		writeValue(out, beanName, valueHolder.getValue());
+		out.writeString(valueHolder.getType());
+		out.writeString(valueHolder.getName());
+	}
+
+	private static void writeValue(SnapshotOutput out, String beanName, @Nullable Object value)
+			throws IOException {
+
+		if (value == null) {
+			out.writeByte(NULL_VALUE);
+		}
+		else if (value instanceof String) {
+			out.writeByte(STRING_VALUE);
+			out.writeString((String) value);
+		}
+		else if (value instanceof Boolean) {
+			out.writeByte(BOOLEAN_VALUE);
+			out.writeBoolean((Boolean) value);
+		}
+		else if (value instanceof Integer) {
+			out.writeByte(INTEGER_VALUE);
+			out.writeInt((Integer) value);
+		}
+		else if (value instanceof Long) {
+			out.writeByte(LONG_VALUE);
+			out.writeLong((Long) value);
+		}
+		else if (value instanceof Short) {
+			out.writeByte(SHORT_VALUE);
+			out.writeShort((Short) value);
+		}
+		else if (value instanceof Byte) {
+			out.writeByte(BYTE_VALUE);
+			out.writeByte((Byte) value);
+		}
+		else if (value instanceof Float) {
+			out.writeByte(FLOAT_VALUE);
+			out.writeFloat((Float) value);
+		}
+		else if (value instanceof Double) {
+			out.writeByte(DOUBLE_VALUE);
+			out.writeDouble((Double) value);
+		}
+		else if (value instanceof Character) {
+			out.writeByte(CHARACTER_VALUE);
+			out.writeChar((Character) value);
+		}
+		else if (value instanceof Class) {
+			out.writeByte(CLASS_VALUE);
+			out.writeString(((Class<?>) value).getName());
+		}
+		else if (value instanceof Enum) {
+			out.writeByte(ENUM_VALUE);
+			out.writeString(((Enum<?>) value).getDeclaringClass().getName());
+			out.writeString(((Enum<?>) value).name());
+		}
+		else if (value.getClass() == TypedStringValue.class) {
+			TypedStringValue typedValue = (TypedStringValue) value;
+			out.writeByte(TYPED_STRING_VALUE);
+			out.writeString(typedValue.getValue());
+			out.writeString(typedValue.getTargetTypeName());
+			out.writeBoolean(typedValue.isDynamic());
+		}
+		else if (value.getClass() == RuntimeBeanReference.class) {
+			RuntimeBeanReference reference = (RuntimeBeanReference) value;
+			out.writeByte(BEAN_REFERENCE_VALUE);
+			out.writeString(reference.getBeanName());
+			out.writeBoolean(reference.isToParent());
+		}
+		else if (value.getClass() == RuntimeBeanNameReference.class) {
+			out.writeByte(BEAN_NAME_REFERENCE_VALUE);
+			out.writeString(((RuntimeBeanNameReference) value).getBeanName());
+		}
+		else {
+			throw new BeanDefinitionStoreException(null, beanName,
+					"Cannot capture value of type [" + value.getClass().getName() + "] in bean definition snapshot");
+		}
+	}
+
+	private static AbstractBeanDefinition readBeanDefinition(SnapshotInput in, @Nullable ClassLoader classLoader,
+			MetadataSource metadataSource) throws IOException, ClassNotFoundException {
+
+		byte type = in.readByte();
+		AbstractBeanDefinition bd;
+		switch (type) {
+			case ROOT_BEAN_DEFINITION:
+				bd = new RootBeanDefinition();
+				break;
+			case GENERIC_BEAN_DEFINITION:
+				bd = new GenericBeanDefinition();
+				break;
+			case ANNOTATED_ROOT_BEAN_DEFINITION:
+				bd = new RestoredFactoryMethodBeanDefinition(
+						metadataSource.forClass(readClassName(in)), metadataSource.forClass(readClassName(in)));
+				break;
+			case ANNOTATED_GENERIC_BEAN_DEFINITION:
+				bd = new RestoredAnnotatedBeanDefinition(metadataSource.forClass(readClassName(in)));
+				break;
+			default:
+				throw new IOException("Unknown bean definition type " + type);
+		}
+		String parentName = in.readString();
+		if (parentName != null) {
+			bd.setParentName(parentName);
+		}
+		bd.setBeanClassName(in.readString());
+		bd.setScope(in.readString());
+		bd.setAbstract(in.readBoolean());
+		bd.setLazyInit(in.readBoolean());
+		bd.setAutowireMode(in.readInt());
+		bd.setDependencyCheck(in.readInt());
+		bd.setDependsOn(readStringArray(in));
+		bd.setAutowireCandidate(in.readBoolean());
+		bd.setPrimary(in.readBoolean());
+		bd.setNonPublicAccessAllowed(in.readBoolean());
+		bd.setLenientConstructorResolution(in.readBoolean());
+		bd.setFactoryBeanName(in.readString());
+		bd.setFactoryMethodName(in.readString());
+		bd.setInitMethodName(in.readString());
+		bd.setEnforceInitMethod(in.readBoolean());
+		bd.setDestroyMethodName(in.readString());
+		bd.setEnforceDestroyMethod(in.readBoolean());
+		bd.setSynthetic(in.readBoolean());
+		bd.setRole(in.readInt());
+		bd.setDescription(in.readString());
+		bd.setResourceDescription(in.readString());
+
+		ConstructorArgumentValues args = bd.getConstructorArgumentValues();
+		int indexedCount = in.readInt();
+		for (int i = 0; i < indexedCount; i++) {
+			int index = in.readInt();
+			args.addIndexedArgumentValue(index, readValueHolder(in, classLoader));
+		}
+		int genericCount = in.readInt();
+		for (int i = 0; i < genericCount; i++) {
+			args.addGenericArgumentValue(readValueHolder(in, classLoader));
+		}
+
+		MutablePropertyValues pvs = bd.getPropertyValues();
+		int propertyCount = in.readInt();
+		for (int i = 0; i < propertyCount; i++) {
+			PropertyValue pv = new PropertyValue(in.readString(), readValue(in, classLoader));
+			pv.setOptional(in.readBoolean());
+			pvs.addPropertyValue(pv);
+		}
+
+		int attributeCount = in.readInt();
+		for (int i = 0; i < attributeCount; i++) {
+			bd.setAttribute(in.readString(), readValue(in, classLoader));
+		}
+
+		// Instance @Bean methods are unique by name, as registered for configuration classes
+		if (bd instanceof RestoredFactoryMethodBeanDefinition && bd.getFactoryBeanName() != null &&
+				bd.getFactoryMethodName() != null) {
+			((RootBeanDefinition) bd).setUniqueFactoryMethodName(bd.getFactoryMethodName());
+		}
+		return bd;
+	}
+
+	private static String readClassName(SnapshotInput in) throws IOException {
+		String className = in.readString();
+		if (className == null) {
+			throw new IOException("Missing class name for annotated bean definition");
+		}
+		return className;
+	}
+
+	private static ValueHolder readValueHolder(SnapshotInput in, @Nullable ClassLoader classLoader)
+			throws IOException, ClassNotFoundException {
+
+		Object value = readValue(in, classLoader);
+		return new ValueHolder(value, in.readString(), in.readString());
+	}
+
+	@Nullable
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static Object readValue(SnapshotInput in, @Nullable ClassLoader classLoader)
+			throws IOException, ClassNotFoundException {
+
+		byte type = in.readByte();
+		switch (type) {
+			case NULL_VALUE:
+				return null;
+			case STRING_VALUE:
+				return in.readString();
+			case BOOLEAN_VALUE:
+				return in.readBoolean();
+			case INTEGER_VALUE:
+				return in.readInt();
+			case LONG_VALUE:
+				return in.readLong();
+			case SHORT_VALUE:
+				return in.readShort();
+			case BYTE_VALUE:
+				return in.readByte();
+			case FLOAT_VALUE:
+				return in.readFloat();
+			case DOUBLE_VALUE:
+				return in.readDouble();
+			case CHARACTER_VALUE:
+				return in.readChar();
+			case CLASS_VALUE:
+				return ClassUtils.forName(in.readString(), classLoader);
+			case ENUM_VALUE:
+				Class enumType = ClassUtils.forName(in.readString(), classLoader);
+				return Enum.valueOf(enumType, in.readString());
+			case TYPED_STRING_VALUE:
+				String value = in.readString();
+				String targetTypeName = in.readString();
+				TypedStringValue typedValue = (targetTypeName != null ?
+						new TypedStringValue(value, targetTypeName) : new TypedStringValue(value));
+				if (in.readBoolean()) {
+					typedValue.setDynamic();
+				}
+				return typedValue;
+			case BEAN_REFERENCE_VALUE:
+				return new RuntimeBeanReference(in.readString(), in.readBoolean());
+			case BEAN_NAME_REFERENCE_VALUE:
+				return new RuntimeBeanNameReference(in.readString());
+			default:
+				throw new IOException("Unknown value type " + type);
+		}
+	}
+
+	private static void writeStringArray(SnapshotOutput out, @Nullable String[] values) throws IOException {
+		out.writeInt(values != null ? values.length : -1);
+		if (values != null) {
+			for (String value : values) {
+				out.writeString(value);
+			}
+		}
+	}
+
+	@Nullable
+	private static String[] readStringArray(SnapshotInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		String[] values = new String[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = in.readString();
+		}
+		return values;
+	}
+
+	private static BeanDefinitionStoreException unsupported(String beanName, BeanDefinition beanDefinition,
+			String feature) {
+
+		return new BeanDefinitionStoreException(beanDefinition.getResourceDescription(), beanName,
+				"Cannot capture bean definition with " + feature + " in bean definition snapshot");
+	}
+
+
+	/**
+	 * Source of the annotation metadata of restored annotated bean definitions,
+	 * read from the class files once per class on first access.
+	 */
+	private static class MetadataSource {
+
+		private final MetadataReaderFactory metadataReaderFactory;
+
+		private final Map<String, ClassMetadataHolder> holders = new HashMap<>();
+
+		public MetadataSource(@Nullable ClassLoader classLoader) {
+			this.metadataReaderFactory = new SimpleMetadataReaderFactory(classLoader);
+		}
+
+		public ClassMetadataHolder forClass(String className) {
+			return this.holders.computeIfAbsent(className,
+					name -> new ClassMetadataHolder(name, this.metadataReaderFactory));
+		}
+	}
+
+
+	/**
+	 * Lazily read annotation metadata of a single class.
+	 */
+	private static class ClassMetadataHolder {
+
+		private final String className;
+
+		private final MetadataReaderFactory metadataReaderFactory;
+
+		@Nullable
+		private volatile AnnotationMetadata metadata;
+
+		public ClassMetadataHolder(String className, MetadataReaderFactory metadataReaderFactory) {
+			this.className = className;
+			this.metadataReaderFactory = metadataReaderFactory;
+		}
+
+		public AnnotationMetadata getMetadata() {
+			AnnotationMetadata metadata = this.metadata;
+			if (metadata == null) {
+				try {
+					metadata = this.metadataReaderFactory.getMetadataReader(this.className).getAnnotationMetadata();
+				}
+				catch (IOException ex) {
+					throw new IllegalStateException(
+							"Failed to read metadata of restored bean class [" + this.className + "]", ex);
+				}
+				this.metadata = metadata;
+			}
+			return metadata;
+		}
+	}
+
+
+	/**
+	 * Restored counterpart of a scanned or registered annotated component.
+	 */
+	@SuppressWarnings("serial")
+	private static class RestoredAnnotatedBeanDefinition extends GenericBeanDefinition
+			implements AnnotatedBeanDefinition {
+
+		private final ClassMetadataHolder metadata;
+
+		public RestoredAnnotatedBeanDefinition(ClassMetadataHolder metadata) {
+			this.metadata = metadata;
+		}
+
+		@Override
+		public AnnotationMetadata getMetadata() {
+			return this.metadata.getMetadata();
+		}
+
+		@Override
+		@Nullable
+		public MethodMetadata getFactoryMethodMetadata() {
+			return null;
+		}
+	}
+
+
+	/**
+	 * Restored counterpart of a bean definition for a {@code @Bean} method.
+	 */
+	@SuppressWarnings("serial")
+	private static class RestoredFactoryMethodBeanDefinition extends RootBeanDefinition
+			implements AnnotatedBeanDefinition {
+
+		private final ClassMetadataHolder metadata;
+
+		private final ClassMetadataHolder factoryMethodDeclaringClass;
+
+		@Nullable
+		private volatile MethodMetadata factoryMethodMetadata;
+
+		public RestoredFactoryMethodBeanDefinition(ClassMetadataHolder metadata,
+				ClassMetadataHolder factoryMethodDeclaringClass) {
+
+			this.metadata = metadata;
+			this.factoryMethodDeclaringClass = factoryMethodDeclaringClass;
+		}
+
+		private RestoredFactoryMethodBeanDefinition(RestoredFactoryMethodBeanDefinition original) {
+			super(original);
+			this.metadata = original.metadata;
+			this.factoryMethodDeclaringClass = original.factoryMethodDeclaringClass;
+			this.factoryMethodMetadata = original.factoryMethodMetadata;
+		}
+
+		@Override
+		public AnnotationMetadata getMetadata() {
+			return this.metadata.getMetadata();
+		}
+
+		@Override
+		@Nullable
+		public MethodMetadata getFactoryMethodMetadata() {
+			MethodMetadata factoryMethodMetadata = this.factoryMethodMetadata;
+			if (factoryMethodMetadata == null) {
+				// The first declared one in case of overloaded @Bean methods, as when parsing
+				for (MethodMetadata candidate : this.factoryMethodDeclaringClass.getMetadata()
+						.getAnnotatedMethods(Bean.class.getName())) {
+					if (candidate.getMethodName().equals(getFactoryMethodName())) {
+						factoryMethodMetadata = candidate;
+						this.factoryMethodMetadata = candidate;
+						break;
+					}
+				}
+			}
+			return factoryMethodMetadata;
+		}
+
+		@Override
+		public boolean isFactoryMethod(Method candidate) {
+			return (super.isFactoryMethod(candidate) && AnnotatedElementUtils.hasAnnotation(candidate, Bean.class));
+		}
+
+		@Override
+		public RestoredFactoryMethodBeanDefinition cloneBeanDefinition() {
+			return new RestoredFactoryMethodBeanDefinition(this);
+		}
+	}
+
+
+	/**
+	 * Output for snapshot content, writing each distinct string only once
+	 * into a string table preceding the actual content.
+	 */
+	private static class SnapshotOutput extends DataOutputStream {
+
+		private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+		public SnapshotOutput() {
+			super(new ByteArrayOutputStream(8192));
+		}
+
+		public void writeString(@Nullable String value) throws IOException {
+			writeInt(value != null ? this.strings.computeIfAbsent(value, key -> this.strings.size()) : -1);
+		}
+
+		public byte[] toByteArray() throws IOException {
+			flush();
+			ByteArrayOutputStream content = new ByteArrayOutputStream(((ByteArrayOutputStream) this.out).size() +
+					this.strings.size() * 32);
+			DataOutputStream data = new DataOutputStream(content);
+			data.writeInt(this.strings.size());
+			for (String string : this.strings.keySet()) {
+				data.writeUTF(string);
+			}
+			((ByteArrayOutputStream) this.out).writeTo(data);
+			data.flush();
+			return content.toByteArray();
+		}
+	}
+
+
+	/**
+	 * Input for snapshot content, resolving strings against the string table.
+	 */
+	private static class SnapshotInput extends DataInputStream {
+
+		private final String[] strings;
+
+		public SnapshotInput(byte[] content) throws IOException {
+			super(new ByteArrayInputStream(content));
+			this.strings = new String[readInt()];
+			for (int i = 0; i < this.strings.length; i++) {
+				this.strings[i] = readUTF();
+			}
+		}
+
+		@Nullable
+		public String readString() throws IOException {
+			int index = readInt();
+			if (index < -1 || index >= this.strings.length) {
+				throw new IOException("Invalid string reference " + index);
+			}
+			return (index != -1 ? this.strings[index] : null);
+		}
+	}
+
+}
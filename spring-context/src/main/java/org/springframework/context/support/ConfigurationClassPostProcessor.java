@@ -0,0 +1,626 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.aop.framework.autoproxy.AutoProxyUtils;
+import org.springframework.beans.PropertyValues;
+import org.springframework.beans.factory.BeanClassLoaderAware;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessorAdapter;
+import org.springframework.beans.factory.config.SingletonBeanRegistry;
+import org.springframework.beans.factory.parsing.FailFastProblemReporter;
+import org.springframework.beans.factory.parsing.PassThroughSourceExtractor;
+import org.springframework.beans.factory.parsing.ProblemReporter;
+import org.springframework.beans.factory.parsing.SourceExtractor;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.beans.factory.support.BeanNameGenerator;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.ResourceLoaderAware;
+import org.springframework.context.annotation.ConfigurationClassEnhancer.EnhancedConfiguration;
+import org.springframework.core.Conventions;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import static org.springframework.context.annotation.AnnotationConfigUtils.CONFIGURATION_BEAN_NAME_GENERATOR;
+
+/**
+ * {@link BeanFactoryPostProcessor} used for bootstrapping processing of
+ * {@link Configuration @Configuration} classes.
+ *
+ * <p>Registered by default when using {@code <context:annotation-config/>} or
+ * {@code <context:component-scan/>}. Otherwise, may be declared manually as
+ * with any other BeanFactoryPostProcessor.
+ *
+ * <p>This post processor is priority-ordered as it is important that any
+ * {@link Bean} methods declared in {@code @Configuration} classes have
+ * their corresponding bean definitions registered before any other
+ * {@link BeanFactoryPostProcessor} executes.
+ *
+ * @author Chris Beams
+ * @author Juergen Hoeller
+ * @author Phillip Webb
+ * @since 3.0
+ *
+ * 在spring启动时, 会实例化一个阅读器: {@link AnnotatedBeanDefinitionReader},
+ * 在这个阅读器的构造方法{@link AnnotatedBeanDefinitionReader#AnnotatedBeanDefinitionReader(BeanDefinitionRegistry, Environment)}中,
+ * 注册了几个spring内置的关键处理器的BD, 存入了BDMap, 其中就包括当前处理器, 这些被存入BDMap的处理器, 最后也会走spring bean的生命周期.
+ * 当前处理器会解析加了@Configuration的配置类 和 解析@ComponentScan和@ComponentScans注解的扫描包, 以及@Import/@Bean等注解
+ *
+ * spring内置的bean工厂后置处理器，实现了{@link BeanDefinitionRegistryPostProcessor}接口类，
+ * 而这个接口类又继承了{@link BeanFactoryPostProcessor}
+ *
+ */
+public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPostProcessor,
+		PriorityOrdered, ResourceLoaderAware, BeanClassLoaderAware, EnvironmentAware {
+
+	private static final String IMPORT_REGISTRY_BEAN_NAME =
+			ConfigurationClassPostProcessor.class.getName() + ".importRegistry";
+
+	private static final String IMPORTING_CLASS_ATTRIBUTE =
+			Conventions.getQualifiedAttributeName(ConfigurationClassPostProcessor.class, "importingClass");
+
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private SourceExtractor sourceExtractor = new PassThroughSourceExtractor();
+
+	private ProblemReporter problemReporter = new FailFastProblemReporter();
+
+	@Nullable
+	private Environment environment;
+
+	private ResourceLoader resourceLoader = new DefaultResourceLoader();
+
+	@Nullable
+	private ClassLoader beanClassLoader = ClassUtils.getDefaultClassLoader();
+
+	private MetadataReaderFactory metadataReaderFactory = new CachingMetadataReaderFactory();
+
+	private boolean setMetadataReaderFactoryCalled = false;
+
+	private final Set<Integer> registriesPostProcessed = new HashSet<>();
+
+	private final Set<Integer> factoriesPostProcessed = new HashSet<>();
+
+	@Nullable
+	private ConfigurationClassBeanDefinitionReader reader;
+
+	private boolean localBeanNameGeneratorSet = false;
+
+	/* Using short class names as default bean names */
+	private BeanNameGenerator componentScanBeanNameGenerator = new AnnotationBeanNameGenerator();
+
+	/* Using fully qualified class names as default bean names */
+	private BeanNameGenerator importBeanNameGenerator = new AnnotationBeanNameGenerator() {
+		@Override
+		protected String buildDefaultBeanName(BeanDefinition definition) {
+			String beanClassName = definition.getBeanClassName();
+			Assert.state(beanClassName != null, "No bean class name set");
+			return beanClassName;
+		}
+	};
+
+
+	@Override
+	public int getOrder() {
+		return Ordered.LOWEST_PRECEDENCE;  // within PriorityOrdered
+	}
+
+	/**
+	 * Set the {@link SourceExtractor} to use for generated bean definitions
+	 * that correspond to {@link Bean} factory methods.
+	 */
+	public void setSourceExtractor(@Nullable SourceExtractor sourceExtractor) {
+		this.sourceExtractor = (sourceExtractor != null ? sourceExtractor : new PassThroughSourceExtractor());
+	}
+
+	/**
+	 * Set the {@link ProblemReporter} to use.
+	 * <p>Used to register any problems detected with {@link Configuration} or {@link Bean}
+	 * declarations. For instance, an @Bean method marked as {@code final} is illegal
+	 * and would be reported as a problem. Defaults to {@link FailFastProblemReporter}.
+	 */
+	public void setProblemReporter(@Nullable ProblemReporter problemReporter) {
+		this.problemReporter = (problemReporter != null ? problemReporter : new FailFastProblemReporter());
+	}
+
+	/**
+	 * Set the {@link MetadataReaderFactory} to use.
+	 * <p>Default is a {@link CachingMetadataReaderFactory} for the specified
+	 * {@linkplain #setBeanClassLoader bean class loader}.
+	 */
+	public void setMetadataReaderFactory(MetadataReaderFactory metadataReaderFactory) {
+		Assert.notNull(metadataReaderFactory, "MetadataReaderFactory must not be null");
+		this.metadataReaderFactory = metadataReaderFactory;
+		this.setMetadataReaderFactoryCalled = true;
+	}
+
+	/**
+	 * Set the {@link BeanNameGenerator} to be used when triggering component scanning
+	 * from {@link Configuration} classes and when registering {@link Import}'ed
+	 * configuration classes. The default is a standard {@link AnnotationBeanNameGenerator}
+	 * for scanned components (compatible with the default in {@link ClassPathBeanDefinitionScanner})
+	 * and a variant thereof for imported configuration classes (using unique fully-qualified
+	 * class names instead of standard component overriding).
+	 * <p>Note that this strategy does <em>not</em> apply to {@link Bean} methods.
+	 * <p>This setter is typically only appropriate when configuring the post-processor as
+	 * a standalone bean definition in XML, e.g. not using the dedicated
+	 * {@code AnnotationConfig*} application contexts or the {@code
+	 * <context:annotation-config>} element. Any bean name generator specified against
+	 * the application context will take precedence over any value set here.
+	 * @since 3.1.1
+	 * @see AnnotationConfigApplicationContext#setBeanNameGenerator(BeanNameGenerator)
+	 * @see AnnotationConfigUtils#CONFIGURATION_BEAN_NAME_GENERATOR
+	 */
+	public void setBeanNameGenerator(BeanNameGenerator beanNameGenerator) {
+		Assert.notNull(beanNameGenerator, "BeanNameGenerator must not be null");
+		this.localBeanNameGeneratorSet = true;
+		this.componentScanBeanNameGenerator = beanNameGenerator;
+		this.importBeanNameGenerator = beanNameGenerator;
+	}
+
+	@Override
+	public void setEnvironment(Environment environment) {
+		Assert.notNull(environment, "Environment must not be null");
+		this.environment = environment;
+	}
+
+	@Override
+	public void setResourceLoader(ResourceLoader resourceLoader) {
+		Assert.notNull(resourceLoader, "ResourceLoader must not be null");
+		this.resourceLoader = resourceLoader;
+		if (!this.setMetadataReaderFactoryCalled) {
+			this.metadataReaderFactory = new CachingMetadataReaderFactory(resourceLoader);
+		}
+	}
+
+	@Override
+	public void setBeanClassLoader(ClassLoader beanClassLoader) {
+		this.beanClassLoader = beanClassLoader;
+		if (!this.setMetadataReaderFactoryCalled) {
+			this.metadataReaderFactory = new CachingMetadataReaderFactory(beanClassLoader);
+		}
+	}
+
+
+	/**
+	 * Derive further bean definitions from the configuration classes in the registry.
+	 * 重写BeanDefinitionRegistryPostProcessor.postProcessBeanDefinitionRegistry()
+	 *
+	 * 解析配置类@ComponentScan/@Import/@Bean等, 扫描并构建BD存入BDMap中
+	 */
+	@Override
+	public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) {
+		// 生成系统id，表示唯一id
+		int registryId = System.identityHashCode(registry);
+		if (this.registriesPostProcessed.contains(registryId)) {
+			throw new IllegalStateException(
+					"postProcessBeanDefinitionRegistry already called on this post-processor against " + registry);
+		}
+		if (this.factoriesPostProcessed.contains(registryId)) {
+			throw new IllegalStateException(
+					"postProcessBeanFactory already called on this post-processor against " + registry);
+		}
+		this.registriesPostProcessed.add(registryId);
+		// 基于register中的配置类（AppConfig.class）构建和验证配置模型。
+		// 解析配置类@ComponentScan/@Import/@Bean等, 扫描并构建BD存入BDMap中
+		processConfigBeanDefinitions(registry);
+	}
+
+	/**
+	 * Prepare the Configuration classes for servicing bean requests at runtime
+	 * by replacing them with CGLIB-enhanced subclasses.
+	 * 重写BeanFactoryPostProcessor.postProcessBeanFactory()
+	 */
+	@Override
+	public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+		// 生成系统唯一id
+		int factoryId = System.identityHashCode(beanFactory);
+		// 判断是否包含，包含抛异常
+		if (this.factoriesPostProcessed.contains(factoryId)) {
+			throw new IllegalStateException(
+					"postProcessBeanFactory already called on this post-processor against " + beanFactory);
+		}
+		this.factoriesPostProcessed.add(factoryId);
+		if (!this.registriesPostProcessed.contains(factoryId)) {
+			// BeanDefinitionRegistryPostProcessor hook apparently not supported...
+			// Simply call processConfigurationClasses lazily at this point then.
+			processConfigBeanDefinitions((BeanDefinitionRegistry) beanFactory);
+		}
+		// 增强配置类, 代理加了@Configuration注解的配置类
+		// 遍历BDMap找到所有的full配置类, 将这些full配置类的beanClass替换为其代理类
+		enhanceConfigurationClasses(beanFactory);
+		/**
+		 * 添加了BeanPostProcessor
+		 * 区分于BeanFactoryPostProcessor以及子类BeanDefinitionRegistryPostProcessor
+		 */
+		beanFactory.addBeanPostProcessor(new ImportAwareBeanPostProcessor(beanFactory));
+	}
+
+	/**
+	 * 基于register中的配置类（AppConfig.class）构建和验证配置模型。
+	 * Build and validate a configuration model based on the registry of
+	 * {@link Configuration} classes.
+	 */
+	public void processConfigBeanDefinitions(BeanDefinitionRegistry registry) {
+		List<BeanDefinitionHolder> configCandidates = new ArrayList<>();
+		// 获取所有内置的BeanDefinition名
+		// 这里肯定包含AnnotationConfigUtils.registerAnnotationConfigProcessors()中指定的那几个后置处理器对应的BD和配置类（AppConfig）的BD
+		String[] candidateNames = registry.getBeanDefinitionNames();
+
+		/**
+		 * 这里其实只要取出配置类就可以了，但是为什么要循环呢?
+		 * 因为首先spring并不知道配置类的名字，只能一个个遍历
+		 * 其次配置类可以是多个：这里如果注册多个就是多个配置类ac.register(AppConfig.class);
+ 		 */
+		for (String beanName : candidateNames) {
+			// 根据beanName去bdMap中获取BeanDefinition
+			BeanDefinition beanDef = registry.getBeanDefinition(beanName);
+			/**
+			 * 其实这里就是判断beanDef中有没有setAttribute(CONFIGURATION_CLASS_ATTRIBUTE, "full或lite")
+			 * 第一次进来肯定都不是，会在 else if中的ConfigurationClassUtils.checkConfigurationClassCandidate中setAttribute
+			 */
+			// 判断bd是否为全配置类：full 或 简化配置类: lite
+			if (ConfigurationClassUtils.isFullConfigurationClass(beanDef) ||
+					ConfigurationClassUtils.isLiteConfigurationClass(beanDef)) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Bean definition has already been processed as a configuration class: " + beanDef);
+				}
+			}
+			// 检查配置类：如果是, 将配置类设置为全配置类：full 或 简化配置类: lite, 后加入集合中
+			else if (ConfigurationClassUtils.checkConfigurationClassCandidate(beanDef, this.metadataReaderFactory)) {
+				configCandidates.add(new BeanDefinitionHolder(beanDef, beanName));
+			}
+		}
+
+		// Return immediately if no @Configuration classes were found
+		if (configCandidates.isEmpty()) {
+			registerImportRegistry(registry, null);
+			return;
+		}
+
+		// Sort by previously determined @Order value, if applicable
+		configCandidates.sort((bd1, bd2) -> {
+			int i1 = ConfigurationClassUtils.getOrder(bd1.getBeanDefinition());
+			int i2 = ConfigurationClassUtils.getOrder(bd2.getBeanDefinition());
+			return Integer.compare(i1, i2);
+		});
+
+		// Detect any custom bean name generation strategy supplied through the enclosing application context
+		SingletonBeanRegistry sbr = null;
+		if (registry instanceof SingletonBeanRegistry) {
+			sbr = (SingletonBeanRegistry) registry;
+			if (!this.localBeanNameGeneratorSet) {
+				BeanNameGenerator generator = (BeanNameGenerator) sbr.getSingleton(CONFIGURATION_BEAN_NAME_GENERATOR);
+				if (generator != null) {
+					this.componentScanBeanNameGenerator = generator;
+					this.importBeanNameGenerator = generator;
+				}
+			}
+		}
+
+		if (this.environment == null) {
+			this.environment = new StandardEnvironment();
+		}
+
+		ApplicationStartup applicationStartup = (registry instanceof ConfigurableBeanFactory ?
+				((ConfigurableBeanFactory) registry).getApplicationStartup() : ApplicationStartup.DEFAULT);
+
+		// Parse each @Configuration class 解析每个@Configuration类
+		// 构建一个配置类解析器对象，该解析器会解析上述所有的配置类，产生一组ConfigurationClass对象，然后从这组ConfigurationClass对象中加载BD
+		ConfigurationClassParser parser = new ConfigurationClassParser(
+				this.metadataReaderFactory, this.problemReporter, this.environment,
+				this.resourceLoader, this.componentScanBeanNameGenerator, registry);
+
+		Set<BeanDefinitionHolder> candidates = new LinkedHashSet<>(configCandidates);
+		Set<ConfigurationClass> alreadyParsed = new HashSet<>(configCandidates.size());
+		// 递归解析配置类, 有可能通过解析一个配置类, 得到了新的配置类, 比如扫描和@Import
+		do {
+			StartupStep processConfig = applicationStartup.start("spring.context.config-classes.parse");
+			/**
+			 * 遍历解析所有配置类: 解析@PropertySource/@ComponentScan/@Import/@ImportResource/@Bean等, 只有@ComponentScan扫描出来的类加入了BD, 其他都只缓存到配置类的集合中
+			 * 在这个解析过程中会进行扫描, 导入等步骤, 在这些步骤中极有可能会找到其他的配置类
+			 */
+			parser.parse(candidates);
+			parser.validate();
+
+			// 解析产生一组ConfigurationClass对象, 即解析之后的配置类集合
+			Set<ConfigurationClass> configClasses = new LinkedHashSet<>(parser.getConfigurationClasses());
+			configClasses.removeAll(alreadyParsed);
+
+			// Read the model and create bean definitions based on its content
+			if (this.reader == null) {
+				this.reader = new ConfigurationClassBeanDefinitionReader(
+						registry, this.sourceExtractor, this.resourceLoader, this.environment,
+						this.importBeanNameGenerator, parser.getImportRegistry());
+			}
+			/**
+			 * 配置类加载到BDMap中: 关键
+			 * 将上面解析方法执行后加入配置类对象的各个集合取出, 遍历加载bean定义: 加载如注解: @EnableAspectJAutoProxy等
+			 */
+			this.reader.loadBeanDefinitions(configClasses);
+			alreadyParsed.addAll(configClasses);
+			processConfig.tag("classCount", () -> String.valueOf(configClasses.size())).end();
+
+			candidates.clear();
+			if (registry.getBeanDefinitionCount() > candidateNames.length) {
+				String[] newCandidateNames = registry.getBeanDefinitionNames();
+				Set<String> oldCandidateNames = new HashSet<>(Arrays.asList(candidateNames));
+				Set<String> alreadyParsedClasses = new HashSet<>();
+				for (ConfigurationClass configurationClass : alreadyParsed) {
+					alreadyParsedClasses.add(configurationClass.getMetadata().getClassName());
+				}
+				for (String candidateName : newCandidateNames) {
+					if (!oldCandidateNames.contains(candidateName)) {
+						BeanDefinition bd = registry.getBeanDefinition(candidateName);
+						if (ConfigurationClassUtils.checkConfigurationClassCandidate(bd, this.metadataReaderFactory) &&
+								!alreadyParsedClasses.contains(bd.getBeanClassName())) {
+							candidates.add(new BeanDefinitionHolder(bd, candidateName));
+						}
+					}
+				}
+				candidateNames = newCandidateNames;
+			}
+		}
+		while (!candidates.isEmpty());
+
+		// Register the ImportRegistry as a bean in order to support ImportAware @Configuration classes
+		registerImportRegistry(registry, parser.getImportRegistry());
+
+		// Record importing classes on the imported configuration classes' bean definitions,
+		// for the ImportRegistry to be restorable along with the definitions themselves
+		ImportRegistry importRegistry = parser.getImportRegistry();
+		for (ConfigurationClass configClass : alreadyParsed) {
+			String beanName = configClass.getBeanName();
+			AnnotationMetadata importingClass =
+					importRegistry.getImportingClassFor(configClass.getMetadata().getClassName());
+			if (beanName != null && importingClass != null && registry.containsBeanDefinition(beanName)) {
+				BeanDefinition beanDef = registry.getBeanDefinition(beanName);
+				beanDef.setAttribute(IMPORTING_CLASS_ATTRIBUTE, importingClass.getClassName());
+			}
+		}
+
+		if (this.metadataReaderFactory instanceof CachingMetadataReaderFactory) {
+			// Clear cache in externally provided MetadataReaderFactory; this is a no-op
+			// for a shared cache since it'll be cleared by the ApplicationContext.
+			((CachingMetadataReaderFactory) this.metadataReaderFactory).clearCache();
+		}
+	}
+
+	/**
+	 * Register the ImportRegistry for the given registry, taking the importing
+	 * classes recorded on configuration class bean definitions that have been
+	 * processed before into account, e.g. when restored from a bean definition
+	 * snapshot, along with any configuration classes parsed in this pass.
+	 * @param registry the registry to register the ImportRegistry with
+	 * @param parsedImportRegistry the ImportRegistry for the configuration
+	 * classes parsed in this pass, or {@code null} if none
+	 */
+	private void registerImportRegistry(BeanDefinitionRegistry registry,
+			@Nullable ImportRegistry parsedImportRegistry) {
+
+		if (!(registry instanceof SingletonBeanRegistry) ||
+				((SingletonBeanRegistry) registry).containsSingleton(IMPORT_REGISTRY_BEAN_NAME)) {
+			return;
+		}
+		Map<String, String> importingClasses = new HashMap<>();
+		for (String beanName : registry.getBeanDefinitionNames()) {
+			BeanDefinition beanDef = registry.getBeanDefinition(beanName);
+			Object importingClass = beanDef.getAttribute(IMPORTING_CLASS_ATTRIBUTE);
+			if (importingClass instanceof String && beanDef.getBeanClassName() != null) {
+				importingClasses.put(beanDef.getBeanClassName(), (String) importingClass);
+			}
+		}
+		ImportRegistry importRegistry = (importingClasses.isEmpty() ? parsedImportRegistry :
+				new RestoredImportRegistry(importingClasses, this.metadataReaderFactory, parsedImportRegistry));
+		if (importRegistry != null) {
+			((SingletonBeanRegistry) registry).registerSingleton(IMPORT_REGISTRY_BEAN_NAME, importRegistry);
+		}
+	}
+
+	/**
+	 * 遍历BDMap找到所有的full配置类, 将这些full配置类的beanClass替换为其代理类
+	 * Post-processes a BeanFactory in search of Configuration class BeanDefinitions;
+	 * any candidates are then enhanced by a {@link ConfigurationClassEnhancer}.
+	 * Candidate status is determined by BeanDefinition attribute metadata.
+	 * @see ConfigurationClassEnhancer
+	 */
+	public void enhanceConfigurationClasses(ConfigurableListableBeanFactory beanFactory) {
+		StartupStep enhanceConfigClasses = beanFactory.getApplicationStartup().start("spring.context.config-classes.enhance");
+		// 用于存放全配置类 也就是加了@Configuration的
+		Map<String, AbstractBeanDefinition> configBeanDefs = new LinkedHashMap<>();
+		// beanFactory.getBeanDefinitionNames() 相当于bdmap中的key
+		for (String beanName : beanFactory.getBeanDefinitionNames()) {
+			// 根据名字获取bd
+			BeanDefinition beanDef = beanFactory.getBeanDefinition(beanName);
+			// 判断是否为全配置类，解析配置类的时候 加了@Configuration = full，没加 = lite
+			if (ConfigurationClassUtils.isFullConfigurationClass(beanDef)) {
+				// 判断是否为抽象的
+				if (!(beanDef instanceof AbstractBeanDefinition)) {
+					throw new BeanDefinitionStoreException("Cannot enhance @Configuration bean definition '" +
+							beanName + "' since it is not stored in an AbstractBeanDefinition subclass");
+				}
+				else if (logger.isInfoEnabled() && beanFactory.containsSingleton(beanName)) {
+					logger.info("Cannot enhance @Configuration bean definition '" + beanName +
+							"' since its singleton instance has been created too early. The typical cause " +
+							"is a non-static @Bean method with a BeanDefinitionRegistryPostProcessor " +
+							"return type: Consider declaring such methods as 'static'.");
+				}
+				configBeanDefs.put(beanName, (AbstractBeanDefinition) beanDef);
+			}
+		}
+		// 如果没有全配置类为空，直接返回
+		if (configBeanDefs.isEmpty()) {
+			// nothing to enhance -> return immediately
+			enhanceConfigClasses.end();
+			return;
+		}
+
+		// 下面代码是遍历全配置类，完成代理
+		ConfigurationClassEnhancer enhancer = new ConfigurationClassEnhancer();
+		// 遍历全配置类
+		for (Map.Entry<String, AbstractBeanDefinition> entry : configBeanDefs.entrySet()) {
+			// 获取配置类的BD
+			AbstractBeanDefinition beanDef = entry.getValue();
+			// If a @Configuration class gets proxied, always proxy the target class 如果代理了@Configuration类，则始终代理目标类
+			beanDef.setAttribute(AutoProxyUtils.PRESERVE_TARGET_CLASS_ATTRIBUTE, Boolean.TRUE);
+			try {
+				// Set enhanced subclass of the user-specified bean class 设置用户指定bean类的增强子类
+				/**
+				 * 得到这个配置类的class对象, 因为代理必须要得到class对象，不管用什么代理方法，
+				 * cglib --- asm
+				 * jdk动态代理： 需要得到一个接口
+				 */
+				// target class
+				Class<?> configClass = beanDef.resolveBeanClass(this.beanClassLoader);
+				if (configClass != null) {
+					// proxy class 根据目标类生成代理类
+					Class<?> enhancedClass = enhancer.enhance(configClass, this.beanClassLoader);
+					if (configClass != enhancedClass) {
+						if (logger.isTraceEnabled()) {
+							logger.trace(String.format("Replacing bean definition '%s' existing class '%s' with " +
+									"enhanced class '%s'", entry.getKey(), configClass.getName(), enhancedClass.getName()));
+						}
+						// 将full配置类的beanClass替换为其代理类
+						beanDef.setBeanClass(enhancedClass);
+					}
+				}
+			}
+			catch (Throwable ex) {
+				throw new IllegalStateException("Cannot load configuration class: " + beanDef.getBeanClassName(), ex);
+			}
+		}
+		enhanceConfigClasses.tag("classCount", () -> String.valueOf(configBeanDefs.keySet().size())).end();
+	}
+
+
+	private static class ImportAwareBeanPostProcessor extends InstantiationAwareBeanPostProcessorAdapter {
+
+		private final BeanFactory beanFactory;
+
+		public ImportAwareBeanPostProcessor(BeanFactory beanFactory) {
+			this.beanFactory = beanFactory;
+		}
+
+		@Override
+		public PropertyValues postProcessProperties(@Nullable PropertyValues pvs, Object bean, String beanName) {
+			// Inject the BeanFactory before AutowiredAnnotationBeanPostProcessor's
+			// postProcessProperties method attempts to autowire other configuration beans.
+			if (bean instanceof EnhancedConfiguration) {
+				((EnhancedConfiguration) bean).setBeanFactory(this.beanFactory);
+			}
+			return pvs;
+		}
+
+		@Override
+		public Object postProcessBeforeInitialization(Object bean, String beanName) {
+			if (bean instanceof ImportAware) {
+				ImportRegistry ir = this.beanFactory.getBean(IMPORT_REGISTRY_BEAN_NAME, ImportRegistry.class);
+				AnnotationMetadata importingClass = ir.getImportingClassFor(bean.getClass().getSuperclass().getName());
+				if (importingClass != null) {
+					((ImportAware) bean).setImportMetadata(importingClass);
+				}
+			}
+			return bean;
+		}
+	}
+
+
+	/**
+	 * ImportRegistry for configuration classes that have not been parsed in the
+	 * current run, lazily reading the metadata of recorded importing classes,
+	 * and delegating to the ImportRegistry of the parsed ones otherwise.
+	 */
+	private static class RestoredImportRegistry implements ImportRegistry {
+
+		private final Map<String, String> importingClasses;
+
+		private final MetadataReaderFactory metadataReaderFactory;
+
+		@Nullable
+		private final ImportRegistry parsedImportRegistry;
+
+		public RestoredImportRegistry(Map<String, String> importingClasses,
+				MetadataReaderFactory metadataReaderFactory, @Nullable ImportRegistry parsedImportRegistry) {
+
+			this.importingClasses = new ConcurrentHashMap<>(importingClasses);
+			this.metadataReaderFactory = metadataReaderFactory;
+			this.parsedImportRegistry = parsedImportRegistry;
+		}
+
+		@Override
+		@Nullable
+		public AnnotationMetadata getImportingClassFor(String importedClass) {
+			String importingClass = this.importingClasses.get(importedClass);
+			if (importingClass == null) {
+				return (this.parsedImportRegistry != null ?
+						this.parsedImportRegistry.getImportingClassFor(importedClass) : null);
+			}
+			try {
+				return this.metadataReaderFactory.getMetadataReader(importingClass).getAnnotationMetadata();
+			}
+			catch (IOException ex) {
+				throw new IllegalStateException(
+						"Failed to read metadata of importing class [" + importingClass + "]", ex);
+			}
+		}
+
+		@Override
+		public void removeImportingClass(String importingClass) {
+			this.importingClasses.values().removeIf(importingClass::equals);
+			if (this.parsedImportRegistry != null) {
+				this.parsedImportRegistry.removeImportingClass(importingClass);
+			}
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,22 @@
 
 package org.springframework.context.support;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Constructor;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
 
@@ -30,12 +44,16 @@ import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinitionCustomizer;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.metrics.ApplicationStartup;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 
@@ -104,6 +122,9 @@ public class GenericApplicationContext extends AbstractApplicationContext implem
 
 	private boolean customClassLoader = false;
 
+	@Nullable
+	private File beanDefinitionSnapshotFile;
+
 	private final AtomicBoolean refreshed = new AtomicBoolean();
 
 
@@ -165,6 +186,12 @@ public class GenericApplicationContext extends AbstractApplicationContext implem
 		this.beanFactory.setParentBeanFactory(getInternalParentBeanFactory());
 	}
 
+	@Override
+	public void setApplicationStartup(ApplicationStartup applicationStartup) {
+		super.setApplicationStartup(applicationStartup);
+		this.beanFactory.setApplicationStartup(applicationStartup);
+	}
+
 	/**
 	 * Set whether it should be allowed to override bean definitions by registering
 	 * a different definition with the same name, automatically replacing the former.
@@ -211,6 +238,33 @@ public class GenericApplicationContext extends AbstractApplicationContext implem
 	}
 
 
+	/**
+	 * Set a file to restore this context's bean definitions from on refresh,
+	 * skipping classpath scanning and configuration class parsing.
+	 * <p>If the file does not exist yet or has been written for a different
+	 * classpath or a different environment (profiles, and the values of the
+	 * properties read while processing the definitions, e.g. by
+	 * {@code @Conditional} annotations), bean definitions are processed as
+	 * usual and then written to the file, right after all
+	 * {@link BeanDefinitionRegistryPostProcessor BeanDefinitionRegistryPostProcessors}
+	 * have run. The file may thus be prepared at build time by refreshing
+	 * the context once, or simply on the first start of an application.
+	 * <p>No file is written if property sources have been added to the
+	 * Environment in the course of processing, e.g. through
+	 * {@code @PropertySource}, since restoring the definitions would skip that.
+	 * <p>Bean definitions restored from the file replace any definitions of the
+	 * same name registered before the refresh; configuration classes among them
+	 * are recognized as already processed. Other registry post-processors still
+	 * run against the restored definitions. If any bean definition cannot be
+	 * captured (e.g. one with an instance supplier), no file is written.
+	 * @since 5.1.13
+	 * @see BeanDefinitionSnapshot
+	 */
+	public void setBeanDefinitionSnapshotFile(@Nullable File beanDefinitionSnapshotFile) {
+		this.beanDefinitionSnapshotFile = beanDefinitionSnapshotFile;
+	}
+
+
 	//---------------------------------------------------------------------
 	// ResourceLoader / ResourcePatternResolver override if necessary
 	//---------------------------------------------------------------------
@@ -265,7 +319,10 @@ public class GenericApplicationContext extends AbstractApplicationContext implem
 	/**
 	 * Do nothing: We hold a single internal BeanFactory and rely on callers
 	 * to register beans through our public methods (or the BeanFactory's).
+	 * Only prepares the restoring or capturing of a bean definition snapshot,
+	 * if a snapshot file has been specified.
 	 * @see #registerBeanDefinition
+	 * @see #setBeanDefinitionSnapshotFile
 	 */
 	@Override
 	protected final void refreshBeanFactory() throws IllegalStateException {
@@ -275,6 +332,9 @@ public class GenericApplicationContext extends AbstractApplicationContext implem
 					"GenericApplicationContext does not support multiple refresh attempts: just call 'refresh' once");
 		}
 		this.beanFactory.setSerializationId(getId());
+		if (this.beanDefinitionSnapshotFile != null) {
+			addBeanFactoryPostProcessor(new BeanDefinitionSnapshotPostProcessor(this.beanDefinitionSnapshotFile));
+		}
 	}
 
 	@Override
@@ -484,4 +544,161 @@ public class GenericApplicationContext extends AbstractApplicationContext implem
 		}
 	}
 
+
+	/**
+	 * Restores bean definitions from a {@link BeanDefinitionSnapshot} file before
+	 * any other registry post-processor runs, or captures them into the file
+	 * once all registry post-processors have run.
+	 */
+	private class BeanDefinitionSnapshotPostProcessor implements BeanDefinitionRegistryPostProcessor {
+
+		private final File snapshotFile;
+
+		@Nullable
+		private String classpathHash;
+
+		@Nullable
+		private PropertyReadTracker propertyReadTracker;
+
+		@Nullable
+		private List<String> propertySourceNames;
+
+		public BeanDefinitionSnapshotPostProcessor(File snapshotFile) {
+			this.snapshotFile = snapshotFile;
+		}
+
+		@Override
+		public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) {
+			this.classpathHash = BeanDefinitionSnapshot.computeClasspathHash(getClassLoader());
+			if (this.snapshotFile.isFile() && restore(registry)) {
+				return;
+			}
+			// Track the properties read by the registry post-processors, for the fingerprint to cover
+			MutablePropertySources propertySources = getEnvironment().getPropertySources();
+			this.propertySourceNames = getPropertySourceNames(propertySources);
+			this.propertyReadTracker = new PropertyReadTracker();
+			propertySources.addFirst(this.propertyReadTracker);
+		}
+
+		private boolean restore(BeanDefinitionRegistry registry) {
+			BeanDefinitionSnapshot snapshot;
+			try (InputStream in = new BufferedInputStream(new FileInputStream(this.snapshotFile))) {
+				snapshot = BeanDefinitionSnapshot.readFrom(in);
+			}
+			catch (IOException ex) {
+				if (logger.isWarnEnabled()) {
+					logger.warn("Ignoring unreadable bean definition snapshot " + this.snapshotFile + ": " + ex);
+				}
+				return false;
+			}
+			if (!snapshot.getFingerprint().equals(getFingerprint(snapshot.getPropertyNames()))) {
+				if (logger.isInfoEnabled()) {
+					logger.info("Ignoring outdated bean definition snapshot " + this.snapshotFile);
+				}
+				return false;
+			}
+			int count;
+			try {
+				count = snapshot.registerBeanDefinitions(registry, getClassLoader());
+			}
+			catch (BeanDefinitionStoreException ex) {
+				if (logger.isWarnEnabled()) {
+					logger.warn("Ignoring unusable bean definition snapshot " + this.snapshotFile + ": " + ex);
+				}
+				return false;
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Restored " + count + " bean definitions from snapshot " + this.snapshotFile);
+			}
+			return true;
+		}
+
+		@Override
+		public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+			PropertyReadTracker tracker = this.propertyReadTracker;
+			if (tracker == null) {
+				return;
+			}
+			MutablePropertySources propertySources = getEnvironment().getPropertySources();
+			propertySources.remove(tracker.getName());
+			this.propertyReadTracker = null;
+			if (!(beanFactory instanceof BeanDefinitionRegistry)) {
+				return;
+			}
+			// Property sources added through @PropertySource or the like would be missing on restore
+			if (!getPropertySourceNames(propertySources).equals(this.propertySourceNames)) {
+				if (logger.isInfoEnabled()) {
+					logger.info("Not writing bean definition snapshot " + this.snapshotFile +
+							": property sources have been added while processing bean definitions");
+				}
+				return;
+			}
+			Set<String> propertyNames = tracker.getPropertyNames();
+			BeanDefinitionSnapshot snapshot;
+			try {
+				snapshot = BeanDefinitionSnapshot.capture(
+						(BeanDefinitionRegistry) beanFactory, getFingerprint(propertyNames), propertyNames);
+			}
+			catch (BeanDefinitionStoreException ex) {
+				if (logger.isInfoEnabled()) {
+					logger.info("Not writing bean definition snapshot " + this.snapshotFile + ": " + ex.getMessage());
+				}
+				return;
+			}
+			File tempFile = new File(this.snapshotFile.getPath() + ".tmp");
+			try {
+				try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+					snapshot.writeTo(out);
+				}
+				Files.move(tempFile.toPath(), this.snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				if (logger.isDebugEnabled()) {
+					logger.debug("Wrote bean definition snapshot " + this.snapshotFile);
+				}
+			}
+			catch (IOException ex) {
+				if (logger.isWarnEnabled()) {
+					logger.warn("Failed to write bean definition snapshot " + this.snapshotFile, ex);
+				}
+			}
+		}
+
+		private String getFingerprint(Set<String> propertyNames) {
+			return this.classpathHash + ";" +
+					BeanDefinitionSnapshot.computeEnvironmentHash(getEnvironment(), propertyNames);
+		}
+
+		private List<String> getPropertySourceNames(MutablePropertySources propertySources) {
+			List<String> names = new ArrayList<>();
+			for (PropertySource<?> propertySource : propertySources) {
+				names.add(propertySource.getName());
+			}
+			return names;
+		}
+	}
+
+
+	/**
+	 * PropertySource that records the names of all properties looked up through
+	 * the Environment, without providing any values itself.
+	 */
+	private static class PropertyReadTracker extends PropertySource<Object> {
+
+		private final Set<String> propertyNames = ConcurrentHashMap.newKeySet();
+
+		public PropertyReadTracker() {
+			super(BeanDefinitionSnapshotPostProcessor.class.getName() + ".propertyReadTracker");
+		}
+
+		@Override
+		@Nullable
+		public Object getProperty(String name) {
+			this.propertyNames.add(name);
+			return null;
+		}
+
+		public Set<String> getPropertyNames() {
+			return new TreeSet<>(this.propertyNames);
+		}
+	}
+
 }
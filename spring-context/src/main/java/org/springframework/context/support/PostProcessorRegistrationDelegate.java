@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -37,6 +37,8 @@ import org.springframework.context.annotation.ConfigurationClassPostProcessor;
 import org.springframework.core.OrderComparator;
 import org.springframework.core.Ordered;
 import org.springframework.core.PriorityOrdered;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.lang.Nullable;
 
 /**
@@ -152,7 +154,7 @@ final class PostProcessorRegistrationDelegate {
 			 * @see ConfigurationClassPostProcessor#postProcessBeanDefinitionRegistry(BeanDefinitionRegistry)
 			 * 完成扫描，扫描指定目录下的@Compent的bean
 			 */
-			invokeBeanDefinitionRegistryPostProcessors(currentRegistryProcessors, registry);
+			invokeBeanDefinitionRegistryPostProcessors(currentRegistryProcessors, registry, beanFactory.getApplicationStartup());
 			// 执行完，清空currentRegistryProcessors，给第二、三步用
 			currentRegistryProcessors.clear();
 			//-----------------------------------------------------------------------------------------------
@@ -176,7 +178,7 @@ final class PostProcessorRegistrationDelegate {
 			// registryProcessors存的是已经找到的的类
 			registryProcessors.addAll(currentRegistryProcessors);
 			// 策略模式：执行postProcessBeanDefinitionRegistry
-			invokeBeanDefinitionRegistryPostProcessors(currentRegistryProcessors, registry);
+			invokeBeanDefinitionRegistryPostProcessors(currentRegistryProcessors, registry, beanFactory.getApplicationStartup());
 			// 清空currentRegistryProcessors，给第三步用
 			currentRegistryProcessors.clear();
 			//-----------------------------------------------------------------------------------------------
@@ -199,7 +201,7 @@ final class PostProcessorRegistrationDelegate {
 				sortPostProcessors(currentRegistryProcessors, beanFactory);
 				registryProcessors.addAll(currentRegistryProcessors);
 				// 策略模式：执行postProcessBeanDefinitionRegistry
-				invokeBeanDefinitionRegistryPostProcessors(currentRegistryProcessors, registry);
+				invokeBeanDefinitionRegistryPostProcessors(currentRegistryProcessors, registry, beanFactory.getApplicationStartup());
 				currentRegistryProcessors.clear();
 			}
 			//-----------------------------------------------------------------------------------------------
@@ -387,14 +389,22 @@ final class PostProcessorRegistrationDelegate {
 	 * 遍历BeanDefinitionRegistryPostProcessor的实现类, 调用实现类重写的postProcessBeanDefinitionRegistry()方法
 	 */
 	private static void invokeBeanDefinitionRegistryPostProcessors(
-			Collection<? extends BeanDefinitionRegistryPostProcessor> postProcessors, BeanDefinitionRegistry registry) {
+			Collection<? extends BeanDefinitionRegistryPostProcessor> postProcessors, BeanDefinitionRegistry registry,
+			ApplicationStartup applicationStartup) {
 
 		for (BeanDefinitionRegistryPostProcessor postProcessor : postProcessors) {
+			StartupStep postProcessBeanDefRegistry = applicationStartup.start("spring.context.beandef-registry.post-process")
+					.tag("postProcessor", postProcessor::toString);
 			/**
 			 * 解析配置类@ComponentScan/@Import/@Bean等, 扫描并构建BD存入BDMap中
 			 * @see ConfigurationClassPostProcessor#postProcessBeanDefinitionRegistry(org.springframework.beans.factory.support.BeanDefinitionRegistry)
 			 */
-			postProcessor.postProcessBeanDefinitionRegistry(registry);
+			try {
+				postProcessor.postProcessBeanDefinitionRegistry(registry);
+			}
+			finally {
+				postProcessBeanDefRegistry.end();
+			}
 		}
 	}
 
@@ -406,10 +416,17 @@ final class PostProcessorRegistrationDelegate {
 			Collection<? extends BeanFactoryPostProcessor> postProcessors, ConfigurableListableBeanFactory beanFactory) {
 
 		for (BeanFactoryPostProcessor postProcessor : postProcessors) {
+			StartupStep postProcessBeanFactory = beanFactory.getApplicationStartup()
+					.start("spring.context.bean-factory.post-process").tag("postProcessor", postProcessor::toString);
 			/**
 			 * @see ConfigurationClassPostProcessor#postProcessBeanFactory(ConfigurableListableBeanFactory)
 			 */
-			postProcessor.postProcessBeanFactory(beanFactory);
+			try {
+				postProcessor.postProcessBeanFactory(beanFactory);
+			}
+			finally {
+				postProcessBeanFactory.end();
+			}
 		}
 	}
 
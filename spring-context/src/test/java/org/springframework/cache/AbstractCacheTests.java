@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,11 @@
 
 package org.springframework.cache;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -211,6 +215,116 @@ public abstract class AbstractCacheTests<T extends Cache> {
 		results.forEach(r -> assertThat(r, is(1))); // Only one method got invoked
 	}
 
+	@Test
+	public void testCacheGetAll() {
+		T cache = getCache();
+
+		String key1 = createRandomKey();
+		String key2 = createRandomKey();
+		String key3 = createRandomKey();
+		cache.put(key1, "one");
+		cache.put(key3, "three");
+
+		Map<Object, Cache.ValueWrapper> result = cache.getAll(Arrays.asList(key1, key2, key3));
+		assertEquals(2, result.size());
+		assertEquals("one", result.get(key1).get());
+		assertFalse(result.containsKey(key2));
+		assertEquals("three", result.get(key3).get());
+	}
+
+	@Test
+	public void testCachePutAll() {
+		T cache = getCache();
+
+		String key1 = createRandomKey();
+		String key2 = createRandomKey();
+		Map<Object, Object> values = new LinkedHashMap<>();
+		values.put(key1, "one");
+		values.put(key2, "two");
+		cache.putAll(values);
+
+		assertEquals("one", cache.get(key1).get());
+		assertEquals("two", cache.get(key2).get());
+	}
+
+	@Test
+	public void testCacheRetrieve() throws Exception {
+		T cache = getCache();
+
+		String key = createRandomKey();
+		assertNull(cache.retrieve(key).get());
+		cache.put(key, "value");
+		assertEquals("value", cache.retrieve(key).get().get());
+	}
+
+	@Test
+	public void testCacheRetrieveWithValueLoader() throws Exception {
+		T cache = getCache();
+
+		String key = createRandomKey();
+		CompletableFuture<String> loaded = new CompletableFuture<>();
+		CompletableFuture<String> result = cache.retrieve(key, () -> loaded);
+		assertFalse(result.isDone());
+		assertNull(cache.get(key));
+
+		loaded.complete("value");
+		assertEquals("value", result.get());
+		assertEquals("value", cache.get(key).get());
+		assertEquals("value", cache.retrieve(key, () -> {
+			throw new IllegalStateException("Should not have been invoked");
+		}).get());
+	}
+
+	/**
+	 * Test that concurrent misses on retrieve with a value loader share a
+	 * single invocation of the loader.
+	 */
+	@Test
+	public void testCacheRetrieveSynchronized() throws Exception {
+		T cache = getCache();
+		final AtomicInteger counter = new AtomicInteger();
+		final CompletableFuture<Integer> loaded = new CompletableFuture<>();
+		final List<CompletableFuture<Integer>> results = new CopyOnWriteArrayList<>();
+		final CountDownLatch latch = new CountDownLatch(10);
+
+		String key = createRandomKey();
+		Runnable run = () -> {
+			try {
+				results.add(cache.retrieve(key, () -> {
+					counter.incrementAndGet();
+					return loaded;
+				}));
+			}
+			finally {
+				latch.countDown();
+			}
+		};
+
+		for (int i = 0; i < 10; i++) {
+			new Thread(run).start();
+		}
+		latch.await();
+		loaded.complete(42);
+
+		assertEquals(10, results.size());
+		for (CompletableFuture<Integer> result : results) {
+			assertEquals(Integer.valueOf(42), result.get());
+		}
+		assertEquals(1, counter.get()); // Only one loader got invoked
+		assertEquals(42, cache.get(key).get());
+	}
+
+	@Test
+	public void testCacheRetrieveWithFailingValueLoader() {
+		T cache = getCache();
+
+		String key = createRandomKey();
+		CompletableFuture<Object> failed = new CompletableFuture<>();
+		failed.completeExceptionally(new UnsupportedOperationException("Expected exception"));
+		assertTrue(cache.retrieve(key, () -> failed).isCompletedExceptionally());
+		assertNull(cache.get(key));
+	}
+
 	protected String createRandomKey() {
 		return UUID.randomUUID().toString();
 	}
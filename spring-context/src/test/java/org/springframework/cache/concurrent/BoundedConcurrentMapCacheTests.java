@@ -0,0 +1,62 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import java.time.Duration;
+
+import org.junit.Before;
+
+import org.springframework.cache.AbstractValueAdaptingCacheTests;
+
+/**
+ * Runs the {@link org.springframework.cache.Cache} contract tests against a
+ * {@link ConcurrentMapCache} backed by a {@link BoundedConcurrentMap}.
+ *
+ * @since 5.1.13
+ */
+public class BoundedConcurrentMapCacheTests extends AbstractValueAdaptingCacheTests<ConcurrentMapCache> {
+
+	private BoundedConcurrentMap<Object, Object> nativeCache;
+
+	private ConcurrentMapCache cache;
+
+	private ConcurrentMapCache cacheNoNull;
+
+
+	@Before
+	public void setUp() {
+		this.nativeCache = new BoundedConcurrentMap<>(1000, Duration.ofMinutes(1));
+		this.cache = new ConcurrentMapCache(CACHE_NAME, this.nativeCache, true);
+		this.cacheNoNull = new ConcurrentMapCache(CACHE_NAME_NO_NULL, new BoundedConcurrentMap<>(1000), false);
+	}
+
+	@Override
+	protected ConcurrentMapCache getCache() {
+		return getCache(true);
+	}
+
+	@Override
+	protected ConcurrentMapCache getCache(boolean allowNull) {
+		return (allowNull ? this.cache : this.cacheNoNull);
+	}
+
+	@Override
+	protected BoundedConcurrentMap<Object, Object> getNativeCache() {
+		return this.nativeCache;
+	}
+
+}
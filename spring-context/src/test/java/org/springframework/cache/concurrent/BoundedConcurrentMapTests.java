@@ -0,0 +1,250 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.Test;
+
+import org.springframework.cache.Cache;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.util.StopWatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link BoundedConcurrentMap}.
+ *
+ * @since 5.1.13
+ */
+public class BoundedConcurrentMapTests {
+
+	@Test
+	public void basicOperations() {
+		BoundedConcurrentMap<String, String> map = new BoundedConcurrentMap<>(10);
+		assertNull(map.put("a", "1"));
+		assertEquals("1", map.put("a", "2"));
+		assertEquals("2", map.putIfAbsent("a", "3"));
+		assertNull(map.putIfAbsent("b", "3"));
+		assertTrue(map.containsKey("b"));
+		assertFalse(map.replace("b", "x", "4"));
+		assertTrue(map.replace("b", "3", "4"));
+		assertEquals("4", map.replace("b", "5"));
+		assertNull(map.replace("c", "5"));
+		assertFalse(map.remove("b", "4"));
+		assertTrue(map.remove("b", "5"));
+		assertEquals("2", map.remove("a"));
+		assertTrue(map.isEmpty());
+		assertEquals(0, map.getWeightedSize());
+	}
+
+	@Test
+	public void evictsBeyondMaximumSize() {
+		BoundedConcurrentMap<Integer, Integer> map = new BoundedConcurrentMap<>(3);
+		for (int i = 0; i < 10; i++) {
+			map.put(i, i);
+		}
+		assertEquals(3, map.size());
+		assertEquals(3, map.getWeightedSize());
+		assertEquals(7, map.getEvictionCount());
+		assertTrue(map.containsKey(9));
+	}
+
+	@Test
+	public void retainsProtectedEntriesOverOneTimeAccesses() {
+		BoundedConcurrentMap<Integer, Integer> map = new BoundedConcurrentMap<>(10);
+		map.put(-1, -1);
+		map.put(-2, -2);
+		assertEquals(Integer.valueOf(-1), map.get(-1));
+		assertEquals(Integer.valueOf(-2), map.get(-2));
+		// A scan of one-time accesses only competes for the probationary space
+		for (int i = 0; i < 100; i++) {
+			map.put(i, i);
+		}
+		assertTrue(map.containsKey(-1));
+		assertTrue(map.containsKey(-2));
+		assertEquals(10, map.size());
+	}
+
+	@Test
+	public void evictsByWeight() {
+		BoundedConcurrentMap<String, String> map =
+				new BoundedConcurrentMap<>(10, (key, value) -> value.length(), null);
+		map.put("a", "12345");
+		map.put("b", "1234");
+		assertEquals(9, map.getWeightedSize());
+		map.put("c", "12");
+		assertEquals(2, map.size());
+		assertFalse(map.containsKey("a"));
+		assertEquals(6, map.getWeightedSize());
+		map.put("d", "123456789012");
+		assertFalse(map.containsKey("d"));
+		assertTrue(map.getWeightedSize() <= 10);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNegativeWeight() {
+		new BoundedConcurrentMap<String, String>(10, (key, value) -> -1, null).put("a", "b");
+	}
+
+	@Test
+	public void expiresAfterTimeToLive() throws InterruptedException {
+		BoundedConcurrentMap<String, String> map = new BoundedConcurrentMap<>(10, Duration.ofMillis(50));
+		map.put("a", "1");
+		assertEquals("1", map.get("a"));
+		Thread.sleep(100);
+		assertFalse(map.containsKey("a"));
+		assertNull(map.get("a"));
+		assertTrue(map.isEmpty());
+		assertEquals(1, map.getEvictionCount());
+		assertNull(map.putIfAbsent("a", "2"));
+		assertEquals("2", map.get("a"));
+	}
+
+	@Test
+	public void getOfExpiredEntryDoesNotRemoveConcurrentPut() throws InterruptedException {
+		BoundedConcurrentMap<String, String> map = new BoundedConcurrentMap<>(10, Duration.ofMillis(50));
+		map.put("a", "1");
+		Thread.sleep(100);
+
+		Thread reader = new Thread(() -> map.get("a"));
+		map.computeIfAbsent("b", key -> {
+			// While holding the segment lock, let a get find the expired entry
+			// and wait for the lock, then replace the entry
+			reader.start();
+			while (reader.isAlive() && reader.getState() != Thread.State.WAITING) {
+				Thread.yield();
+			}
+			map.put("a", "2");
+			return "b";
+		});
+		reader.join();
+		assertEquals(2, map.size());
+		assertEquals(2, map.getWeightedSize());
+	}
+
+	@Test
+	public void computeIfAbsent() {
+		BoundedConcurrentMap<String, String> map = new BoundedConcurrentMap<>(10);
+		assertEquals("A", map.computeIfAbsent("a", String::toUpperCase));
+		assertEquals("A", map.computeIfAbsent("a", key -> {
+			throw new IllegalStateException("Should not have been invoked");
+		}));
+		assertNull(map.computeIfAbsent("b", key -> null));
+		assertFalse(map.containsKey("b"));
+		assertEquals(1, map.getHitCount());
+		assertEquals(2, map.getMissCount());
+	}
+
+	@Test
+	public void statistics() {
+		BoundedConcurrentMap<String, String> map = new BoundedConcurrentMap<>(10);
+		map.put("a", "1");
+		map.get("a");
+		map.get("a");
+		map.get("b");
+		assertEquals(2, map.getHitCount());
+		assertEquals(1, map.getMissCount());
+		assertEquals(0, map.getEvictionCount());
+	}
+
+	@Test
+	public void entrySet() {
+		BoundedConcurrentMap<String, String> map = new BoundedConcurrentMap<>(10);
+		map.put("a", "1");
+		map.put("b", "2");
+		Map<String, String> copy = new HashMap<>(map);
+		assertEquals(2, copy.size());
+		assertEquals("1", copy.get("a"));
+		Iterator<Map.Entry<String, String>> it = map.entrySet().iterator();
+		it.next();
+		it.remove();
+		assertEquals(1, map.size());
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertEquals(0, map.getWeightedSize());
+	}
+
+	@Test
+	public void zipfianThroughput() throws InterruptedException {
+		Assume.group(TestGroup.PERFORMANCE);
+
+		int keys = 100_000;
+		int operations = 2_000_000;
+		int threads = 4;
+		int[] samples = zipfianSamples(keys, operations);
+
+		StopWatch sw = new StopWatch(threads + " threads, " + operations + " operations, Zipfian keys");
+		ConcurrentMap<Object, Object> unbounded = new ConcurrentHashMap<>(256);
+		BoundedConcurrentMap<Object, Object> bounded = new BoundedConcurrentMap<>(keys / 10);
+		run(new ConcurrentMapCache("warmup", new ConcurrentHashMap<>(256), true), samples, threads);
+		sw.start("ConcurrentMapCache, unbounded");
+		run(new ConcurrentMapCache("unbounded", unbounded, true), samples, threads);
+		sw.stop();
+		sw.start("ConcurrentMapCache, bounded to 10% of keys");
+		run(new ConcurrentMapCache("bounded", bounded, true), samples, threads);
+		sw.stop();
+		System.out.println(sw.prettyPrint());
+		System.out.println("Bounded hit ratio: " +
+				(double) bounded.getHitCount() / (bounded.getHitCount() + bounded.getMissCount()));
+		assertTrue(bounded.size() <= keys / 10);
+	}
+
+	private static int[] zipfianSamples(int keys, int count) {
+		double[] cumulative = new double[keys];
+		double sum = 0;
+		for (int i = 0; i < keys; i++) {
+			sum += 1.0 / (i + 1);
+			cumulative[i] = sum;
+		}
+		int[] samples = new int[count];
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int i = 0; i < count; i++) {
+			int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+			samples[i] = (index >= 0 ? index : -index - 1);
+		}
+		return samples;
+	}
+
+	private static void run(Cache cache, int[] samples, int threads) throws InterruptedException {
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			int offset = t;
+			workers[t] = new Thread(() -> {
+				for (int i = offset; i < samples.length; i += threads) {
+					Integer key = samples[i];
+					if (cache.get(key) == null) {
+						cache.put(key, key);
+					}
+				}
+			});
+			workers[t].start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,8 @@
 
 package org.springframework.cache.concurrent;
 
+import java.time.Duration;
+
 import org.junit.Test;
 
 import org.springframework.cache.Cache;
@@ -131,4 +133,31 @@ public class ConcurrentMapCacheManagerTests {
 		assertNull(cache1x.get("key"));
 	}
 
+	@Test
+	public void testChangeMaximumSizeAndTimeToLive() {
+		ConcurrentMapCacheManager cm = new ConcurrentMapCacheManager("c1");
+		assertEquals(-1, cm.getMaximumSize());
+		ConcurrentMapCache cache1 = (ConcurrentMapCache) cm.getCache("c1");
+		assertFalse(cache1.getNativeCache() instanceof BoundedConcurrentMap);
+
+		cm.setMaximumSize(2);
+		ConcurrentMapCache cache1x = (ConcurrentMapCache) cm.getCache("c1");
+		assertTrue(cache1x.getNativeCache() instanceof BoundedConcurrentMap);
+		cache1x.put("key1", "value1");
+		cache1x.put("key2", "value2");
+		cache1x.put("key3", "value3");
+		assertEquals(2, cache1x.getNativeCache().size());
+		assertEquals(1, ((BoundedConcurrentMap<?, ?>) cache1x.getNativeCache()).getEvictionCount());
+
+		cm.setMaximumSize(-1);
+		cm.setTimeToLive(Duration.ofMinutes(1));
+		assertEquals(Duration.ofMinutes(1), cm.getTimeToLive());
+		ConcurrentMapCache cache1y = (ConcurrentMapCache) cm.getCache("c1");
+		assertTrue(cache1y != cache1x);
+		assertTrue(cache1y.getNativeCache() instanceof BoundedConcurrentMap);
+
+		cm.setTimeToLive(null);
+		assertFalse(((ConcurrentMapCache) cm.getCache("c1")).getNativeCache() instanceof BoundedConcurrentMap);
+	}
+
 }
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.interceptor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link CacheAspectSupport#setCoalesceConcurrentMisses coalescing}
+ * of concurrent cache misses.
+ *
+ * @since 5.1.13
+ */
+public class CacheCoalescingTests {
+
+	private static final int CALLERS = 8;
+
+	private AnnotationConfigApplicationContext context;
+
+	private SlowService service;
+
+	private State state;
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+
+	@Before
+	public void setUp() {
+		this.context = new AnnotationConfigApplicationContext(Config.class);
+		this.context.getBean(CacheInterceptor.class).setCoalesceConcurrentMisses(true);
+		this.service = this.context.getBean(SlowService.class);
+		this.state = this.context.getBean(State.class);
+	}
+
+	@After
+	public void tearDown() {
+		this.executor.shutdownNow();
+		this.context.close();
+	}
+
+
+	@Test
+	public void concurrentMissesShareInvocation() throws Exception {
+		List<Object> results = callConcurrently(() -> this.service.find("key"));
+		assertEquals(1, this.state.invocations.get());
+		for (Object result : results) {
+			assertEquals(0, result);
+		}
+		assertEquals(0, this.service.find("key"));
+		assertEquals(1, this.state.invocations.get());
+	}
+
+	@Test
+	public void concurrentMissesForMultipleCachesShareInvocation() throws Exception {
+		callConcurrently(() -> this.service.findInTwoCaches("key"));
+		assertEquals(1, this.state.invocations.get());
+		CacheManager cacheManager = this.context.getBean(CacheManager.class);
+		assertEquals(0, cacheManager.getCache("first").get("key").get());
+		assertEquals(0, cacheManager.getCache("second").get("key").get());
+	}
+
+	@Test
+	public void differentKeysDoNotShareInvocation() throws Exception {
+		AtomicInteger keys = new AtomicInteger();
+		callConcurrently(() -> this.service.find("key" + keys.getAndIncrement()));
+		assertEquals(CALLERS, this.state.invocations.get());
+	}
+
+	@Test
+	public void failureIsPropagatedToConcurrentCallers() throws Exception {
+		this.state.failure = new IllegalStateException("Expected exception");
+		List<Object> results = callConcurrently(() -> {
+			try {
+				return this.service.find("key");
+			}
+			catch (IllegalStateException ex) {
+				return ex;
+			}
+		});
+		assertEquals(1, this.state.invocations.get());
+		for (Object result : results) {
+			assertSame(this.state.failure, result);
+		}
+	}
+
+	@Test
+	public void operationWithEvictionIsNotCoalesced() throws Exception {
+		callConcurrently(() -> this.service.findAndEvict("key"));
+		assertEquals(CALLERS, this.state.invocations.get());
+	}
+
+	@Test
+	public void concurrentMissesShareCompletableFuture() throws Exception {
+		List<Object> results = callConcurrently(() -> this.service.findAsync("key"));
+		assertEquals(1, this.state.invocations.get());
+		for (Object result : results) {
+			assertEquals(0, ((CompletableFuture<?>) result).get(5, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	public void concurrentMissesShareMonoSubscription() throws Exception {
+		List<Object> results = callConcurrently(() -> this.service.findMono("key").block());
+		assertEquals(1, this.state.subscriptions.get());
+		for (Object result : results) {
+			assertEquals(0, result);
+		}
+	}
+
+	@Test
+	public void waitingIsBoundedByTimeout() throws Exception {
+		this.context.getBean(CacheInterceptor.class).setCoalescingTimeout(Duration.ofMillis(200));
+		Future<Object> leader = this.executor.submit(() -> this.service.find("key"));
+		assertTrue(this.state.started.await(5, TimeUnit.SECONDS));
+		Future<Object> follower = this.executor.submit(() -> this.service.find("key"));
+		Thread.sleep(500);
+		assertEquals(2, this.state.invocations.get());
+		this.state.proceed.countDown();
+		assertEquals(0, leader.get(5, TimeUnit.SECONDS));
+		assertEquals(1, follower.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void unsubscribedMonoIsNotSharedBeyondTimeout() throws Exception {
+		this.context.getBean(CacheInterceptor.class).setCoalescingTimeout(Duration.ofMillis(200));
+		this.state.proceed.countDown();
+		Mono<Object> first = this.service.findMono("key");
+		Mono<Object> second = this.executor.submit(() -> this.service.findMono("key")).get(5, TimeUnit.SECONDS);
+		assertEquals(1, this.state.invocations.get());
+		Thread.sleep(500);
+		Mono<Object> third = this.executor.submit(() -> this.service.findMono("key")).get(5, TimeUnit.SECONDS);
+		assertEquals(2, this.state.invocations.get());
+		assertNotNull(first.block(Duration.ofSeconds(5)));
+		assertNotNull(second.block(Duration.ofSeconds(5)));
+		assertNotNull(third.block(Duration.ofSeconds(5)));
+	}
+
+	@Test
+	public void cancelledMonoSubscriptionIsNotShared() throws Exception {
+		Disposable subscription = this.service.findMono("key").subscribeOn(Schedulers.elastic()).subscribe();
+		assertTrue(this.state.started.await(5, TimeUnit.SECONDS));
+		subscription.dispose();
+		this.executor.submit(() -> this.service.findMono("key")).get(5, TimeUnit.SECONDS);
+		assertEquals(2, this.state.invocations.get());
+		this.state.proceed.countDown();
+	}
+
+	private List<Object> callConcurrently(Supplier<Object> call) throws Exception {
+		List<Future<Object>> futures = new ArrayList<>();
+		for (int i = 0; i < CALLERS; i++) {
+			futures.add(this.executor.submit(call::get));
+		}
+		// Give all callers the chance to miss before the first invocation completes
+		assertTrue(this.state.started.await(5, TimeUnit.SECONDS));
+		Thread.sleep(200);
+		this.state.proceed.countDown();
+		List<Object> results = new ArrayList<>();
+		for (Future<Object> future : futures) {
+			results.add(future.get(5, TimeUnit.SECONDS));
+		}
+		return results;
+	}
+
+
+	static class State {
+
+		final AtomicInteger invocations = new AtomicInteger();
+
+		final AtomicInteger subscriptions = new AtomicInteger();
+
+		final CountDownLatch started = new CountDownLatch(1);
+
+		final CountDownLatch proceed = new CountDownLatch(1);
+
+		volatile RuntimeException failure;
+	}
+
+
+	static class SlowService {
+
+		private final State state;
+
+		SlowService(State state) {
+			this.state = state;
+		}
+
+		@Cacheable("first")
+		public Object find(Object key) {
+			return compute();
+		}
+
+		@Cacheable({"first", "second"})
+		public Object findInTwoCaches(Object key) {
+			return compute();
+		}
+
+		@Cacheable("first")
+		@CacheEvict(cacheNames = "second", key = "#key")
+		public Object findAndEvict(Object key) {
+			return compute();
+		}
+
+		@Cacheable("first")
+		public CompletableFuture<Object> findAsync(Object key) {
+			int value = this.state.invocations.getAndIncrement();
+			return CompletableFuture.supplyAsync(() -> {
+				this.state.started.countDown();
+				await();
+				return value;
+			});
+		}
+
+		@Cacheable("first")
+		public Mono<Object> findMono(Object key) {
+			this.state.invocations.incrementAndGet();
+			return Mono.fromSupplier(() -> {
+				int value = this.state.subscriptions.getAndIncrement();
+				this.state.started.countDown();
+				await();
+				return value;
+			});
+		}
+
+		private Object compute() {
+			int value = this.state.invocations.getAndIncrement();
+			this.state.started.countDown();
+			await();
+			if (this.state.failure != null) {
+				throw this.state.failure;
+			}
+			return value;
+		}
+
+		private void await() {
+			try {
+				this.state.proceed.await(5, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+
+	@Configuration
+	@EnableCaching
+	static class Config {
+
+		@Bean
+		public CacheManager cacheManager() {
+			return new ConcurrentMapCacheManager("first", "second");
+		}
+
+		@Bean
+		public State state() {
+			return new State();
+		}
+
+		@Bean
+		public SlowService slowService() {
+			return new SlowService(state());
+		}
+	}
+
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.interceptor;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for caching the emitted values of methods returning a
+ * {@link CompletableFuture} or a reactive type.
+ *
+ * @since 5.1.13
+ */
+public class ReactiveCachingTests {
+
+	private AnnotationConfigApplicationContext context;
+
+	private AsyncService service;
+
+	private Cache cache;
+
+
+	@Before
+	public void setUp() {
+		this.context = new AnnotationConfigApplicationContext(Config.class);
+		this.service = this.context.getBean(AsyncService.class);
+		this.cache = this.context.getBean(CacheManager.class).getCache("testCache");
+	}
+
+	@After
+	public void closeContext() {
+		this.context.close();
+	}
+
+
+	@Test
+	public void cacheCompletableFuture() throws Exception {
+		CompletableFuture<Long> future = this.service.completableFuture("key");
+		assertNull(this.cache.get("key"));
+		this.service.complete();
+		assertEquals(Long.valueOf(0), future.get());
+		assertEquals(0L, this.cache.get("key").get());
+
+		CompletableFuture<Long> hit = this.service.completableFuture("key");
+		assertTrue(hit.isDone());
+		assertEquals(Long.valueOf(0), hit.get());
+	}
+
+	@Test
+	public void cacheCompletableFutureFailure() {
+		CompletableFuture<Long> future = this.service.completableFuture("key");
+		this.service.fail(new IllegalStateException("Expected exception"));
+		assertTrue(future.isCompletedExceptionally());
+		assertNull(this.cache.get("key"));
+	}
+
+	@Test
+	public void cacheCompletableFutureSync() throws Exception {
+		assertEquals(Long.valueOf(0), this.service.completableFutureSync("key").get());
+		assertEquals(Long.valueOf(0), this.service.completableFutureSync("key").get());
+		assertEquals(0L, this.cache.get("key").get());
+	}
+
+	@Test
+	public void cacheCompletableFutureSyncConcurrentMisses() throws Exception {
+		CompletableFuture<Long> first = this.service.completableFutureSyncPending("key");
+		CompletableFuture<Long> second = this.service.completableFutureSyncPending("key");
+		assertFalse(second.isDone());
+		this.service.complete();
+		assertEquals(Long.valueOf(0), first.get(5, TimeUnit.SECONDS));
+		assertEquals(Long.valueOf(0), second.get(5, TimeUnit.SECONDS));
+		assertEquals(1, this.service.getInvocations());
+		assertEquals(0L, this.cache.get("key").get());
+	}
+
+	@Test
+	public void cacheMonoSyncConcurrentMisses() {
+		Mono<Long> first = this.service.monoSyncPending("key");
+		Mono<Long> second = this.service.monoSyncPending("key");
+		this.service.complete();
+		assertEquals(Long.valueOf(0), first.block(Duration.ofSeconds(5)));
+		assertEquals(Long.valueOf(0), second.block(Duration.ofSeconds(5)));
+		assertEquals(1, this.service.getInvocations());
+	}
+
+	@Test
+	public void cacheCompletionStage() throws Exception {
+		CompletionStage<Long> stage = this.service.completionStage("key");
+		assertNull(this.cache.get("key"));
+		this.service.complete();
+		assertEquals(Long.valueOf(0), stage.toCompletableFuture().get());
+		assertEquals(0L, this.cache.get("key").get());
+
+		CompletionStage<Long> hit = this.service.completionStage("key");
+		assertTrue(hit.toCompletableFuture().isDone());
+		assertEquals(Long.valueOf(0), hit.toCompletableFuture().get());
+	}
+
+	@Test
+	public void cacheCompletionStageSync() throws Exception {
+		assertEquals(Long.valueOf(0), this.service.completionStageSync("key").toCompletableFuture().get());
+		assertEquals(Long.valueOf(0), this.service.completionStageSync("key").toCompletableFuture().get());
+		assertEquals(0L, this.cache.get("key").get());
+	}
+
+	@Test
+	public void cacheMono() {
+		Mono<Long> mono = this.service.mono("key");
+		assertNull("Nothing cached before subscription", this.cache.get("key"));
+		assertEquals(Long.valueOf(0), mono.block());
+		assertEquals(0L, this.cache.get("key").get());
+		assertEquals(Long.valueOf(0), this.service.mono("key").block());
+	}
+
+	@Test
+	public void cacheMonoSync() {
+		assertEquals(Long.valueOf(0), this.service.monoSync("key").block());
+		assertEquals(Long.valueOf(0), this.service.monoSync("key").block());
+		assertEquals(0L, this.cache.get("key").get());
+	}
+
+	@Test
+	public void cacheFlux() {
+		assertEquals(Arrays.asList(0L, 1L), this.service.flux("key").collectList().block());
+		assertEquals(Arrays.asList(0L, 1L), this.cache.get("key").get());
+		assertEquals(Arrays.asList(0L, 1L), this.service.flux("key").collectList().block());
+	}
+
+	@Test
+	public void cacheFluxSync() {
+		assertEquals(Arrays.asList(0L, 1L), this.service.fluxSync("key").collectList().block());
+		assertEquals(Arrays.asList(0L, 1L), this.service.fluxSync("key").collectList().block());
+		assertEquals(Arrays.asList(0L, 1L), this.cache.get("key").get());
+	}
+
+	@Test
+	public void cachePutMono() {
+		assertEquals(Long.valueOf(0), this.service.putMono("key").block());
+		assertEquals(0L, this.cache.get("key").get());
+		assertEquals(Long.valueOf(1), this.service.putMono("key").block());
+		assertEquals(1L, this.cache.get("key").get());
+	}
+
+
+	static class AsyncService {
+
+		private final AtomicLong counter = new AtomicLong();
+
+		private final AtomicInteger invocations = new AtomicInteger();
+
+		private CompletableFuture<Long> pending;
+
+		@Cacheable("testCache")
+		public CompletableFuture<Long> completableFuture(Object arg1) {
+			this.pending = new CompletableFuture<>();
+			return this.pending;
+		}
+
+		public void complete() {
+			this.pending.complete(this.counter.getAndIncrement());
+		}
+
+		public int getInvocations() {
+			return this.invocations.get();
+		}
+
+		public void fail(Throwable ex) {
+			this.pending.completeExceptionally(ex);
+		}
+
+		@Cacheable(cacheNames = "testCache", sync = true)
+		public CompletableFuture<Long> completableFutureSync(Object arg1) {
+			return CompletableFuture.completedFuture(this.counter.getAndIncrement());
+		}
+
+		@Cacheable(cacheNames = "testCache", sync = true)
+		public CompletableFuture<Long> completableFutureSyncPending(Object arg1) {
+			this.invocations.incrementAndGet();
+			this.pending = new CompletableFuture<>();
+			return this.pending;
+		}
+
+		@Cacheable(cacheNames = "testCache", sync = true)
+		public Mono<Long> monoSyncPending(Object arg1) {
+			this.invocations.incrementAndGet();
+			this.pending = new CompletableFuture<>();
+			return Mono.fromFuture(this.pending);
+		}
+
+		@Cacheable("testCache")
+		public CompletionStage<Long> completionStage(Object arg1) {
+			this.pending = new CompletableFuture<>();
+			return this.pending;
+		}
+
+		@Cacheable(cacheNames = "testCache", sync = true)
+		public CompletionStage<Long> completionStageSync(Object arg1) {
+			return CompletableFuture.completedFuture(this.counter.getAndIncrement());
+		}
+
+		@Cacheable("testCache")
+		public Mono<Long> mono(Object arg1) {
+			return Mono.fromSupplier(this.counter::getAndIncrement);
+		}
+
+		@Cacheable(cacheNames = "testCache", sync = true)
+		public Mono<Long> monoSync(Object arg1) {
+			return Mono.fromSupplier(this.counter::getAndIncrement);
+		}
+
+		@Cacheable("testCache")
+		public Flux<Long> flux(Object arg1) {
+			return Flux.defer(() -> Flux.just(this.counter.getAndIncrement(), this.counter.getAndIncrement()));
+		}
+
+		@Cacheable(cacheNames = "testCache", sync = true)
+		public Flux<Long> fluxSync(Object arg1) {
+			return Flux.defer(() -> Flux.just(this.counter.getAndIncrement(), this.counter.getAndIncrement()));
+		}
+
+		@CachePut("testCache")
+		public Mono<Long> putMono(Object arg1) {
+			return Mono.fromSupplier(this.counter::getAndIncrement);
+		}
+	}
+
+
+	@Configuration
+	@EnableCaching
+	static class Config {
+
+		@Bean
+		public CacheManager cacheManager() {
+			return new ConcurrentMapCacheManager("testCache");
+		}
+
+		@Bean
+		public AsyncService asyncService() {
+			return new AsyncService();
+		}
+	}
+
+}
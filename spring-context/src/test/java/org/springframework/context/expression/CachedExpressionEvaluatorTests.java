@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.context.expression;
 
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -23,6 +24,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import org.junit.Test;
 
 import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpression;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.util.ReflectionUtils;
 
@@ -64,10 +66,76 @@ public class CachedExpressionEvaluatorTests {
 		assertEquals("Cached expression should be based on type", 2, expressionEvaluator.testCache.size());
 	}
 
+	@Test
+	public void compileExpressionAfterFirstEvaluation() throws Exception {
+		DefaultExpressionEvaluator evaluator = new DefaultExpressionEvaluator();
+		Method method = ReflectionUtils.findMethod(getClass(), "hello", String.class);
+		Object[] args = new Object[] {"world"};
+
+		Expression expression = evaluator.getTestExpression("#name.length() > 3", method, getClass());
+		assertFalse(isCompiled(expression));
+		assertEquals(true, evaluator.evaluate(expression, method, args));
+		assertTrue(isCompiled(expression));
+		assertEquals(false, evaluator.evaluate(expression, method, new Object[] {"you"}));
+
+		// A non-compilable expression keeps being interpreted
+		expression = evaluator.getTestExpression("#name matches 'w.*'", method, getClass());
+		assertEquals(true, evaluator.evaluate(expression, method, args));
+		assertFalse(isCompiled(expression));
+	}
+
+	@Test
+	public void compileNonCompilableExpressionEagerlyOnlyOnce() {
+		DefaultExpressionEvaluator evaluator = new DefaultExpressionEvaluator();
+		Method method = ReflectionUtils.findMethod(getClass(), "hello", String.class);
+		Object[] args = new Object[] {"world"};
+
+		SpelExpression expression = spy((SpelExpression)
+				evaluator.getTestExpression("#name matches 'w.*'", method, getClass()));
+		for (int i = 0; i < 3; i++) {
+			assertEquals(true, evaluator.evaluate(expression, method, args));
+		}
+		verify(expression, times(1)).compileExpression();
+	}
+
+	@Test
+	public void shareParameterBindings() {
+		DefaultExpressionEvaluator evaluator = new DefaultExpressionEvaluator();
+		Method method = ReflectionUtils.findMethod(getClass(), "hello", String.class);
+		assertSame(evaluator.getParameterBindings(method), evaluator.getParameterBindings(method));
+	}
+
+	private static boolean isCompiled(Expression expression) throws Exception {
+		Field field = SpelExpression.class.getDeclaredField("compiledAst");
+		field.setAccessible(true);
+		return (field.get(expression) != null);
+	}
+
 	private void hasParsedExpression(String expression) {
 		verify(expressionEvaluator.getParser(), times(1)).parseExpression(expression);
 	}
 
+	@SuppressWarnings("unused")
+	private String hello(String name) {
+		return "Hello " + name;
+	}
+
+
+	private static class DefaultExpressionEvaluator extends CachedExpressionEvaluator {
+
+		private final Map<ExpressionKey, Expression> testCache = new ConcurrentHashMap<>();
+
+		public Expression getTestExpression(String expression, Method method, Class<?> type) {
+			return getExpression(this.testCache, new AnnotatedElementKey(method, type), expression);
+		}
+
+		public Boolean evaluate(Expression expression, Method method, Object[] args) {
+			return getValue(expression, new MethodBasedEvaluationContext(
+					this, method, args, getParameterBindings(method)), Boolean.class);
+		}
+	}
+
+
 	private static class TestExpressionEvaluator extends CachedExpressionEvaluator {
 
 		private final Map<ExpressionKey, Expression> testCache = new ConcurrentHashMap<>();
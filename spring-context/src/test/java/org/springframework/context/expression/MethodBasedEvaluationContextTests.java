@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -125,6 +125,42 @@ public class MethodBasedEvaluationContextTests {
 		assertArrayEquals(new Object[] {"hello", "hi"}, (Object[]) context.lookupVariable("vararg"));
 	}
 
+	@Test
+	public void parameterBindings() {
+		Method method = ReflectionUtils.findMethod(SampleMethods.class, "hello", String.class, Boolean.class);
+		MethodParameterBindings bindings = MethodParameterBindings.forMethod(method, this.paramDiscover);
+		MethodBasedEvaluationContext context = new MethodBasedEvaluationContext(this, method,
+				new Object[] {"test", true}, bindings);
+
+		assertEquals("test", context.lookupVariable("a0"));
+		assertEquals("test", context.lookupVariable("p0"));
+		assertEquals("test", context.lookupVariable("foo"));
+		assertEquals(true, context.lookupVariable("a1"));
+		assertEquals(true, context.lookupVariable("p1"));
+		assertEquals(true, context.lookupVariable("flag"));
+		assertNull(context.lookupVariable("a2"));
+
+		context.setVariable("foo", "explicit");
+		assertEquals("explicit", context.lookupVariable("foo"));
+		assertEquals("test", context.lookupVariable("a0"));
+	}
+
+	@Test
+	public void parameterBindingsWithVarArgs() {
+		Method method = ReflectionUtils.findMethod(SampleMethods.class, "hello", Boolean.class, String[].class);
+		MethodParameterBindings bindings = MethodParameterBindings.forMethod(method, this.paramDiscover);
+
+		MethodBasedEvaluationContext context = new MethodBasedEvaluationContext(this, method,
+				new Object[] {null, "hello", "hi"}, bindings);
+		assertNull(context.lookupVariable("flag"));
+		assertArrayEquals(new Object[] {"hello", "hi"}, (Object[]) context.lookupVariable("a1"));
+		assertArrayEquals(new Object[] {"hello", "hi"}, (Object[]) context.lookupVariable("vararg"));
+
+		context = new MethodBasedEvaluationContext(this, method, new Object[] {true}, bindings);
+		assertEquals(true, context.lookupVariable("flag"));
+		assertNull(context.lookupVariable("vararg"));
+	}
+
 	private MethodBasedEvaluationContext createEvaluationContext(Method method, Object... args) {
 		return new MethodBasedEvaluationContext(this, method, args, this.paramDiscover);
 	}
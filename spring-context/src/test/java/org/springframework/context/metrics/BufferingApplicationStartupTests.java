@@ -0,0 +1,132 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.metrics;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.metrics.BufferingApplicationStartup.BufferedStartupStep;
+import org.springframework.core.metrics.StartupStep;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link BufferingApplicationStartup}.
+ */
+public class BufferingApplicationStartupTests {
+
+	private final BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(3);
+
+
+	@Test
+	public void nestedSteps() {
+		StartupStep outer = this.applicationStartup.start("test.outer");
+		StartupStep inner = this.applicationStartup.start("test.inner").tag("key", "value");
+		inner.end();
+		StartupStep sibling = this.applicationStartup.start("test.sibling");
+		sibling.end();
+		outer.end();
+		StartupStep next = this.applicationStartup.start("test.next");
+
+		assertEquals(Long.valueOf(outer.getId()), inner.getParentId());
+		assertEquals(Long.valueOf(outer.getId()), sibling.getParentId());
+		assertNull(outer.getParentId());
+		assertNull(next.getParentId());
+
+		List<BufferedStartupStep> steps = this.applicationStartup.getBufferedSteps();
+		assertEquals(3, steps.size());
+		assertSame(inner, steps.get(0));
+		assertSame(sibling, steps.get(1));
+		assertSame(outer, steps.get(2));
+		assertEquals(Thread.currentThread().getName(), steps.get(0).getThreadName());
+		assertTrue(steps.get(2).getDuration() >= steps.get(0).getDuration());
+		assertEquals("value", steps.get(0).getTags().iterator().next().getValue());
+	}
+
+	@Test
+	public void oldestStepsAreDropped() {
+		for (int i = 0; i < 5; i++) {
+			this.applicationStartup.start("test.step" + i).end();
+		}
+		List<BufferedStartupStep> steps = this.applicationStartup.getBufferedSteps();
+		assertEquals(3, steps.size());
+		assertEquals("test.step2", steps.get(0).getName());
+		assertEquals("test.step4", steps.get(2).getName());
+		assertEquals(2, this.applicationStartup.getDroppedStepCount());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void stepCannotBeTaggedOnceEnded() {
+		StartupStep step = this.applicationStartup.start("test.step");
+		step.end();
+		step.tag("key", "value");
+	}
+
+	@Test
+	public void toJson() {
+		StartupStep outer = this.applicationStartup.start("test.outer");
+		this.applicationStartup.start("test.inner").tag("key", "\"quoted\"\n").end();
+		outer.end();
+		BufferedStartupStep inner = this.applicationStartup.getBufferedSteps().get(0);
+
+		String json = this.applicationStartup.toJson();
+		assertTrue(json, json.startsWith("{\"droppedSteps\":0,\"steps\":[{\"id\":2,\"parentId\":1,\"name\":\"test.inner\""));
+		assertTrue(json, json.contains(",\"startTime\":" + inner.getStartTime() + ",\"endTime\":" + inner.getEndTime()));
+		assertTrue(json, json.contains("\"tags\":{\"key\":\"\\\"quoted\\\"\\u000a\"}}"));
+		assertTrue(json, json.endsWith("\"parentId\":null,\"name\":\"test.outer\",\"thread\":\"" +
+				Thread.currentThread().getName() + "\",\"startTime\":" + ((BufferedStartupStep) outer).getStartTime() +
+				",\"endTime\":" + ((BufferedStartupStep) outer).getEndTime() + ",\"tags\":{}}]}"));
+	}
+
+	@Test
+	public void contextRefreshSteps() {
+		BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(256);
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		context.setApplicationStartup(applicationStartup);
+		context.register(Config.class);
+		context.refresh();
+		context.close();
+
+		List<BufferedStartupStep> steps = applicationStartup.getBufferedSteps();
+		BufferedStartupStep refresh = steps.get(steps.size() - 1);
+		assertEquals("spring.context.refresh", refresh.getName());
+		assertTrue(steps.stream().anyMatch(step -> step.getName().equals("spring.context.config-classes.parse")));
+		assertTrue(steps.stream().anyMatch(step -> step.getName().equals("spring.context.bean-factory.post-process")));
+
+		assertTrue(steps.stream().anyMatch(step -> step.getName().equals("spring.beans.instantiate") &&
+				step.getTags().iterator().next().getValue().equals("testBean")));
+		assertTrue(steps.stream().anyMatch(step -> step.getName().equals("spring.beans.populate") &&
+				step.getTags().iterator().next().getValue().equals("testBean")));
+		assertTrue(steps.stream().anyMatch(step -> step.getName().equals("spring.beans.initialize") &&
+				step.getTags().iterator().next().getValue().equals("testBean")));
+	}
+
+
+	@Configuration
+	static class Config {
+
+		@Bean
+		public Object testBean() {
+			return new Object();
+		}
+	}
+
+}
@@ -0,0 +1,447 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.support;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.ChildBeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportAware;
+import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.stereotype.Component;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.tests.sample.beans.TestBean;
+import org.springframework.util.StopWatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link BeanDefinitionSnapshot}.
+ */
+public class BeanDefinitionSnapshotTests {
+
+	private File snapshotFile;
+
+
+	@Before
+	public void createSnapshotFile() throws IOException {
+		this.snapshotFile = File.createTempFile("beans", ".snapshot");
+		assertTrue(this.snapshotFile.delete());
+	}
+
+	@After
+	public void deleteSnapshotFile() {
+		this.snapshotFile.delete();
+	}
+
+
+	@Test
+	public void captureAndRestore() throws Exception {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		RootBeanDefinition root = new RootBeanDefinition(TestBean.class);
+		root.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		root.setLazyInit(true);
+		root.setPrimary(true);
+		root.setDependsOn("parent");
+		root.setInitMethodName("toString");
+		root.setRole(BeanDefinition.ROLE_SUPPORT);
+		root.getConstructorArgumentValues().addIndexedArgumentValue(0, "juergen");
+		root.getConstructorArgumentValues().addGenericArgumentValue(new TypedStringValue("42", "java.lang.Integer"));
+		root.getPropertyValues().add("spouse", new RuntimeBeanReference("parent"));
+		root.getPropertyValues().add("touchy", TimeUnit.SECONDS);
+		root.getPropertyValues().add("someObject", String.class);
+		root.setAttribute("flag", Boolean.TRUE);
+		root.setAttribute("order", 5);
+		bf.registerBeanDefinition("root", root);
+		GenericBeanDefinition parent = new GenericBeanDefinition();
+		parent.setBeanClass(TestBean.class);
+		parent.setAbstract(true);
+		parent.setFactoryBeanName("factory");
+		parent.setFactoryMethodName("create");
+		bf.registerBeanDefinition("parent", parent);
+		bf.registerBeanDefinition("child", new ChildBeanDefinition("parent"));
+		bf.registerAlias("root", "alias");
+
+		DefaultListableBeanFactory restored = new DefaultListableBeanFactory();
+		BeanDefinitionSnapshot snapshot = copy(BeanDefinitionSnapshot.capture(bf, "test"));
+		assertEquals("test", snapshot.getFingerprint());
+		assertEquals(3, snapshot.registerBeanDefinitions(restored, getClass().getClassLoader()));
+
+		assertArrayEquals(new String[] {"root", "parent", "child"}, restored.getBeanDefinitionNames());
+		assertEquals(root, restored.getBeanDefinition("root"));
+		assertEquals(parent, restored.getBeanDefinition("parent"));
+		assertEquals("parent", restored.getBeanDefinition("child").getParentName());
+		assertArrayEquals(new String[] {"alias"}, restored.getAliases("root"));
+	}
+
+	@Test
+	public void restoreReplacesExistingBeanDefinitions() {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		bf.registerBeanDefinition("bean", new RootBeanDefinition(TestBean.class));
+		BeanDefinitionSnapshot snapshot = BeanDefinitionSnapshot.capture(bf, "test");
+
+		DefaultListableBeanFactory restored = new DefaultListableBeanFactory();
+		restored.setAllowBeanDefinitionOverriding(false);
+		restored.registerBeanDefinition("bean", new RootBeanDefinition(Object.class));
+		snapshot.registerBeanDefinitions(restored, getClass().getClassLoader());
+		assertEquals(TestBean.class.getName(), restored.getBeanDefinition("bean").getBeanClassName());
+	}
+
+	@Test(expected = BeanDefinitionStoreException.class)
+	public void captureWithInstanceSupplier() {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		bf.registerBeanDefinition("bean", new RootBeanDefinition(TestBean.class, TestBean::new));
+		BeanDefinitionSnapshot.capture(bf, "test");
+	}
+
+	@Test(expected = BeanDefinitionStoreException.class)
+	public void captureWithInnerBean() {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.getPropertyValues().add("spouse", new RootBeanDefinition(TestBean.class));
+		bf.registerBeanDefinition("bean", bd);
+		BeanDefinitionSnapshot.capture(bf, "test");
+	}
+
+	@Test(expected = IOException.class)
+	public void readInvalidContent() throws IOException {
+		BeanDefinitionSnapshot.readFrom(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6}));
+	}
+
+	@Test
+	public void classpathHashIsStable() {
+		ClassLoader classLoader = getClass().getClassLoader();
+		assertEquals(BeanDefinitionSnapshot.computeClasspathHash(classLoader),
+				BeanDefinitionSnapshot.computeClasspathHash(classLoader));
+	}
+
+	@Test
+	public void contextWritesAndRestoresSnapshot() {
+		AnnotationConfigApplicationContext ctx = createContext(SnapshotConfig.class);
+		assertTrue(this.snapshotFile.isFile());
+		assertFalse(isRestored(ctx.getBeanDefinition("testBean")));
+		assertEquals(SnapshotConfig.class.getName(), ctx.getBean(ImportedConfig.class).importingClass);
+		ctx.close();
+
+		ctx = createContext(SnapshotConfig.class);
+		assertTrue(isRestored(ctx.getBeanDefinition("testBean")));
+		assertEquals("snapshot", ctx.getBean("testBean", TestBean.class).getName());
+		assertSame(ctx.getBean("testBean"), ctx.getBean(SnapshotConfig.class).testBean());
+		assertEquals(SnapshotConfig.class.getName(), ctx.getBean(ImportedConfig.class).importingClass);
+		assertNotNull(ctx.getBean(ImportedConfig.class).testBean);
+		ctx.close();
+	}
+
+	@Test
+	public void contextIgnoresOutdatedSnapshot() throws IOException {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		bf.registerBeanDefinition("testBean", new RootBeanDefinition(Object.class));
+		try (OutputStream out = new FileOutputStream(this.snapshotFile)) {
+			BeanDefinitionSnapshot.capture(bf, "outdated").writeTo(out);
+		}
+
+		AnnotationConfigApplicationContext ctx = createContext(SnapshotConfig.class);
+		assertEquals("snapshot", ctx.getBean("testBean", TestBean.class).getName());
+		ctx.close();
+
+		ctx = createContext(SnapshotConfig.class);
+		assertTrue(isRestored(ctx.getBeanDefinition("testBean")));
+		assertEquals("snapshot", ctx.getBean("testBean", TestBean.class).getName());
+		ctx.close();
+	}
+
+	@Test
+	public void contextIgnoresSnapshotForDifferentProperties() {
+		AnnotationConfigApplicationContext ctx = createContext(SnapshotConfig.class, "1");
+		assertTrue(this.snapshotFile.isFile());
+		ctx.close();
+
+		ctx = createContext(SnapshotConfig.class, "2");
+		assertFalse(isRestored(ctx.getBeanDefinition("testBean")));
+		ctx.close();
+
+		ctx = createContext(SnapshotConfig.class, "2");
+		assertTrue(isRestored(ctx.getBeanDefinition("testBean")));
+		ctx.close();
+	}
+
+	@Test
+	public void contextRestoresSnapshotForDifferentUnreadProperties() {
+		createContext(SnapshotConfig.class, "1").close();
+
+		AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext();
+		ctx.setBeanDefinitionSnapshotFile(this.snapshotFile);
+		ctx.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test",
+				Collections.singletonMap("snapshot.property", "1")));
+		ctx.getEnvironment().getPropertySources().addFirst(new MapPropertySource("unread",
+				Collections.singletonMap("unread.property", "any")));
+		ctx.register(SnapshotConfig.class);
+		ctx.refresh();
+		assertTrue(isRestored(ctx.getBeanDefinition("testBean")));
+		ctx.close();
+	}
+
+	@Test
+	public void contextRestoresAnnotatedBeanDefinitions() {
+		createContext(SnapshotConfig.class).close();
+
+		AnnotationConfigApplicationContext ctx = createContext(SnapshotConfig.class);
+		BeanDefinition testBean = ctx.getBeanDefinition("testBean");
+		assertTrue(isRestored(testBean));
+		assertTrue(testBean instanceof AnnotatedBeanDefinition);
+		AnnotatedBeanDefinition annotatedTestBean = (AnnotatedBeanDefinition) testBean;
+		assertEquals(SnapshotConfig.class.getName(), annotatedTestBean.getMetadata().getClassName());
+		MethodMetadata factoryMethodMetadata = annotatedTestBean.getFactoryMethodMetadata();
+		assertNotNull(factoryMethodMetadata);
+		assertEquals("testBean", factoryMethodMetadata.getMethodName());
+		assertTrue(isRestored(((RootBeanDefinition) testBean).cloneBeanDefinition()));
+		BeanDefinition config = ctx.getBeanDefinition("beanDefinitionSnapshotTests.SnapshotConfig");
+		assertTrue(config instanceof AnnotatedBeanDefinition);
+		assertTrue(((AnnotatedBeanDefinition) config).getMetadata().isAnnotated(Configuration.class.getName()));
+		ctx.close();
+	}
+
+	@Test
+	public void contextWithPropertySourceDoesNotWriteSnapshot() {
+		for (int i = 0; i < 2; i++) {
+			AnnotationConfigApplicationContext ctx = createContext(PropertySourceConfig.class);
+			assertFalse(this.snapshotFile.exists());
+			assertEquals("p1TestBean", ctx.getBean(PropertySourceConfig.class).name);
+			ctx.close();
+		}
+	}
+
+	@Test
+	public void contextRestoresImportsAlongWithParsedConfigurationClass() {
+		createContext(SnapshotConfig.class).close();
+
+		AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext();
+		ctx.setBeanDefinitionSnapshotFile(this.snapshotFile);
+		ctx.register(SnapshotConfig.class, AdditionalConfig.class);
+		ctx.refresh();
+		assertTrue(isRestored(ctx.getBeanDefinition("testBean")));
+		assertEquals(SnapshotConfig.class.getName(), ctx.getBean(ImportedConfig.class).importingClass);
+		assertEquals(AdditionalConfig.class.getName(), ctx.getBean(AdditionallyImportedConfig.class).importingClass);
+		ctx.close();
+	}
+
+	@Test
+	public void contextWithUnsupportedBeanDefinition() {
+		AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext();
+		ctx.setBeanDefinitionSnapshotFile(this.snapshotFile);
+		ctx.register(SnapshotConfig.class);
+		ctx.registerBean("supplied", TestBean.class, () -> new TestBean());
+		ctx.refresh();
+		assertFalse(this.snapshotFile.exists());
+		ctx.close();
+	}
+
+	@Test
+	public void restoreFromSnapshotPerformance() {
+		Assume.group(TestGroup.PERFORMANCE);
+		StopWatch sw = new StopWatch("Refreshing " + ManyBeansRegistrar.BEAN_COUNT + " beans");
+		createContext(ManyBeansConfig.class).close();
+		for (int i = 0; i < 5; i++) {
+			sw.start("regular");
+			AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext(ManyBeansConfig.class);
+			sw.stop();
+			ctx.close();
+			sw.start("snapshot");
+			ctx = createContext(ManyBeansConfig.class);
+			sw.stop();
+			ctx.close();
+		}
+		System.out.println(sw.prettyPrint());
+		long regular = 0;
+		long snapshot = 0;
+		for (StopWatch.TaskInfo task : sw.getTaskInfo()) {
+			if (task.getTaskName().equals("regular")) {
+				regular += task.getTimeMillis();
+			}
+			else {
+				snapshot += task.getTimeMillis();
+			}
+		}
+		// Loose bound: individual refreshes of a warming-up JVM vary considerably
+		assertTrue("Restoring from snapshot took " + snapshot + " ms vs " + regular + " ms",
+				snapshot < regular * 3 / 2);
+	}
+
+
+	private AnnotationConfigApplicationContext createContext(Class<?> configClass) {
+		AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext();
+		ctx.setBeanDefinitionSnapshotFile(this.snapshotFile);
+		ctx.register(configClass);
+		ctx.refresh();
+		return ctx;
+	}
+
+	private AnnotationConfigApplicationContext createContext(Class<?> configClass, String propertyValue) {
+		AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext();
+		ctx.setBeanDefinitionSnapshotFile(this.snapshotFile);
+		ctx.getEnvironment().getPropertySources().addFirst(
+				new MapPropertySource("test", Collections.singletonMap("snapshot.property", propertyValue)));
+		ctx.register(configClass);
+		ctx.refresh();
+		return ctx;
+	}
+
+	private static boolean isRestored(BeanDefinition beanDefinition) {
+		return (beanDefinition.getClass().getEnclosingClass() == BeanDefinitionSnapshot.class);
+	}
+
+	private static BeanDefinitionSnapshot copy(BeanDefinitionSnapshot snapshot) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		snapshot.writeTo(out);
+		return BeanDefinitionSnapshot.readFrom(new ByteArrayInputStream(out.toByteArray()));
+	}
+
+
+	@Configuration
+	@Import(ImportedConfig.class)
+	static class SnapshotConfig {
+
+		@Bean
+		public TestBean testBean() {
+			return new TestBean("snapshot");
+		}
+
+		@Bean
+		@Conditional(SnapshotPropertyCondition.class)
+		public TestBean conditionalTestBean() {
+			return new TestBean("conditional");
+		}
+	}
+
+
+	static class SnapshotPropertyCondition implements Condition {
+
+		@Override
+		public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+			return !"none".equals(context.getEnvironment().getProperty("snapshot.property"));
+		}
+	}
+
+
+	@Configuration
+	@PropertySource("classpath:org/springframework/context/annotation/p1.properties")
+	static class PropertySourceConfig {
+
+		@Value("${testbean.name}")
+		String name;
+	}
+
+
+	@Configuration
+	static class ImportedConfig implements ImportAware {
+
+		String importingClass;
+
+		@Autowired
+		TestBean testBean;
+
+		@Override
+		public void setImportMetadata(AnnotationMetadata importMetadata) {
+			this.importingClass = importMetadata.getClassName();
+		}
+	}
+
+
+	@Configuration
+	@Import(AdditionallyImportedConfig.class)
+	static class AdditionalConfig {
+	}
+
+
+	@Configuration
+	static class AdditionallyImportedConfig implements ImportAware {
+
+		String importingClass;
+
+		@Override
+		public void setImportMetadata(AnnotationMetadata importMetadata) {
+			this.importingClass = importMetadata.getClassName();
+		}
+	}
+
+
+	@Configuration
+	@Import(ManyBeansRegistrar.class)
+	static class ManyBeansConfig {
+	}
+
+
+	static class ManyBeansRegistrar implements ImportBeanDefinitionRegistrar {
+
+		static final int BEAN_COUNT = 2000;
+
+		@Override
+		public void registerBeanDefinitions(AnnotationMetadata importingClassMetadata, BeanDefinitionRegistry registry) {
+			for (int i = 0; i < BEAN_COUNT; i++) {
+				// Lazy, for the benchmark to focus on bean definition processing
+				RootBeanDefinition bd = new RootBeanDefinition(ManyBeansComponent.class);
+				bd.setLazyInit(true);
+				registry.registerBeanDefinition("component" + i, bd);
+			}
+		}
+	}
+
+
+	@Component
+	static class ManyBeansComponent {
+
+		@Bean
+		public static Object unused() {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.cglib.reflect.FastClass;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Invokes a specific method through a generated {@link FastClass} rather than
+ * through {@link Method#invoke}, i.e. through bytecode calling the method
+ * directly after casting the target and the arguments.
+ *
+ * <p>Mirrors the contract of {@link Method#invoke}: an argument or target of
+ * the wrong type results in an {@link IllegalArgumentException}, whereas an
+ * exception thrown by the method itself is wrapped in an
+ * {@link InvocationTargetException}.
+ *
+ * @since 5.1.13
+ * @see #forMethod(Method)
+ */
+public final class DirectMethodInvoker {
+
+	private static final Log logger = LogFactory.getLog(DirectMethodInvoker.class);
+
+
+	private final Method method;
+
+	private final Class<?>[] parameterTypes;
+
+	private final boolean isStatic;
+
+	private final FastClass fastClass;
+
+	private final int index;
+
+
+	private DirectMethodInvoker(Method method, FastClass fastClass, int index) {
+		this.method = method;
+		this.parameterTypes = method.getParameterTypes();
+		this.isStatic = Modifier.isStatic(method.getModifiers());
+		this.fastClass = fastClass;
+		this.index = index;
+	}
+
+
+	/**
+	 * Return the method that this invoker calls.
+	 */
+	public Method getMethod() {
+		return this.method;
+	}
+
+	/**
+	 * Invoke the method on the given target with the given arguments.
+	 * <p>The target and the arguments are not checked upfront: the casts in
+	 * the generated accessor fail for a mismatch, and only then the target and
+	 * the arguments are matched against the method declaration, in order to
+	 * tell a mismatch apart from an exception thrown by the method itself.
+	 * @param target the target instance (ignored for static methods)
+	 * @param args the arguments, matching the method's parameter types
+	 * @return the return value of the method, or {@code null} for {@code void}
+	 * @throws IllegalArgumentException if the target or the arguments do not
+	 * match the method declaration
+	 * @throws InvocationTargetException if the method itself threw an exception
+	 */
+	@Nullable
+	public Object invoke(@Nullable Object target, Object... args) throws InvocationTargetException {
+		if (args.length != this.parameterTypes.length) {
+			throw new IllegalArgumentException("Wrong number of arguments");
+		}
+		try {
+			return this.fastClass.invoke(this.index, target, args);
+		}
+		catch (ClassCastException | NullPointerException ex) {
+			// Thrown by the generated accessor itself, e.g. when casting the target
+			assertMatchingTargetAndArguments(target, args);
+			throw new IllegalArgumentException(ex.toString(), ex);
+		}
+		catch (InvocationTargetException ex) {
+			// Casts of the arguments happen within the wrapped block of the accessor
+			Throwable targetException = ex.getTargetException();
+			if (targetException instanceof ClassCastException || targetException instanceof NullPointerException) {
+				assertMatchingTargetAndArguments(target, args);
+			}
+			throw ex;
+		}
+	}
+
+	private void assertMatchingTargetAndArguments(@Nullable Object target, Object[] args) {
+		if (!this.isStatic && !this.method.getDeclaringClass().isInstance(target)) {
+			throw new IllegalArgumentException("Object is not an instance of declaring class");
+		}
+		for (int i = 0; i < args.length; i++) {
+			Class<?> parameterType = this.parameterTypes[i];
+			Object arg = args[i];
+			if (arg == null ? parameterType.isPrimitive() : !ClassUtils.isAssignableValue(parameterType, arg)) {
+				throw new IllegalArgumentException("Argument type mismatch");
+			}
+		}
+	}
+
+
+	/**
+	 * Generate an invoker for the given method, if possible.
+	 * <p>Private methods are not supported, and neither are methods whose
+	 * declaring class does not allow for generating an accessor class next
+	 * to it, in which case {@code null} is returned and callers are expected
+	 * to fall back to reflection.
+	 * @param method the method to generate an invoker for
+	 * @return the invoker, or {@code null} if none could be generated
+	 */
+	@Nullable
+	public static DirectMethodInvoker forMethod(Method method) {
+		if (Modifier.isPrivate(method.getModifiers())) {
+			return null;
+		}
+		Class<?> declaringClass = method.getDeclaringClass();
+		try {
+			FastClass fastClass = FastClass.create(declaringClass);
+			int index = fastClass.getIndex(method.getName(), method.getParameterTypes());
+			return (index >= 0 ? new DirectMethodInvoker(method, fastClass, index) : null);
+		}
+		catch (Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Falling back to reflective invocation of " + method.toGenericString() +
+						": " + ex);
+			}
+			return null;
+		}
+	}
+
+}
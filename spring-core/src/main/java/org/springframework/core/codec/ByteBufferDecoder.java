@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -53,8 +53,7 @@ public class ByteBufferDecoder extends AbstractDataBufferDecoder<ByteBuffer> {
 
 		int byteCount = dataBuffer.readableByteCount();
 		ByteBuffer copy = ByteBuffer.allocate(byteCount);
-		copy.put(dataBuffer.asByteBuffer());
-		copy.flip();
+		dataBuffer.read(copy.array());
 		DataBufferUtils.release(dataBuffer);
 		if (logger.isDebugEnabled()) {
 			logger.debug(Hints.getLogPrefix(hints) + "Read " + byteCount + " bytes");
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,7 @@
 
 package org.springframework.core.codec;
 
-import java.nio.CharBuffer;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -25,14 +25,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.function.Consumer;
 
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.CompositeDataBuffer;
 import org.springframework.core.io.buffer.DataBuffer;
-import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferFactory;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.core.io.buffer.LimitedDataBufferList;
@@ -60,8 +61,6 @@ import org.springframework.util.MimeTypeUtils;
  */
 public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 
-	private static final DataBuffer END_FRAME = new DefaultDataBufferFactory().wrap(new byte[0]);
-
 	/** The default charset to use, i.e. "UTF-8". */
 	public static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
 
@@ -73,7 +72,7 @@ public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 
 	private final boolean stripDelimiter;
 
-	private final ConcurrentMap<Charset, List<byte[]>> delimitersCache = new ConcurrentHashMap<>();
+	private final ConcurrentMap<Charset, Delimiters> delimitersCache = new ConcurrentHashMap<>();
 
 
 	private StringDecoder(List<String> delimiters, boolean stripDelimiter, MimeType... mimeTypes) {
@@ -93,121 +92,39 @@ public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 	public Flux<String> decode(Publisher<DataBuffer> input, ResolvableType elementType,
 			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
 
-		List<byte[]> delimiterBytes = getDelimiterBytes(mimeType);
-
-		// TODO: Drop Consumer and use bufferUntil with Supplier<LimistedDataBufferList> (reactor-core#1925)
-		// TODO: Drop doOnDiscard(LimitedDataBufferList.class, ...) (reactor-core#1924)
-		LimitedDataBufferConsumer limiter = new LimitedDataBufferConsumer(getMaxInMemorySize());
-
-		Flux<DataBuffer> inputFlux = Flux.from(input)
-				.flatMapIterable(buffer -> splitOnDelimiter(buffer, delimiterBytes))
-				.doOnNext(limiter)
-				.bufferUntil(buffer -> buffer == END_FRAME)
-				.map(StringDecoder::joinUntilEndFrame)
-				.doOnDiscard(LimitedDataBufferList.class, LimitedDataBufferList::releaseAndClear)
-				.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
-
-		return super.decode(inputFlux, elementType, mimeType, hints);
+		Delimiters delimiters = getDelimiters(mimeType);
+		return Flux.defer(() -> {
+			FrameSplitter splitter = new FrameSplitter(delimiters, this.stripDelimiter, getMaxInMemorySize());
+			Flux<DataBuffer> frames = Flux.from(input)
+					.concatMapIterable(splitter::split)
+					.concatWith(Mono.fromSupplier(splitter::remainder))
+					.doFinally(signalType -> splitter.release())
+					.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
+			return super.decode(frames, elementType, mimeType, hints);
+		});
 	}
 
-	private List<byte[]> getDelimiterBytes(@Nullable MimeType mimeType) {
+	private Delimiters getDelimiters(@Nullable MimeType mimeType) {
 		return this.delimitersCache.computeIfAbsent(getCharset(mimeType), charset -> {
-			List<byte[]> list = new ArrayList<>();
-			for (String delimiter : this.delimiters) {
-				byte[] bytes = delimiter.getBytes(charset);
-				list.add(bytes);
+			byte[][] bytes = new byte[this.delimiters.size()][];
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = this.delimiters.get(i).getBytes(charset);
 			}
-			return list;
+			return new Delimiters(bytes);
 		});
 	}
 
 	/**
-	 * Split the given data buffer on delimiter boundaries.
-	 * The returned Flux contains an {@link #END_FRAME} buffer after each delimiter.
-	 */
-	private List<DataBuffer> splitOnDelimiter(DataBuffer buffer, List<byte[]> delimiterBytes) {
-		List<DataBuffer> frames = new ArrayList<>();
-		try {
-			do {
-				int length = Integer.MAX_VALUE;
-				byte[] matchingDelimiter = null;
-				for (byte[] delimiter : delimiterBytes) {
-					int index = indexOf(buffer, delimiter);
-					if (index >= 0 && index < length) {
-						length = index;
-						matchingDelimiter = delimiter;
-					}
-				}
-				DataBuffer frame;
-				int readPosition = buffer.readPosition();
-				if (matchingDelimiter != null) {
-					frame = this.stripDelimiter ?
-							buffer.slice(readPosition, length) :
-							buffer.slice(readPosition, length + matchingDelimiter.length);
-					buffer.readPosition(readPosition + length + matchingDelimiter.length);
-					frames.add(DataBufferUtils.retain(frame));
-					frames.add(END_FRAME);
-				}
-				else {
-					frame = buffer.slice(readPosition, buffer.readableByteCount());
-					buffer.readPosition(readPosition + buffer.readableByteCount());
-					frames.add(DataBufferUtils.retain(frame));
-				}
-			}
-			while (buffer.readableByteCount() > 0);
-		}
-		catch (Throwable ex) {
-			for (DataBuffer frame : frames) {
-				DataBufferUtils.release(frame);
-			}
-			throw ex;
-		}
-		finally {
-			DataBufferUtils.release(buffer);
-		}
-		return frames;
-	}
-
-	/**
-	 * Find the given delimiter in the given data buffer.
-	 * @return the index of the delimiter, or -1 if not found.
-	 */
-	private static int indexOf(DataBuffer buffer, byte[] delimiter) {
-		for (int i = buffer.readPosition(); i < buffer.writePosition(); i++) {
-			int bufferPos = i;
-			int delimiterPos = 0;
-			while (delimiterPos < delimiter.length) {
-				if (buffer.getByte(bufferPos) != delimiter[delimiterPos]) {
-					break;
-				}
-				else {
-					bufferPos++;
-					boolean endOfBuffer = bufferPos == buffer.writePosition();
-					boolean endOfDelimiter = delimiterPos == delimiter.length - 1;
-					if (endOfBuffer && !endOfDelimiter) {
-						return -1;
-					}
-				}
-				delimiterPos++;
-			}
-			if (delimiterPos == delimiter.length) {
-				return i - buffer.readPosition();
-			}
-		}
-		return -1;
-	}
-
-	/**
-	 * Join the given list of buffers into a single buffer.
+	 * Join the given list of buffers into a single buffer, without copying
+	 * if they come from a {@link DefaultDataBufferFactory}.
 	 */
-	private static DataBuffer joinUntilEndFrame(List<DataBuffer> dataBuffers) {
-		if (!dataBuffers.isEmpty()) {
-			int lastIdx = dataBuffers.size() - 1;
-			if (dataBuffers.get(lastIdx) == END_FRAME) {
-				dataBuffers.remove(lastIdx);
-			}
+	private static DataBuffer join(List<DataBuffer> dataBuffers) {
+		if (dataBuffers.size() == 1) {
+			return dataBuffers.get(0);
 		}
-		return dataBuffers.get(0).factory().join(dataBuffers);
+		DataBufferFactory factory = dataBuffers.get(0).factory();
+		return (factory instanceof DefaultDataBufferFactory ?
+				((DefaultDataBufferFactory) factory).composite(dataBuffers) : factory.join(dataBuffers));
 	}
 
 	@Override
@@ -215,9 +132,8 @@ public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
 
 		Charset charset = getCharset(mimeType);
-		CharBuffer charBuffer = charset.decode(dataBuffer.asByteBuffer());
+		String value = dataBuffer.toString(charset);
 		DataBufferUtils.release(dataBuffer);
-		String value = charBuffer.toString();
 		LogFormatUtils.traceDebug(logger, traceOn -> {
 			String formatted = LogFormatUtils.formatValue(value, !traceOn);
 			return Hints.getLogPrefix(hints) + "Decoded " + formatted;
@@ -294,33 +210,204 @@ public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 
 
 	/**
-	 * Temporary measure for reactor-core#1925.
-	 * Consumer that adds to a {@link LimitedDataBufferList} to enforce limits.
+	 * The delimiters for a given charset, along with the KMP failure table
+	 * of each delimiter, and a lookup table of the bytes that a delimiter
+	 * can start with.
 	 */
-	private static class LimitedDataBufferConsumer implements Consumer<DataBuffer> {
+	private static class Delimiters {
+
+		final byte[][] delimiters;
 
-		private final LimitedDataBufferList bufferList;
+		final int[][] failureTables;
 
+		final boolean[] firstBytes = new boolean[256];
 
-		public LimitedDataBufferConsumer(int maxInMemorySize) {
-			this.bufferList = new LimitedDataBufferList(maxInMemorySize);
+		Delimiters(byte[][] delimiters) {
+			this.delimiters = delimiters;
+			this.failureTables = new int[delimiters.length][];
+			for (int i = 0; i < delimiters.length; i++) {
+				byte[] delimiter = delimiters[i];
+				Assert.isTrue(delimiter.length > 0, "Delimiters must not be empty");
+				this.failureTables[i] = failureTable(delimiter);
+				this.firstBytes[delimiter[0] & 0xFF] = true;
+			}
 		}
 
+		private static int[] failureTable(byte[] delimiter) {
+			int[] table = new int[delimiter.length];
+			int j = 0;
+			for (int i = 1; i < delimiter.length; i++) {
+				while (j > 0 && delimiter[i] != delimiter[j]) {
+					j = table[j - 1];
+				}
+				if (delimiter[i] == delimiter[j]) {
+					j++;
+				}
+				table[i] = j;
+			}
+			return table;
+		}
+	}
+
 
-		@Override
-		public void accept(DataBuffer buffer) {
-			if (buffer == END_FRAME) {
-				this.bufferList.clear();
+	/**
+	 * Splits the data buffers of one decode stream into frames. Delimiters
+	 * are matched incrementally, so a delimiter may span several buffers.
+	 * Bytes that do not start a delimiter are skipped with a table lookup
+	 * while no delimiter is partially matched. Frame content is sliced from
+	 * the input rather than copied: a frame that spans several buffers is
+	 * joined from the slices held back in between.
+	 */
+	private static class FrameSplitter {
+
+		private final Delimiters delimiters;
+
+		private final boolean stripDelimiter;
+
+		private final int[] matches;
+
+		private boolean matching;
+
+		private int matchedDelimiter;
+
+		private final LimitedDataBufferList pending;
+
+		FrameSplitter(Delimiters delimiters, boolean stripDelimiter, int maxInMemorySize) {
+			this.delimiters = delimiters;
+			this.stripDelimiter = stripDelimiter;
+			this.matches = new int[delimiters.delimiters.length];
+			this.pending = new LimitedDataBufferList(maxInMemorySize);
+		}
+
+		public List<DataBuffer> split(DataBuffer buffer) {
+			List<DataBuffer> frames = new ArrayList<>();
+			try {
+				ByteBuffer[] byteBuffers = (buffer instanceof CompositeDataBuffer ?
+						((CompositeDataBuffer) buffer).asByteBuffers() : new ByteBuffer[] {buffer.asByteBuffer()});
+				int frameStart = buffer.readPosition();
+				int offset = frameStart;
+				for (ByteBuffer byteBuffer : byteBuffers) {
+					int index = 0;
+					while ((index = match(byteBuffer, index)) != -1) {
+						frames.add(frame(buffer, frameStart, offset + index));
+						frameStart = offset + index;
+					}
+					offset += byteBuffer.remaining();
+				}
+				if (frameStart < buffer.writePosition() || buffer.readableByteCount() == 0) {
+					DataBuffer slice = buffer.slice(frameStart, buffer.writePosition() - frameStart);
+					this.pending.add(DataBufferUtils.retain(slice));
+				}
+			}
+			catch (Throwable ex) {
+				frames.forEach(DataBufferUtils::release);
+				release();
+				throw ex;
 			}
-			else {
-				try {
-					this.bufferList.add(buffer);
+			finally {
+				DataBufferUtils.release(buffer);
+			}
+			return frames;
+		}
+
+		/**
+		 * Scan the given buffer from the given index on.
+		 * @return the index after the end of the next delimiter, or -1
+		 */
+		private int match(ByteBuffer byteBuffer, int index) {
+			byte[][] delimiters = this.delimiters.delimiters;
+			int[][] failureTables = this.delimiters.failureTables;
+			boolean[] firstBytes = this.delimiters.firstBytes;
+			byte[] array = (byteBuffer.hasArray() ? byteBuffer.array() : null);
+			int arrayOffset = (array != null ? byteBuffer.arrayOffset() : 0);
+			int limit = byteBuffer.limit();
+			for (; index < limit; index++) {
+				if (!this.matching) {
+					if (array != null) {
+						while (index < limit && !firstBytes[array[arrayOffset + index] & 0xFF]) {
+							index++;
+						}
+					}
+					else {
+						while (index < limit && !firstBytes[byteBuffer.get(index) & 0xFF]) {
+							index++;
+						}
+					}
+					if (index == limit) {
+						return -1;
+					}
 				}
-				catch (DataBufferLimitException ex) {
-					DataBufferUtils.release(buffer);
-					throw ex;
+				byte b = (array != null ? array[arrayOffset + index] : byteBuffer.get(index));
+				int matched = -1;
+				boolean matching = false;
+				for (int i = 0; i < delimiters.length; i++) {
+					byte[] delimiter = delimiters[i];
+					int count = this.matches[i];
+					while (count > 0 && delimiter[count] != b) {
+						count = failureTables[i][count - 1];
+					}
+					if (delimiter[count] == b) {
+						count++;
+					}
+					if (count == delimiter.length) {
+						// Longest delimiter wins, e.g. "\r\n" over "\n"
+						if (matched == -1 || delimiter.length > delimiters[matched].length) {
+							matched = i;
+						}
+					}
+					else {
+						matching |= (count > 0);
+					}
+					this.matches[i] = count;
 				}
+				if (matched != -1) {
+					Arrays.fill(this.matches, 0);
+					this.matching = false;
+					this.matchedDelimiter = matched;
+					return index + 1;
+				}
+				this.matching = matching;
+			}
+			return -1;
+		}
+
+		/**
+		 * Complete the frame that ends with a delimiter at the given index.
+		 */
+		private DataBuffer frame(DataBuffer buffer, int frameStart, int delimiterEnd) {
+			int delimiterLength = this.delimiters.delimiters[this.matchedDelimiter].length;
+			int length = delimiterEnd - frameStart;
+			int strip = (this.stripDelimiter ? delimiterLength : 0);
+			// Part of the delimiter may still be held back from previous buffers
+			int carried = strip - length;
+			for (int i = this.pending.size() - 1; carried > 0 && i >= 0; i--) {
+				DataBuffer part = this.pending.get(i);
+				int trimmed = Math.min(carried, part.readableByteCount());
+				part.writePosition(part.writePosition() - trimmed);
+				carried -= trimmed;
+			}
+			int sliceLength = Math.max(0, length - strip);
+			if (sliceLength > 0 || this.pending.isEmpty()) {
+				this.pending.add(DataBufferUtils.retain(buffer.slice(frameStart, sliceLength)));
 			}
+			DataBuffer frame = join(this.pending);
+			this.pending.clear();
+			return frame;
+		}
+
+		@Nullable
+		public DataBuffer remainder() {
+			if (this.pending.isEmpty()) {
+				return null;
+			}
+			DataBuffer frame = join(this.pending);
+			this.pending.clear();
+			return frame;
+		}
+
+		public void release() {
+			this.pending.releaseAndClear();
 		}
 	}
+
 }
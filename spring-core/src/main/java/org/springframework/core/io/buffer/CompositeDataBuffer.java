@@ -0,0 +1,682 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.core.io.buffer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.IntPredicate;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * {@link DataBuffer} that exposes a sequence of underlying {@link ByteBuffer}s
+ * as a single logical buffer, without copying their content. Used by
+ * {@link DataBufferUtils#join(org.reactivestreams.Publisher)} for buffers
+ * created by a {@link DefaultDataBufferFactory}, and constructed through
+ * {@link DefaultDataBufferFactory#composite(List)}.
+ *
+ * <p>Reading, {@linkplain #indexOf searching}, {@linkplain #slice slicing}
+ * and {@linkplain #asInputStream() streaming} work across component
+ * boundaries without flattening; consumers that can handle multiple byte
+ * buffers may obtain them through {@link #asByteBuffers()}. Only
+ * {@link #asByteBuffer(int, int)} over a range that spans more than one
+ * component has to copy, in which case the returned buffer does not share
+ * its data with this composite.
+ *
+ * <p>When the capacity is expanded, a new component is allocated from the
+ * factory and appended. The component buffers are
+ * {@linkplain DataBufferUtils#release(DataBuffer) released} once this
+ * composite is released; slices share the reference count of the composite
+ * they were created from.
+ *
+ * @since 5.1.13
+ * @see DefaultDataBufferFactory#composite(List)
+ */
+public class CompositeDataBuffer implements PooledDataBuffer {
+
+	private static final AtomicIntegerFieldUpdater<CompositeDataBuffer> REF_COUNT_UPDATER =
+			AtomicIntegerFieldUpdater.newUpdater(CompositeDataBuffer.class, "refCount");
+
+	private static final ByteBuffer[] EMPTY_BUFFERS = new ByteBuffer[0];
+
+
+	private final DefaultDataBufferFactory dataBufferFactory;
+
+	@Nullable
+	private final CompositeDataBuffer parent;
+
+	private final List<DataBuffer> components;
+
+	private ByteBuffer[] buffers;
+
+	private int[] offsets;
+
+	private int count;
+
+	private int lastComponent;
+
+	private int readPosition;
+
+	private int writePosition;
+
+	private volatile int refCount = 1;
+
+
+	CompositeDataBuffer(DefaultDataBufferFactory dataBufferFactory, List<? extends DataBuffer> dataBuffers) {
+		Assert.notNull(dataBufferFactory, "DefaultDataBufferFactory must not be null");
+		Assert.notNull(dataBuffers, "DataBuffer List must not be null");
+		this.dataBufferFactory = dataBufferFactory;
+		this.parent = null;
+		this.components = new ArrayList<>(dataBuffers);
+		List<ByteBuffer> views = new ArrayList<>(dataBuffers.size());
+		for (DataBuffer dataBuffer : dataBuffers) {
+			if (dataBuffer instanceof CompositeDataBuffer) {
+				Collections.addAll(views, ((CompositeDataBuffer) dataBuffer).asByteBuffers());
+			}
+			else if (dataBuffer.readableByteCount() > 0) {
+				views.add(dataBuffer.asByteBuffer().slice());
+			}
+		}
+		setBuffers(views.toArray(EMPTY_BUFFERS));
+		this.writePosition = capacity();
+	}
+
+	private CompositeDataBuffer(CompositeDataBuffer parent, ByteBuffer[] buffers) {
+		this.dataBufferFactory = parent.dataBufferFactory;
+		this.parent = (parent.parent != null ? parent.parent : parent);
+		this.components = Collections.emptyList();
+		setBuffers(buffers);
+		this.writePosition = capacity();
+	}
+
+	private void setBuffers(ByteBuffer[] buffers) {
+		this.buffers = buffers;
+		this.offsets = new int[buffers.length + 1];
+		for (int i = 0; i < buffers.length; i++) {
+			this.offsets[i + 1] = this.offsets[i] + buffers[i].remaining();
+		}
+		this.count = buffers.length;
+		this.lastComponent = 0;
+	}
+
+
+	/**
+	 * Expose the readable bytes of this buffer as a sequence of
+	 * {@link ByteBuffer}s, one per underlying component, in order. Data between
+	 * this {@code DataBuffer} and the returned buffers is shared; though changes
+	 * in their {@linkplain ByteBuffer#position() position} will not be reflected
+	 * in the reading nor writing position of this data buffer.
+	 * @return the readable components of this buffer, possibly empty
+	 */
+	public ByteBuffer[] asByteBuffers() {
+		return views(this.readPosition, readableByteCount());
+	}
+
+	@Override
+	public DefaultDataBufferFactory factory() {
+		return this.dataBufferFactory;
+	}
+
+	@Override
+	public boolean isAllocated() {
+		return (this.parent != null ? this.parent.isAllocated() : this.refCount > 0);
+	}
+
+	@Override
+	public PooledDataBuffer retain() {
+		if (this.parent != null) {
+			this.parent.retain();
+			return this;
+		}
+		while (true) {
+			int refCount = this.refCount;
+			if (refCount <= 0) {
+				throw new IllegalStateException("Cannot retain a released buffer");
+			}
+			if (REF_COUNT_UPDATER.compareAndSet(this, refCount, refCount + 1)) {
+				return this;
+			}
+		}
+	}
+
+	@Override
+	public boolean release() {
+		if (this.parent != null) {
+			return this.parent.release();
+		}
+		while (true) {
+			int refCount = this.refCount;
+			if (refCount <= 0) {
+				throw new IllegalStateException("Buffer has already been released");
+			}
+			if (REF_COUNT_UPDATER.compareAndSet(this, refCount, refCount - 1)) {
+				if (refCount == 1) {
+					deallocate();
+					return true;
+				}
+				return false;
+			}
+		}
+	}
+
+	private void deallocate() {
+		setBuffers(EMPTY_BUFFERS);
+		this.readPosition = 0;
+		this.writePosition = 0;
+		for (DataBuffer component : this.components) {
+			DataBufferUtils.release(component);
+		}
+		this.components.clear();
+	}
+
+	@Override
+	public int indexOf(IntPredicate predicate, int fromIndex) {
+		Assert.notNull(predicate, "IntPredicate must not be null");
+		if (fromIndex < 0) {
+			fromIndex = 0;
+		}
+		else if (fromIndex >= this.writePosition) {
+			return -1;
+		}
+		int index = fromIndex;
+		for (int i = componentIndex(fromIndex); index < this.writePosition; i++) {
+			ByteBuffer buffer = this.buffers[i];
+			int start = this.offsets[i];
+			int end = Math.min(this.offsets[i + 1], this.writePosition);
+			if (buffer.hasArray()) {
+				byte[] array = buffer.array();
+				int base = buffer.arrayOffset() - start;
+				for (; index < end; index++) {
+					if (predicate.test(array[base + index])) {
+						return index;
+					}
+				}
+			}
+			else {
+				for (; index < end; index++) {
+					if (predicate.test(buffer.get(index - start))) {
+						return index;
+					}
+				}
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int lastIndexOf(IntPredicate predicate, int fromIndex) {
+		Assert.notNull(predicate, "IntPredicate must not be null");
+		int index = Math.min(fromIndex, this.writePosition - 1);
+		if (index < 0) {
+			return -1;
+		}
+		for (int i = componentIndex(index); index >= 0; i--) {
+			ByteBuffer buffer = this.buffers[i];
+			int start = this.offsets[i];
+			for (; index >= start; index--) {
+				if (predicate.test(buffer.get(index - start))) {
+					return index;
+				}
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int readableByteCount() {
+		return this.writePosition - this.readPosition;
+	}
+
+	@Override
+	public int writableByteCount() {
+		return capacity() - this.writePosition;
+	}
+
+	@Override
+	public int readPosition() {
+		return this.readPosition;
+	}
+
+	@Override
+	public CompositeDataBuffer readPosition(int readPosition) {
+		assertIndex(readPosition >= 0, "'readPosition' %d must be >= 0", readPosition);
+		assertIndex(readPosition <= this.writePosition, "'readPosition' %d must be <= %d",
+				readPosition, this.writePosition);
+		this.readPosition = readPosition;
+		return this;
+	}
+
+	@Override
+	public int writePosition() {
+		return this.writePosition;
+	}
+
+	@Override
+	public CompositeDataBuffer writePosition(int writePosition) {
+		assertIndex(writePosition >= this.readPosition, "'writePosition' %d must be >= %d",
+				writePosition, this.readPosition);
+		assertIndex(writePosition <= capacity(), "'writePosition' %d must be <= %d",
+				writePosition, capacity());
+		this.writePosition = writePosition;
+		return this;
+	}
+
+	@Override
+	public int capacity() {
+		return this.offsets[this.count];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>This implementation appends a newly allocated component when the
+	 * capacity is expanded, and drops trailing components when it is reduced.
+	 */
+	@Override
+	public CompositeDataBuffer capacity(int newCapacity) {
+		if (newCapacity <= 0) {
+			throw new IllegalArgumentException(String.format("'newCapacity' %d must be higher than 0", newCapacity));
+		}
+		if (this.parent != null) {
+			throw new UnsupportedOperationException("Changing the capacity of a sliced buffer is not supported");
+		}
+		int oldCapacity = capacity();
+		if (newCapacity > oldCapacity) {
+			int length = newCapacity - oldCapacity;
+			DataBuffer component = this.dataBufferFactory.allocateBuffer(length);
+			this.components.add(component);
+			addBuffer(component.asByteBuffer(0, length));
+		}
+		else if (newCapacity < oldCapacity) {
+			int last = componentIndex(newCapacity - 1);
+			ByteBuffer buffer = this.buffers[last].duplicate();
+			((Buffer) buffer).limit(newCapacity - this.offsets[last]);
+			this.buffers[last] = buffer.slice();
+			Arrays.fill(this.buffers, last + 1, this.count, null);
+			this.count = last + 1;
+			this.offsets[this.count] = newCapacity;
+			this.lastComponent = 0;
+			this.writePosition = Math.min(this.writePosition, newCapacity);
+			this.readPosition = Math.min(this.readPosition, newCapacity);
+		}
+		return this;
+	}
+
+	private void addBuffer(ByteBuffer buffer) {
+		if (this.count == this.buffers.length) {
+			int length = Math.max(4, this.count * 2);
+			this.buffers = Arrays.copyOf(this.buffers, length);
+			this.offsets = Arrays.copyOf(this.offsets, length + 1);
+		}
+		this.buffers[this.count] = buffer;
+		this.offsets[this.count + 1] = this.offsets[this.count] + buffer.remaining();
+		this.count++;
+	}
+
+	@Override
+	public CompositeDataBuffer ensureCapacity(int length) {
+		int missing = length - writableByteCount();
+		if (missing > 0) {
+			capacity(capacity() + Math.max(missing, DefaultDataBufferFactory.DEFAULT_INITIAL_CAPACITY));
+		}
+		return this;
+	}
+
+	@Override
+	public byte getByte(int index) {
+		assertIndex(index >= 0, "index %d must be >= 0", index);
+		assertIndex(index <= this.writePosition - 1, "index %d must be <= %d", index, this.writePosition - 1);
+		int i = componentIndex(index);
+		return this.buffers[i].get(index - this.offsets[i]);
+	}
+
+	@Override
+	public byte read() {
+		assertIndex(this.readPosition <= this.writePosition - 1, "readPosition %d must be <= %d",
+				this.readPosition, this.writePosition - 1);
+		int i = componentIndex(this.readPosition);
+		byte b = this.buffers[i].get(this.readPosition - this.offsets[i]);
+		this.readPosition++;
+		return b;
+	}
+
+	@Override
+	public CompositeDataBuffer read(byte[] destination) {
+		Assert.notNull(destination, "Byte array must not be null");
+		read(destination, 0, destination.length);
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer read(byte[] destination, int offset, int length) {
+		Assert.notNull(destination, "Byte array must not be null");
+		assertIndex(this.readPosition <= this.writePosition - length,
+				"readPosition %d and length %d should be smaller than writePosition %d",
+				this.readPosition, length, this.writePosition);
+
+		int index = this.readPosition;
+		int remaining = length;
+		for (int i = (remaining > 0 ? componentIndex(index) : 0); remaining > 0; i++) {
+			int position = index - this.offsets[i];
+			int chunk = Math.min(remaining, this.offsets[i + 1] - index);
+			ByteBuffer tmp = this.buffers[i].duplicate();
+			((Buffer) tmp).position(position);
+			tmp.get(destination, offset, chunk);
+			index += chunk;
+			offset += chunk;
+			remaining -= chunk;
+		}
+
+		this.readPosition += length;
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer write(byte b) {
+		ensureCapacity(1);
+		int i = componentIndex(this.writePosition);
+		this.buffers[i].put(this.writePosition - this.offsets[i], b);
+		this.writePosition++;
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer write(byte[] source) {
+		Assert.notNull(source, "Byte array must not be null");
+		write(source, 0, source.length);
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer write(byte[] source, int offset, int length) {
+		Assert.notNull(source, "Byte array must not be null");
+		write(ByteBuffer.wrap(source, offset, length));
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer write(DataBuffer... buffers) {
+		if (!ObjectUtils.isEmpty(buffers)) {
+			List<ByteBuffer> byteBuffers = new ArrayList<>(buffers.length);
+			for (DataBuffer buffer : buffers) {
+				if (buffer instanceof CompositeDataBuffer) {
+					Collections.addAll(byteBuffers, ((CompositeDataBuffer) buffer).asByteBuffers());
+				}
+				else {
+					byteBuffers.add(buffer.asByteBuffer());
+				}
+			}
+			write(byteBuffers.toArray(EMPTY_BUFFERS));
+		}
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer write(ByteBuffer... buffers) {
+		if (!ObjectUtils.isEmpty(buffers)) {
+			int capacity = Arrays.stream(buffers).mapToInt(ByteBuffer::remaining).sum();
+			ensureCapacity(capacity);
+			Arrays.stream(buffers).forEach(this::write);
+		}
+		return this;
+	}
+
+	private void write(ByteBuffer source) {
+		ensureCapacity(source.remaining());
+		for (int i = (source.hasRemaining() ? componentIndex(this.writePosition) : 0); source.hasRemaining(); i++) {
+			int position = this.writePosition - this.offsets[i];
+			int chunk = Math.min(source.remaining(), this.offsets[i + 1] - this.writePosition);
+			ByteBuffer tmp = this.buffers[i].duplicate();
+			((Buffer) tmp).position(position);
+			ByteBuffer src = source.duplicate();
+			((Buffer) src).limit(src.position() + chunk);
+			tmp.put(src);
+			((Buffer) source).position(source.position() + chunk);
+			this.writePosition += chunk;
+		}
+	}
+
+	@Override
+	public CompositeDataBuffer slice(int index, int length) {
+		checkIndex(index, length);
+		return new CompositeDataBuffer(this, views(index, length));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>If the readable bytes span more than one component, the returned
+	 * buffer is a copy. Use {@link #asByteBuffers()} to avoid that.
+	 */
+	@Override
+	public ByteBuffer asByteBuffer() {
+		return asByteBuffer(this.readPosition, readableByteCount());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>If the given range spans more than one component, the returned
+	 * buffer is a copy.
+	 */
+	@Override
+	public ByteBuffer asByteBuffer(int index, int length) {
+		checkIndex(index, length);
+		ByteBuffer[] views = views(index, length);
+		if (views.length == 1) {
+			return views[0];
+		}
+		ByteBuffer copy = ByteBuffer.allocate(length);
+		for (ByteBuffer view : views) {
+			copy.put(view);
+		}
+		((Buffer) copy).flip();
+		return copy;
+	}
+
+	@Override
+	public InputStream asInputStream() {
+		return new CompositeDataBufferInputStream();
+	}
+
+	@Override
+	public InputStream asInputStream(boolean releaseOnClose) {
+		InputStream inputStream = asInputStream();
+		if (!releaseOnClose) {
+			return inputStream;
+		}
+		return new FilterInputStream(inputStream) {
+			@Override
+			public void close() throws IOException {
+				super.close();
+				DataBufferUtils.release(CompositeDataBuffer.this);
+			}
+		};
+	}
+
+	@Override
+	public OutputStream asOutputStream() {
+		return new CompositeDataBufferOutputStream();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>This implementation decodes component by component, carrying
+	 * characters that are split across a component boundary over to the
+	 * next one.
+	 */
+	@Override
+	public String toString(int index, int length, Charset charset) {
+		Assert.notNull(charset, "Charset must not be null");
+		checkIndex(index, length);
+		ByteBuffer[] views = views(index, length);
+		if (views.length == 1) {
+			return DefaultDataBuffer.decode(views[0], charset);
+		}
+		CharsetDecoder decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		CharBuffer result = CharBuffer.allocate((int) Math.ceil(length * (double) decoder.maxCharsPerByte()));
+		ByteBuffer carry = ByteBuffer.allocate(16);
+		for (ByteBuffer view : views) {
+			while (carry.position() > 0 && view.hasRemaining()) {
+				carry.put(view.get());
+				((Buffer) carry).flip();
+				decoder.decode(carry, result, false);
+				carry.compact();
+			}
+			decoder.decode(view, result, false);
+			carry.put(view);
+		}
+		((Buffer) carry).flip();
+		decoder.decode(carry, result, true);
+		decoder.flush(result);
+		((Buffer) result).flip();
+		return result.toString();
+	}
+
+
+	/**
+	 * Return the index of the component that contains the given index.
+	 */
+	private int componentIndex(int index) {
+		int i = this.lastComponent;
+		if (i < this.count && index >= this.offsets[i] && index < this.offsets[i + 1]) {
+			return i;
+		}
+		int low = 0;
+		int high = this.count - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (index < this.offsets[mid]) {
+				high = mid - 1;
+			}
+			else if (index >= this.offsets[mid + 1]) {
+				low = mid + 1;
+			}
+			else {
+				this.lastComponent = mid;
+				return mid;
+			}
+		}
+		throw new IndexOutOfBoundsException(String.format("index %d must be < %d", index, capacity()));
+	}
+
+	/**
+	 * Return views on the components that hold the given range.
+	 */
+	private ByteBuffer[] views(int index, int length) {
+		if (length == 0) {
+			return EMPTY_BUFFERS;
+		}
+		int first = componentIndex(index);
+		int last = componentIndex(index + length - 1);
+		ByteBuffer[] views = new ByteBuffer[last - first + 1];
+		for (int i = first; i <= last; i++) {
+			int start = Math.max(index, this.offsets[i]) - this.offsets[i];
+			int end = Math.min(index + length, this.offsets[i + 1]) - this.offsets[i];
+			ByteBuffer view = this.buffers[i].duplicate();
+			((Buffer) view).position(start).limit(end);
+			views[i - first] = view.slice();
+		}
+		return views;
+	}
+
+
+	@Override
+	public String toString() {
+		return String.format("CompositeDataBuffer (r: %d, w: %d, c: %d, components: %d)",
+				this.readPosition, this.writePosition, capacity(), this.count);
+	}
+
+
+	private void checkIndex(int index, int length) {
+		assertIndex(index >= 0, "index %d must be >= 0", index);
+		assertIndex(length >= 0, "length %d must be >= 0", length);
+		assertIndex(index <= capacity() - length, "index %d and length %d must be <= %d",
+				index, length, capacity());
+	}
+
+	private void assertIndex(boolean expression, String format, Object... args) {
+		if (!expression) {
+			String message = String.format(format, args);
+			throw new IndexOutOfBoundsException(message);
+		}
+	}
+
+
+	private class CompositeDataBufferInputStream extends InputStream {
+
+		@Override
+		public int available() {
+			return readableByteCount();
+		}
+
+		@Override
+		public int read() {
+			return available() > 0 ? CompositeDataBuffer.this.read() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int off, int len) throws IOException {
+			int available = available();
+			if (available > 0) {
+				len = Math.min(len, available);
+				CompositeDataBuffer.this.read(bytes, off, len);
+				return len;
+			}
+			else {
+				return -1;
+			}
+		}
+
+		@Override
+		public long skip(long n) {
+			int skipped = (int) Math.max(0, Math.min(n, available()));
+			readPosition(readPosition() + skipped);
+			return skipped;
+		}
+	}
+
+
+	private class CompositeDataBufferOutputStream extends OutputStream {
+
+		@Override
+		public void write(int b) throws IOException {
+			CompositeDataBuffer.this.write((byte) b);
+		}
+
+		@Override
+		public void write(byte[] bytes, int off, int len) throws IOException {
+			CompositeDataBuffer.this.write(bytes, off, len);
+		}
+	}
+
+}
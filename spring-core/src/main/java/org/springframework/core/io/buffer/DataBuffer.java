@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -338,4 +338,30 @@ public interface DataBuffer {
 	 */
 	OutputStream asOutputStream();
 
+	/**
+	 * Return this buffer's readable data as a String, using the given charset.
+	 * The read position is left unchanged.
+	 * @param charset the character set to use
+	 * @return a string representation of the readable data
+	 * @since 5.1.13
+	 */
+	default String toString(Charset charset) {
+		Assert.notNull(charset, "Charset must not be null");
+		return toString(readPosition(), readableByteCount(), charset);
+	}
+
+	/**
+	 * Return a part of this buffer's data as a String, using the given charset.
+	 * The read position is left unchanged.
+	 * @param index the index at which to start the string
+	 * @param length the number of bytes to use for the string
+	 * @param charset the charset to use
+	 * @return a string representation of a part of this buffer's data
+	 * @since 5.1.13
+	 */
+	default String toString(int index, int length, Charset charset) {
+		Assert.notNull(charset, "Charset must not be null");
+		return charset.decode(asByteBuffer(index, length)).toString();
+	}
+
 }
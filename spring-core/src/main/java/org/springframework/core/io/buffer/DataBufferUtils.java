@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -28,6 +28,7 @@ import java.nio.channels.CompletionHandler;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -426,7 +427,8 @@ public abstract class DataBufferUtils {
 	 * {@code dataBuffers} elements. Depending on the {@link DataBuffer} type,
 	 * the returned buffer may be a single buffer containing all data of the
 	 * provided buffers, or it may be a zero-copy, composite with references to
-	 * the given buffers.
+	 * the given buffers. As of 5.1.13, buffers created by a
+	 * {@link DefaultDataBufferFactory} are joined into a {@link CompositeDataBuffer}.
 	 * <p>If {@code dataBuffers} produces an error or if there is a cancel
 	 * signal, then all accumulated buffers will be
 	 * {@linkplain #release(DataBuffer) released}.
@@ -464,11 +466,37 @@ public abstract class DataBufferUtils {
 		return Flux.from(buffers)
 				.collect(() -> new LimitedDataBufferList(maxByteCount), LimitedDataBufferList::add)
 				.filter(list -> !list.isEmpty())
-				.map(list -> list.get(0).factory().join(list))
+				.map(DataBufferUtils::join)
 				.doOnDiscard(LimitedDataBufferList.class, LimitedDataBufferList::releaseAndClear)
 				.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
 	}
 
+	private static DataBuffer join(List<DataBuffer> dataBuffers) {
+		if (dataBuffers.size() == 1) {
+			return dataBuffers.get(0);
+		}
+		DataBufferFactory factory = dataBuffers.get(0).factory();
+		boolean composable = (factory instanceof DefaultDataBufferFactory);
+		boolean sameFactory = true;
+		for (DataBuffer dataBuffer : dataBuffers) {
+			DataBufferFactory candidate = dataBuffer.factory();
+			composable = composable && candidate instanceof DefaultDataBufferFactory;
+			sameFactory = sameFactory && candidate == factory;
+		}
+		if (composable) {
+			return ((DefaultDataBufferFactory) factory).composite(dataBuffers);
+		}
+		if (sameFactory) {
+			return factory.join(dataBuffers);
+		}
+		// Buffers from different kinds of factories: copy into a single buffer
+		int capacity = dataBuffers.stream().mapToInt(DataBuffer::readableByteCount).sum();
+		DataBuffer result = factory.allocateBuffer(capacity);
+		dataBuffers.forEach(result::write);
+		dataBuffers.forEach(DataBufferUtils::release);
+		return result;
+	}
+
 
 	private static class ReadableByteChannelGenerator implements Consumer<SynchronousSink<DataBuffer>> {
 
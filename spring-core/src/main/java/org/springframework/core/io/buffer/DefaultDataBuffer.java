@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,6 +21,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.function.IntPredicate;
 
@@ -59,7 +60,7 @@ public class DefaultDataBuffer implements DataBuffer {
 	private int writePosition;
 
 
-	private DefaultDataBuffer(DefaultDataBufferFactory dataBufferFactory, ByteBuffer byteBuffer) {
+	DefaultDataBuffer(DefaultDataBufferFactory dataBufferFactory, ByteBuffer byteBuffer) {
 		Assert.notNull(dataBufferFactory, "DefaultDataBufferFactory must not be null");
 		Assert.notNull(byteBuffer, "ByteBuffer must not be null");
 		this.dataBufferFactory = dataBufferFactory;
@@ -87,7 +88,7 @@ public class DefaultDataBuffer implements DataBuffer {
 		return this.byteBuffer;
 	}
 
-	private void setNativeBuffer(ByteBuffer byteBuffer) {
+	void setNativeBuffer(ByteBuffer byteBuffer) {
 		this.byteBuffer = byteBuffer;
 		this.capacity = byteBuffer.remaining();
 	}
@@ -222,7 +223,11 @@ public class DefaultDataBuffer implements DataBuffer {
 		return this;
 	}
 
-	private static ByteBuffer allocate(int capacity, boolean direct) {
+	/**
+	 * Allocate the native buffer used when changing the {@linkplain #capacity(int)
+	 * capacity} of this buffer. Overridden by pooled variants.
+	 */
+	ByteBuffer allocate(int capacity, boolean direct) {
 		return (direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity));
 	}
 
@@ -360,6 +365,12 @@ public class DefaultDataBuffer implements DataBuffer {
 		return duplicate.slice();
 	}
 
+	@Override
+	public String toString(int index, int length, Charset charset) {
+		Assert.notNull(charset, "Charset must not be null");
+		return decode(asByteBuffer(index, length), charset);
+	}
+
 	@Override
 	public InputStream asInputStream() {
 		return new DefaultDataBufferInputStream();
@@ -376,6 +387,18 @@ public class DefaultDataBuffer implements DataBuffer {
 	}
 
 
+	/**
+	 * Decode the remaining bytes of the given buffer, reading straight from
+	 * its backing array if it has one.
+	 */
+	static String decode(ByteBuffer byteBuffer, Charset charset) {
+		if (byteBuffer.hasArray()) {
+			return new String(byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(),
+					byteBuffer.remaining(), charset);
+		}
+		return charset.decode(byteBuffer).toString();
+	}
+
 	/**
 	 * Calculate the capacity of the buffer.
 	 * @see io.netty.buffer.AbstractByteBufAllocator#calculateNewCapacity(int, int)
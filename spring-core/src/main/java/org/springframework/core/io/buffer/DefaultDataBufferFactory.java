@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -115,6 +115,22 @@ public class DefaultDataBufferFactory implements DataBufferFactory {
 		return result;
 	}
 
+	/**
+	 * Return a {@link CompositeDataBuffer} that exposes the given data buffers
+	 * as a single buffer without copying their content, as opposed to
+	 * {@link #join(List)}. As with {@code join}, the given data buffers do
+	 * <strong>not</strong> have to be released, as they are released as part
+	 * of the returned composite.
+	 * @param dataBuffers the data buffers to be composed
+	 * @return a composite buffer with references to the {@code dataBuffers}
+	 * @since 5.1.13
+	 * @see DataBufferUtils#join(org.reactivestreams.Publisher)
+	 */
+	public CompositeDataBuffer composite(List<? extends DataBuffer> dataBuffers) {
+		Assert.notEmpty(dataBuffers, "DataBuffer List must not be empty");
+		return new CompositeDataBuffer(this, dataBuffers);
+	}
+
 
 	@Override
 	public String toString() {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -286,6 +286,12 @@ public class NettyDataBuffer implements PooledDataBuffer {
 		return new ByteBufOutputStream(this.byteBuf);
 	}
 
+	@Override
+	public String toString(int index, int length, Charset charset) {
+		Assert.notNull(charset, "Charset must not be null");
+		return this.byteBuf.toString(index, length, charset);
+	}
+
 	@Override
 	public boolean isAllocated() {
 		return this.byteBuf.refCnt() > 0;
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * {@link DefaultDataBuffer} whose native buffer is obtained from, and
+ * returned to, the pool of a {@link PooledDefaultDataBufferFactory}.
+ * Constructed using {@link PooledDefaultDataBufferFactory#allocateBuffer(int)}.
+ *
+ * @since 5.1.13
+ * @see PooledDefaultDataBufferFactory
+ */
+public class PooledDefaultDataBuffer extends DefaultDataBuffer implements PooledDataBuffer {
+
+	private static final AtomicIntegerFieldUpdater<PooledDefaultDataBuffer> REF_COUNT_UPDATER =
+			AtomicIntegerFieldUpdater.newUpdater(PooledDefaultDataBuffer.class, "refCount");
+
+	private static final ByteBuffer RELEASED_BUFFER = ByteBuffer.allocate(0);
+
+
+	private final PooledDefaultDataBufferFactory dataBufferFactory;
+
+	@Nullable
+	private ByteBuffer chunk;
+
+	private volatile int refCount = 1;
+
+	private boolean sliced;
+
+
+	PooledDefaultDataBuffer(PooledDefaultDataBufferFactory dataBufferFactory, ByteBuffer chunk, int capacity) {
+		super(dataBufferFactory, limit(chunk, capacity));
+		this.dataBufferFactory = dataBufferFactory;
+		this.chunk = chunk;
+	}
+
+	private static ByteBuffer limit(ByteBuffer chunk, int capacity) {
+		((Buffer) chunk).clear().limit(capacity);
+		return chunk;
+	}
+
+
+	@Override
+	public PooledDefaultDataBufferFactory factory() {
+		return this.dataBufferFactory;
+	}
+
+	@Override
+	public boolean isAllocated() {
+		return (this.refCount > 0);
+	}
+
+	@Override
+	public PooledDefaultDataBuffer retain() {
+		while (true) {
+			int refCount = this.refCount;
+			if (refCount <= 0) {
+				throw new IllegalStateException("Cannot retain a released buffer");
+			}
+			if (REF_COUNT_UPDATER.compareAndSet(this, refCount, refCount + 1)) {
+				return this;
+			}
+		}
+	}
+
+	@Override
+	public boolean release() {
+		while (true) {
+			int refCount = this.refCount;
+			if (refCount <= 0) {
+				throw new IllegalStateException("Buffer has already been released");
+			}
+			if (REF_COUNT_UPDATER.compareAndSet(this, refCount, refCount - 1)) {
+				if (refCount == 1) {
+					deallocate();
+					return true;
+				}
+				return false;
+			}
+		}
+	}
+
+	private void deallocate() {
+		ByteBuffer chunk = this.chunk;
+		this.chunk = null;
+		setNativeBuffer(RELEASED_BUFFER);
+		this.dataBufferFactory.released(this);
+		if (chunk != null) {
+			this.dataBufferFactory.recycle(chunk);
+		}
+	}
+
+	@Override
+	public DefaultDataBuffer capacity(int newCapacity) {
+		ByteBuffer oldChunk = this.chunk;
+		super.capacity(newCapacity);
+		// Slices still point to the memory of the old chunk: leave it to the GC then
+		if (oldChunk != null && oldChunk != this.chunk && !this.sliced) {
+			this.dataBufferFactory.recycle(oldChunk);
+		}
+		return this;
+	}
+
+	@Override
+	ByteBuffer allocate(int capacity, boolean direct) {
+		if (!isAllocated()) {
+			throw new IllegalStateException("Buffer has already been released");
+		}
+		ByteBuffer chunk = this.dataBufferFactory.acquire(capacity);
+		this.chunk = chunk;
+		return limit(chunk, capacity).slice();
+	}
+
+	@Override
+	public DefaultDataBuffer slice(int index, int length) {
+		this.sliced = true;
+		return new SlicedPooledDataBuffer(this, asByteBuffer(index, length));
+	}
+
+	@Override
+	public InputStream asInputStream(boolean releaseOnClose) {
+		InputStream inputStream = asInputStream();
+		if (!releaseOnClose) {
+			return inputStream;
+		}
+		return new FilterInputStream(inputStream) {
+			@Override
+			public void close() throws IOException {
+				super.close();
+				DataBufferUtils.release(PooledDefaultDataBuffer.this);
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return String.format("PooledDefaultDataBuffer (r: %d, w: %d, c: %d, refCount: %d)",
+				readPosition(), writePosition(), capacity(), this.refCount);
+	}
+
+
+	/**
+	 * Slice of a {@link PooledDefaultDataBuffer}, sharing its reference count.
+	 */
+	private static class SlicedPooledDataBuffer extends DefaultDataBuffer implements PooledDataBuffer {
+
+		private final PooledDefaultDataBuffer parent;
+
+		SlicedPooledDataBuffer(PooledDefaultDataBuffer parent, ByteBuffer byteBuffer) {
+			super(parent.factory(), byteBuffer);
+			this.parent = parent;
+			writePosition(byteBuffer.remaining());
+		}
+
+		@Override
+		public boolean isAllocated() {
+			return this.parent.isAllocated();
+		}
+
+		@Override
+		public PooledDataBuffer retain() {
+			this.parent.retain();
+			return this;
+		}
+
+		@Override
+		public boolean release() {
+			return this.parent.release();
+		}
+
+		@Override
+		public DefaultDataBuffer capacity(int newCapacity) {
+			throw new UnsupportedOperationException("Changing the capacity of a sliced buffer is not supported");
+		}
+
+		@Override
+		public DefaultDataBuffer slice(int index, int length) {
+			return new SlicedPooledDataBuffer(this.parent, asByteBuffer(index, length));
+		}
+	}
+
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Extension of {@link DefaultDataBufferFactory} that recycles the native
+ * {@code ByteBuffer}s of released buffers, for non-Netty runtimes such as
+ * Servlet containers or Undertow where every allocation would otherwise create
+ * a new heap or direct buffer.
+ *
+ * <p>Requested capacities are rounded up to power-of-two size classes, from 64
+ * bytes up to the {@linkplain #getMaxPooledCapacity() maximum pooled capacity}.
+ * Each size class has a bounded arena shared by all threads. Larger requests
+ * are served by unpooled buffers. Buffers returned by {@link #allocateBuffer(int)} implement
+ * {@link PooledDataBuffer} and hand their memory back to the pool once their
+ * reference count drops to zero, typically through
+ * {@link DataBufferUtils#release(DataBuffer)}. A buffer that is never released
+ * is simply left to the garbage collector.
+ *
+ * <p>Note that recycled memory is not cleared, and that slices of a pooled
+ * buffer share its reference count.
+ *
+ * <p>The arenas may optionally be fronted by a per-thread cache for the eight
+ * size classes from 64 bytes up to 8 KB, avoiding contention on the arenas.
+ * This is disabled by default: with a thread cache size of {@code n}, each
+ * thread that allocates or releases buffers retains up to {@code n} buffers
+ * per size class, i.e. up to {@code n * 16} KB (128 KB for {@code n = 8}),
+ * per factory for as long as the thread lives, unless it calls
+ * {@link #clearThreadCache()}.
+ *
+ * <p>{@linkplain #setLeakDetection Leak detection} records the allocation site
+ * of every buffer so that unreleased buffers can be reported through
+ * {@link #checkForLeaks()}; it is intended for tests.
+ *
+ * @since 5.1.13
+ * @see PooledDefaultDataBuffer
+ */
+public class PooledDefaultDataBufferFactory extends DefaultDataBufferFactory {
+
+	/**
+	 * The default maximum capacity of a pooled buffer: 64 KB.
+	 */
+	public static final int DEFAULT_MAX_POOLED_CAPACITY = 64 * 1024;
+
+	/**
+	 * The default maximum number of bytes retained per size class: 1 MB.
+	 */
+	public static final int DEFAULT_MAX_BYTES_PER_SIZE_CLASS = 1024 * 1024;
+
+	/**
+	 * The default number of buffers cached per thread and size class: 0,
+	 * i.e. thread-local caching is disabled.
+	 */
+	public static final int DEFAULT_THREAD_CACHE_SIZE = 0;
+
+	private static final int MIN_SIZE_CLASS_SHIFT = 6;
+
+	private static final int MAX_THREAD_CACHED_CAPACITY = 8 * 1024;
+
+	private static final Log logger = LogFactory.getLog(PooledDefaultDataBufferFactory.class);
+
+
+	private final boolean preferDirect;
+
+	private final int maxPooledCapacity;
+
+	private final SizeClassArena[] arenas;
+
+	private final int threadCachedSizeClasses;
+
+	private final ThreadLocal<ThreadCache> threadCache;
+
+	private volatile boolean leakDetection;
+
+	private final Map<PooledDefaultDataBuffer, Throwable> allocationSites =
+			Collections.synchronizedMap(new IdentityHashMap<>());
+
+
+	/**
+	 * Create a new {@code PooledDefaultDataBufferFactory} for heap buffers,
+	 * with default pool settings.
+	 */
+	public PooledDefaultDataBufferFactory() {
+		this(false);
+	}
+
+	/**
+	 * Create a new {@code PooledDefaultDataBufferFactory} with default pool settings.
+	 * @param preferDirect {@code true} if direct buffers are to be preferred;
+	 * {@code false} otherwise
+	 */
+	public PooledDefaultDataBufferFactory(boolean preferDirect) {
+		this(preferDirect, DEFAULT_MAX_POOLED_CAPACITY, DEFAULT_MAX_BYTES_PER_SIZE_CLASS, DEFAULT_THREAD_CACHE_SIZE);
+	}
+
+	/**
+	 * Create a new {@code PooledDefaultDataBufferFactory}.
+	 * @param preferDirect {@code true} if direct buffers are to be preferred;
+	 * {@code false} otherwise
+	 * @param maxPooledCapacity the capacity above which buffers are not pooled,
+	 * rounded up to the next power of two
+	 * @param maxBytesPerSizeClass the maximum number of bytes retained by the
+	 * shared arena of each size class
+	 * @param threadCacheSize the number of buffers cached per thread and size
+	 * class, or 0 to disable thread-local caching; a cache size of {@code n}
+	 * retains up to {@code n * 16} KB per thread
+	 * @see #clearThreadCache()
+	 */
+	public PooledDefaultDataBufferFactory(boolean preferDirect, int maxPooledCapacity,
+			int maxBytesPerSizeClass, int threadCacheSize) {
+
+		super(preferDirect);
+		Assert.isTrue(maxPooledCapacity > 0, "'maxPooledCapacity' must be larger than 0");
+		Assert.isTrue(maxBytesPerSizeClass >= 0, "'maxBytesPerSizeClass' must not be negative");
+		Assert.isTrue(threadCacheSize >= 0, "'threadCacheSize' must not be negative");
+		this.preferDirect = preferDirect;
+		this.arenas = new SizeClassArena[sizeClass(maxPooledCapacity) + 1];
+		for (int i = 0; i < this.arenas.length; i++) {
+			int chunkSize = 1 << (i + MIN_SIZE_CLASS_SHIFT);
+			this.arenas[i] = new SizeClassArena(chunkSize, maxBytesPerSizeClass / chunkSize);
+		}
+		this.maxPooledCapacity = this.arenas[this.arenas.length - 1].chunkSize;
+		this.threadCachedSizeClasses = (threadCacheSize > 0 ?
+				Math.min(sizeClass(MAX_THREAD_CACHED_CAPACITY) + 1, this.arenas.length) : 0);
+		this.threadCache = ThreadLocal.withInitial(() -> new ThreadCache(this.threadCachedSizeClasses, threadCacheSize));
+	}
+
+
+	/**
+	 * Return the capacity above which buffers are not pooled.
+	 */
+	public int getMaxPooledCapacity() {
+		return this.maxPooledCapacity;
+	}
+
+	/**
+	 * Hand the buffers cached by the calling thread back to the shared arenas,
+	 * as far as these have room, e.g. before a pooled thread is returned or
+	 * terminates. Subsequent allocations on the calling thread start with an
+	 * empty cache again.
+	 * @see #PooledDefaultDataBufferFactory(boolean, int, int, int)
+	 */
+	public void clearThreadCache() {
+		if (this.threadCachedSizeClasses == 0) {
+			return;
+		}
+		ThreadCache cache = this.threadCache.get();
+		this.threadCache.remove();
+		for (int sizeClass = 0; sizeClass < this.threadCachedSizeClasses; sizeClass++) {
+			ByteBuffer chunk;
+			while ((chunk = cache.poll(sizeClass)) != null) {
+				this.arenas[sizeClass].chunks.offer(chunk);
+			}
+		}
+	}
+
+	/**
+	 * Whether to record the allocation site of every buffer allocated by this
+	 * factory, so that buffers which have not been released can be reported
+	 * by {@link #checkForLeaks()}.
+	 * <p>Default is "false". Intended for tests, since recording a stack trace
+	 * per allocation is expensive.
+	 */
+	public void setLeakDetection(boolean leakDetection) {
+		this.leakDetection = leakDetection;
+		if (!leakDetection) {
+			this.allocationSites.clear();
+		}
+	}
+
+	/**
+	 * Return whether leak detection is enabled.
+	 */
+	public boolean isLeakDetection() {
+		return this.leakDetection;
+	}
+
+	/**
+	 * Check whether all buffers allocated while {@linkplain #setLeakDetection
+	 * leak detection} was enabled have been released. The allocation site of
+	 * every unreleased buffer is logged.
+	 * @throws IllegalStateException if any buffer has not been released
+	 */
+	public void checkForLeaks() {
+		List<Throwable> leaks;
+		synchronized (this.allocationSites) {
+			leaks = new ArrayList<>(this.allocationSites.values());
+		}
+		if (!leaks.isEmpty()) {
+			leaks.forEach(site -> logger.error("DataBuffer leak", site));
+			throw new IllegalStateException(leaks.size() + " buffer leaks detected (see logs)", leaks.get(0));
+		}
+	}
+
+
+	@Override
+	public PooledDefaultDataBuffer allocateBuffer() {
+		return (PooledDefaultDataBuffer) super.allocateBuffer();
+	}
+
+	@Override
+	public PooledDefaultDataBuffer allocateBuffer(int initialCapacity) {
+		ByteBuffer chunk = acquire(initialCapacity);
+		PooledDefaultDataBuffer dataBuffer = new PooledDefaultDataBuffer(this, chunk, initialCapacity);
+		if (this.leakDetection) {
+			this.allocationSites.put(dataBuffer, new Exception("Buffer allocated"));
+		}
+		return dataBuffer;
+	}
+
+	/**
+	 * Obtain a native buffer with at least the given capacity, from the thread
+	 * cache, from the arena of its size class, or newly allocated.
+	 */
+	ByteBuffer acquire(int capacity) {
+		if (capacity > this.maxPooledCapacity) {
+			return allocateChunk(capacity);
+		}
+		int sizeClass = sizeClass(capacity);
+		ByteBuffer chunk = null;
+		if (sizeClass < this.threadCachedSizeClasses) {
+			chunk = this.threadCache.get().poll(sizeClass);
+		}
+		if (chunk == null) {
+			chunk = this.arenas[sizeClass].chunks.poll();
+		}
+		if (chunk == null) {
+			chunk = allocateChunk(this.arenas[sizeClass].chunkSize);
+		}
+		return chunk;
+	}
+
+	/**
+	 * Return a native buffer obtained from {@link #acquire(int)} to the pool.
+	 */
+	void recycle(ByteBuffer chunk) {
+		int capacity = chunk.capacity();
+		if (capacity > this.maxPooledCapacity) {
+			return;
+		}
+		((Buffer) chunk).clear();
+		int sizeClass = sizeClass(capacity);
+		if (sizeClass < this.threadCachedSizeClasses && this.threadCache.get().offer(sizeClass, chunk)) {
+			return;
+		}
+		this.arenas[sizeClass].chunks.offer(chunk);
+	}
+
+	void released(PooledDefaultDataBuffer dataBuffer) {
+		if (this.leakDetection) {
+			this.allocationSites.remove(dataBuffer);
+		}
+	}
+
+	private ByteBuffer allocateChunk(int capacity) {
+		return (this.preferDirect ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity));
+	}
+
+	private static int sizeClass(int capacity) {
+		if (capacity <= (1 << MIN_SIZE_CLASS_SHIFT)) {
+			return 0;
+		}
+		return (32 - Integer.numberOfLeadingZeros(capacity - 1)) - MIN_SIZE_CLASS_SHIFT;
+	}
+
+
+	@Override
+	public String toString() {
+		return "PooledDefaultDataBufferFactory (preferDirect=" + this.preferDirect +
+				", maxPooledCapacity=" + this.maxPooledCapacity + ")";
+	}
+
+
+	/**
+	 * Bounded pool of native buffers of a single size class, shared by all threads.
+	 */
+	private static final class SizeClassArena {
+
+		final int chunkSize;
+
+		final ArrayBlockingQueue<ByteBuffer> chunks;
+
+		SizeClassArena(int chunkSize, int maxChunks) {
+			this.chunkSize = chunkSize;
+			this.chunks = new ArrayBlockingQueue<>(Math.max(maxChunks, 1));
+		}
+	}
+
+
+	/**
+	 * Per-thread stacks of native buffers for the smaller size classes,
+	 * avoiding contention on the shared arenas.
+	 */
+	private static final class ThreadCache {
+
+		private final ByteBuffer[][] stacks;
+
+		private final int[] sizes;
+
+		ThreadCache(int sizeClasses, int cacheSize) {
+			this.stacks = new ByteBuffer[sizeClasses][cacheSize];
+			this.sizes = new int[sizeClasses];
+		}
+
+		@Nullable
+		ByteBuffer poll(int sizeClass) {
+			int size = this.sizes[sizeClass];
+			if (size == 0) {
+				return null;
+			}
+			ByteBuffer[] stack = this.stacks[sizeClass];
+			ByteBuffer chunk = stack[--size];
+			stack[size] = null;
+			this.sizes[sizeClass] = size;
+			return chunk;
+		}
+
+		boolean offer(int sizeClass, ByteBuffer chunk) {
+			int size = this.sizes[sizeClass];
+			ByteBuffer[] stack = this.stacks[sizeClass];
+			if (size == stack.length) {
+				return false;
+			}
+			stack[size] = chunk;
+			this.sizes[sizeClass] = size + 1;
+			return true;
+		}
+	}
+
+}
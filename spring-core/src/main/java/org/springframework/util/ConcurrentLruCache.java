@@ -0,0 +1,286 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Simple LRU (Least Recently Used) cache, bounded by a specified cache limit.
+ *
+ * <p>This implementation is backed by a number of segments, each of them
+ * an access-ordered {@link LinkedHashMap} guarded by its own lock, with keys
+ * assigned to segments by their hash. Concurrent access to different keys
+ * therefore rarely contends, while each segment evicts its least recently
+ * used entry once its share of the overall cache limit is exceeded.
+ *
+ * <p>Values are created on demand through the {@code generator} function
+ * specified at construction time. The generator is invoked outside of any
+ * lock, so it may occasionally be called more than once for the same key
+ * under concurrent access; only the first value produced gets cached.
+ * A generator failure is propagated to the caller and not cached.
+ *
+ * <p>This cache is meant for caching values that are expensive to compute
+ * from a small, recurring set of keys, for example parsed representations
+ * of common header values. Neither {@code null} keys nor {@code null}
+ * values are supported.
+ *
+ * @since 5.1.13
+ * @param <K> the type of the key used for cache retrieval
+ * @param <V> the type of the cached values
+ * @see MimeTypeUtils#parseMimeType(String)
+ */
+public class ConcurrentLruCache<K, V> {
+
+	private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+	private static final int MAXIMUM_CONCURRENCY_LEVEL = 1 << 16;
+
+
+	private final int sizeLimit;
+
+	private final Function<K, V> generator;
+
+	private final Segment<K, V>[] segments;
+
+	private final int shift;
+
+
+	/**
+	 * Create a new cache instance with the given limit and generator function,
+	 * using a default concurrency level.
+	 * @param sizeLimit the maximum number of entries in the cache
+	 * (0 indicates no caching, always generating a new value)
+	 * @param generator a function to generate a new value for a given key
+	 */
+	public ConcurrentLruCache(int sizeLimit, Function<K, V> generator) {
+		this(sizeLimit, generator, DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * Create a new cache instance with the given limit, generator function
+	 * and concurrency level.
+	 * @param sizeLimit the maximum number of entries in the cache
+	 * (0 indicates no caching, always generating a new value)
+	 * @param generator a function to generate a new value for a given key
+	 * @param concurrencyLevel the expected number of threads that will
+	 * concurrently access the cache, determining the number of lock stripes
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentLruCache(int sizeLimit, Function<K, V> generator, int concurrencyLevel) {
+		Assert.isTrue(sizeLimit >= 0, "Cache size limit must not be negative");
+		Assert.notNull(generator, "Generator function must not be null");
+		Assert.isTrue(concurrencyLevel > 0, "Concurrency level must be positive");
+		this.sizeLimit = sizeLimit;
+		this.generator = generator;
+
+		// Never use more segments than entries, so that each segment holds at least one:
+		// rounding down to a power of two keeps every segment limit positive.
+		int segmentCount = Math.max(1, Math.min(Math.min(concurrencyLevel, MAXIMUM_CONCURRENCY_LEVEL), sizeLimit));
+		int shift = calculateShift(segmentCount);
+		int size = 1 << shift;
+		this.shift = 32 - shift;
+		this.segments = (Segment<K, V>[]) new Segment<?, ?>[size];
+		int segmentLimit = sizeLimit / size;
+		int remainder = sizeLimit % size;
+		for (int i = 0; i < size; i++) {
+			// Distribute the remainder so that the segment limits add up to the overall limit
+			this.segments[i] = new Segment<>(segmentLimit + (i < remainder ? 1 : 0));
+		}
+	}
+
+	private static int calculateShift(int segmentCount) {
+		int shift = 0;
+		while ((1 << (shift + 1)) <= segmentCount) {
+			shift++;
+		}
+		return shift;
+	}
+
+
+	/**
+	 * Retrieve an entry from the cache, potentially triggering generation
+	 * of the value.
+	 * @param key the key to retrieve the entry for
+	 * @return the cached or newly generated value
+	 */
+	public V get(K key) {
+		if (this.sizeLimit == 0) {
+			return this.generator.apply(key);
+		}
+		Segment<K, V> segment = getSegment(key);
+		V cached = segment.get(key);
+		if (cached != null) {
+			return cached;
+		}
+		V value = this.generator.apply(key);
+		Assert.state(value != null, "Generator function must not return null");
+		return segment.putIfAbsent(key, value);
+	}
+
+	/**
+	 * Determine whether the given key is present in this cache.
+	 * <p>In contrast to {@link #get(Object)}, this does not affect the
+	 * recency order of the cache entries.
+	 * @param key the key to check for
+	 * @return {@code true} if the key is present, {@code false} if there was no matching key
+	 */
+	public boolean contains(K key) {
+		return getSegment(key).contains(key);
+	}
+
+	/**
+	 * Immediately remove the given key and any associated value.
+	 * @param key the key to evict the entry for
+	 * @return {@code true} if the key was present before,
+	 * {@code false} if there was no matching key
+	 */
+	public boolean remove(K key) {
+		return getSegment(key).remove(key);
+	}
+
+	/**
+	 * Immediately remove all entries from this cache.
+	 */
+	public void clear() {
+		for (Segment<K, V> segment : this.segments) {
+			segment.clear();
+		}
+	}
+
+	/**
+	 * Return the current size of the cache.
+	 * @see #sizeLimit()
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment<K, V> segment : this.segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Return the maximum number of entries in the cache
+	 * (0 indicates no caching, always generating a new value).
+	 * @see #size()
+	 */
+	public int sizeLimit() {
+		return this.sizeLimit;
+	}
+
+	private Segment<K, V> getSegment(K key) {
+		Assert.notNull(key, "Key must not be null");
+		int hash = key.hashCode();
+		// Spread bits to regularize both segment and index locations,
+		// using variant of single-word Wang/Jenkins hash.
+		hash += (hash << 15) ^ 0xffffcd7d;
+		hash ^= (hash >>> 10);
+		hash += (hash << 3);
+		hash ^= (hash >>> 6);
+		hash += (hash << 2) + (hash << 14);
+		hash ^= (hash >>> 16);
+		return this.segments[this.shift == 32 ? 0 : hash >>> this.shift];
+	}
+
+
+	/**
+	 * A single lock stripe: an access-ordered {@link LinkedHashMap}
+	 * evicting its eldest entry once the segment limit is exceeded.
+	 */
+	@SuppressWarnings("serial")
+	private static final class Segment<K, V> extends ReentrantLock {
+
+		private final LinkedHashMap<K, V> entries;
+
+		Segment(int limit) {
+			this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+					return size() > limit;
+				}
+			};
+		}
+
+		@Nullable
+		V get(K key) {
+			lock();
+			try {
+				return this.entries.get(key);
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		V putIfAbsent(K key, V value) {
+			lock();
+			try {
+				V existing = this.entries.putIfAbsent(key, value);
+				return (existing != null ? existing : value);
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		boolean contains(K key) {
+			lock();
+			try {
+				return this.entries.containsKey(key);
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		boolean remove(K key) {
+			lock();
+			try {
+				return (this.entries.remove(key) != null);
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		void clear() {
+			lock();
+			try {
+				this.entries.clear();
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		int size() {
+			lock();
+			try {
+				return this.entries.size();
+			}
+			finally {
+				unlock();
+			}
+		}
+	}
+
+}
@@ -155,6 +155,9 @@ public abstract class MimeTypeUtils {
 	public static final String TEXT_XML_VALUE = "text/xml";
 
 
+	private static final ConcurrentLruCache<String, MimeType> cachedMimeTypes =
+			new ConcurrentLruCache<>(64, MimeTypeUtils::parseMimeTypeInternal);
+
 	@Nullable
 	private static volatile Random random;
 
@@ -174,6 +177,8 @@ public abstract class MimeTypeUtils {
 
 	/**
 	 * Parse the given String into a single {@code MimeType}.
+	 * <p>Recently parsed {@code MimeType} instances are cached for further retrieval,
+	 * except for multipart types which typically carry a unique boundary parameter.
 	 * @param mimeType the string to parse
 	 * @return the mime type
 	 * @throws InvalidMimeTypeException if the string cannot be parsed
@@ -182,7 +187,14 @@ public abstract class MimeTypeUtils {
 		if (!StringUtils.hasLength(mimeType)) {
 			throw new InvalidMimeTypeException(mimeType, "'mimeType' must not be empty");
 		}
+		// do not cache multipart mime types with random boundaries
+		if (mimeType.startsWith("multipart")) {
+			return parseMimeTypeInternal(mimeType);
+		}
+		return cachedMimeTypes.get(mimeType);
+	}
 
+	private static MimeType parseMimeTypeInternal(String mimeType) {
 		int index = mimeType.indexOf(';');
 		String fullType = (index >= 0 ? mimeType.substring(0, index) : mimeType).trim();
 		if (fullType.isEmpty()) {
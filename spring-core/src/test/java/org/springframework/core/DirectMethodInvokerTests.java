@@ -0,0 +1,142 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+
+import org.springframework.util.ReflectionUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link DirectMethodInvoker}.
+ */
+public class DirectMethodInvokerTests {
+
+	@Test
+	public void invoke() throws Exception {
+		DirectMethodInvoker invoker = getInvoker("concat", String.class, int.class);
+
+		assertEquals("a-1", invoker.invoke(new Handler(), "a", 1));
+		assertEquals("null-2", invoker.invoke(new Handler(), null, 2));
+	}
+
+	@Test
+	public void invokeStatic() throws Exception {
+		DirectMethodInvoker invoker = getInvoker("twice", int.class);
+
+		assertEquals(42, invoker.invoke(null, 21));
+	}
+
+	@Test
+	public void invokeVoid() throws Exception {
+		DirectMethodInvoker invoker = getInvoker("nothing");
+
+		assertNull(invoker.invoke(new Handler()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void wrongTarget() throws Exception {
+		getInvoker("concat", String.class, int.class).invoke("not a handler", "a", 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void wrongArgumentCount() throws Exception {
+		getInvoker("concat", String.class, int.class).invoke(new Handler(), "a");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void wrongArgumentType() throws Exception {
+		getInvoker("concat", String.class, int.class).invoke(new Handler(), "a", "b");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void nullForPrimitiveArgument() throws Exception {
+		getInvoker("concat", String.class, int.class).invoke(new Handler(), "a", null);
+	}
+
+	@Test
+	public void exceptionIsWrapped() throws Exception {
+		IllegalStateException expected = new IllegalStateException("error");
+		try {
+			getInvoker("fail", RuntimeException.class).invoke(new Handler(), expected);
+			fail("Expected exception");
+		}
+		catch (InvocationTargetException ex) {
+			assertSame(expected, ex.getTargetException());
+		}
+	}
+
+	@Test
+	public void classCastExceptionFromMethodIsWrapped() throws Exception {
+		ClassCastException expected = new ClassCastException("error");
+		try {
+			getInvoker("fail", RuntimeException.class).invoke(new Handler(), expected);
+			fail("Expected exception");
+		}
+		catch (InvocationTargetException ex) {
+			assertSame(expected, ex.getTargetException());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void nullTarget() throws Exception {
+		getInvoker("concat", String.class, int.class).invoke(null, "a", 1);
+	}
+
+	@Test
+	public void privateMethodNotSupported() {
+		Method method = ReflectionUtils.findMethod(Handler.class, "hidden");
+		assertNull(DirectMethodInvoker.forMethod(method));
+	}
+
+
+	private DirectMethodInvoker getInvoker(String name, Class<?>... paramTypes) {
+		Method method = ReflectionUtils.findMethod(Handler.class, name, paramTypes);
+		DirectMethodInvoker invoker = DirectMethodInvoker.forMethod(method);
+		assertNotNull(invoker);
+		assertEquals(method, invoker.getMethod());
+		return invoker;
+	}
+
+
+	@SuppressWarnings("unused")
+	public static class Handler {
+
+		public String concat(String s, int i) {
+			return s + "-" + i;
+		}
+
+		public static int twice(int i) {
+			return i * 2;
+		}
+
+		public void nothing() {
+		}
+
+		public void fail(RuntimeException ex) {
+			throw ex;
+		}
+
+		private void hidden() {
+		}
+	}
+
+}
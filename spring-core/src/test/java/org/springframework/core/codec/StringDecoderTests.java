@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -30,8 +30,12 @@ import reactor.test.StepVerifier;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
 import org.springframework.util.MimeType;
 import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StopWatch;
 
 import static java.nio.charset.StandardCharsets.*;
 import static org.junit.Assert.*;
@@ -168,6 +172,88 @@ public class StringDecoderTests extends AbstractDecoderTestCase<StringDecoder> {
 				.verify());
 	}
 
+	@Test
+	public void decodeDelimiterAcrossBuffers() {
+		Flux<DataBuffer> input = Flux.just(
+				stringBuffer("abc\r"),
+				stringBuffer("\ndef\r"),
+				stringBuffer("ghi\r"),
+				stringBuffer("\r\n"),
+				stringBuffer("jkl"));
+
+		testDecode(input, String.class, step -> step
+				.expectNext("abc")
+				.expectNext("def\rghi\r")
+				.expectNext("jkl")
+				.expectComplete()
+				.verify());
+	}
+
+	@Test
+	public void decodeCustomDelimiterAcrossBuffers() {
+		this.decoder = StringDecoder.allMimeTypes(Arrays.asList("--", "---|"), true);
+
+		Flux<DataBuffer> input = Flux.just(
+				stringBuffer("abc-"),
+				stringBuffer("-"),
+				stringBuffer("-|de-f--"),
+				stringBuffer("-"),
+				stringBuffer("|ghi"));
+
+		testDecode(input, String.class, step -> step
+				.expectNext("abc")
+				.expectNext("-|de-f")
+				.expectNext("-|ghi")
+				.expectComplete()
+				.verify());
+	}
+
+	@Test
+	public void decodeCustomDelimiterIncludeDelimiters() {
+		this.decoder = StringDecoder.allMimeTypes(Collections.singletonList("<|>"), false);
+
+		Flux<DataBuffer> input = Flux.just(
+				stringBuffer("a<"),
+				stringBuffer("|"),
+				stringBuffer("><<|>b<"),
+				stringBuffer("|c"));
+
+		testDecode(input, String.class, step -> step
+				.expectNext("a<|>")
+				.expectNext("<<|>")
+				.expectNext("b<|c")
+				.expectComplete()
+				.verify());
+	}
+
+	@Test
+	public void decodeNdjsonThroughput() {
+		Assume.group(TestGroup.PERFORMANCE);
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 200_000; i++) {
+			builder.append("{\"id\":").append(i).append(",\"name\":\"event-").append(i)
+					.append("\",\"tags\":[\"alpha\",\"beta\"],\"payload\":\"")
+					.append(String.join("", Collections.nCopies(i % 20, "xyz"))).append("\"}\n");
+		}
+		byte[] bytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+		DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+		StringDecoder decoder = StringDecoder.allMimeTypes();
+
+		StopWatch stopWatch = new StopWatch("NDJSON, " + bytes.length / 1024 / 1024 + " MB");
+		for (int chunkSize : new int[] {64, 1024, 8192, 65536}) {
+			for (int run = 0; run < 3; run++) {
+				Flux<DataBuffer> input = Flux.range(0, (bytes.length + chunkSize - 1) / chunkSize)
+						.map(i -> bufferFactory.wrap(
+								Arrays.copyOfRange(bytes, i * chunkSize, Math.min(bytes.length, (i + 1) * chunkSize))));
+				stopWatch.start("chunk size " + chunkSize + ", run " + run);
+				Long count = decoder.decode(input, TYPE, null, Collections.emptyMap()).count().block();
+				stopWatch.stop();
+				assertEquals(Long.valueOf(200_000), count);
+			}
+		}
+		System.out.println(stopWatch.prettyPrint());
+	}
+
 	@Test
 	public void decodeEmptyFlux() {
 		Flux<DataBuffer> input = Flux.empty();
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -60,11 +60,17 @@ public abstract class AbstractDataBufferAllocatingTestCase {
 				{new NettyDataBufferFactory(new PooledByteBufAllocator(true, 1, 1, 8192, 11, 0, 0, 0, true))},
 				{new NettyDataBufferFactory(new PooledByteBufAllocator(false, 1, 1, 8192, 11, 0, 0, 0, true))},
 				{new DefaultDataBufferFactory(true)},
-				{new DefaultDataBufferFactory(false)}
-
+				{new DefaultDataBufferFactory(false)},
+				{leakDetecting(new PooledDefaultDataBufferFactory(true))},
+				{leakDetecting(new PooledDefaultDataBufferFactory(false))}
 		};
 	}
 
+	private static PooledDefaultDataBufferFactory leakDetecting(PooledDefaultDataBufferFactory bufferFactory) {
+		bufferFactory.setLeakDetection(true);
+		return bufferFactory;
+	}
+
 	@Rule
 	public final Verifier leakDetector = new LeakDetector();
 
@@ -118,6 +124,26 @@ public abstract class AbstractDataBufferAllocatingTestCase {
 	}
 
 	private void verifyAllocations() {
+		if (this.bufferFactory instanceof PooledDefaultDataBufferFactory) {
+			Instant start = Instant.now();
+			while (true) {
+				try {
+					((PooledDefaultDataBufferFactory) this.bufferFactory).checkForLeaks();
+					return;
+				}
+				catch (IllegalStateException ex) {
+					if (Instant.now().isAfter(start.plus(Duration.ofSeconds(5)))) {
+						throw new AssertionError(ex.getMessage(), ex);
+					}
+				}
+				try {
+					Thread.sleep(50);
+				}
+				catch (InterruptedException ex) {
+					// ignore
+				}
+			}
+		}
 		if (this.bufferFactory instanceof NettyDataBufferFactory) {
 			ByteBufAllocator allocator = ((NettyDataBufferFactory) this.bufferFactory).getByteBufAllocator();
 			if (allocator instanceof PooledByteBufAllocator) {
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.core.io.buffer;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+
+import org.springframework.core.io.buffer.support.DataBufferTestUtils;
+import org.springframework.util.StreamUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link CompositeDataBuffer}.
+ *
+ * @since 5.1.13
+ */
+public class CompositeDataBufferTests {
+
+	private final PooledDefaultDataBufferFactory bufferFactory = new PooledDefaultDataBufferFactory();
+
+	{
+		this.bufferFactory.setLeakDetection(true);
+	}
+
+
+	@After
+	public void checkForLeaks() {
+		this.bufferFactory.checkForLeaks();
+	}
+
+
+	@Test
+	public void joinDoesNotCopy() {
+		DataBuffer foo = stringBuffer("foo");
+		DataBuffer bar = stringBuffer("bar");
+		DataBuffer joined = DataBufferUtils.join(Flux.just(foo, bar)).block();
+
+		assertTrue(joined instanceof CompositeDataBuffer);
+		CompositeDataBuffer composite = (CompositeDataBuffer) joined;
+		assertEquals(6, composite.capacity());
+		assertEquals(6, composite.readableByteCount());
+		assertEquals(2, composite.asByteBuffers().length);
+
+		foo.asByteBuffer().put(0, (byte) 'g');
+		assertEquals("goobar", composite.toString(StandardCharsets.UTF_8));
+		release(composite);
+	}
+
+	@Test
+	public void joinSingleBuffer() {
+		DataBuffer foo = stringBuffer("foo");
+		assertSame(foo, DataBufferUtils.join(Flux.just(foo)).block());
+		release(foo);
+	}
+
+	@Test
+	public void readAcrossComponents() {
+		CompositeDataBuffer composite = composite("ab", "", "cde", "f");
+		assertEquals('a', composite.read());
+		byte[] bytes = new byte[4];
+		composite.read(bytes);
+		assertArrayEquals("bcde".getBytes(StandardCharsets.UTF_8), bytes);
+		assertEquals('f', composite.getByte(5));
+		assertEquals(1, composite.readableByteCount());
+		release(composite);
+	}
+
+	@Test
+	public void indexOf() {
+		CompositeDataBuffer composite = composite("ab", "cd", "ec");
+		assertEquals(2, composite.indexOf(b -> b == 'c', 0));
+		assertEquals(5, composite.indexOf(b -> b == 'c', 3));
+		assertEquals(-1, composite.indexOf(b -> b == 'z', 0));
+		assertEquals(-1, composite.indexOf(b -> b == 'a', 6));
+		assertEquals(5, composite.lastIndexOf(b -> b == 'c', 10));
+		assertEquals(2, composite.lastIndexOf(b -> b == 'c', 4));
+		assertEquals(-1, composite.lastIndexOf(b -> b == 'e', 3));
+		release(composite);
+	}
+
+	@Test
+	public void slice() {
+		CompositeDataBuffer composite = composite("abc", "def", "ghi");
+		DataBuffer slice = composite.slice(2, 5);
+		assertEquals(5, slice.readableByteCount());
+		assertEquals("cdefg", DataBufferTestUtils.dumpString(slice, StandardCharsets.UTF_8));
+
+		composite.asByteBuffers()[1].put(0, (byte) 'D');
+		slice.readPosition(0);
+		assertEquals("cDefg", slice.toString(StandardCharsets.UTF_8));
+		assertEquals("efg", composite.slice(2, 5).slice(2, 3).toString(StandardCharsets.UTF_8));
+
+		DataBufferUtils.retain(slice);
+		assertFalse(DataBufferUtils.release(composite));
+		assertTrue(composite.isAllocated());
+		assertTrue(DataBufferUtils.release(slice));
+		assertFalse(composite.isAllocated());
+	}
+
+	@Test
+	public void asByteBuffer() {
+		CompositeDataBuffer composite = composite("abc", "def");
+		ByteBuffer within = composite.asByteBuffer(3, 2);
+		within.put(0, (byte) 'D');
+		assertEquals('D', composite.getByte(3));
+
+		composite.readPosition(1);
+		ByteBuffer spanning = composite.asByteBuffer();
+		assertEquals(5, spanning.remaining());
+		byte[] bytes = new byte[5];
+		spanning.get(bytes);
+		assertArrayEquals("bcDef".getBytes(StandardCharsets.UTF_8), bytes);
+		release(composite);
+	}
+
+	@Test
+	public void asInputStream() throws Exception {
+		CompositeDataBuffer composite = composite("abc", "def", "ghi");
+		InputStream inputStream = composite.asInputStream(true);
+		assertEquals('a', inputStream.read());
+		assertEquals(2, inputStream.skip(2));
+		assertEquals("defghi", StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8));
+		assertEquals(-1, inputStream.read());
+		inputStream.close();
+		assertFalse(composite.isAllocated());
+	}
+
+	@Test
+	public void writeExpandsCapacity() {
+		CompositeDataBuffer composite = composite("ab", "cd");
+		composite.readPosition(1);
+		composite.write("efg".getBytes(StandardCharsets.UTF_8));
+		composite.write((byte) 'h');
+		DataBuffer source = stringBuffer("ij").write((byte) 'k');
+		composite.write(source);
+		release(source);
+		assertTrue(composite.capacity() >= 11);
+		assertEquals("bcdefghijk", composite.toString(StandardCharsets.UTF_8));
+
+		composite.capacity(3);
+		assertEquals(3, composite.capacity());
+		assertEquals("bc", composite.toString(StandardCharsets.UTF_8));
+		release(composite);
+	}
+
+	@Test
+	public void toStringAcrossComponents() {
+		byte[] bytes = "aé€😀".getBytes(StandardCharsets.UTF_8);
+		CompositeDataBuffer composite = this.bufferFactory.composite(Arrays.asList(
+				bytesBuffer(Arrays.copyOfRange(bytes, 0, 2)),
+				bytesBuffer(Arrays.copyOfRange(bytes, 2, 4)),
+				bytesBuffer(Arrays.copyOfRange(bytes, 4, 6)),
+				bytesBuffer(Arrays.copyOfRange(bytes, 6, bytes.length))));
+		assertEquals("aé€😀", composite.toString(StandardCharsets.UTF_8));
+		assertEquals("€", composite.toString(3, 3, StandardCharsets.UTF_8));
+		release(composite);
+	}
+
+
+	private CompositeDataBuffer composite(String... values) {
+		return this.bufferFactory.composite(
+				Arrays.asList(Arrays.stream(values).map(this::stringBuffer).toArray(DataBuffer[]::new)));
+	}
+
+	private DataBuffer stringBuffer(String value) {
+		return bytesBuffer(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private DataBuffer bytesBuffer(byte[] bytes) {
+		DataBuffer buffer = this.bufferFactory.allocateBuffer(bytes.length);
+		buffer.write(bytes);
+		return buffer;
+	}
+
+	private static void release(DataBuffer buffer) {
+		assertTrue(DataBufferUtils.release(buffer));
+	}
+
+}
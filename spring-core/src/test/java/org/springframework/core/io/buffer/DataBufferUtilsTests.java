@@ -34,6 +34,7 @@ import java.time.Duration;
 import java.util.concurrent.CountDownLatch;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.UnpooledByteBufAllocator;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.stubbing.Answer;
@@ -49,6 +50,7 @@ import org.springframework.core.io.Resource;
 import org.springframework.core.io.buffer.support.DataBufferTestUtils;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.anyLong;
@@ -726,6 +728,25 @@ public class DataBufferUtilsTests extends AbstractDataBufferAllocatingTestCase {
 				.verifyComplete();
 	}
 
+	@Test
+	public void joinBuffersFromDifferentFactories() {
+		DataBufferFactory defaultFactory = new DefaultDataBufferFactory();
+		DataBufferFactory nettyFactory = new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT);
+		Flux<DataBuffer> flux = Flux.just(
+				defaultFactory.wrap("foo".getBytes(StandardCharsets.UTF_8)),
+				nettyFactory.wrap("bar".getBytes(StandardCharsets.UTF_8)),
+				defaultFactory.wrap("baz".getBytes(StandardCharsets.UTF_8)));
+		Mono<DataBuffer> result = DataBufferUtils.join(flux);
+
+		StepVerifier.create(result)
+				.consumeNextWith(buf -> {
+					assertFalse(buf instanceof CompositeDataBuffer);
+					assertEquals("foobarbaz", DataBufferTestUtils.dumpString(buf, StandardCharsets.UTF_8));
+					release(buf);
+				})
+				.verifyComplete();
+	}
+
 	@Test
 	public void joinWithLimit() {
 		DataBuffer foo = stringBuffer("foo");
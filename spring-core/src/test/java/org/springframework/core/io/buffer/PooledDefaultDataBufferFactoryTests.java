@@ -0,0 +1,237 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.io.InputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import org.springframework.core.io.buffer.support.DataBufferTestUtils;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.util.StopWatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link PooledDefaultDataBufferFactory}.
+ *
+ * @since 5.1.13
+ */
+public class PooledDefaultDataBufferFactoryTests {
+
+	private final PooledDefaultDataBufferFactory bufferFactory = new PooledDefaultDataBufferFactory();
+
+
+	@Test
+	public void recyclesReleasedBuffers() {
+		PooledDefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(100);
+		byte[] memory = buffer.getNativeBuffer().array();
+		assertEquals(100, buffer.capacity());
+		assertTrue(DataBufferUtils.release(buffer));
+		assertFalse(buffer.isAllocated());
+
+		PooledDefaultDataBuffer other = this.bufferFactory.allocateBuffer(128);
+		assertSame(memory, other.getNativeBuffer().array());
+		assertEquals(128, other.capacity());
+		assertEquals(0, other.readableByteCount());
+		other.release();
+	}
+
+	@Test
+	public void recyclesAcrossThreads() throws InterruptedException {
+		PooledDefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(20 * 1024);
+		byte[] memory = buffer.getNativeBuffer().array();
+		Thread thread = new Thread(buffer::release);
+		thread.start();
+		thread.join();
+
+		PooledDefaultDataBuffer other = this.bufferFactory.allocateBuffer(20 * 1024);
+		assertSame(memory, other.getNativeBuffer().array());
+		other.release();
+	}
+
+	@Test
+	public void clearThreadCache() throws InterruptedException {
+		PooledDefaultDataBufferFactory bufferFactory = new PooledDefaultDataBufferFactory(false,
+				PooledDefaultDataBufferFactory.DEFAULT_MAX_POOLED_CAPACITY,
+				PooledDefaultDataBufferFactory.DEFAULT_MAX_BYTES_PER_SIZE_CLASS, 8);
+		PooledDefaultDataBuffer buffer = bufferFactory.allocateBuffer(100);
+		byte[] memory = buffer.getNativeBuffer().array();
+		buffer.release();
+		assertNotSame(memory, allocateInOtherThread(bufferFactory, 100));
+
+		bufferFactory.clearThreadCache();
+		assertSame(memory, allocateInOtherThread(bufferFactory, 100));
+	}
+
+	@Test
+	public void doesNotPoolLargeBuffers() {
+		int capacity = this.bufferFactory.getMaxPooledCapacity() + 1;
+		PooledDefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(capacity);
+		byte[] memory = buffer.getNativeBuffer().array();
+		assertEquals(capacity, memory.length);
+		buffer.release();
+
+		PooledDefaultDataBuffer other = this.bufferFactory.allocateBuffer(capacity);
+		assertNotSame(memory, other.getNativeBuffer().array());
+		other.release();
+	}
+
+	@Test
+	public void wrapIsNotPooled() {
+		DataBuffer buffer = this.bufferFactory.wrap("foo".getBytes(StandardCharsets.UTF_8));
+		assertFalse(buffer instanceof PooledDataBuffer);
+		assertSame(this.bufferFactory, buffer.factory());
+	}
+
+	@Test
+	public void growsIntoPooledBuffer() {
+		PooledDefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(4);
+		buffer.write("foo bar".getBytes(StandardCharsets.UTF_8));
+		assertTrue(buffer.capacity() >= 7);
+		assertEquals("foo bar", DataBufferTestUtils.dumpString(buffer, StandardCharsets.UTF_8));
+		buffer.release();
+	}
+
+	@Test
+	public void sliceSharesReferenceCount() {
+		PooledDefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(8);
+		buffer.write("foo bar".getBytes(StandardCharsets.UTF_8));
+		DataBuffer slice = buffer.slice(4, 3);
+		assertEquals("bar", DataBufferTestUtils.dumpString(slice, StandardCharsets.UTF_8));
+
+		DataBufferUtils.retain(slice);
+		assertFalse(DataBufferUtils.release(buffer));
+		assertTrue(buffer.isAllocated());
+		assertTrue(DataBufferUtils.release(slice.slice(0, 1)));
+		assertFalse(buffer.isAllocated());
+		assertFalse(((PooledDataBuffer) slice).isAllocated());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void releasedBufferCannotGrow() {
+		PooledDefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(1);
+		buffer.release();
+		buffer.write("foo".getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void inputStreamReleasesOnClose() throws Exception {
+		PooledDefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(3);
+		buffer.write("foo".getBytes(StandardCharsets.UTF_8));
+		try (InputStream inputStream = buffer.asInputStream(true)) {
+			assertEquals('f', inputStream.read());
+		}
+		assertFalse(buffer.isAllocated());
+	}
+
+	@Test
+	public void leakDetection() {
+		this.bufferFactory.setLeakDetection(true);
+		this.bufferFactory.checkForLeaks();
+		DataBuffer buffer = this.bufferFactory.allocateBuffer();
+		DataBuffer joined = this.bufferFactory.join(
+				Arrays.asList(this.bufferFactory.allocateBuffer(1), this.bufferFactory.allocateBuffer(1)));
+		try {
+			this.bufferFactory.checkForLeaks();
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			assertTrue(ex.getMessage(), ex.getMessage().startsWith("2 buffer leaks"));
+		}
+		DataBufferUtils.release(buffer);
+		DataBufferUtils.release(joined);
+		this.bufferFactory.checkForLeaks();
+	}
+
+	@Test
+	public void allocationAndGarbageCollection() throws InterruptedException {
+		Assume.group(TestGroup.PERFORMANCE);
+
+		int threads = 4;
+		int iterations = 2_000_000;
+		DataBufferFactory[] bufferFactories = {
+				new DefaultDataBufferFactory(false), new PooledDefaultDataBufferFactory(false),
+				new DefaultDataBufferFactory(true), new PooledDefaultDataBufferFactory(true)};
+
+		StopWatch sw = new StopWatch(threads + " threads, " + iterations + " allocations of 8 KB");
+		StringBuilder gcReport = new StringBuilder();
+		allocate(new PooledDefaultDataBufferFactory(), threads, iterations / 10);
+		for (DataBufferFactory bufferFactory : bufferFactories) {
+			long gcCount = gcCount();
+			long gcTime = gcTime();
+			sw.start(bufferFactory.toString());
+			allocate(bufferFactory, threads, iterations);
+			sw.stop();
+			gcReport.append(bufferFactory).append(": ").append(gcCount() - gcCount).append(" collections, ")
+					.append(gcTime() - gcTime).append(" ms\n");
+		}
+		System.out.println(sw.prettyPrint());
+		System.out.println(gcReport);
+	}
+
+	private static byte[] allocateInOtherThread(PooledDefaultDataBufferFactory bufferFactory, int capacity)
+			throws InterruptedException {
+
+		AtomicReference<byte[]> memory = new AtomicReference<>();
+		Thread thread = new Thread(() -> {
+			PooledDefaultDataBuffer buffer = bufferFactory.allocateBuffer(capacity);
+			memory.set(buffer.getNativeBuffer().array());
+			buffer.release();
+		});
+		thread.start();
+		thread.join();
+		return memory.get();
+	}
+
+	private static void allocate(DataBufferFactory bufferFactory, int threads, int iterations)
+			throws InterruptedException {
+
+		byte[] chunk = new byte[8192];
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			workers[t] = new Thread(() -> {
+				for (int i = 0; i < iterations / threads; i++) {
+					DataBuffer buffer = bufferFactory.allocateBuffer(chunk.length);
+					buffer.write(chunk);
+					DataBufferUtils.release(buffer);
+				}
+			});
+			workers[t].start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+	}
+
+	private static long gcCount() {
+		return ManagementFactory.getGarbageCollectorMXBeans().stream()
+				.mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+	}
+
+	private static long gcTime() {
+		return ManagementFactory.getGarbageCollectorMXBeans().stream()
+				.mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+	}
+
+}
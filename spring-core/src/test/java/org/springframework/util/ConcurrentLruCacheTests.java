@@ -0,0 +1,183 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link ConcurrentLruCache}.
+ */
+public class ConcurrentLruCacheTests {
+
+	private final AtomicInteger generatorCalls = new AtomicInteger();
+
+	private final ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<>(2, key -> {
+		this.generatorCalls.incrementAndGet();
+		return key + "value";
+	}, 1);
+
+
+	@Test
+	public void getAndSize() {
+		assertEquals(2, this.cache.sizeLimit());
+		assertEquals(0, this.cache.size());
+		assertEquals("k1value", this.cache.get("k1"));
+		assertEquals(1, this.cache.size());
+		assertTrue(this.cache.contains("k1"));
+		assertEquals("k2value", this.cache.get("k2"));
+		assertEquals(2, this.cache.size());
+		assertTrue(this.cache.contains("k1"));
+		assertTrue(this.cache.contains("k2"));
+		assertEquals("k3value", this.cache.get("k3"));
+		assertEquals(2, this.cache.size());
+		assertFalse(this.cache.contains("k1"));
+		assertTrue(this.cache.contains("k2"));
+		assertTrue(this.cache.contains("k3"));
+	}
+
+	@Test
+	public void getAndReorderEviction() {
+		assertEquals("k1value", this.cache.get("k1"));
+		assertEquals("k2value", this.cache.get("k2"));
+		assertEquals("k1value", this.cache.get("k1"));
+		assertEquals("k3value", this.cache.get("k3"));
+		assertTrue(this.cache.contains("k1"));
+		assertFalse(this.cache.contains("k2"));
+		assertTrue(this.cache.contains("k3"));
+		assertEquals(3, this.generatorCalls.get());
+	}
+
+	@Test
+	public void removeAndClear() {
+		this.cache.get("k1");
+		this.cache.get("k2");
+		assertTrue(this.cache.remove("k1"));
+		assertFalse(this.cache.remove("k1"));
+		assertFalse(this.cache.contains("k1"));
+		assertEquals(1, this.cache.size());
+		this.cache.clear();
+		assertEquals(0, this.cache.size());
+		assertFalse(this.cache.contains("k2"));
+	}
+
+	@Test
+	public void zeroSizeLimitAlwaysGenerates() {
+		ConcurrentLruCache<String, String> nonCaching = new ConcurrentLruCache<>(0, key -> {
+			this.generatorCalls.incrementAndGet();
+			return key;
+		});
+		nonCaching.get("k1");
+		nonCaching.get("k1");
+		assertEquals(0, nonCaching.size());
+		assertEquals(2, this.generatorCalls.get());
+	}
+
+	@Test
+	public void sizeLimitAcrossSegments() {
+		ConcurrentLruCache<Integer, String> striped = new ConcurrentLruCache<>(100, String::valueOf, 8);
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(String.valueOf(i), striped.get(i));
+		}
+		assertTrue(striped.size() <= 100);
+		assertTrue(striped.contains(999));
+	}
+
+	@Test
+	public void generatorFailureIsNotCached() {
+		ConcurrentLruCache<String, String> failing = new ConcurrentLruCache<>(2, key -> {
+			if (this.generatorCalls.incrementAndGet() == 1) {
+				throw new IllegalStateException("first call fails");
+			}
+			return key;
+		});
+		try {
+			failing.get("k1");
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			// expected
+		}
+		assertFalse(failing.contains("k1"));
+		assertEquals("k1", failing.get("k1"));
+		assertTrue(failing.contains("k1"));
+	}
+
+	@Test
+	public void cachedMimeTypeParsingIsFasterUnderConcurrency() throws Exception {
+		Assume.group(TestGroup.PERFORMANCE);
+
+		String[] hotValues = new String[] {"application/json", "text/html;charset=UTF-8",
+				"application/xml;q=0.9", "*/*;q=0.8", "text/plain", "application/stream+json"};
+		String[] coldValues = new String[10000];
+		for (int i = 0; i < coldValues.length; i++) {
+			coldValues[i] = "application/vnd.test-" + i + "+json;charset=UTF-8;q=0.5";
+		}
+
+		// Warm up both paths before measuring
+		parseConcurrently(hotValues, 8, 10000);
+		parseConcurrently(coldValues, 8, 10000);
+
+		StopWatch sw = new StopWatch();
+		sw.start("cached");
+		parseConcurrently(hotValues, 8, 200000);
+		sw.stop();
+		sw.start("uncached");
+		parseConcurrently(coldValues, 8, 200000);
+		sw.stop();
+
+		long cached = sw.getTaskInfo()[0].getTimeMillis();
+		long uncached = sw.getTaskInfo()[1].getTimeMillis();
+		assertTrue("Cached parsing (" + cached + "ms) should be faster than uncached parsing (" +
+				uncached + "ms)", cached < uncached);
+	}
+
+	private static void parseConcurrently(String[] values, int threads, int iterationsPerThread) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>(threads);
+			for (int t = 0; t < threads; t++) {
+				int offset = t;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < iterationsPerThread; i++) {
+						MimeTypeUtils.parseMimeType(values[(offset + i) % values.length]);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		}
+		finally {
+			executor.shutdown();
+			executor.awaitTermination(10, TimeUnit.SECONDS);
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -85,9 +85,18 @@ public class CodeFlow implements Opcodes {
 
 	/**
 	 * When code generation requires an intermediate variable within a method,
-	 * this method records the next available variable (variable 0 is 'this').
+	 * this method records the next available variable (variable 0 is 'this',
+	 * variables 1 and 2 are the target and the EvaluationContext passed to
+	 * {@code getValue}).
 	 */
-	private int nextFreeVariableId = 1;
+	private int nextFreeVariableId = 3;
+
+	/**
+	 * Local variables holding the currently active context object, e.g. the element
+	 * being processed by a selection or projection. If empty, the target passed to
+	 * {@code getValue} is the active context object.
+	 */
+	private final Deque<Integer> activeContextObjects = new ArrayDeque<>();
 
 
 	/**
@@ -105,11 +114,34 @@ public class CodeFlow implements Opcodes {
 
 	/**
 	 * Push the byte code to load the target (i.e. what was passed as the first argument
-	 * to CompiledExpression.getValue(target, context))
+	 * to CompiledExpression.getValue(target, context)), or the active context object
+	 * registered through {@link #pushActiveContextObject(int)} if any.
 	 * @param mv the visitor into which the load instruction should be inserted
 	 */
 	public void loadTarget(MethodVisitor mv) {
-		mv.visitVarInsn(ALOAD, 1);
+		Integer variableId = this.activeContextObjects.peek();
+		mv.visitVarInsn(ALOAD, (variableId != null ? variableId : 1));
+	}
+
+	/**
+	 * Make the object held in the given local variable the active context object,
+	 * i.e. the object loaded by {@link #loadTarget(MethodVisitor)}, until the
+	 * corresponding {@link #popActiveContextObject()} call.
+	 * @param variableId the local variable holding the context object
+	 * @since 5.1.13
+	 * @see #nextFreeVariableId()
+	 */
+	public void pushActiveContextObject(int variableId) {
+		this.activeContextObjects.push(variableId);
+	}
+
+	/**
+	 * Restore the previously active context object.
+	 * @since 5.1.13
+	 * @see #pushActiveContextObject(int)
+	 */
+	public void popActiveContextObject() {
+		this.activeContextObjects.pop();
 	}
 
 	/**
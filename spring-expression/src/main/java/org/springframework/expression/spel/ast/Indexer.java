@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -89,6 +89,10 @@ public class Indexer extends SpelNodeImpl {
 	@Nullable
 	private IndexedType indexedType;
 
+	// Whether the map key had to be converted to the declared key type of the map,
+	// which compiled code does not do (so no compilation possible)
+	private boolean mapKeyConverted;
+
 
 	public Indexer(int pos, SpelNodeImpl expr) {
 		super(pos, expr);
@@ -152,6 +156,7 @@ public class Indexer extends SpelNodeImpl {
 			if (targetDescriptor.getMapKeyTypeDescriptor() != null) {
 				key = state.convertValue(key, targetDescriptor.getMapKeyTypeDescriptor());
 			}
+			this.mapKeyConverted = (key != index);
 			this.indexedType = IndexedType.MAP;
 			return new MapIndexingValueRef(state.getTypeConverter(), (Map<?, ?>) target, key, targetDescriptor);
 		}
@@ -200,7 +205,8 @@ public class Indexer extends SpelNodeImpl {
 			return this.children[0].isCompilable();
 		}
 		else if (this.indexedType == IndexedType.MAP) {
-			return (this.children[0] instanceof PropertyOrFieldReference || this.children[0].isCompilable());
+			return (this.children[0] instanceof PropertyOrFieldReference ||
+					(!this.mapKeyConverted && this.children[0].isCompilable()));
 		}
 		else if (this.indexedType == IndexedType.OBJECT) {
 			// If the string name is changing the accessor is clearly going to change (so no compilation possible)
@@ -280,9 +286,16 @@ public class Indexer extends SpelNodeImpl {
 				mv.visitLdcInsn(mapKeyName);
 			}
 			else {
+				// The map key is evaluated against the root object (the first parameter)
+				cf.pushActiveContextObject(1);
 				cf.enterCompilationScope();
 				this.children[0].generateCode(mv, cf);
+				String keyDescriptor = cf.lastDescriptor();
+				if (CodeFlow.isPrimitive(keyDescriptor)) {
+					CodeFlow.insertBoxIfNecessary(mv, keyDescriptor.charAt(0));
+				}
 				cf.exitCompilationScope();
+				cf.popActiveContextObject();
 			}
 			mv.visitMethodInsn(
 					INVOKEINTERFACE, "java/util/Map", "get", "(Ljava/lang/Object;)Ljava/lang/Object;", true);
@@ -306,8 +319,10 @@ public class Indexer extends SpelNodeImpl {
 			}
 
 			if (member instanceof Method) {
-				mv.visitMethodInsn((isStatic? INVOKESTATIC : INVOKEVIRTUAL), classDesc, member.getName(),
-						CodeFlow.createSignatureDescriptor((Method) member), false);
+				boolean isInterface = member.getDeclaringClass().isInterface();
+				int opcode = (isStatic ? INVOKESTATIC : isInterface ? INVOKEINTERFACE : INVOKEVIRTUAL);
+				mv.visitMethodInsn(opcode, classDesc, member.getName(),
+						CodeFlow.createSignatureDescriptor((Method) member), isInterface);
 			}
 			else {
 				mv.visitFieldInsn((isStatic ? GETSTATIC : GETFIELD), classDesc, member.getName(),
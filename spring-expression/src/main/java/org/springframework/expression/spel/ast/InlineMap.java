@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,8 +20,10 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+import org.springframework.asm.MethodVisitor;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.expression.spel.SpelNode;
 import org.springframework.lang.Nullable;
@@ -164,4 +166,70 @@ public class InlineMap extends SpelNodeImpl {
 		return (Map<Object, Object>) this.constant.getValue();
 	}
 
+	@Override
+	public boolean isCompilable() {
+		return isConstant();
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow codeflow) {
+		final String constantFieldName = "inlineMap$" + codeflow.nextFieldId();
+		final String className = codeflow.getClassName();
+
+		codeflow.registerNewField((cw, cflow) ->
+				cw.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, constantFieldName, "Ljava/util/Map;", null, null));
+
+		codeflow.registerNewClinit((mVisitor, cflow) ->
+				generateClinitCode(className, constantFieldName, mVisitor, cflow, false));
+
+		mv.visitFieldInsn(GETSTATIC, className, constantFieldName, "Ljava/util/Map;");
+		codeflow.pushDescriptor("Ljava/util/Map");
+	}
+
+	void generateClinitCode(String clazzname, String constantFieldName, MethodVisitor mv, CodeFlow codeflow, boolean nested) {
+		mv.visitTypeInsn(NEW, "java/util/LinkedHashMap");
+		mv.visitInsn(DUP);
+		mv.visitMethodInsn(INVOKESPECIAL, "java/util/LinkedHashMap", "<init>", "()V", false);
+		int childCount = getChildCount();
+		for (int c = 0; c < childCount; c++) {
+			mv.visitInsn(DUP);
+			SpelNodeImpl keyChild = this.children[c++];
+			if (keyChild instanceof PropertyOrFieldReference) {
+				mv.visitLdcInsn(((PropertyOrFieldReference) keyChild).getName());
+			}
+			else {
+				generateConstantCode(keyChild, clazzname, constantFieldName, mv, codeflow);
+			}
+			generateConstantCode(this.children[c], clazzname, constantFieldName, mv, codeflow);
+			mv.visitMethodInsn(INVOKEINTERFACE, "java/util/Map", "put",
+					"(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", true);
+			mv.visitInsn(POP);
+		}
+		mv.visitMethodInsn(INVOKESTATIC, "java/util/Collections", "unmodifiableMap",
+				"(Ljava/util/Map;)Ljava/util/Map;", false);
+		if (!nested) {
+			mv.visitFieldInsn(PUTSTATIC, clazzname, constantFieldName, "Ljava/util/Map;");
+		}
+	}
+
+	private void generateConstantCode(SpelNodeImpl child, String clazzname, String constantFieldName,
+			MethodVisitor mv, CodeFlow codeflow) {
+
+		// Nested lists and maps are built directly here rather than calling back into
+		// generateCode(), since that would register another clinit adder.
+		if (child instanceof InlineList) {
+			((InlineList) child).generateClinitCode(clazzname, constantFieldName, mv, codeflow, true);
+		}
+		else if (child instanceof InlineMap) {
+			((InlineMap) child).generateClinitCode(clazzname, constantFieldName, mv, codeflow, true);
+		}
+		else {
+			child.generateCode(mv, codeflow);
+			String lastDesc = codeflow.lastDescriptor();
+			if (CodeFlow.isPrimitive(lastDesc)) {
+				CodeFlow.insertBoxIfNecessary(mv, lastDesc.charAt(0));
+			}
+		}
+	}
+
 }
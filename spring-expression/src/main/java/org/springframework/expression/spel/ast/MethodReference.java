@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -42,6 +42,7 @@ import org.springframework.expression.spel.support.ReflectiveMethodExecutor;
 import org.springframework.expression.spel.support.ReflectiveMethodResolver;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.ObjectUtils;
 
 /**
@@ -336,23 +337,30 @@ public class MethodReference extends SpelNodeImpl {
 			CodeFlow.insertBoxIfNecessary(mv, descriptor.charAt(0));
 		}
 
-		String classDesc;
-		if (Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
-			classDesc = method.getDeclaringClass().getName().replace('.', '/');
-		}
-		else {
-			Class<?> publicDeclaringClass = methodExecutor.getPublicDeclaringClass();
-			Assert.state(publicDeclaringClass != null, "No public declaring class");
-			classDesc = publicDeclaringClass.getName().replace('.', '/');
+		Class<?> declaringClass = method.getDeclaringClass();
+		Method methodToCall = method;
+		if (!Modifier.isPublic(declaringClass.getModifiers())) {
+			declaringClass = methodExecutor.getPublicDeclaringClass();
+			Assert.state(declaringClass != null, "No public declaring class");
+			if (declaringClass.isInterface()) {
+				// The interface method may declare a more general return type
+				methodToCall = ClassUtils.getInterfaceMethodIfPossible(method);
+			}
 		}
+		String classDesc = declaringClass.getName().replace('.', '/');
+		boolean isInterface = declaringClass.isInterface();
 
 		if (!isStaticMethod && (descriptor == null || !descriptor.substring(1).equals(classDesc))) {
 			CodeFlow.insertCheckCast(mv, "L" + classDesc);
 		}
 
 		generateCodeForArguments(mv, cf, method, this.children);
-		mv.visitMethodInsn((isStaticMethod ? INVOKESTATIC : INVOKEVIRTUAL), classDesc, method.getName(),
-				CodeFlow.createSignatureDescriptor(method), method.getDeclaringClass().isInterface());
+		int opcode = (isStaticMethod ? INVOKESTATIC : isInterface ? INVOKEINTERFACE : INVOKEVIRTUAL);
+		mv.visitMethodInsn(opcode, classDesc, method.getName(),
+				CodeFlow.createSignatureDescriptor(methodToCall), isInterface);
+		if (methodToCall.getReturnType() != method.getReturnType()) {
+			CodeFlow.insertCheckCast(mv, CodeFlow.toDescriptor(method.getReturnType()));
+		}
 		cf.pushDescriptor(this.exitTypeDescriptor);
 
 		if (this.originalPrimitiveExitTypeDescriptor != null) {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,9 +23,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
 import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.expression.spel.SpelEvaluationException;
 import org.springframework.expression.spel.SpelMessage;
@@ -88,6 +91,7 @@ public class Selection extends SpelNodeImpl {
 		SpelNodeImpl selectionCriteria = this.children[0];
 
 		if (operand instanceof Map) {
+			this.exitTypeDescriptor = null;
 			Map<?, ?> mapdata = (Map<?, ?>) operand;
 			// TODO don't lose generic info for the new map
 			Map<Object, Object> result = new HashMap<>();
@@ -137,6 +141,9 @@ public class Selection extends SpelNodeImpl {
 		if (operand instanceof Iterable || ObjectUtils.isArray(operand)) {
 			Iterable<?> data = (operand instanceof Iterable ?
 					(Iterable<?>) operand : Arrays.asList(ObjectUtils.toObjectArray(operand)));
+			// Only selection over an Iterable is compilable, since arrays need a typed result array
+			this.exitTypeDescriptor = (operand instanceof Iterable ?
+					(this.variant == ALL ? "Ljava/util/List" : "Ljava/lang/Object") : null);
 
 			List<Object> result = new ArrayList<>();
 			int index = 0;
@@ -203,6 +210,89 @@ public class Selection extends SpelNodeImpl {
 				operand.getClass().getName());
 	}
 
+	@Override
+	public boolean isCompilable() {
+		return (this.exitTypeDescriptor != null && this.children[0].isCompilable());
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		if (cf.lastDescriptor() == null) {
+			cf.loadTarget(mv);
+		}
+
+		Label endOfSelection = new Label();
+		if (this.nullSafe) {
+			Label continueLabel = new Label();
+			mv.visitInsn(DUP);
+			mv.visitJumpInsn(IFNONNULL, continueLabel);
+			mv.visitInsn(POP);
+			mv.visitInsn(ACONST_NULL);
+			mv.visitJumpInsn(GOTO, endOfSelection);
+			mv.visitLabel(continueLabel);
+		}
+
+		int iteratorVariable = cf.nextFreeVariableId();
+		int elementVariable = cf.nextFreeVariableId();
+		int resultVariable = cf.nextFreeVariableId();
+		mv.visitTypeInsn(CHECKCAST, "java/lang/Iterable");
+		mv.visitMethodInsn(INVOKEINTERFACE, "java/lang/Iterable", "iterator", "()Ljava/util/Iterator;", true);
+		mv.visitVarInsn(ASTORE, iteratorVariable);
+		if (this.variant == ALL) {
+			mv.visitTypeInsn(NEW, "java/util/ArrayList");
+			mv.visitInsn(DUP);
+			mv.visitMethodInsn(INVOKESPECIAL, "java/util/ArrayList", "<init>", "()V", false);
+		}
+		else {
+			mv.visitInsn(ACONST_NULL);
+		}
+		mv.visitVarInsn(ASTORE, resultVariable);
+
+		Label nextElement = new Label();
+		Label endOfElements = new Label();
+		mv.visitLabel(nextElement);
+		mv.visitVarInsn(ALOAD, iteratorVariable);
+		mv.visitMethodInsn(INVOKEINTERFACE, "java/util/Iterator", "hasNext", "()Z", true);
+		mv.visitJumpInsn(IFEQ, endOfElements);
+		mv.visitVarInsn(ALOAD, iteratorVariable);
+		mv.visitMethodInsn(INVOKEINTERFACE, "java/util/Iterator", "next", "()Ljava/lang/Object;", true);
+		mv.visitVarInsn(ASTORE, elementVariable);
+
+		// Evaluate the selection criteria against the current element
+		cf.pushActiveContextObject(elementVariable);
+		cf.enterCompilationScope();
+		this.children[0].generateCode(mv, cf);
+		String criteriaDescriptor = cf.lastDescriptor();
+		if (!"Z".equals(criteriaDescriptor)) {
+			CodeFlow.insertUnboxInsns(mv, 'Z', criteriaDescriptor);
+		}
+		cf.exitCompilationScope();
+		cf.popActiveContextObject();
+		mv.visitJumpInsn(IFEQ, nextElement);
+
+		if (this.variant == ALL) {
+			mv.visitVarInsn(ALOAD, resultVariable);
+			mv.visitVarInsn(ALOAD, elementVariable);
+			mv.visitMethodInsn(INVOKEINTERFACE, "java/util/List", "add", "(Ljava/lang/Object;)Z", true);
+			mv.visitInsn(POP);
+			mv.visitJumpInsn(GOTO, nextElement);
+		}
+		else if (this.variant == FIRST) {
+			mv.visitVarInsn(ALOAD, elementVariable);
+			mv.visitVarInsn(ASTORE, resultVariable);
+		}
+		else {
+			mv.visitVarInsn(ALOAD, elementVariable);
+			mv.visitVarInsn(ASTORE, resultVariable);
+			mv.visitJumpInsn(GOTO, nextElement);
+		}
+
+		mv.visitLabel(endOfElements);
+		mv.visitVarInsn(ALOAD, resultVariable);
+		mv.visitLabel(endOfSelection);
+		cf.pushDescriptor(this.exitTypeDescriptor);
+	}
+
 	@Override
 	public String toStringAST() {
 		StringBuilder sb = new StringBuilder();
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -65,15 +65,18 @@ public class VariableReference extends SpelNodeImpl {
 
 	@Override
 	public TypedValue getValueInternal(ExpressionState state) throws SpelEvaluationException {
+		TypedValue result;
 		if (this.name.equals(THIS)) {
-			return state.getActiveContextObject();
+			result = state.getActiveContextObject();
 		}
-		if (this.name.equals(ROOT)) {
-			TypedValue result = state.getRootContextObject();
+		else if (this.name.equals(ROOT)) {
+			result = state.getRootContextObject();
 			this.exitTypeDescriptor = CodeFlow.toDescriptorFromObject(result.getValue());
 			return result;
 		}
-		TypedValue result = state.lookupVariable(this.name);
+		else {
+			result = state.lookupVariable(this.name);
+		}
 		Object value = result.getValue();
 		if (value == null || !Modifier.isPublic(value.getClass().getModifiers())) {
 			// If the type is not public then when generateCode produces a checkcast to it
@@ -111,7 +114,17 @@ public class VariableReference extends SpelNodeImpl {
 
 	@Override
 	public void generateCode(MethodVisitor mv, CodeFlow cf) {
-		if (this.name.equals(ROOT)) {
+		if (this.name.equals(THIS)) {
+			String descriptor = cf.lastDescriptor();
+			if (descriptor == null) {
+				cf.loadTarget(mv);
+			}
+			else if (CodeFlow.isPrimitive(descriptor)) {
+				// The active context object is already on the stack
+				CodeFlow.insertBoxIfNecessary(mv, descriptor.charAt(0));
+			}
+		}
+		else if (this.name.equals(ROOT)) {
 			mv.visitVarInsn(ALOAD,1);
 		}
 		else {
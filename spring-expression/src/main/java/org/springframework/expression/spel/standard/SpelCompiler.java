@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -30,6 +30,7 @@ import org.springframework.asm.Opcodes;
 import org.springframework.expression.Expression;
 import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.CompiledExpression;
+import org.springframework.expression.spel.SpelNode;
 import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.ast.SpelNodeImpl;
 import org.springframework.lang.Nullable;
@@ -114,7 +115,10 @@ public final class SpelCompiler implements Opcodes {
 		}
 
 		if (logger.isDebugEnabled()) {
-			logger.debug("SpEL: unable to compile " + expression.toStringAST());
+			SpelNode nonCompilableNode = findNonCompilableNode(expression);
+			logger.debug("SpEL: unable to compile " + expression.toStringAST() + (nonCompilableNode != null ?
+					" - not compilable: " + nonCompilableNode.toStringAST() + " at position " +
+					nonCompilableNode.getStartPosition() : ""));
 		}
 		return null;
 	}
@@ -202,6 +206,30 @@ public final class SpelCompiler implements Opcodes {
 		return (Class<? extends CompiledExpression>) this.ccl.defineClass(name, bytes);
 	}
 
+	/**
+	 * Find the node that prevents the given expression from being compiled, i.e.
+	 * the first node in depth-first order that is not compilable itself although
+	 * all of its children are. Compilability of a node generally depends on prior
+	 * interpreted evaluations having determined the types involved.
+	 * @param expression the root node of the expression to check
+	 * @return the blocking node, or {@code null} if the expression is compilable
+	 * @since 5.1.13
+	 * @see SpelExpression#getNonCompilableNode()
+	 */
+	@Nullable
+	public static SpelNode findNonCompilableNode(SpelNodeImpl expression) {
+		if (expression.isCompilable()) {
+			return null;
+		}
+		for (int i = 0; i < expression.getChildCount(); i++) {
+			SpelNode nonCompilableNode = findNonCompilableNode((SpelNodeImpl) expression.getChild(i));
+			if (nonCompilableNode != null) {
+				return nonCompilableNode;
+			}
+		}
+		return expression;
+	}
+
 	/**
 	 * Factory method for compiler instances. The returned SpelCompiler will
 	 * attach a class loader as the child of the given class loader and this
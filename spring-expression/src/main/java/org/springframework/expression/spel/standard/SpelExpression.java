@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -535,6 +535,20 @@ public class SpelExpression implements Expression {
 		return this.ast;
 	}
 
+	/**
+	 * Determine the node of the Abstract Syntax Tree that currently prevents this
+	 * expression from being compiled, e.g. for diagnosing why an expression keeps
+	 * running in interpreted mode. Since the types involved are only known once the
+	 * expression has been evaluated, this is only meaningful after prior evaluation.
+	 * @return the blocking node, or {@code null} if the expression is compilable
+	 * @since 5.1.13
+	 * @see SpelCompiler#findNonCompilableNode
+	 */
+	@Nullable
+	public SpelNode getNonCompilableNode() {
+		return SpelCompiler.findNonCompilableNode(this.ast);
+	}
+
 	/**
 	 * Produce a string representation of the Abstract Syntax Tree for the expression.
 	 * This should ideally look like the input expression, but properly formatted since any
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -83,13 +83,22 @@ public class ReflectiveMethodExecutor implements MethodExecutor {
 	 * called via reflection but cannot be called from generated code when compiling the expression
 	 * because of visibility restrictions. For example if a non-public class overrides toString(),
 	 * this helper method will walk up the type hierarchy to find the first public type that declares
-	 * the method (if there is one!). For toString() it may walk as far as Object.
+	 * the method (if there is one!). For toString() it may walk as far as Object. If no such class
+	 * exists, a public interface declaring the method is returned instead (if there is one).
 	 */
 	@Nullable
 	public Class<?> getPublicDeclaringClass() {
 		if (!this.computedPublicDeclaringClass) {
-			this.publicDeclaringClass =
+			Class<?> publicDeclaringClass =
 					discoverPublicDeclaringClass(this.originalMethod, this.originalMethod.getDeclaringClass());
+			if (publicDeclaringClass == null) {
+				// E.g. a non-public implementation of a public interface
+				Class<?> interfaceClass = this.methodToInvoke.getDeclaringClass();
+				if (interfaceClass.isInterface() && Modifier.isPublic(interfaceClass.getModifiers())) {
+					publicDeclaringClass = interfaceClass;
+				}
+			}
+			this.publicDeclaringClass = publicDeclaringClass;
 			this.computedPublicDeclaringClass = true;
 		}
 		return this.publicDeclaringClass;
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -103,7 +104,10 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 	 * ConstructorReference
 	 * FunctionReference
 	 * InlineList
+	 * InlineMap
 	 * OpModulus
+	 * Projection (over an Iterable)
+	 * Selection (over an Iterable)
 	 *
 	 * Not yet compiled (some may never need to be):
 	 * Assign
@@ -114,9 +118,7 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 	 * OpMatches
 	 * OpPower
 	 * OpInc
-	 * Projection
 	 * QualifiedId
-	 * Selection
 	 */
 
 
@@ -1023,7 +1025,7 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 
 		expression = parser.parseExpression("#negate(#ints.?[#this<2][0])");
 		assertEquals("-1", expression.getValue(context, Integer.class).toString());
-		// Selection isn't compilable.
+		// Selection over an array isn't compilable.
 		assertFalse(((SpelNodeImpl)((SpelExpression) expression).getAST()).isCompilable());
 	}
 
@@ -5104,6 +5106,196 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 		assertIsCompiled(exp);
 	}
 
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	@Test
+	public void inlineMap() throws Exception {
+		expression = parser.parseExpression("{a:'abc',b:2,'c':true}");
+		Map<?, ?> m = (Map) expression.getValue();
+		assertEquals("{a=abc, b=2, c=true}", m.toString());
+		assertCanCompile(expression);
+		m = (Map) expression.getValue();
+		assertEquals("{a=abc, b=2, c=true}", m.toString());
+		try {
+			((Map<Object, Object>) m).put("d", "def");
+			fail("Compiled constant map should not be modifiable");
+		}
+		catch (UnsupportedOperationException ex) {
+			// expected
+		}
+
+		expression = parser.parseExpression("{a:{1,2,3},b:{c:'def'},3:null}");
+		m = (Map) expression.getValue();
+		assertEquals("{a=[1, 2, 3], b={c=def}, 3=null}", m.toString());
+		assertCanCompile(expression);
+		m = (Map) expression.getValue();
+		assertEquals("{a=[1, 2, 3], b={c=def}, 3=null}", m.toString());
+
+		expression = parser.parseExpression("'abcde'.substring({a:1,b:3}['b'])");
+		assertEquals("de", expression.getValue());
+		assertCanCompile(expression);
+		assertEquals("de", expression.getValue());
+
+		expression = parser.parseExpression("{a:members[0]}");
+		assertEquals("{a=alice}", expression.getValue(new Team()).toString());
+		assertCantCompile(expression);
+	}
+
+	@Test
+	public void selection() throws Exception {
+		Team team = new Team();
+
+		expression = parser.parseExpression("members.?[length() > 3]");
+		assertEquals("[alice, carol, dave]", expression.getValue(team).toString());
+		assertCanCompile(expression);
+		assertEquals("[alice, carol, dave]", expression.getValue(team).toString());
+
+		expression = parser.parseExpression("members.^[length() > 3]");
+		assertEquals("alice", expression.getValue(team));
+		assertCanCompile(expression);
+		assertEquals("alice", expression.getValue(team));
+
+		expression = parser.parseExpression("members.$[length() > 3]");
+		assertEquals("dave", expression.getValue(team));
+		assertCanCompile(expression);
+		assertEquals("dave", expression.getValue(team));
+
+		expression = parser.parseExpression("members.^[#this.startsWith('c')]");
+		assertEquals("carol", expression.getValue(team));
+		assertCanCompile(expression);
+		assertEquals("carol", expression.getValue(team));
+		team.members = Arrays.asList("bob", "dave");
+		assertNull(expression.getValue(team));
+
+		team = new Team();
+		expression = parser.parseExpression("members.?[#this.startsWith(#root.members[1].substring(0,1))].size()");
+		assertEquals(1, expression.getValue(team));
+		assertCanCompile(expression);
+		assertEquals(1, expression.getValue(team));
+
+		expression = parser.parseExpression("members?.?[length() == 3]");
+		assertEquals("[bob]", expression.getValue(team).toString());
+		assertCanCompile(expression);
+		assertEquals("[bob]", expression.getValue(team).toString());
+		team.members = null;
+		assertNull(expression.getValue(team));
+
+		expression = parser.parseExpression("{1,2,3,4}.?[#this > 2]");
+		assertEquals("[3, 4]", expression.getValue().toString());
+		assertCanCompile(expression);
+		assertEquals("[3, 4]", expression.getValue().toString());
+
+		// Selection over a map is not compiled
+		expression = parser.parseExpression("{a:1,b:2}.?[value > 1]");
+		assertEquals("{b=2}", expression.getValue().toString());
+		assertCantCompile(expression);
+	}
+
+	@Test
+	public void projection() throws Exception {
+		Team team = new Team();
+
+		expression = parser.parseExpression("members.![length()]");
+		assertEquals("[5, 3, 5, 4]", expression.getValue(team).toString());
+		assertCanCompile(expression);
+		assertEquals("[5, 3, 5, 4]", expression.getValue(team).toString());
+
+		expression = parser.parseExpression("members.?[length() > 3].![#this.toUpperCase()]");
+		assertEquals("[ALICE, CAROL, DAVE]", expression.getValue(team).toString());
+		assertCanCompile(expression);
+		assertEquals("[ALICE, CAROL, DAVE]", expression.getValue(team).toString());
+
+		expression = parser.parseExpression("{{1,2},{3,4}}.![#this.![#this * 2]]");
+		assertEquals("[[2, 4], [6, 8]]", expression.getValue().toString());
+		assertCanCompile(expression);
+		assertEquals("[[2, 4], [6, 8]]", expression.getValue().toString());
+
+		expression = parser.parseExpression("members?.![charAt(0)]");
+		assertEquals("[a, b, c, d]", expression.getValue(team).toString());
+		assertCanCompile(expression);
+		assertEquals("[a, b, c, d]", expression.getValue(team).toString());
+		team.members = null;
+		assertNull(expression.getValue(team));
+
+		// Projection over an array is not compiled
+		expression = parser.parseExpression("new int[] {1,2}.![#this * 2]");
+		assertEquals(2, ((Object[]) expression.getValue()).length);
+		assertCantCompile(expression);
+	}
+
+	@Test
+	public void indexerIntoMapWithNonLiteralKey() throws Exception {
+		StandardEvaluationContext context = new StandardEvaluationContext(new Team());
+		Map<String, String> nicknames = new HashMap<>();
+		nicknames.put("alice", "ally");
+		nicknames.put("bob", "carol");
+		context.setVariable("nicknames", nicknames);
+		Map<Integer, String> positions = new HashMap<>();
+		positions.put(1, "first");
+		context.setVariable("positions", positions);
+
+		expression = parser.parseExpression("#nicknames[members[0]]");
+		assertEquals("ally", expression.getValue(context));
+		assertCanCompile(expression);
+		assertEquals("ally", expression.getValue(context));
+
+		// The key is evaluated against the root object, not against the selected element
+		expression = parser.parseExpression("members.?[#this == #nicknames[members[1]]]");
+		assertEquals("[carol]", expression.getValue(context).toString());
+		assertCanCompile(expression);
+		assertEquals("[carol]", expression.getValue(context).toString());
+
+		expression = parser.parseExpression("#positions[1]");
+		assertEquals("first", expression.getValue(context));
+		assertCanCompile(expression);
+		assertEquals("first", expression.getValue(context));
+	}
+
+	@Test
+	public void interfaceMethodsOnNonPublicImplementation() throws Exception {
+		Team team = new Team();
+		team.members = Collections.unmodifiableList(team.members);
+
+		expression = parser.parseExpression("members.empty");
+		assertEquals(false, expression.getValue(team));
+		assertCanCompile(expression);
+		assertEquals(false, expression.getValue(team));
+
+		expression = parser.parseExpression("members.size()");
+		assertEquals(4, expression.getValue(team));
+		assertCanCompile(expression);
+		assertEquals(4, expression.getValue(team));
+
+		expression = parser.parseExpression("members.subList(1,3).get(0)");
+		assertEquals("bob", expression.getValue(team));
+		assertCanCompile(expression);
+		assertEquals("bob", expression.getValue(team));
+
+		expression = parser.parseExpression("members?.iterator()?.next()");
+		assertEquals("alice", expression.getValue(team));
+		assertCanCompile(expression);
+		assertEquals("alice", expression.getValue(team));
+		team.members = null;
+		assertNull(expression.getValue(team));
+	}
+
+	@Test
+	public void nonCompilableNode() throws Exception {
+		Team team = new Team();
+
+		SpelExpression spelExpression = (SpelExpression) parser.parseExpression("members.?[#this matches 'a.*'].size()");
+		assertEquals("members", spelExpression.getNonCompilableNode().toStringAST());
+		assertEquals(1, spelExpression.getValue(team));
+		SpelNode nonCompilableNode = spelExpression.getNonCompilableNode();
+		assertEquals("(#this matches 'a.*')", nonCompilableNode.toStringAST());
+		assertEquals(16, nonCompilableNode.getStartPosition());
+		assertFalse(spelExpression.compileExpression());
+
+		spelExpression = (SpelExpression) parser.parseExpression("members.?[#this.startsWith('a')].size()");
+		assertEquals(1, spelExpression.getValue(team));
+		assertNull(spelExpression.getNonCompilableNode());
+		assertTrue(spelExpression.compileExpression());
+	}
+
 	@Test
 	public void repeatedCompilation() throws Exception {
 		// Verifying that after a number of compilations, the classloaders
@@ -6215,6 +6407,12 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 	}
 
 
+	public static class Team {
+
+		public List<String> members = Arrays.asList("alice", "bob", "carol", "dave");
+	}
+
+
 	public class Reg {
 
 		private Integer _value,_value2;
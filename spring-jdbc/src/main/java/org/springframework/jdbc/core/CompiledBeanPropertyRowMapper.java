@@ -0,0 +1,617 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.beans.ConstructorProperties;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.BeanInstantiationException;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.MethodInvocationException;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link BeanPropertyRowMapper} variant that resolves the mapping between
+ * result set columns and bean properties once per result set shape (that is,
+ * per sequence of column labels) instead of once per row.
+ *
+ * <p>On first use for a given shape, a mapping plan gets prepared with fixed
+ * column indices and {@link MethodHandle} based setters. Primitive and
+ * {@code String} properties are read through the corresponding typed
+ * {@code ResultSet} getters and passed to their setters without boxing. All
+ * other properties are read through {@link #getColumnValue} and converted
+ * through the configured {@link ConversionService} where necessary. The plans
+ * are cached per mapper instance, so an instance should be reused across queries.
+ *
+ * <p>In addition to JavaBeans with a no-arg constructor, this mapper supports
+ * immutable target classes with a single constructor. Its parameters are
+ * bound to the columns of the same name, as resolved from
+ * {@link ConstructorProperties @ConstructorProperties} or through a
+ * {@link ParameterNameDiscoverer}. Remaining columns are applied to setters.
+ *
+ * <p>Note that, in contrast to {@code BeanPropertyRowMapper}, this mapper does
+ * not use a {@link org.springframework.beans.BeanWrapper}:
+ * {@link #initBeanWrapper} and custom property editors are not applied.
+ *
+ * @since 5.1.13
+ * @param <T> the result type
+ * @see BeanPropertyRowMapper
+ */
+public class CompiledBeanPropertyRowMapper<T> extends BeanPropertyRowMapper<T> {
+
+	private static final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+
+	// Note: the following fields are assigned in initialize(Class), which the
+	// superclass constructor may call before any field initializer would run.
+
+	/** Writable properties by lower-case and underscored name. */
+	@Nullable
+	private Map<String, PropertyDescriptor> mappedFields;
+
+	/** Names of all writable properties. */
+	@Nullable
+	private Set<String> mappedProperties;
+
+	/** Prepared mapping plans by result set shape. */
+	@Nullable
+	private Map<ResultSetShape, MappingPlan> mappingPlans;
+
+	/** The plan for the most recently mapped ResultSet. */
+	@Nullable
+	private volatile LastPlan lastPlan;
+
+
+	/**
+	 * Create a new {@code CompiledBeanPropertyRowMapper} for bean-style configuration.
+	 * @see #setMappedClass
+	 * @see #setCheckFullyPopulated
+	 */
+	public CompiledBeanPropertyRowMapper() {
+	}
+
+	/**
+	 * Create a new {@code CompiledBeanPropertyRowMapper}, accepting unpopulated
+	 * properties in the target bean.
+	 * @param mappedClass the class that each row should be mapped to
+	 */
+	public CompiledBeanPropertyRowMapper(Class<T> mappedClass) {
+		super(mappedClass);
+	}
+
+	/**
+	 * Create a new {@code CompiledBeanPropertyRowMapper}.
+	 * @param mappedClass the class that each row should be mapped to
+	 * @param checkFullyPopulated whether we're strictly validating that
+	 * all bean properties have been mapped from corresponding database fields
+	 */
+	public CompiledBeanPropertyRowMapper(Class<T> mappedClass, boolean checkFullyPopulated) {
+		super(mappedClass, checkFullyPopulated);
+	}
+
+
+	@Override
+	protected void initialize(Class<T> mappedClass) {
+		super.initialize(mappedClass);
+		Map<String, PropertyDescriptor> mappedFields = new HashMap<>();
+		Set<String> mappedProperties = new HashSet<>();
+		for (PropertyDescriptor pd : BeanUtils.getPropertyDescriptors(mappedClass)) {
+			if (pd.getWriteMethod() != null) {
+				mappedFields.put(lowerCaseName(pd.getName()), pd);
+				mappedFields.put(underscoreName(pd.getName()), pd);
+				mappedProperties.add(pd.getName());
+			}
+		}
+		this.mappedFields = mappedFields;
+		this.mappedProperties = mappedProperties;
+		this.mappingPlans = new ConcurrentHashMap<>(4);
+		this.lastPlan = null;
+	}
+
+	/**
+	 * Extract the values for all columns in the current row,
+	 * using the mapping plan prepared for the shape of the given ResultSet.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public T mapRow(ResultSet rs, int rowNumber) throws SQLException {
+		MappingPlan plan = getMappingPlan(rs);
+		if (plan.unpopulatedMessage != null && isCheckFullyPopulated()) {
+			throw new InvalidDataAccessApiUsageException(plan.unpopulatedMessage);
+		}
+		Object mappedObject = plan.instantiate(rs);
+		List<PropertySetter> setters = plan.setters;
+		for (int i = 0; i < setters.size(); i++) {
+			setters.get(i).apply(mappedObject, rs);
+		}
+		return (T) mappedObject;
+	}
+
+	private MappingPlan getMappingPlan(ResultSet rs) throws SQLException {
+		LastPlan lastPlan = this.lastPlan;
+		if (lastPlan != null && lastPlan.resultSet.get() == rs) {
+			return lastPlan.plan;
+		}
+		Map<ResultSetShape, MappingPlan> mappingPlans = this.mappingPlans;
+		Assert.state(mappingPlans != null, "Mapped class was not specified");
+		ResultSetShape shape = new ResultSetShape(rs.getMetaData());
+		MappingPlan plan = mappingPlans.get(shape);
+		if (plan == null) {
+			plan = prepareMappingPlan(shape);
+			mappingPlans.put(shape, plan);
+		}
+		this.lastPlan = new LastPlan(rs, plan);
+		return plan;
+	}
+
+	/**
+	 * Prepare the mapping plan for the given result set shape.
+	 */
+	private MappingPlan prepareMappingPlan(ResultSetShape shape) {
+		Class<T> mappedClass = getMappedClass();
+		Map<String, PropertyDescriptor> mappedFields = this.mappedFields;
+		Set<String> mappedProperties = this.mappedProperties;
+		Assert.state(mappedClass != null && mappedFields != null && mappedProperties != null,
+				"Mapped class was not specified");
+
+		Map<String, Integer> columnIndexes = new HashMap<>();
+		for (int i = 0; i < shape.columns.length; i++) {
+			columnIndexes.putIfAbsent(lowerCaseName(StringUtils.delete(shape.columns[i], " ")), i + 1);
+		}
+
+		Constructor<?> ctor = determineConstructor(mappedClass);
+		ConstructorArgument[] arguments = new ConstructorArgument[ctor.getParameterCount()];
+		Set<String> populatedProperties = new HashSet<>();
+		Set<Integer> boundColumns = new HashSet<>();
+		if (arguments.length > 0) {
+			String[] parameterNames = getParameterNames(ctor);
+			for (int i = 0; i < arguments.length; i++) {
+				String name = parameterNames[i];
+				Integer index = columnIndexes.get(lowerCaseName(name));
+				if (index == null) {
+					index = columnIndexes.get(underscoreName(name));
+				}
+				if (index == null) {
+					throw new InvalidDataAccessApiUsageException("Given ResultSet does not contain a column for " +
+							"constructor parameter '" + name + "' of class [" + mappedClass.getName() + "]");
+				}
+				arguments[i] = new ConstructorArgument(index, name, new MethodParameter(ctor, i));
+				boundColumns.add(index);
+				populatedProperties.add(name);
+			}
+		}
+
+		List<PropertySetter> setters = new ArrayList<>();
+		for (int index = 1; index <= shape.columns.length; index++) {
+			String column = shape.columns[index - 1];
+			String field = lowerCaseName(StringUtils.delete(column, " "));
+			PropertyDescriptor pd = mappedFields.get(field);
+			if (pd != null && !boundColumns.contains(index)) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Mapping column '" + column + "' to property '" + pd.getName() +
+							"' of type '" + ClassUtils.getQualifiedName(pd.getPropertyType()) + "'");
+				}
+				setters.add(new PropertySetter(index, column, pd));
+				populatedProperties.add(pd.getName());
+			}
+			else if (pd == null && logger.isDebugEnabled()) {
+				logger.debug("No property found for column '" + column + "' mapped to field '" + field + "'");
+			}
+		}
+
+		String unpopulatedMessage = null;
+		if (!populatedProperties.containsAll(mappedProperties)) {
+			unpopulatedMessage = "Given ResultSet does not contain all fields " +
+					"necessary to populate object of class [" + mappedClass.getName() + "]: " + mappedProperties;
+		}
+		return new MappingPlan(ctor, arguments, setters, unpopulatedMessage);
+	}
+
+	/**
+	 * Determine the constructor to use for the given class: the no-arg
+	 * constructor if available, otherwise the one and only declared constructor.
+	 */
+	private Constructor<?> determineConstructor(Class<T> mappedClass) {
+		try {
+			return mappedClass.getDeclaredConstructor();
+		}
+		catch (NoSuchMethodException ex) {
+			Constructor<?>[] ctors = mappedClass.getDeclaredConstructors();
+			if (ctors.length != 1) {
+				throw new InvalidDataAccessApiUsageException("Mapped class [" + mappedClass.getName() +
+						"] needs to declare a no-arg constructor or a single data constructor");
+			}
+			return ctors[0];
+		}
+	}
+
+	private String[] getParameterNames(Constructor<?> ctor) {
+		ConstructorProperties cp = ctor.getAnnotation(ConstructorProperties.class);
+		String[] names = (cp != null ? cp.value() : parameterNameDiscoverer.getParameterNames(ctor));
+		if (names == null || names.length != ctor.getParameterCount()) {
+			throw new InvalidDataAccessApiUsageException("Cannot resolve parameter names for constructor " +
+					ctor + ": compile with '-parameters' or declare @ConstructorProperties");
+		}
+		return names;
+	}
+
+	@Nullable
+	private Object convertIfNecessary(@Nullable Object value, TypeDescriptor targetType,
+			Object target, String propertyName) {
+
+		if (value == null || ClassUtils.isAssignableValue(targetType.getType(), value)) {
+			return value;
+		}
+		ConversionService cs = getConversionService();
+		TypeDescriptor sourceType = TypeDescriptor.forObject(value);
+		if (cs == null || !cs.canConvert(sourceType, targetType)) {
+			throw new TypeMismatchException(
+					new PropertyChangeEvent(target, propertyName, null, value), targetType.getType());
+		}
+		return cs.convert(value, sourceType, targetType);
+	}
+
+	/**
+	 * Handle an SQL NULL value for a primitive target, either leaving the
+	 * primitive default in place or throwing a TypeMismatchException.
+	 */
+	private void handleNullForPrimitive(Object target, String propertyName, String column, Class<?> type) {
+		if (!isPrimitivesDefaultedForNullValue()) {
+			throw new TypeMismatchException(new PropertyChangeEvent(target, propertyName, null, null), type);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Defaulting null value for column '" + column + "' and property '" + propertyName +
+					"' of type '" + type.getName() + "' on object: " + target);
+		}
+	}
+
+
+	/**
+	 * Static factory method to create a new {@code CompiledBeanPropertyRowMapper}
+	 * (with the mapped class specified only once).
+	 * @param mappedClass the class that each row should be mapped to
+	 */
+	public static <T> CompiledBeanPropertyRowMapper<T> newInstance(Class<T> mappedClass) {
+		return new CompiledBeanPropertyRowMapper<>(mappedClass);
+	}
+
+
+	/**
+	 * The shape of a ResultSet: its sequence of column labels.
+	 */
+	private static final class ResultSetShape {
+
+		final String[] columns;
+
+		private final int hashCode;
+
+		ResultSetShape(ResultSetMetaData rsmd) throws SQLException {
+			this.columns = new String[rsmd.getColumnCount()];
+			for (int i = 0; i < this.columns.length; i++) {
+				this.columns[i] = JdbcUtils.lookupColumnName(rsmd, i + 1);
+			}
+			this.hashCode = Arrays.hashCode(this.columns);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return (this == other || (other instanceof ResultSetShape &&
+					Arrays.equals(this.columns, ((ResultSetShape) other).columns)));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+	}
+
+
+	/**
+	 * Holder for the plan of the most recently mapped ResultSet,
+	 * avoiding a meta-data lookup for every subsequent row.
+	 */
+	private final class LastPlan {
+
+		final WeakReference<ResultSet> resultSet;
+
+		final MappingPlan plan;
+
+		LastPlan(ResultSet resultSet, MappingPlan plan) {
+			this.resultSet = new WeakReference<>(resultSet);
+			this.plan = plan;
+		}
+	}
+
+
+	/**
+	 * A constructor parameter bound to a fixed column index.
+	 */
+	private static final class ConstructorArgument {
+
+		final int index;
+
+		final String name;
+
+		final Class<?> type;
+
+		final TypeDescriptor typeDescriptor;
+
+		ConstructorArgument(int index, String name, MethodParameter parameter) {
+			this.index = index;
+			this.name = name;
+			this.type = parameter.getParameterType();
+			this.typeDescriptor = new TypeDescriptor(parameter);
+		}
+	}
+
+
+	/**
+	 * The prepared mapping for one result set shape.
+	 */
+	private final class MappingPlan {
+
+		private final Constructor<?> constructor;
+
+		private final MethodHandle constructorHandle;
+
+		private final ConstructorArgument[] arguments;
+
+		final List<PropertySetter> setters;
+
+		@Nullable
+		final String unpopulatedMessage;
+
+		MappingPlan(Constructor<?> constructor, ConstructorArgument[] arguments, List<PropertySetter> setters,
+				@Nullable String unpopulatedMessage) {
+
+			this.constructor = constructor;
+			this.arguments = arguments;
+			this.setters = setters;
+			this.unpopulatedMessage = unpopulatedMessage;
+			try {
+				ReflectionUtils.makeAccessible(constructor);
+				MethodHandle handle = MethodHandles.lookup().unreflectConstructor(constructor);
+				if (arguments.length > 0) {
+					handle = handle.asSpreader(Object[].class, arguments.length);
+					this.constructorHandle = handle.asType(MethodType.methodType(Object.class, Object[].class));
+				}
+				else {
+					this.constructorHandle = handle.asType(MethodType.methodType(Object.class));
+				}
+			}
+			catch (IllegalAccessException ex) {
+				throw new BeanInstantiationException(constructor, "Constructor is not accessible", ex);
+			}
+		}
+
+		Object instantiate(ResultSet rs) throws SQLException {
+			try {
+				if (this.arguments.length == 0) {
+					return (Object) this.constructorHandle.invokeExact();
+				}
+				Object[] args = new Object[this.arguments.length];
+				for (int i = 0; i < args.length; i++) {
+					ConstructorArgument argument = this.arguments[i];
+					Object value = JdbcUtils.getResultSetValue(rs, argument.index, argument.type);
+					if (value == null && argument.type.isPrimitive()) {
+						handleNullForPrimitive(this.constructor, argument.name, argument.name, argument.type);
+						value = defaultValue(argument.type);
+					}
+					args[i] = convertIfNecessary(value, argument.typeDescriptor, this.constructor, argument.name);
+				}
+				return (Object) this.constructorHandle.invokeExact(args);
+			}
+			catch (SQLException | RuntimeException | Error ex) {
+				throw ex;
+			}
+			catch (Throwable ex) {
+				throw new BeanInstantiationException(this.constructor, "Constructor threw exception", ex);
+			}
+		}
+
+		private Object defaultValue(Class<?> primitiveType) {
+			return Array.get(Array.newInstance(primitiveType, 1), 0);
+		}
+	}
+
+
+	/**
+	 * A bean property setter bound to a fixed column index, reading primitive
+	 * and String values through the typed ResultSet getters.
+	 */
+	private final class PropertySetter {
+
+		private static final int GENERIC = 0;
+
+		private static final int BOOLEAN = 1;
+
+		private static final int BYTE = 2;
+
+		private static final int SHORT = 3;
+
+		private static final int INT = 4;
+
+		private static final int LONG = 5;
+
+		private static final int FLOAT = 6;
+
+		private static final int DOUBLE = 7;
+
+		private static final int STRING = 8;
+
+		private final int index;
+
+		private final String column;
+
+		private final PropertyDescriptor pd;
+
+		private final TypeDescriptor typeDescriptor;
+
+		private final int kind;
+
+		private final MethodHandle handle;
+
+		PropertySetter(int index, String column, PropertyDescriptor pd) {
+			this.index = index;
+			this.column = column;
+			this.pd = pd;
+			Method writeMethod = pd.getWriteMethod();
+			Assert.state(writeMethod != null, "No write method");
+			Class<?> type = pd.getPropertyType();
+			this.typeDescriptor = new TypeDescriptor(MethodParameter.forExecutable(writeMethod, 0));
+			this.kind = (type == boolean.class ? BOOLEAN : type == byte.class ? BYTE : type == short.class ? SHORT :
+					type == int.class ? INT : type == long.class ? LONG : type == float.class ? FLOAT :
+					type == double.class ? DOUBLE : type == String.class ? STRING : GENERIC);
+			Class<?> parameterType = (this.kind == GENERIC ? Object.class : type);
+			try {
+				ReflectionUtils.makeAccessible(writeMethod);
+				this.handle = MethodHandles.lookup().unreflect(writeMethod)
+						.asType(MethodType.methodType(void.class, Object.class, parameterType));
+			}
+			catch (IllegalAccessException ex) {
+				throw new InvalidDataAccessApiUsageException(
+						"Setter for property '" + pd.getName() + "' is not accessible", ex);
+			}
+		}
+
+		void apply(Object target, ResultSet rs) throws SQLException {
+			try {
+				switch (this.kind) {
+					case BOOLEAN: {
+						boolean value = rs.getBoolean(this.index);
+						if (rs.wasNull()) {
+							handleNull(target);
+							return;
+						}
+						this.handle.invokeExact(target, value);
+						return;
+					}
+					case BYTE: {
+						byte value = rs.getByte(this.index);
+						if (rs.wasNull()) {
+							handleNull(target);
+							return;
+						}
+						this.handle.invokeExact(target, value);
+						return;
+					}
+					case SHORT: {
+						short value = rs.getShort(this.index);
+						if (rs.wasNull()) {
+							handleNull(target);
+							return;
+						}
+						this.handle.invokeExact(target, value);
+						return;
+					}
+					case INT: {
+						int value = rs.getInt(this.index);
+						if (rs.wasNull()) {
+							handleNull(target);
+							return;
+						}
+						this.handle.invokeExact(target, value);
+						return;
+					}
+					case LONG: {
+						long value = rs.getLong(this.index);
+						if (rs.wasNull()) {
+							handleNull(target);
+							return;
+						}
+						this.handle.invokeExact(target, value);
+						return;
+					}
+					case FLOAT: {
+						float value = rs.getFloat(this.index);
+						if (rs.wasNull()) {
+							handleNull(target);
+							return;
+						}
+						this.handle.invokeExact(target, value);
+						return;
+					}
+					case DOUBLE: {
+						double value = rs.getDouble(this.index);
+						if (rs.wasNull()) {
+							handleNull(target);
+							return;
+						}
+						this.handle.invokeExact(target, value);
+						return;
+					}
+					case STRING: {
+						String value = rs.getString(this.index);
+						this.handle.invokeExact(target, value);
+						return;
+					}
+					default: {
+						Object value = getColumnValue(rs, this.index, this.pd);
+						if (value == null && this.pd.getPropertyType().isPrimitive()) {
+							handleNull(target);
+							return;
+						}
+						value = convertIfNecessary(value, this.typeDescriptor, target, this.pd.getName());
+						this.handle.invokeExact(target, value);
+					}
+				}
+			}
+			catch (SQLException | RuntimeException | Error ex) {
+				throw ex;
+			}
+			catch (Throwable ex) {
+				throw new MethodInvocationException(
+						new PropertyChangeEvent(target, this.pd.getName(), null, null), ex);
+			}
+		}
+
+		private void handleNull(Object target) {
+			handleNullForPrimitive(target, this.pd.getName(), this.column, this.pd.getPropertyType());
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ package org.springframework.jdbc.core;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.IncorrectResultSizeDataAccessException;
@@ -243,6 +244,29 @@ public interface JdbcOperations {
 	 */
 	SqlRowSet queryForRowSet(String sql) throws DataAccessException;
 
+	/**
+	 * Execute a query given static SQL, mapping each row to a result object
+	 * via a RowMapper, and turning it into an iterable and closeable Stream.
+	 * <p>Uses a JDBC Statement, not a PreparedStatement. If you want to
+	 * execute a static query with a PreparedStatement, use the overloaded
+	 * {@code queryForStream} method with {@code null} as argument array.
+	 * <p>In contrast to {@link #query(String, RowMapper)}, rows are only read
+	 * and mapped as the Stream gets consumed, according to the configured
+	 * fetch size, so memory usage does not grow with the size of the result.
+	 * The underlying Connection and ResultSet are held until the Stream gets
+	 * closed, so it needs to be closed once fully processed, e.g. through a
+	 * try-with-resources clause.
+	 * @param sql the SQL query to execute
+	 * @param rowMapper a callback that will map one object per row
+	 * @return the result Stream, containing mapped objects, needing to be
+	 * closed once fully processed
+	 * @throws DataAccessException if there is any problem executing the query
+	 * @since 5.1.13
+	 * @see #queryForStream(String, RowMapper, Object...)
+	 * @see JdbcTemplate#setFetchSize
+	 */
+	<T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper) throws DataAccessException;
+
 	/**
 	 * Issue a single SQL update operation (such as an insert, update or delete statement).
 	 * @param sql static SQL to execute
@@ -514,6 +538,58 @@ public interface JdbcOperations {
 	 */
 	<T> List<T> query(String sql, RowMapper<T> rowMapper, @Nullable Object... args) throws DataAccessException;
 
+	/**
+	 * Query using a prepared statement, mapping each row to a result object
+	 * via a RowMapper, and turning it into an iterable and closeable Stream.
+	 * <p>A PreparedStatementCreator can either be implemented directly or
+	 * configured through a PreparedStatementCreatorFactory.
+	 * @param psc a callback that creates a PreparedStatement given a Connection
+	 * @param rowMapper a callback that will map one object per row
+	 * @return the result Stream, containing mapped objects, needing to be
+	 * closed once fully processed
+	 * @throws DataAccessException if there is any problem
+	 * @since 5.1.13
+	 * @see PreparedStatementCreatorFactory
+	 */
+	<T> Stream<T> queryForStream(PreparedStatementCreator psc, RowMapper<T> rowMapper) throws DataAccessException;
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a
+	 * PreparedStatementSetter implementation that knows how to bind values to
+	 * the query, mapping each row to a result object via a RowMapper, and
+	 * turning it into an iterable and closeable Stream.
+	 * @param sql the SQL query to execute
+	 * @param pss a callback that knows how to set values on the prepared statement.
+	 * If this is {@code null}, the SQL will be assumed to contain no bind parameters.
+	 * Even if there are no bind parameters, this callback may be used to set the
+	 * fetch size and other performance options.
+	 * @param rowMapper a callback that will map one object per row
+	 * @return the result Stream, containing mapped objects, needing to be
+	 * closed once fully processed
+	 * @throws DataAccessException if the query fails
+	 * @since 5.1.13
+	 */
+	<T> Stream<T> queryForStream(String sql, @Nullable PreparedStatementSetter pss, RowMapper<T> rowMapper)
+			throws DataAccessException;
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a list of
+	 * arguments to bind to the query, mapping each row to a result object
+	 * via a RowMapper, and turning it into an iterable and closeable Stream.
+	 * @param sql the SQL query to execute
+	 * @param rowMapper a callback that will map one object per row
+	 * @param args arguments to bind to the query
+	 * (leaving it to the PreparedStatement to guess the corresponding SQL type);
+	 * may also contain {@link SqlParameterValue} objects which indicate not
+	 * only the argument value but also the SQL type and optionally the scale
+	 * @return the result Stream, containing mapped objects, needing to be
+	 * closed once fully processed
+	 * @throws DataAccessException if the query fails
+	 * @since 5.1.13
+	 */
+	<T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper, @Nullable Object... args)
+			throws DataAccessException;
+
 	/**
 	 * Query given SQL to create a prepared statement from SQL and a list
 	 * of arguments to bind to the query, mapping a single result row to a
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -34,12 +34,17 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.sql.DataSource;
 
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.jdbc.InvalidResultSetAccessException;
 import org.springframework.jdbc.SQLWarningException;
 import org.springframework.jdbc.UncategorizedSQLException;
 import org.springframework.jdbc.datasource.ConnectionProxy;
@@ -366,21 +371,46 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	@Override
 	@Nullable
 	public <T> T execute(StatementCallback<T> action) throws DataAccessException {
+		return execute(action, true);
+	}
+
+	/**
+	 * Execute a JDBC data access operation, implemented as callback action
+	 * working on a JDBC Statement.
+	 * @param action the callback to execute
+	 * @param closeResources whether to close the Statement and release the
+	 * Connection after a successful callback; {@code false} leaves both to the
+	 * caller, e.g. for a {@link Stream} result that is consumed later on
+	 * @return a result object returned by the action, or {@code null}
+	 * @throws DataAccessException if there is any problem
+	 * @since 5.1.13
+	 */
+	@Nullable
+	private <T> T execute(StatementCallback<T> action, boolean closeResources) throws DataAccessException {
 		Assert.notNull(action, "Callback object must not be null");
 
 		Connection con = DataSourceUtils.getConnection(obtainDataSource());
 		Statement stmt = null;
+		T result = null;
+		boolean completed = false;
 		try {
 			stmt = con.createStatement();
 			applyStatementSettings(stmt);
-			T result = action.doInStatement(stmt);
+			result = action.doInStatement(stmt);
 			handleWarnings(stmt);
+			completed = true;
 			return result;
 		}
 		catch (SQLException ex) {
 			// Release Connection early, to avoid potential connection pool deadlock
 			// in the case when the exception translator hasn't been initialized yet.
 			String sql = getSql(action);
+			if (!closeResources && closeStreamResult(result)) {
+				// The Stream has released the Statement and the Connection
+				stmt = null;
+				con = null;
+			}
+			result = null;
 			JdbcUtils.closeStatement(stmt);
 			stmt = null;
 			DataSourceUtils.releaseConnection(con, getDataSource());
@@ -388,8 +418,11 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			throw translateException("StatementCallback", sql, ex);
 		}
 		finally {
-			JdbcUtils.closeStatement(stmt);
-			DataSourceUtils.releaseConnection(con, getDataSource());
+			// Without closeResources, only release what does not reach the caller
+			if (closeResources || (!completed && !closeStreamResult(result))) {
+				JdbcUtils.closeStatement(stmt);
+				DataSourceUtils.releaseConnection(con, getDataSource());
+			}
 		}
 	}
 
@@ -495,6 +528,37 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return result(query(sql, new SqlRowSetResultSetExtractor()));
 	}
 
+	@Override
+	public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper) throws DataAccessException {
+		Assert.notNull(sql, "SQL must not be null");
+		Assert.notNull(rowMapper, "RowMapper must not be null");
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing SQL query [" + sql + "]");
+		}
+
+		/**
+		 * Callback to execute the query, keeping the ResultSet open for the Stream.
+		 */
+		class StreamStatementCallback implements StatementCallback<Stream<T>>, SqlProvider {
+			@Override
+			public Stream<T> doInStatement(Statement stmt) throws SQLException {
+				Connection con = stmt.getConnection();
+				ResultSet rs = stmt.executeQuery(sql);
+				return new ResultSetSpliterator<>(rs, rowMapper).stream().onClose(() -> {
+					JdbcUtils.closeResultSet(rs);
+					JdbcUtils.closeStatement(stmt);
+					DataSourceUtils.releaseConnection(con, getDataSource());
+				});
+			}
+			@Override
+			public String getSql() {
+				return sql;
+			}
+		}
+
+		return result(execute(new StreamStatementCallback(), false));
+	}
+
 	@Override
 	public int update(final String sql) throws DataAccessException {
 		Assert.notNull(sql, "SQL must not be null");
@@ -602,6 +666,25 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action)
 			throws DataAccessException {
 
+		return execute(psc, action, true);
+	}
+
+	/**
+	 * Execute a JDBC data access operation, implemented as callback action
+	 * working on a JDBC PreparedStatement.
+	 * @param psc a callback that creates a PreparedStatement given a Connection
+	 * @param action the callback to execute
+	 * @param closeResources whether to close the PreparedStatement and release
+	 * the Connection after a successful callback; {@code false} leaves both to
+	 * the caller, e.g. for a {@link Stream} result that is consumed later on
+	 * @return a result object returned by the action, or {@code null}
+	 * @throws DataAccessException if there is any problem
+	 * @since 5.1.13
+	 */
+	@Nullable
+	private <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action, boolean closeResources)
+			throws DataAccessException {
+
 		Assert.notNull(psc, "PreparedStatementCreator must not be null");
 		Assert.notNull(action, "Callback object must not be null");
 		if (logger.isDebugEnabled()) {
@@ -611,20 +694,30 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 
 		Connection con = DataSourceUtils.getConnection(obtainDataSource());
 		PreparedStatement ps = null;
+		T result = null;
+		boolean completed = false;
 		try {
 			ps = psc.createPreparedStatement(con);
 			applyStatementSettings(ps);
-			T result = action.doInPreparedStatement(ps);
+			result = action.doInPreparedStatement(ps);
 			handleWarnings(ps);
+			completed = true;
 			return result;
 		}
 		catch (SQLException ex) {
 			// Release Connection early, to avoid potential connection pool deadlock
 			// in the case when the exception translator hasn't been initialized yet.
+			String sql = getSql(psc);
+			if (!closeResources && closeStreamResult(result)) {
+				// The Stream has released the PreparedStatement and the Connection
+				psc = null;
+				ps = null;
+				con = null;
+			}
+			result = null;
 			if (psc instanceof ParameterDisposer) {
 				((ParameterDisposer) psc).cleanupParameters();
 			}
-			String sql = getSql(psc);
 			psc = null;
 			JdbcUtils.closeStatement(ps);
 			ps = null;
@@ -633,11 +726,14 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			throw translateException("PreparedStatementCallback", sql, ex);
 		}
 		finally {
-			if (psc instanceof ParameterDisposer) {
-				((ParameterDisposer) psc).cleanupParameters();
+			// Without closeResources, only release what does not reach the caller
+			if (closeResources || (!completed && !closeStreamResult(result))) {
+				if (psc instanceof ParameterDisposer) {
+					((ParameterDisposer) psc).cleanupParameters();
+				}
+				JdbcUtils.closeStatement(ps);
+				DataSourceUtils.releaseConnection(con, getDataSource());
 			}
-			JdbcUtils.closeStatement(ps);
-			DataSourceUtils.releaseConnection(con, getDataSource());
 		}
 	}
 
@@ -768,6 +864,68 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return result(query(sql, args, new RowMapperResultSetExtractor<>(rowMapper)));
 	}
 
+	/**
+	 * Query using a prepared statement, allowing for a PreparedStatementCreator
+	 * and a PreparedStatementSetter, mapping each row lazily to a result object
+	 * via a RowMapper.
+	 * <p>The Connection, PreparedStatement and ResultSet stay open until the
+	 * returned Stream gets closed, which releases them through
+	 * {@link DataSourceUtils}. Make sure to close the Stream, preferably in a
+	 * try-with-resources block.
+	 * @param psc a callback that creates a PreparedStatement given a Connection
+	 * @param pss a callback that knows how to set values on the prepared statement.
+	 * If this is {@code null}, the SQL will be assumed to contain no bind parameters.
+	 * @param rowMapper a callback that will map one object per row
+	 * @return the result Stream, containing mapped objects, needing to be
+	 * closed once fully processed
+	 * @throws DataAccessException if the query fails
+	 * @since 5.1.13
+	 */
+	public <T> Stream<T> queryForStream(PreparedStatementCreator psc, @Nullable PreparedStatementSetter pss,
+			RowMapper<T> rowMapper) throws DataAccessException {
+
+		Assert.notNull(rowMapper, "RowMapper must not be null");
+		logger.debug("Executing prepared SQL query for stream");
+
+		return result(execute(psc, ps -> {
+			if (pss != null) {
+				pss.setValues(ps);
+			}
+			Connection con = ps.getConnection();
+			ResultSet rs = ps.executeQuery();
+			return new ResultSetSpliterator<>(rs, rowMapper).stream().onClose(() -> {
+				JdbcUtils.closeResultSet(rs);
+				if (pss instanceof ParameterDisposer) {
+					((ParameterDisposer) pss).cleanupParameters();
+				}
+				if (psc instanceof ParameterDisposer) {
+					((ParameterDisposer) psc).cleanupParameters();
+				}
+				JdbcUtils.closeStatement(ps);
+				DataSourceUtils.releaseConnection(con, getDataSource());
+			});
+		}, false));
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(PreparedStatementCreator psc, RowMapper<T> rowMapper) throws DataAccessException {
+		return queryForStream(psc, null, rowMapper);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(String sql, @Nullable PreparedStatementSetter pss, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return queryForStream(new SimplePreparedStatementCreator(sql), pss, rowMapper);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper, @Nullable Object... args)
+			throws DataAccessException {
+
+		return queryForStream(new SimplePreparedStatementCreator(sql), newArgPreparedStatementSetter(args), rowMapper);
+	}
+
 	@Override
 	@Nullable
 	public <T> T queryForObject(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper)
@@ -1461,6 +1619,20 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		}
 	}
 
+	/**
+	 * Close a {@link Stream} callback result that does not reach the caller,
+	 * which releases the JDBC resources registered with the Stream.
+	 * @param result the callback result, if any
+	 * @return whether the result was a Stream and got closed
+	 */
+	private static boolean closeStreamResult(@Nullable Object result) {
+		if (result instanceof Stream) {
+			((Stream<?>) result).close();
+			return true;
+		}
+		return false;
+	}
+
 	private static <T> T result(@Nullable T result) {
 		Assert.state(result != null, "No result");
 		return result;
@@ -1610,4 +1782,58 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		}
 	}
 
+
+	/**
+	 * Spliterator for queryForStream adaptation of a ResultSet to a Stream,
+	 * advancing the ResultSet and mapping one row per element on demand.
+	 * @since 5.1.13
+	 */
+	private static class ResultSetSpliterator<T> implements Spliterator<T> {
+
+		private final ResultSet rs;
+
+		private final RowMapper<T> rowMapper;
+
+		private int rowNum = 0;
+
+		public ResultSetSpliterator(ResultSet rs, RowMapper<T> rowMapper) {
+			this.rs = rs;
+			this.rowMapper = rowMapper;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			try {
+				if (this.rs.next()) {
+					action.accept(this.rowMapper.mapRow(this.rs, this.rowNum++));
+					return true;
+				}
+				return false;
+			}
+			catch (SQLException ex) {
+				throw new InvalidResultSetAccessException(ex);
+			}
+		}
+
+		@Override
+		@Nullable
+		public Spliterator<T> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return Long.MAX_VALUE;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.ORDERED;
+		}
+
+		public Stream<T> stream() {
+			return StreamSupport.stream(this, false);
+		}
+	}
+
 }
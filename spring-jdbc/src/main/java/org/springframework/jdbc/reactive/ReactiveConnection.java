@@ -0,0 +1,61 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.reactive;
+
+import org.reactivestreams.Publisher;
+
+/**
+ * Driver SPI: a non-blocking connection to a database, as obtained from a
+ * {@link ReactiveConnectionFactory}.
+ *
+ * <p>A connection starts out in auto-commit mode; {@link #beginTransaction()}
+ * switches it into a transaction until {@link #commitTransaction() commit} or
+ * {@link #rollbackTransaction() rollback}. All returned publishers are lazy:
+ * nothing happens until they are subscribed to.
+ *
+ * @since 5.1.13
+ */
+public interface ReactiveConnection {
+
+	/**
+	 * Create a statement for the given SQL, with JDBC-style {@code ?} placeholders.
+	 * @param sql the SQL statement to execute
+	 * @return the statement, ready for binding parameters
+	 */
+	ReactiveStatement createStatement(String sql);
+
+	/**
+	 * Begin a transaction, disabling auto-commit mode.
+	 */
+	Publisher<Void> beginTransaction();
+
+	/**
+	 * Commit the current transaction, re-enabling auto-commit mode.
+	 */
+	Publisher<Void> commitTransaction();
+
+	/**
+	 * Roll back the current transaction, re-enabling auto-commit mode.
+	 */
+	Publisher<Void> rollbackTransaction();
+
+	/**
+	 * Release this connection, possibly returning it to a pool.
+	 */
+	Publisher<Void> close();
+
+}
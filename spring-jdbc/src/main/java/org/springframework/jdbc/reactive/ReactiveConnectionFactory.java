@@ -0,0 +1,44 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.reactive;
+
+import org.reactivestreams.Publisher;
+
+/**
+ * Driver SPI: factory for non-blocking {@link ReactiveConnection connections},
+ * the reactive counterpart of a {@link javax.sql.DataSource}.
+ *
+ * <p>Implementations are expected to signal database errors as
+ * {@link java.sql.SQLException SQLExceptions} from any of the returned
+ * publishers, so that they can be translated into Spring's
+ * {@code DataAccessException} hierarchy.
+ *
+ * @since 5.1.13
+ * @see org.springframework.jdbc.reactive.core.ReactiveJdbcTemplate
+ */
+@FunctionalInterface
+public interface ReactiveConnectionFactory {
+
+	/**
+	 * Open a new connection, possibly taken from a pool.
+	 * <p>The connection is only obtained once subscribed to, and needs
+	 * to be {@link ReactiveConnection#close() closed} after use.
+	 * @return a publisher emitting a single connection
+	 */
+	Publisher<? extends ReactiveConnection> create();
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.reactive;
+
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+
+/**
+ * Driver SPI: the result of executing a {@link ReactiveStatement},
+ * either an update count or a stream of rows.
+ *
+ * <p>A result may only be consumed once.
+ *
+ * @since 5.1.13
+ */
+public interface ReactiveResult {
+
+	/**
+	 * Return the number of rows affected by the statement.
+	 * @return a publisher emitting the update count, or completing
+	 * empty if the statement did not update any rows
+	 */
+	Publisher<Integer> getRowsUpdated();
+
+	/**
+	 * Map each row of this result with the given function.
+	 * <p>Rows are streamed according to the demand of the subscriber:
+	 * implementations must not fetch more rows from the database than
+	 * requested, apart from a bounded read-ahead as configured through
+	 * {@link ReactiveStatement#fetchSize(int)}. A {@link ReactiveRow} is
+	 * only valid for the duration of the function call.
+	 * @param mappingFunction the function to apply to each row
+	 * @return a publisher emitting the mapped rows
+	 */
+	<T> Publisher<T> map(Function<? super ReactiveRow, ? extends T> mappingFunction);
+
+}
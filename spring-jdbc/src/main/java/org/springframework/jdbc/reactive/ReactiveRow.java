@@ -0,0 +1,69 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.reactive;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Driver SPI: a single row of a {@link ReactiveResult}, the reactive
+ * counterpart of the current row of a {@link java.sql.ResultSet}.
+ *
+ * <p>Column indexes are 1-based, as in JDBC.
+ *
+ * @since 5.1.13
+ */
+public interface ReactiveRow {
+
+	/**
+	 * Return the number of columns in this row.
+	 */
+	int getColumnCount();
+
+	/**
+	 * Return the label of the column at the given index.
+	 * @param index the column index
+	 */
+	String getColumnLabel(int index);
+
+	/**
+	 * Return the value of the column at the given index.
+	 * @param index the column index
+	 * @return the value, or {@code null} for SQL {@code NULL}
+	 */
+	@Nullable
+	Object getObject(int index);
+
+	/**
+	 * Return the value of the column at the given index, converted to the given type.
+	 * @param index the column index
+	 * @param type the type to convert to
+	 * @return the value, or {@code null} for SQL {@code NULL}
+	 * @throws IllegalArgumentException if the value cannot be converted
+	 */
+	@Nullable
+	<T> T getObject(int index, Class<T> type);
+
+	/**
+	 * Return the value of the column with the given label.
+	 * @param columnLabel the column label (case-insensitive)
+	 * @return the value, or {@code null} for SQL {@code NULL}
+	 * @throws IllegalArgumentException if there is no such column
+	 */
+	@Nullable
+	Object getObject(String columnLabel);
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.reactive;
+
+import org.reactivestreams.Publisher;
+
+/**
+ * Driver SPI: a statement created by a {@link ReactiveConnection},
+ * the reactive counterpart of a {@link java.sql.PreparedStatement}.
+ *
+ * @since 5.1.13
+ */
+public interface ReactiveStatement {
+
+	/**
+	 * Bind a non-null value to the placeholder at the given index.
+	 * @param index the index of the placeholder (1-based, as in JDBC)
+	 * @param value the value to bind
+	 * @return this statement
+	 */
+	ReactiveStatement bind(int index, Object value);
+
+	/**
+	 * Bind {@code null} to the placeholder at the given index.
+	 * @param index the index of the placeholder (1-based, as in JDBC)
+	 * @param sqlType the SQL type of the parameter, as defined in {@link java.sql.Types},
+	 * or {@link org.springframework.jdbc.core.SqlTypeValue#TYPE_UNKNOWN} if unknown
+	 * @return this statement
+	 */
+	ReactiveStatement bindNull(int index, int sqlType);
+
+	/**
+	 * Give the driver a hint as to the number of rows to fetch from the
+	 * database at a time, independently of the demand of the subscriber.
+	 * @param rows the number of rows to fetch
+	 * @return this statement
+	 */
+	ReactiveStatement fetchSize(int rows);
+
+	/**
+	 * Execute this statement.
+	 * @return a publisher emitting the results of the statement,
+	 * typically a single one
+	 */
+	Publisher<? extends ReactiveResult> execute();
+
+}
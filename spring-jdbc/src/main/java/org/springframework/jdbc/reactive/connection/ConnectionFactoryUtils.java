@@ -0,0 +1,95 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.reactive.connection;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.jdbc.reactive.ReactiveConnection;
+import org.springframework.jdbc.reactive.ReactiveConnectionFactory;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+
+/**
+ * Helper class that provides static methods for obtaining reactive connections
+ * from a {@link ReactiveConnectionFactory}.
+ *
+ * <p>The reactive counterpart of {@link org.springframework.jdbc.datasource.DataSourceUtils}:
+ * instead of a {@code ThreadLocal}, transactional connections are looked up in the
+ * reactive {@link TransactionSynchronizationManager} for the current subscription,
+ * keyed by their connection factory. This is where {@link ReactiveJdbcTransactionManager}
+ * binds them, so that they follow the subscription across whatever threads are
+ * involved in processing it.
+ *
+ * @since 5.1.13
+ * @see ReactiveJdbcTransactionManager
+ * @see org.springframework.jdbc.reactive.core.ReactiveJdbcTemplate
+ */
+public abstract class ConnectionFactoryUtils {
+
+	/**
+	 * Apply the given action to a connection from the given factory: either the
+	 * transactional connection bound to the current subscription, which is left open,
+	 * or a new connection, which is closed once the returned publisher terminates
+	 * or gets cancelled.
+	 * @param connectionFactory the factory to obtain connections from
+	 * @param action the action to apply
+	 * @return the result of the action
+	 */
+	public static <T> Flux<T> doInConnection(ReactiveConnectionFactory connectionFactory,
+			Function<? super ReactiveConnection, ? extends Publisher<? extends T>> action) {
+
+		return getConnectionHolder(connectionFactory).flatMapMany(holder -> {
+			if (holder.isPresent()) {
+				return Flux.from(action.apply(holder.get().getConnection()));
+			}
+			Mono<ReactiveConnection> connection = Mono.from(connectionFactory.create());
+			return Flux.usingWhen(connection, action, ReactiveConnection::close);
+		});
+	}
+
+	/**
+	 * Obtain the connection holder bound to the current subscription
+	 * for the given connection factory, if any.
+	 * @param connectionFactory the connection factory
+	 * @return a publisher emitting the bound connection holder, if any
+	 */
+	public static Mono<Optional<ReactiveConnectionHolder>> getConnectionHolder(
+			ReactiveConnectionFactory connectionFactory) {
+
+		return TransactionSynchronizationManager.forCurrentTransaction()
+				.map(synchronizationManager -> Optional.ofNullable(
+						(ReactiveConnectionHolder) synchronizationManager.getResource(connectionFactory)))
+				.onErrorResume(NoTransactionException.class, ex -> Mono.just(Optional.empty()));
+	}
+
+	/**
+	 * Determine whether a transactional connection for the given connection
+	 * factory is bound to the current subscription.
+	 * @param connectionFactory the connection factory
+	 * @return a publisher emitting whether a transaction is active
+	 */
+	public static Mono<Boolean> isTransactionActive(ReactiveConnectionFactory connectionFactory) {
+		return getConnectionHolder(connectionFactory)
+				.map(holder -> (holder.isPresent() && holder.get().isTransactionActive()));
+	}
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.reactive.connection;
+
+import org.springframework.jdbc.reactive.ReactiveConnection;
+import org.springframework.transaction.support.ResourceHolderSupport;
+import org.springframework.util.Assert;
+
+/**
+ * Resource holder wrapping a {@link ReactiveConnection}.
+ * {@link ReactiveJdbcTransactionManager} binds instances of this class to the
+ * reactive {@link org.springframework.transaction.reactive.TransactionSynchronizationManager}
+ * for a specific {@link org.springframework.jdbc.reactive.ReactiveConnectionFactory}.
+ *
+ * <p>The reactive counterpart of
+ * {@link org.springframework.jdbc.datasource.ConnectionHolder}: this holder
+ * is not bound to a thread, but travels with the subscription instead.
+ *
+ * @since 5.1.13
+ * @see ReactiveJdbcTransactionManager
+ * @see ConnectionFactoryUtils
+ */
+public class ReactiveConnectionHolder extends ResourceHolderSupport {
+
+	private final ReactiveConnection connection;
+
+	private boolean transactionActive;
+
+
+	/**
+	 * Create a new ReactiveConnectionHolder for the given connection,
+	 * assuming that there is no ongoing transaction.
+	 * @param connection the connection to hold
+	 */
+	public ReactiveConnectionHolder(ReactiveConnection connection) {
+		this(connection, false);
+	}
+
+	/**
+	 * Create a new ReactiveConnectionHolder for the given connection.
+	 * @param connection the connection to hold
+	 * @param transactionActive whether the given connection is involved
+	 * in an ongoing transaction
+	 */
+	public ReactiveConnectionHolder(ReactiveConnection connection, boolean transactionActive) {
+		Assert.notNull(connection, "ReactiveConnection must not be null");
+		this.connection = connection;
+		this.transactionActive = transactionActive;
+	}
+
+
+	/**
+	 * Return the current connection held by this holder.
+	 */
+	public ReactiveConnection getConnection() {
+		return this.connection;
+	}
+
+	/**
+	 * Set whether this holder represents an active, reactive JDBC transaction.
+	 * @see ReactiveJdbcTransactionManager
+	 */
+	protected void setTransactionActive(boolean transactionActive) {
+		this.transactionActive = transactionActive;
+	}
+
+	/**
+	 * Return whether this holder represents an active, reactive JDBC transaction.
+	 */
+	public boolean isTransactionActive() {
+		return this.transactionActive;
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		this.transactionActive = false;
+	}
+
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.reactive.connection;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.reactive.ReactiveConnection;
+import org.springframework.jdbc.reactive.ReactiveConnectionFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.reactive.AbstractReactiveTransactionManager;
+import org.springframework.transaction.reactive.GenericReactiveTransaction;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.SmartTransactionObject;
+import org.springframework.util.Assert;
+
+/**
+ * {@link org.springframework.transaction.ReactiveTransactionManager}
+ * implementation for a single {@link ReactiveConnectionFactory}, the reactive
+ * counterpart of {@link org.springframework.jdbc.datasource.DataSourceTransactionManager}.
+ *
+ * <p>Binds a connection from the specified factory to the reactive
+ * {@link TransactionSynchronizationManager} of the current subscription, where
+ * {@link ConnectionFactoryUtils} and thus
+ * {@link org.springframework.jdbc.reactive.core.ReactiveJdbcTemplate} find it.
+ * Supports the propagation behaviors of {@link AbstractReactiveTransactionManager},
+ * i.e. participating in and suspending existing transactions, but no savepoints
+ * and therefore no nested transactions.
+ *
+ * <p>Typically driven by {@code @Transactional} methods returning a reactive
+ * type, or programmatically through a
+ * {@link org.springframework.transaction.reactive.TransactionalOperator}:
+ * the transaction commits when the publisher completes, and rolls back when
+ * it signals an error or when the subscription gets cancelled.
+ *
+ * @since 5.1.13
+ * @see ConnectionFactoryUtils#doInConnection
+ * @see org.springframework.transaction.reactive.TransactionalOperator
+ */
+@SuppressWarnings("serial")
+public class ReactiveJdbcTransactionManager extends AbstractReactiveTransactionManager
+		implements InitializingBean {
+
+	@Nullable
+	private ReactiveConnectionFactory connectionFactory;
+
+
+	/**
+	 * Create a new ReactiveJdbcTransactionManager instance.
+	 * A ReactiveConnectionFactory has to be set to be able to use it.
+	 * @see #setConnectionFactory
+	 */
+	public ReactiveJdbcTransactionManager() {
+	}
+
+	/**
+	 * Create a new ReactiveJdbcTransactionManager instance.
+	 * @param connectionFactory the ReactiveConnectionFactory to manage transactions for
+	 */
+	public ReactiveJdbcTransactionManager(ReactiveConnectionFactory connectionFactory) {
+		this.connectionFactory = connectionFactory;
+	}
+
+
+	/**
+	 * Set the ReactiveConnectionFactory that this instance should manage transactions for.
+	 */
+	public void setConnectionFactory(@Nullable ReactiveConnectionFactory connectionFactory) {
+		this.connectionFactory = connectionFactory;
+	}
+
+	/**
+	 * Return the ReactiveConnectionFactory that this instance manages transactions for.
+	 */
+	@Nullable
+	public ReactiveConnectionFactory getConnectionFactory() {
+		return this.connectionFactory;
+	}
+
+	/**
+	 * Obtain the ReactiveConnectionFactory for actual use.
+	 * @return the ReactiveConnectionFactory (never {@code null})
+	 * @throws IllegalStateException in case of no ReactiveConnectionFactory set
+	 */
+	protected ReactiveConnectionFactory obtainConnectionFactory() {
+		ReactiveConnectionFactory connectionFactory = getConnectionFactory();
+		Assert.state(connectionFactory != null, "No ReactiveConnectionFactory set");
+		return connectionFactory;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		if (getConnectionFactory() == null) {
+			throw new IllegalArgumentException("Property 'connectionFactory' is required");
+		}
+	}
+
+
+	/**
+	 * Run the given {@code Mono} within a transaction with default settings.
+	 * @param mono the {@code Mono} to run
+	 * @return a {@code Mono} running the given one within a transaction
+	 * @see TransactionalOperator#transactional(Mono)
+	 */
+	public <T> Mono<T> transactional(Mono<T> mono) {
+		return TransactionalOperator.create(this).transactional(mono);
+	}
+
+	/**
+	 * Run the given publisher within a transaction with default settings.
+	 * @param publisher the publisher to run
+	 * @return a {@code Flux} running the given publisher within a transaction
+	 * @see TransactionalOperator#execute
+	 */
+	public <T> Flux<T> transactional(Publisher<T> publisher) {
+		return TransactionalOperator.create(this).execute(status -> publisher);
+	}
+
+
+	@Override
+	protected Object doGetTransaction(TransactionSynchronizationManager synchronizationManager) {
+		ReactiveJdbcTransactionObject txObject = new ReactiveJdbcTransactionObject();
+		ReactiveConnectionHolder conHolder =
+				(ReactiveConnectionHolder) synchronizationManager.getResource(obtainConnectionFactory());
+		txObject.setConnectionHolder(conHolder, false);
+		return txObject;
+	}
+
+	@Override
+	protected boolean isExistingTransaction(Object transaction) {
+		ReactiveJdbcTransactionObject txObject = (ReactiveJdbcTransactionObject) transaction;
+		return (txObject.hasConnectionHolder() && txObject.getConnectionHolder().isTransactionActive());
+	}
+
+	@Override
+	protected Mono<Void> doBegin(TransactionSynchronizationManager synchronizationManager,
+			Object transaction, TransactionDefinition definition) throws TransactionException {
+
+		ReactiveJdbcTransactionObject txObject = (ReactiveJdbcTransactionObject) transaction;
+		ReactiveConnectionFactory connectionFactory = obtainConnectionFactory();
+
+		return Mono.from(connectionFactory.create()).flatMap(con -> {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Acquired Connection [" + con + "] for reactive JDBC transaction");
+			}
+			return Mono.from(con.beginTransaction())
+					.onErrorResume(ex -> closeConnection(con).then(Mono.error(ex)))
+					.then(Mono.fromRunnable(() -> {
+						ReactiveConnectionHolder conHolder = new ReactiveConnectionHolder(con, true);
+						conHolder.setSynchronizedWithTransaction(true);
+						txObject.setConnectionHolder(conHolder, true);
+						synchronizationManager.bindResource(connectionFactory, conHolder);
+					}));
+		}).onErrorMap(ex -> !(ex instanceof TransactionException), ex -> new CannotCreateTransactionException(
+				"Could not open reactive JDBC Connection for transaction", ex)).then();
+	}
+
+	@Override
+	protected Mono<Object> doSuspend(TransactionSynchronizationManager synchronizationManager,
+			Object transaction) throws TransactionException {
+
+		return Mono.fromSupplier(() -> {
+			ReactiveJdbcTransactionObject txObject = (ReactiveJdbcTransactionObject) transaction;
+			txObject.setConnectionHolder(null, false);
+			return synchronizationManager.unbindResource(obtainConnectionFactory());
+		});
+	}
+
+	@Override
+	protected Mono<Void> doResume(TransactionSynchronizationManager synchronizationManager,
+			@Nullable Object transaction, Object suspendedResources) throws TransactionException {
+
+		return Mono.fromRunnable(() ->
+				synchronizationManager.bindResource(obtainConnectionFactory(), suspendedResources));
+	}
+
+	@Override
+	protected Mono<Void> doCommit(TransactionSynchronizationManager synchronizationManager,
+			GenericReactiveTransaction status) throws TransactionException {
+
+		ReactiveJdbcTransactionObject txObject = (ReactiveJdbcTransactionObject) status.getTransaction();
+		ReactiveConnection con = txObject.getConnectionHolder().getConnection();
+		if (status.isDebug()) {
+			logger.debug("Committing reactive JDBC transaction on Connection [" + con + "]");
+		}
+		return Mono.from(con.commitTransaction()).onErrorMap(ex ->
+				new TransactionSystemException("Could not commit reactive JDBC transaction", ex));
+	}
+
+	@Override
+	protected Mono<Void> doRollback(TransactionSynchronizationManager synchronizationManager,
+			GenericReactiveTransaction status) throws TransactionException {
+
+		ReactiveJdbcTransactionObject txObject = (ReactiveJdbcTransactionObject) status.getTransaction();
+		ReactiveConnection con = txObject.getConnectionHolder().getConnection();
+		if (status.isDebug()) {
+			logger.debug("Rolling back reactive JDBC transaction on Connection [" + con + "]");
+		}
+		return Mono.from(con.rollbackTransaction()).onErrorMap(ex ->
+				new TransactionSystemException("Could not roll back reactive JDBC transaction", ex));
+	}
+
+	@Override
+	protected Mono<Void> doSetRollbackOnly(TransactionSynchronizationManager synchronizationManager,
+			GenericReactiveTransaction status) throws TransactionException {
+
+		return Mono.fromRunnable(() -> {
+			ReactiveJdbcTransactionObject txObject = (ReactiveJdbcTransactionObject) status.getTransaction();
+			if (status.isDebug()) {
+				logger.debug("Setting reactive JDBC transaction on Connection [" +
+						txObject.getConnectionHolder().getConnection() + "] rollback-only");
+			}
+			txObject.setRollbackOnly();
+		});
+	}
+
+	@Override
+	protected Mono<Void> doCleanupAfterCompletion(TransactionSynchronizationManager synchronizationManager,
+			Object transaction) {
+
+		return Mono.defer(() -> {
+			ReactiveJdbcTransactionObject txObject = (ReactiveJdbcTransactionObject) transaction;
+
+			// Remove the connection holder from the transaction context, if exposed.
+			if (txObject.isNewConnectionHolder()) {
+				synchronizationManager.unbindResource(obtainConnectionFactory());
+			}
+
+			ReactiveConnectionHolder conHolder = txObject.getConnectionHolder();
+			ReactiveConnection con = conHolder.getConnection();
+			conHolder.clear();
+			if (txObject.isNewConnectionHolder()) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Releasing reactive JDBC Connection [" + con + "] after transaction");
+				}
+				return closeConnection(con);
+			}
+			return Mono.empty();
+		});
+	}
+
+	private Mono<Void> closeConnection(ReactiveConnection con) {
+		return Mono.defer(() -> Mono.from(con.close()))
+				.doOnError(ex -> logger.debug("Could not close reactive JDBC Connection", ex))
+				.onErrorResume(ex -> Mono.empty());
+	}
+
+
+	/**
+	 * Reactive JDBC transaction object, representing a ReactiveConnectionHolder.
+	 * Used as transaction object by ReactiveJdbcTransactionManager.
+	 */
+	private static class ReactiveJdbcTransactionObject implements SmartTransactionObject {
+
+		@Nullable
+		private ReactiveConnectionHolder connectionHolder;
+
+		private boolean newConnectionHolder;
+
+		public void setConnectionHolder(@Nullable ReactiveConnectionHolder connectionHolder,
+				boolean newConnectionHolder) {
+
+			this.connectionHolder = connectionHolder;
+			this.newConnectionHolder = newConnectionHolder;
+		}
+
+		public ReactiveConnectionHolder getConnectionHolder() {
+			Assert.state(this.connectionHolder != null, "No ReactiveConnectionHolder available");
+			return this.connectionHolder;
+		}
+
+		public boolean hasConnectionHolder() {
+			return (this.connectionHolder != null);
+		}
+
+		public boolean isNewConnectionHolder() {
+			return this.newConnectionHolder;
+		}
+
+		public void setRollbackOnly() {
+			getConnectionHolder().setRollbackOnly();
+		}
+
+		@Override
+		public boolean isRollbackOnly() {
+			return getConnectionHolder().isRollbackOnly();
+		}
+
+		@Override
+		public void flush() {
+			// Nothing to flush for a reactive JDBC connection.
+		}
+	}
+
+}
@@ -0,0 +1,12 @@
+/**
+ * Provides a utility class for reactive connection access, binding
+ * transactional connections to the reactive transaction synchronization
+ * rather than to the current thread, and a reactive transaction manager
+ * for a single {@link org.springframework.jdbc.reactive.ReactiveConnectionFactory}.
+ */
+@NonNullApi
+@NonNullFields
+package org.springframework.jdbc.reactive.connection;
+
+import org.springframework.lang.NonNullApi;
+import org.springframework.lang.NonNullFields;
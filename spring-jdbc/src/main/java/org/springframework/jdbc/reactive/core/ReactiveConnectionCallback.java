@@ -0,0 +1,46 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.reactive.core;
+
+import org.reactivestreams.Publisher;
+
+import org.springframework.jdbc.reactive.ReactiveConnection;
+
+/**
+ * Generic callback interface for code that operates on a reactive connection,
+ * the reactive counterpart of {@link org.springframework.jdbc.core.ConnectionCallback}.
+ * Allows to execute any number of operations on a single connection.
+ *
+ * @since 5.1.13
+ * @param <T> the result type
+ * @see ReactiveJdbcTemplate#execute(ReactiveConnectionCallback)
+ */
+@FunctionalInterface
+public interface ReactiveConnectionCallback<T> {
+
+	/**
+	 * Gets called by {@code ReactiveJdbcTemplate.execute} with an active connection.
+	 * <p>The connection is closed once the returned publisher terminates, unless
+	 * it takes part in a transaction managed by the caller.
+	 * <p>{@link java.sql.SQLException SQLExceptions} signalled by the returned
+	 * publisher are translated into Spring's {@code DataAccessException} hierarchy.
+	 * @param connection the reactive connection
+	 * @return the results of the operations
+	 */
+	Publisher<T> doInConnection(ReactiveConnection connection);
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.reactive.core;
+
+import java.util.Map;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.lang.Nullable;
+
+/**
+ * Interface specifying a basic set of reactive JDBC operations.
+ * Implemented by {@link ReactiveJdbcTemplate}. Not often used directly, but a useful
+ * option to enhance testability, as it can easily be mocked or stubbed.
+ *
+ * <p>The reactive counterpart of {@link org.springframework.jdbc.core.JdbcOperations},
+ * combined with the named parameter support of
+ * {@link org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations}.
+ * All operations are lazy: the statement only gets executed on subscription,
+ * and rows are streamed according to the demand of the subscriber. Errors are
+ * signalled as {@link org.springframework.dao.DataAccessException DataAccessExceptions}.
+ *
+ * <p>Since Reactive Streams do not allow {@code null} elements, SQL {@code NULL}
+ * values are skipped by the single-column variants of the query methods.
+ *
+ * @since 5.1.13
+ * @see ReactiveJdbcTemplate
+ */
+public interface ReactiveJdbcOperations {
+
+	/**
+	 * Execute a reactive JDBC data access operation, implemented as callback action
+	 * working on a reactive connection.
+	 * @param action the callback object that specifies the action
+	 * @return the results of the action
+	 */
+	<T> Flux<T> execute(ReactiveConnectionCallback<T> action);
+
+	/**
+	 * Query given SQL, binding the given arguments to the statement,
+	 * mapping each row to a result object via a ReactiveRowMapper.
+	 * @param sql the SQL query to execute
+	 * @param rowMapper the callback that will map one object per row
+	 * @param args arguments to bind to the query
+	 * @return the mapped objects
+	 */
+	<T> Flux<T> query(String sql, ReactiveRowMapper<T> rowMapper, @Nullable Object... args);
+
+	/**
+	 * Query given SQL, binding the given named parameters to the statement,
+	 * mapping each row to a result object via a ReactiveRowMapper.
+	 * @param sql the SQL query to execute
+	 * @param paramSource container of arguments to bind to the query
+	 * @param rowMapper the callback that will map one object per row
+	 * @return the mapped objects
+	 */
+	<T> Flux<T> query(String sql, SqlParameterSource paramSource, ReactiveRowMapper<T> rowMapper);
+
+	/**
+	 * Query given SQL, binding the given named parameters to the statement,
+	 * mapping each row to a result object via a ReactiveRowMapper.
+	 * @param sql the SQL query to execute
+	 * @param paramMap map of parameters to bind to the query
+	 * @param rowMapper the callback that will map one object per row
+	 * @return the mapped objects
+	 */
+	<T> Flux<T> query(String sql, Map<String, ?> paramMap, ReactiveRowMapper<T> rowMapper);
+
+	/**
+	 * Query given SQL, binding the given arguments to the statement,
+	 * mapping a single result row to a result object via a ReactiveRowMapper.
+	 * @param sql the SQL query to execute
+	 * @param rowMapper the callback that will map one object per row
+	 * @param args arguments to bind to the query
+	 * @return the single mapped object, signalling an
+	 * {@link org.springframework.dao.IncorrectResultSizeDataAccessException}
+	 * if the query does not return exactly one row
+	 */
+	<T> Mono<T> queryForObject(String sql, ReactiveRowMapper<T> rowMapper, @Nullable Object... args);
+
+	/**
+	 * Query given SQL, binding the given arguments to the statement,
+	 * expecting a single result row with a single column.
+	 * @param sql the SQL query to execute
+	 * @param requiredType the type that the result object is expected to match
+	 * @param args arguments to bind to the query
+	 * @return the result object of the required type, or an empty {@code Mono}
+	 * in case of SQL NULL, signalling an
+	 * {@link org.springframework.dao.IncorrectResultSizeDataAccessException}
+	 * if the query does not return exactly one row, or an
+	 * {@link org.springframework.jdbc.IncorrectResultSetColumnCountException}
+	 * if the row does not contain a single column
+	 */
+	<T> Mono<T> queryForObject(String sql, Class<T> requiredType, @Nullable Object... args);
+
+	/**
+	 * Query given SQL, binding the given arguments to the statement,
+	 * expecting a single result row, mapped to a column name/value Map.
+	 * @param sql the SQL query to execute
+	 * @param args arguments to bind to the query
+	 * @return the result Map (one entry per column, with column name as key),
+	 * signalling an {@link org.springframework.dao.IncorrectResultSizeDataAccessException}
+	 * if the query does not return exactly one row
+	 */
+	Mono<Map<String, Object>> queryForMap(String sql, @Nullable Object... args);
+
+	/**
+	 * Query given SQL, binding the given arguments to the statement,
+	 * expecting a result with a single column.
+	 * @param sql the SQL query to execute
+	 * @param elementType the required type of element in the result
+	 * @param args arguments to bind to the query
+	 * @return the non-null values of the column
+	 */
+	<T> Flux<T> queryForFlux(String sql, Class<T> elementType, @Nullable Object... args);
+
+	/**
+	 * Query given SQL, binding the given arguments to the statement,
+	 * mapping each row to a column name/value Map.
+	 * @param sql the SQL query to execute
+	 * @param args arguments to bind to the query
+	 * @return the result Maps (one entry per column, with column name as key)
+	 */
+	Flux<Map<String, Object>> queryForFlux(String sql, @Nullable Object... args);
+
+	/**
+	 * Issue a single SQL update operation (such as an insert, update or delete
+	 * statement), binding the given arguments to the statement.
+	 * @param sql the SQL containing bind parameters
+	 * @param args arguments to bind to the query
+	 * @return the number of rows affected
+	 */
+	Mono<Integer> update(String sql, @Nullable Object... args);
+
+	/**
+	 * Issue a single SQL update operation (such as an insert, update or delete
+	 * statement), binding the given named parameters to the statement.
+	 * @param sql the SQL containing named parameters
+	 * @param paramSource container of arguments and SQL types to bind to the query
+	 * @return the number of rows affected
+	 */
+	Mono<Integer> update(String sql, SqlParameterSource paramSource);
+
+	/**
+	 * Issue a single SQL update operation (such as an insert, update or delete
+	 * statement), binding the given named parameters to the statement.
+	 * @param sql the SQL containing named parameters
+	 * @param paramMap map of parameters to bind to the query
+	 * @return the number of rows affected
+	 */
+	Mono<Integer> update(String sql, Map<String, ?> paramMap);
+
+}
@@ -0,0 +1,472 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.reactive.core;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.jdbc.IncorrectResultSetColumnCountException;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.reactive.ReactiveConnectionFactory;
+import org.springframework.jdbc.reactive.ReactiveResult;
+import org.springframework.jdbc.reactive.ReactiveRow;
+import org.springframework.jdbc.reactive.ReactiveStatement;
+import org.springframework.jdbc.reactive.connection.ConnectionFactoryUtils;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+import org.springframework.jdbc.support.SQLStateSQLExceptionTranslator;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+
+/**
+ * <b>This is the central class in the reactive JDBC core package.</b>
+ * It executes SQL statements through a non-blocking
+ * {@link ReactiveConnectionFactory}, returning {@code Flux} and {@code Mono}
+ * results instead of blocking the calling thread.
+ *
+ * <p>Mirrors the {@link org.springframework.jdbc.core.JdbcTemplate} programming
+ * model: rows are mapped via {@link ReactiveRowMapper} callbacks, named parameters
+ * are expanded via {@link NamedParameterUtils} (including collection values for
+ * {@code IN} clauses), and {@link SQLException SQLExceptions} signalled by the
+ * driver are translated via a {@link SQLExceptionTranslator}.
+ *
+ * <p>Connections are obtained via {@link ConnectionFactoryUtils}: within a
+ * transaction run by a
+ * {@link org.springframework.jdbc.reactive.connection.ReactiveJdbcTransactionManager},
+ * all statements share the transactional connection bound to the Reactor subscriber
+ * context; otherwise, each statement uses a connection of its own.
+ *
+ * <p><b>NOTE: An instance of this class is thread-safe once configured.</b>
+ *
+ * @since 5.1.13
+ * @see ReactiveJdbcOperations
+ */
+public class ReactiveJdbcTemplate implements ReactiveJdbcOperations, InitializingBean {
+
+	/** Default maximum number of entries for this template's SQL cache: 256. */
+	public static final int DEFAULT_CACHE_LIMIT = 256;
+
+
+	/** Logger available to subclasses. */
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	@Nullable
+	private ReactiveConnectionFactory connectionFactory;
+
+	private SQLExceptionTranslator exceptionTranslator = new SQLStateSQLExceptionTranslator();
+
+	private int fetchSize = -1;
+
+	private volatile int cacheLimit = DEFAULT_CACHE_LIMIT;
+
+	/** Cache of original SQL String to ParsedSql representation. */
+	@SuppressWarnings("serial")
+	private final Map<String, ParsedSql> parsedSqlCache =
+			new LinkedHashMap<String, ParsedSql>(DEFAULT_CACHE_LIMIT, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, ParsedSql> eldest) {
+					return size() > getCacheLimit();
+				}
+			};
+
+
+	/**
+	 * Construct a new ReactiveJdbcTemplate for bean usage.
+	 * <p>Note: The ReactiveConnectionFactory has to be set before using the instance.
+	 * @see #setConnectionFactory
+	 */
+	public ReactiveJdbcTemplate() {
+	}
+
+	/**
+	 * Construct a new ReactiveJdbcTemplate, given a ReactiveConnectionFactory to obtain connections from.
+	 * @param connectionFactory the reactive connection factory to obtain connections from
+	 */
+	public ReactiveJdbcTemplate(ReactiveConnectionFactory connectionFactory) {
+		setConnectionFactory(connectionFactory);
+		afterPropertiesSet();
+	}
+
+
+	/**
+	 * Set the ReactiveConnectionFactory to obtain connections from.
+	 */
+	public void setConnectionFactory(@Nullable ReactiveConnectionFactory connectionFactory) {
+		this.connectionFactory = connectionFactory;
+	}
+
+	/**
+	 * Return the ReactiveConnectionFactory used by this template.
+	 */
+	@Nullable
+	public ReactiveConnectionFactory getConnectionFactory() {
+		return this.connectionFactory;
+	}
+
+	/**
+	 * Obtain the ReactiveConnectionFactory for actual use.
+	 * @return the ReactiveConnectionFactory (never {@code null})
+	 * @throws IllegalStateException in case of no ReactiveConnectionFactory set
+	 */
+	protected ReactiveConnectionFactory obtainConnectionFactory() {
+		ReactiveConnectionFactory connectionFactory = getConnectionFactory();
+		Assert.state(connectionFactory != null, "No ReactiveConnectionFactory set");
+		return connectionFactory;
+	}
+
+	/**
+	 * Set the exception translator for this instance.
+	 * <p>Default is a {@link SQLStateSQLExceptionTranslator}, since there is no
+	 * {@link javax.sql.DataSource} to derive database-specific error codes from.
+	 * @see org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator
+	 */
+	public void setExceptionTranslator(SQLExceptionTranslator exceptionTranslator) {
+		Assert.notNull(exceptionTranslator, "SQLExceptionTranslator must not be null");
+		this.exceptionTranslator = exceptionTranslator;
+	}
+
+	/**
+	 * Return the exception translator for this instance.
+	 */
+	public SQLExceptionTranslator getExceptionTranslator() {
+		return this.exceptionTranslator;
+	}
+
+	/**
+	 * Set the fetch size for this ReactiveJdbcTemplate, passed on to the driver
+	 * as a hint for the number of rows to read ahead of the subscriber's demand.
+	 * <p>Default is -1, indicating to use the driver's default configuration.
+	 * @see ReactiveStatement#fetchSize
+	 */
+	public void setFetchSize(int fetchSize) {
+		this.fetchSize = fetchSize;
+	}
+
+	/**
+	 * Return the fetch size specified for this ReactiveJdbcTemplate.
+	 */
+	public int getFetchSize() {
+		return this.fetchSize;
+	}
+
+	/**
+	 * Specify the maximum number of entries for this template's SQL cache.
+	 * Default is 256.
+	 */
+	public void setCacheLimit(int cacheLimit) {
+		this.cacheLimit = cacheLimit;
+	}
+
+	/**
+	 * Return the maximum number of entries for this template's SQL cache.
+	 */
+	public int getCacheLimit() {
+		return this.cacheLimit;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		if (getConnectionFactory() == null) {
+			throw new IllegalArgumentException("Property 'connectionFactory' is required");
+		}
+	}
+
+
+	//-------------------------------------------------------------------------
+	// Methods dealing with connections and statements
+	//-------------------------------------------------------------------------
+
+	@Override
+	public <T> Flux<T> execute(ReactiveConnectionCallback<T> action) {
+		Assert.notNull(action, "Callback object must not be null");
+		return ConnectionFactoryUtils.doInConnection(obtainConnectionFactory(), action::doInConnection)
+				.onErrorMap(SQLException.class, ex -> translateException("ReactiveConnectionCallback", null, ex));
+	}
+
+	/**
+	 * Execute the given SQL statement, applying the given function to its results.
+	 * @param sql the SQL statement to execute
+	 * @param binder the callback that binds parameters to the statement
+	 * @param resultFunction the function to apply to each result
+	 * @return the outcome of the result function
+	 */
+	protected <T> Flux<T> execute(String sql, Consumer<ReactiveStatement> binder,
+			Function<ReactiveResult, ? extends Publisher<? extends T>> resultFunction) {
+
+		Assert.notNull(sql, "SQL must not be null");
+		return ConnectionFactoryUtils.doInConnection(obtainConnectionFactory(), con -> {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Executing reactive SQL statement [" + sql + "]");
+			}
+			ReactiveStatement statement = con.createStatement(sql);
+			binder.accept(statement);
+			if (getFetchSize() != -1) {
+				statement.fetchSize(getFetchSize());
+			}
+			return Flux.<ReactiveResult>from(statement.execute()).concatMap(resultFunction);
+		}).onErrorMap(SQLException.class, ex -> translateException("ReactiveStatement", sql, ex));
+	}
+
+	/**
+	 * Query the given SQL statement, mapping each row via the given function.
+	 * <p>The mapping function is invoked with a 0-based row number per result.
+	 * @param sql the SQL query to execute
+	 * @param binder the callback that binds parameters to the statement
+	 * @param rowMapper the callback that will map one object per row
+	 * @return the mapped objects
+	 */
+	protected <T> Flux<T> query(String sql, Consumer<ReactiveStatement> binder, ReactiveRowMapper<T> rowMapper) {
+		Assert.notNull(rowMapper, "ReactiveRowMapper must not be null");
+		return execute(sql, binder, result -> {
+			AtomicInteger rowNum = new AtomicInteger();
+			return result.map(row -> mapRow(rowMapper, row, rowNum.getAndIncrement(), sql));
+		});
+	}
+
+	private <T> T mapRow(ReactiveRowMapper<T> rowMapper, ReactiveRow row, int rowNum, String sql) {
+		try {
+			T result = rowMapper.mapRow(row, rowNum);
+			Assert.state(result != null, "ReactiveRowMapper returned null for row " + rowNum);
+			return result;
+		}
+		catch (SQLException ex) {
+			throw translateException("ReactiveRowMapper", sql, ex);
+		}
+	}
+
+
+	//-------------------------------------------------------------------------
+	// Methods dealing with positional arguments
+	//-------------------------------------------------------------------------
+
+	@Override
+	public <T> Flux<T> query(String sql, ReactiveRowMapper<T> rowMapper, @Nullable Object... args) {
+		return query(sql, statement -> bindArguments(statement, args), rowMapper);
+	}
+
+	@Override
+	public <T> Mono<T> queryForObject(String sql, ReactiveRowMapper<T> rowMapper, @Nullable Object... args) {
+		return query(sql, rowMapper, args).collectList().map(DataAccessUtils::requiredSingleResult);
+	}
+
+	@Override
+	public <T> Mono<T> queryForObject(String sql, Class<T> requiredType, @Nullable Object... args) {
+		return query(sql, getSingleColumnRowMapper(requiredType), args).collectList()
+				.flatMap(results -> Mono.justOrEmpty(DataAccessUtils.requiredSingleResult(results)));
+	}
+
+	@Override
+	public Mono<Map<String, Object>> queryForMap(String sql, @Nullable Object... args) {
+		return queryForObject(sql, getColumnMapRowMapper(), args);
+	}
+
+	@Override
+	public <T> Flux<T> queryForFlux(String sql, Class<T> elementType, @Nullable Object... args) {
+		return query(sql, getSingleColumnRowMapper(elementType), args)
+				.filter(Optional::isPresent).map(Optional::get);
+	}
+
+	@Override
+	public Flux<Map<String, Object>> queryForFlux(String sql, @Nullable Object... args) {
+		return query(sql, getColumnMapRowMapper(), args);
+	}
+
+	@Override
+	public Mono<Integer> update(String sql, @Nullable Object... args) {
+		return update(sql, statement -> bindArguments(statement, args));
+	}
+
+	private Mono<Integer> update(String sql, Consumer<ReactiveStatement> binder) {
+		return execute(sql, binder, ReactiveResult::getRowsUpdated).reduce(0, Integer::sum);
+	}
+
+	private void bindArguments(ReactiveStatement statement, @Nullable Object[] args) {
+		if (args != null) {
+			for (int i = 0; i < args.length; i++) {
+				bindValue(statement, i + 1, args[i]);
+			}
+		}
+	}
+
+
+	//-------------------------------------------------------------------------
+	// Methods dealing with named parameters
+	//-------------------------------------------------------------------------
+
+	@Override
+	public <T> Flux<T> query(String sql, SqlParameterSource paramSource, ReactiveRowMapper<T> rowMapper) {
+		ParsedSql parsedSql = getParsedSql(sql);
+		String sqlToUse = NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource);
+		return query(sqlToUse, statement -> bindParameters(statement, parsedSql, paramSource), rowMapper);
+	}
+
+	@Override
+	public <T> Flux<T> query(String sql, Map<String, ?> paramMap, ReactiveRowMapper<T> rowMapper) {
+		return query(sql, new MapSqlParameterSource(paramMap), rowMapper);
+	}
+
+	@Override
+	public Mono<Integer> update(String sql, SqlParameterSource paramSource) {
+		ParsedSql parsedSql = getParsedSql(sql);
+		String sqlToUse = NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource);
+		return update(sqlToUse, statement -> bindParameters(statement, parsedSql, paramSource));
+	}
+
+	@Override
+	public Mono<Integer> update(String sql, Map<String, ?> paramMap) {
+		return update(sql, new MapSqlParameterSource(paramMap));
+	}
+
+	private void bindParameters(ReactiveStatement statement, ParsedSql parsedSql, SqlParameterSource paramSource) {
+		List<SqlParameter> declaredParameters = NamedParameterUtils.buildSqlParameterList(parsedSql, paramSource);
+		Object[] values = NamedParameterUtils.buildValueArray(parsedSql, paramSource, declaredParameters);
+		int index = 1;
+		for (Object value : values) {
+			Object valueToBind = (value instanceof SqlParameterValue ? ((SqlParameterValue) value).getValue() : value);
+			// Collection values have been expanded into multiple placeholders
+			if (valueToBind instanceof Iterable) {
+				for (Object element : (Iterable<?>) valueToBind) {
+					if (element instanceof Object[]) {
+						for (Object argValue : (Object[]) element) {
+							bindValue(statement, index++, argValue);
+						}
+					}
+					else {
+						bindValue(statement, index++, element);
+					}
+				}
+			}
+			else {
+				bindValue(statement, index++, value);
+			}
+		}
+	}
+
+	/**
+	 * Obtain a parsed representation of the given SQL statement.
+	 * <p>The default implementation uses an LRU cache with an upper limit of 256 entries.
+	 * @param sql the original SQL statement
+	 * @return a representation of the parsed SQL statement
+	 */
+	protected ParsedSql getParsedSql(String sql) {
+		if (getCacheLimit() <= 0) {
+			return NamedParameterUtils.parseSqlStatement(sql);
+		}
+		synchronized (this.parsedSqlCache) {
+			ParsedSql parsedSql = this.parsedSqlCache.get(sql);
+			if (parsedSql == null) {
+				parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+				this.parsedSqlCache.put(sql, parsedSql);
+			}
+			return parsedSql;
+		}
+	}
+
+
+	//-------------------------------------------------------------------------
+	// Implementation hooks and helper methods
+	//-------------------------------------------------------------------------
+
+	/**
+	 * Bind the given value to the placeholder at the given index,
+	 * unwrapping {@link SqlParameterValue} instances.
+	 * @param statement the statement to bind to
+	 * @param index the index of the placeholder (1-based)
+	 * @param value the value to bind
+	 */
+	protected void bindValue(ReactiveStatement statement, int index, @Nullable Object value) {
+		int sqlType = SqlTypeValue.TYPE_UNKNOWN;
+		if (value instanceof SqlParameterValue) {
+			sqlType = ((SqlParameterValue) value).getSqlType();
+			value = ((SqlParameterValue) value).getValue();
+		}
+		if (value != null) {
+			statement.bind(index, value);
+		}
+		else {
+			statement.bindNull(index, sqlType);
+		}
+	}
+
+	/**
+	 * Create a new row mapper for reading a single column into the given type.
+	 * <p>Wraps the result in an {@link Optional}, since SQL {@code NULL} values
+	 * cannot be emitted as such.
+	 * @param requiredType the type that each result object is expected to match
+	 * @return the row mapper to use
+	 */
+	protected <T> ReactiveRowMapper<Optional<T>> getSingleColumnRowMapper(Class<T> requiredType) {
+		return (row, rowNum) -> {
+			int columnCount = row.getColumnCount();
+			if (columnCount != 1) {
+				throw new IncorrectResultSetColumnCountException(1, columnCount);
+			}
+			return Optional.ofNullable(row.getObject(1, requiredType));
+		};
+	}
+
+	/**
+	 * Create a new row mapper for reading columns as key-value pairs.
+	 * @return the row mapper to use
+	 * @see org.springframework.jdbc.core.ColumnMapRowMapper
+	 */
+	protected ReactiveRowMapper<Map<String, Object>> getColumnMapRowMapper() {
+		return (row, rowNum) -> {
+			int columnCount = row.getColumnCount();
+			Map<String, Object> mapOfColumnValues = new LinkedCaseInsensitiveMap<>(columnCount);
+			for (int i = 1; i <= columnCount; i++) {
+				mapOfColumnValues.putIfAbsent(row.getColumnLabel(i), row.getObject(i));
+			}
+			return mapOfColumnValues;
+		};
+	}
+
+	/**
+	 * Translate the given {@link SQLException} into a generic {@link DataAccessException}.
+	 * @param task readable text describing the task being attempted
+	 * @param sql the SQL query or update that caused the problem (may be {@code null})
+	 * @param ex the offending {@code SQLException}
+	 * @return a DataAccessException wrapping the {@code SQLException} (never {@code null})
+	 */
+	protected DataAccessException translateException(String task, @Nullable String sql, SQLException ex) {
+		DataAccessException dae = getExceptionTranslator().translate(task, sql, ex);
+		return (dae != null ? dae : new UncategorizedSQLException(task, sql, ex));
+	}
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.reactive.core;
+
+import java.sql.SQLException;
+
+import org.springframework.jdbc.reactive.ReactiveRow;
+
+/**
+ * An interface used by {@link ReactiveJdbcTemplate} for mapping rows
+ * on a per-row basis, the reactive counterpart of
+ * {@link org.springframework.jdbc.core.RowMapper}.
+ *
+ * <p>Implementations of this interface perform the actual work of mapping
+ * each row to a result object, but don't need to worry about exception
+ * handling. {@link java.sql.SQLException SQLExceptions} will be caught and
+ * handled by the calling ReactiveJdbcTemplate.
+ *
+ * @since 5.1.13
+ * @param <T> the result type
+ */
+@FunctionalInterface
+public interface ReactiveRowMapper<T> {
+
+	/**
+	 * Implementations must implement this method to map each row of data.
+	 * @param row the row to map, only valid for the duration of this call
+	 * @param rowNum the number of the current row (0-based)
+	 * @return the result object for the current row (must not be {@code null})
+	 * @throws SQLException if an SQLException is encountered getting
+	 * column values (that is, there's no need to catch SQLException)
+	 */
+	T mapRow(ReactiveRow row, int rowNum) throws SQLException;
+
+}
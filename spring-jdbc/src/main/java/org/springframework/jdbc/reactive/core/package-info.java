@@ -0,0 +1,11 @@
+/**
+ * Provides the reactive counterpart of the JdbcTemplate class,
+ * returning {@code Flux} and {@code Mono} results on top of the
+ * {@link org.springframework.jdbc.reactive} driver SPI.
+ */
+@NonNullApi
+@NonNullFields
+package org.springframework.jdbc.reactive.core;
+
+import org.springframework.lang.NonNullApi;
+import org.springframework.lang.NonNullFields;
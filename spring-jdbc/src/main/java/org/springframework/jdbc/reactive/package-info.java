@@ -0,0 +1,11 @@
+/**
+ * The driver SPI underneath Spring's reactive JDBC support: connections,
+ * statements and results exposed as Reactive Streams publishers, with
+ * row streaming driven by subscriber demand.
+ */
+@NonNullApi
+@NonNullFields
+package org.springframework.jdbc.reactive;
+
+import org.springframework.lang.NonNullApi;
+import org.springframework.lang.NonNullFields;
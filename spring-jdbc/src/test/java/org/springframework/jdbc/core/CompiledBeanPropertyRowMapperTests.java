@@ -0,0 +1,310 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.core.test.ConcretePerson;
+import org.springframework.jdbc.core.test.ConstructorPerson;
+import org.springframework.jdbc.core.test.DatePerson;
+import org.springframework.jdbc.core.test.ExtendedPerson;
+import org.springframework.jdbc.core.test.Person;
+import org.springframework.jdbc.core.test.SpacePerson;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.util.StopWatch;
+
+import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * Unit tests for {@link CompiledBeanPropertyRowMapper}.
+ */
+public class CompiledBeanPropertyRowMapperTests extends AbstractRowMapperTests {
+
+	private static final String[] COLUMNS = new String[] {"name", "age", "birth_date", "balance"};
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+
+	@Test
+	public void testStaticQueryWithRowMapper() throws Exception {
+		Mock mock = new Mock();
+		List<Person> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(Person.class));
+		assertEquals(1, result.size());
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingWithInheritance() throws Exception {
+		Mock mock = new Mock();
+		List<ConcretePerson> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				CompiledBeanPropertyRowMapper.newInstance(ConcretePerson.class));
+		assertEquals(1, result.size());
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingWithNoUnpopulatedFieldsFound() throws Exception {
+		Mock mock = new Mock();
+		List<ConcretePerson> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(ConcretePerson.class, true));
+		assertEquals(1, result.size());
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingWithUnpopulatedFieldsNotAccepted() throws Exception {
+		Mock mock = new Mock();
+		thrown.expect(InvalidDataAccessApiUsageException.class);
+		mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(ExtendedPerson.class, true));
+	}
+
+	@Test
+	public void testMappingNullValue() throws Exception {
+		Mock mock = new Mock(MockType.TWO);
+		thrown.expect(TypeMismatchException.class);
+		mock.getJdbcTemplate().query(
+				"select name, null as age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(Person.class));
+	}
+
+	@Test
+	public void testMappingNullValueWithPrimitivesDefaulted() throws Exception {
+		CompiledBeanPropertyRowMapper<Person> mapper = new CompiledBeanPropertyRowMapper<>(Person.class);
+		mapper.setPrimitivesDefaultedForNullValue(true);
+		Mock mock = new Mock(MockType.TWO);
+		List<Person> result = mock.getJdbcTemplate().query(
+				"select name, null as age, birth_date, balance from people", mapper);
+		assertEquals(1, result.size());
+		assertEquals(0L, result.get(0).getAge());
+	}
+
+	@Test
+	public void testQueryWithSpaceInColumnNameAndLocalDateTime() throws Exception {
+		Mock mock = new Mock(MockType.THREE);
+		List<SpacePerson> result = mock.getJdbcTemplate().query(
+				"select last_name as \"Last Name\", age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(SpacePerson.class));
+		assertEquals(1, result.size());
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testQueryWithSpaceInColumnNameAndLocalDate() throws Exception {
+		Mock mock = new Mock(MockType.THREE);
+		List<DatePerson> result = mock.getJdbcTemplate().query(
+				"select last_name as \"Last Name\", age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(DatePerson.class));
+		assertEquals(1, result.size());
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingWithConstructor() throws Exception {
+		Mock mock = new Mock();
+		List<ConstructorPerson> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(ConstructorPerson.class));
+		assertEquals(1, result.size());
+		ConstructorPerson person = result.get(0);
+		assertEquals("Bubba", person.getName());
+		assertEquals(22L, person.getAge());
+		assertEquals(new java.util.Date(1221222L), person.getBirthDate());
+		assertEquals(new BigDecimal("1234.56"), person.getBalance());
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingWithConstructorAndMissingColumn() throws Exception {
+		CompiledBeanPropertyRowMapper<ConstructorPerson> mapper =
+				new CompiledBeanPropertyRowMapper<>(ConstructorPerson.class);
+		thrown.expect(InvalidDataAccessApiUsageException.class);
+		thrown.expectMessage("birthDate");
+		mapper.mapRow(generatedResultSet(1, "name", "age", "balance"), 0);
+	}
+
+	@Test
+	public void testMetaDataReadOncePerResultSet() throws Exception {
+		ResultSet rs = mock(ResultSet.class);
+		ResultSetMetaData rsmd = mock(ResultSetMetaData.class);
+		given(rs.getMetaData()).willReturn(rsmd);
+		given(rsmd.getColumnCount()).willReturn(2);
+		given(rsmd.getColumnLabel(1)).willReturn("name");
+		given(rsmd.getColumnLabel(2)).willReturn("age");
+		given(rs.getString(1)).willReturn("Bubba", "Bob");
+		given(rs.getLong(2)).willReturn(22L, 33L);
+
+		CompiledBeanPropertyRowMapper<Person> mapper = new CompiledBeanPropertyRowMapper<>(Person.class);
+		Person first = mapper.mapRow(rs, 0);
+		Person second = mapper.mapRow(rs, 1);
+		assertEquals("Bubba", first.getName());
+		assertEquals(22L, first.getAge());
+		assertEquals("Bob", second.getName());
+		assertEquals(33L, second.getAge());
+		verify(rs, times(1)).getMetaData();
+		verify(rs, never()).getObject(anyInt());
+	}
+
+	@Test
+	public void testMappingDifferentResultSetShapes() throws Exception {
+		CompiledBeanPropertyRowMapper<Person> mapper = new CompiledBeanPropertyRowMapper<>(Person.class);
+		ResultSet rs = generatedResultSet(1, "name", "age");
+		assertTrue(rs.next());
+		Person first = mapper.mapRow(rs, 0);
+		assertEquals("name-1", first.getName());
+		assertEquals(1L, first.getAge());
+
+		rs = generatedResultSet(1, "age", "balance");
+		assertTrue(rs.next());
+		Person second = mapper.mapRow(rs, 0);
+		assertNull(second.getName());
+		assertEquals(1L, second.getAge());
+		assertEquals(new BigDecimal("1.50"), second.getBalance());
+	}
+
+	@Test
+	public void testMappingPerformance() throws Exception {
+		Assume.group(TestGroup.PERFORMANCE);
+
+		int rowCount = 1_000_000;
+		RowMapper<?> beanPropertyRowMapper = new BeanPropertyRowMapper<>(Person.class);
+		RowMapper<?> columnMapRowMapper = new ColumnMapRowMapper();
+		RowMapper<?> compiledRowMapper = new CompiledBeanPropertyRowMapper<>(Person.class);
+		RowMapper<?> constructorRowMapper = new CompiledBeanPropertyRowMapper<>(ConstructorPerson.class);
+
+		// Warm up all mappers before measuring
+		for (RowMapper<?> rowMapper : new RowMapper<?>[] {
+				beanPropertyRowMapper, columnMapRowMapper, compiledRowMapper, constructorRowMapper}) {
+			mapRows(rowMapper, rowCount / 10);
+		}
+
+		StopWatch sw = new StopWatch("Mapping " + rowCount + " rows");
+		sw.start("BeanPropertyRowMapper");
+		mapRows(beanPropertyRowMapper, rowCount);
+		sw.stop();
+		sw.start("ColumnMapRowMapper");
+		mapRows(columnMapRowMapper, rowCount);
+		sw.stop();
+		sw.start("CompiledBeanPropertyRowMapper");
+		mapRows(compiledRowMapper, rowCount);
+		sw.stop();
+		sw.start("CompiledBeanPropertyRowMapper (constructor)");
+		mapRows(constructorRowMapper, rowCount);
+		sw.stop();
+		System.out.println(sw.prettyPrint());
+
+		long beanProperty = sw.getTaskInfo()[0].getTimeMillis();
+		long compiled = sw.getTaskInfo()[2].getTimeMillis();
+		assertTrue("Compiled mapping (" + compiled + "ms) should be faster than bean property mapping (" +
+				beanProperty + "ms)", compiled < beanProperty);
+	}
+
+	private static void mapRows(RowMapper<?> rowMapper, int rowCount) throws Exception {
+		ResultSet rs = generatedResultSet(rowCount, COLUMNS);
+		int rowNum = 0;
+		while (rs.next()) {
+			assertNotNull(rowMapper.mapRow(rs, rowNum++));
+		}
+	}
+
+	/**
+	 * Create a ResultSet producing the given number of generated rows for the
+	 * given columns, without the invocation recording overhead of a mock.
+	 */
+	private static ResultSet generatedResultSet(int rowCount, String... columns) {
+		ResultSetMetaData rsmd = (ResultSetMetaData) Proxy.newProxyInstance(
+				CompiledBeanPropertyRowMapperTests.class.getClassLoader(),
+				new Class<?>[] {ResultSetMetaData.class}, (proxy, method, args) -> {
+					switch (method.getName()) {
+						case "getColumnCount":
+							return columns.length;
+						case "getColumnLabel":
+						case "getColumnName":
+							return columns[(Integer) args[0] - 1];
+						default:
+							throw new UnsupportedOperationException(method.getName());
+					}
+				});
+		int[] row = new int[1];
+		return (ResultSet) Proxy.newProxyInstance(
+				CompiledBeanPropertyRowMapperTests.class.getClassLoader(),
+				new Class<?>[] {ResultSet.class}, (proxy, method, args) -> {
+					switch (method.getName()) {
+						case "next":
+							return ++row[0] <= rowCount;
+						case "getMetaData":
+							return rsmd;
+						case "wasNull":
+							return false;
+						case "getString":
+						case "getLong":
+						case "getTimestamp":
+						case "getBigDecimal":
+						case "getObject":
+							return columnValue(columns[(Integer) args[0] - 1], row[0], method.getName());
+						default:
+							throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	private static Object columnValue(String column, int row, String getter) {
+		Object value;
+		switch (column) {
+			case "name":
+				value = "name-" + row;
+				break;
+			case "age":
+				value = (long) row;
+				break;
+			case "birth_date":
+				value = new Timestamp(row);
+				break;
+			default:
+				value = BigDecimal.valueOf(row * 150L, 2);
+		}
+		if (getter.equals("getLong") && !(value instanceof Long)) {
+			throw new IllegalArgumentException("Column '" + column + "' is not numeric");
+		}
+		return value;
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.jdbc.core;
 
+import java.lang.reflect.Proxy;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.sql.Connection;
@@ -23,9 +24,15 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.SQLWarning;
 import java.sql.Statement;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.sql.DataSource;
 
@@ -35,6 +42,10 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.InvalidResultSetAccessException;
+import org.springframework.jdbc.SQLWarningException;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
 
 import static org.junit.Assert.*;
 import static org.mockito.BDDMockito.*;
@@ -393,4 +404,172 @@ public class JdbcTemplateQueryTests {
 		verify(this.preparedStatement).close();
 	}
 
+	@Test
+	public void testQueryForStream() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR WHERE ID < 3";
+		given(this.statement.getConnection()).willReturn(this.connection);
+		given(this.resultSet.next()).willReturn(true, true, false);
+		given(this.resultSet.getInt(1)).willReturn(11, 12);
+		List<Integer> ages;
+		try (Stream<Integer> stream = this.template.queryForStream(sql, (rs, rowNum) -> rs.getInt(1))) {
+			verify(this.resultSet, never()).next();
+			ages = stream.collect(Collectors.toList());
+			verify(this.resultSet, never()).close();
+			verify(this.statement, never()).close();
+			verify(this.connection, never()).close();
+		}
+		assertEquals(Arrays.asList(11, 12), ages);
+		verify(this.resultSet).close();
+		verify(this.statement).close();
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void testQueryForStreamMapsRowsOnDemand() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR WHERE ID < 3";
+		given(this.statement.getConnection()).willReturn(this.connection);
+		given(this.resultSet.next()).willReturn(true, true, false);
+		given(this.resultSet.getInt(1)).willReturn(11, 12);
+		Optional<Integer> first;
+		try (Stream<Integer> stream = this.template.queryForStream(sql, (rs, rowNum) -> rs.getInt(1))) {
+			first = stream.findFirst();
+		}
+		assertEquals(Optional.of(11), first);
+		verify(this.resultSet, times(1)).next();
+		verify(this.resultSet).close();
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void testQueryForStreamWithArgsAndFetchSize() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR WHERE ID = ?";
+		given(this.preparedStatement.getConnection()).willReturn(this.connection);
+		given(this.resultSet.next()).willReturn(true, false);
+		given(this.resultSet.getInt(1)).willReturn(22);
+		this.template.setFetchSize(500);
+		try (Stream<Integer> stream = this.template.queryForStream(sql, (rs, rowNum) -> rs.getInt(1), 3)) {
+			assertEquals(Arrays.asList(22), stream.collect(Collectors.toList()));
+		}
+		verify(this.preparedStatement).setFetchSize(500);
+		verify(this.preparedStatement).setObject(1, 3);
+		verify(this.resultSet).close();
+		verify(this.preparedStatement).close();
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void testQueryForStreamWithSQLExceptionDuringIteration() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR WHERE ID = ?";
+		given(this.preparedStatement.getConnection()).willReturn(this.connection);
+		given(this.resultSet.next()).willReturn(true).willThrow(new SQLException("Connection lost"));
+		given(this.resultSet.getInt(1)).willReturn(22);
+		try (Stream<Integer> stream = this.template.queryForStream(sql, (rs, rowNum) -> rs.getInt(1), 3)) {
+			this.thrown.expect(InvalidResultSetAccessException.class);
+			stream.forEach(age -> {});
+		}
+		finally {
+			verify(this.resultSet).close();
+			verify(this.preparedStatement).close();
+			verify(this.connection).close();
+		}
+	}
+
+	@Test
+	public void testQueryForStreamWithFailingPreparedStatementSetter() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR WHERE ID = ?";
+		given(this.preparedStatement.getConnection()).willReturn(this.connection);
+		PreparedStatementSetter pss = ps -> {
+			throw new IllegalStateException("Expected exception");
+		};
+		try {
+			this.template.queryForStream(sql, pss, (rs, rowNum) -> rs.getInt(1));
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			// expected
+		}
+		verify(this.preparedStatement, never()).executeQuery();
+		verify(this.preparedStatement).close();
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void testQueryForStreamWithWarningsNotIgnored() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR WHERE ID < 3";
+		given(this.statement.getConnection()).willReturn(this.connection);
+		given(this.statement.getWarnings()).willReturn(new SQLWarning("Expected warning"));
+		this.template.setIgnoreWarnings(false);
+		try {
+			this.template.queryForStream(sql, (rs, rowNum) -> rs.getInt(1));
+			fail("Should have thrown SQLWarningException");
+		}
+		catch (SQLWarningException ex) {
+			// expected
+		}
+		verify(this.resultSet).close();
+		verify(this.statement).close();
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void testQueryForStreamKeepsHeapFlat() throws Exception {
+		Assume.group(TestGroup.PERFORMANCE);
+
+		int rowCount = 10_000_000;
+		String sql = "SELECT ID, NAME FROM BIG_TABLE";
+		given(this.statement.getConnection()).willReturn(this.connection);
+		given(this.statement.executeQuery(sql)).willReturn(generatedResultSet(rowCount));
+
+		long[] usedMemory = new long[2];
+		AtomicInteger count = new AtomicInteger();
+		try (Stream<String> stream = this.template.queryForStream(sql,
+				(rs, rowNum) -> rs.getLong(1) + ":" + rs.getString(2))) {
+			stream.forEach(row -> {
+				int current = count.incrementAndGet();
+				if (current == 100_000) {
+					usedMemory[0] = usedMemory();
+				}
+				else if (current == rowCount) {
+					usedMemory[1] = usedMemory();
+				}
+			});
+		}
+
+		assertEquals(rowCount, count.get());
+		long growth = usedMemory[1] - usedMemory[0];
+		assertTrue("Heap grew by " + (growth >> 20) + " MB while streaming " + rowCount + " rows",
+				growth < 32 * 1024 * 1024);
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Create a ResultSet producing the given number of generated rows without
+	 * retaining any of them, unlike a Mockito mock which records invocations.
+	 */
+	private static ResultSet generatedResultSet(int rowCount) {
+		AtomicInteger row = new AtomicInteger();
+		return (ResultSet) Proxy.newProxyInstance(JdbcTemplateQueryTests.class.getClassLoader(),
+				new Class<?>[] {ResultSet.class}, (proxy, method, args) -> {
+					switch (method.getName()) {
+						case "next":
+							return row.incrementAndGet() <= rowCount;
+						case "getLong":
+							return (long) row.get();
+						case "getString":
+							return "name-" + row.get();
+						case "close":
+							return null;
+						default:
+							throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
 }
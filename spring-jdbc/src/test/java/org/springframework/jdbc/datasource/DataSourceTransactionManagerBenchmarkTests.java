@@ -0,0 +1,147 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.transaction.interceptor.MatchAlwaysTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StopWatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Benchmarks for transaction demarcation through {@link DataSourceTransactionManager},
+ * against an in-memory stand-in DataSource without any actual JDBC driver work.
+ *
+ * <p>NOTE: No assertions on timing!
+ */
+public class DataSourceTransactionManagerBenchmarkTests {
+
+	/** Increase this if you want meaningful results! */
+	private static final int TRANSACTIONS = 1_000_000;
+
+	private final AtomicInteger commits = new AtomicInteger();
+
+	private final DataSourceTransactionManager tm = new DataSourceTransactionManager(createDataSource());
+
+
+	@Test
+	public void timeTransactionDemarcation() {
+		Assume.group(TestGroup.PERFORMANCE);
+
+		TransactionTemplate template = new TransactionTemplate(this.tm);
+		TransactionTemplate inner = new TransactionTemplate(this.tm);
+
+		IntSupplier target = () -> TransactionSynchronizationManager.getSynchronizations().size();
+		ProxyFactory pf = new ProxyFactory(target);
+		pf.addAdvice(new TransactionInterceptor(this.tm, new MatchAlwaysTransactionAttributeSource()));
+		pf.setFrozen(true);
+		IntSupplier transactional = (IntSupplier) pf.getProxy();
+
+		// Warm up before measuring
+		runTemplate(template, TRANSACTIONS / 4);
+		runNestedTemplates(template, inner, TRANSACTIONS / 4);
+		runInterceptor(transactional, TRANSACTIONS / 4);
+		this.commits.set(0);
+
+		StopWatch sw = new StopWatch(TRANSACTIONS + " transactions");
+		sw.start("TransactionTemplate, PROPAGATION_REQUIRED");
+		runTemplate(template, TRANSACTIONS);
+		sw.stop();
+		sw.start("TransactionTemplate, participating in outer transaction");
+		runNestedTemplates(template, inner, TRANSACTIONS);
+		sw.stop();
+		sw.start("TransactionInterceptor, PROPAGATION_REQUIRED");
+		runInterceptor(transactional, TRANSACTIONS);
+		sw.stop();
+		System.out.println(sw.prettyPrint());
+
+		assertEquals(3 * TRANSACTIONS, this.commits.get());
+		assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+		assertFalse(TransactionSynchronizationManager.isSynchronizationActive());
+	}
+
+	private static void runTemplate(TransactionTemplate template, int transactions) {
+		for (int i = 0; i < transactions; i++) {
+			template.execute(status -> status.isNewTransaction());
+		}
+	}
+
+	private static void runNestedTemplates(TransactionTemplate template, TransactionTemplate inner, int transactions) {
+		for (int i = 0; i < transactions; i++) {
+			template.execute(status -> inner.execute(innerStatus -> innerStatus.isNewTransaction()));
+		}
+	}
+
+	private static void runInterceptor(IntSupplier transactional, int transactions) {
+		for (int i = 0; i < transactions; i++) {
+			transactional.getAsInt();
+		}
+	}
+
+	/**
+	 * Create a DataSource handing out no-op Connections which merely count commits.
+	 */
+	private DataSource createDataSource() {
+		Connection con = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+					switch (method.getName()) {
+						case "getAutoCommit":
+							return true;
+						case "isReadOnly":
+							return false;
+						case "commit":
+							this.commits.incrementAndGet();
+							return null;
+						case "setAutoCommit":
+						case "rollback":
+						case "close":
+							return null;
+						case "equals":
+							return (proxy == args[0]);
+						case "hashCode":
+							return System.identityHashCode(proxy);
+						default:
+							throw new UnsupportedOperationException(method.getName());
+					}
+				});
+		return new AbstractDataSource() {
+			@Override
+			public Connection getConnection() {
+				return con;
+			}
+			@Override
+			public Connection getConnection(String username, String password) {
+				return con;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.reactive;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.util.NumberUtils;
+
+/**
+ * In-memory stand-in for a reactive JDBC driver, replaying scripted
+ * results for known SQL statements and recording all interactions.
+ *
+ * <p>Rows are only emitted as requested by the subscriber; unknown
+ * statements fail with a {@link SQLException} in SQL state {@code 42000}.
+ */
+public class InMemoryConnectionFactory implements ReactiveConnectionFactory {
+
+	private final Map<String, InMemoryResult> results = new ConcurrentHashMap<>();
+
+	private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+	private final AtomicInteger openConnections = new AtomicInteger();
+
+	private final AtomicLong requestedRows = new AtomicLong();
+
+
+	/**
+	 * Register the rows to return for the given query.
+	 */
+	public void addQuery(String sql, String[] columns, Object[]... rows) {
+		this.results.put(sql, new InMemoryResult(columns, rows, null));
+	}
+
+	/**
+	 * Register the update count to return for the given statement.
+	 */
+	public void addUpdate(String sql, int rowsUpdated) {
+		this.results.put(sql, new InMemoryResult(new String[0], new Object[0][], rowsUpdated));
+	}
+
+	/**
+	 * Return the recorded interactions, such as {@code "begin"} or
+	 * {@code "execute SELECT ... [bindings]"}.
+	 */
+	public List<String> getEvents() {
+		return new ArrayList<>(this.events);
+	}
+
+	/**
+	 * Return the number of connections that have not been closed yet.
+	 */
+	public int getOpenConnections() {
+		return this.openConnections.get();
+	}
+
+	/**
+	 * Return the total number of rows requested from all results.
+	 */
+	public long getRequestedRows() {
+		return this.requestedRows.get();
+	}
+
+	@Override
+	public Publisher<InMemoryConnection> create() {
+		return Mono.fromCallable(() -> {
+			this.events.add("create");
+			this.openConnections.incrementAndGet();
+			return new InMemoryConnection();
+		});
+	}
+
+
+	private class InMemoryConnection implements ReactiveConnection {
+
+		@Override
+		public ReactiveStatement createStatement(String sql) {
+			return new InMemoryStatement(sql);
+		}
+
+		@Override
+		public Publisher<Void> beginTransaction() {
+			return Mono.fromRunnable(() -> events.add("begin"));
+		}
+
+		@Override
+		public Publisher<Void> commitTransaction() {
+			return Mono.fromRunnable(() -> events.add("commit"));
+		}
+
+		@Override
+		public Publisher<Void> rollbackTransaction() {
+			return Mono.fromRunnable(() -> events.add("rollback"));
+		}
+
+		@Override
+		public Publisher<Void> close() {
+			return Mono.fromRunnable(() -> {
+				events.add("close");
+				openConnections.decrementAndGet();
+			});
+		}
+	}
+
+
+	private class InMemoryStatement implements ReactiveStatement {
+
+		private final String sql;
+
+		private final Map<Integer, Object> bindings = new TreeMap<>();
+
+		InMemoryStatement(String sql) {
+			this.sql = sql;
+		}
+
+		@Override
+		public ReactiveStatement bind(int index, Object value) {
+			this.bindings.put(index, value);
+			return this;
+		}
+
+		@Override
+		public ReactiveStatement bindNull(int index, int sqlType) {
+			this.bindings.put(index, null);
+			return this;
+		}
+
+		@Override
+		public ReactiveStatement fetchSize(int rows) {
+			events.add("fetchSize " + rows);
+			return this;
+		}
+
+		@Override
+		public Publisher<InMemoryResult> execute() {
+			return Mono.defer(() -> {
+				events.add("execute " + this.sql + " " + this.bindings.values());
+				InMemoryResult result = results.get(this.sql);
+				if (result == null) {
+					return Mono.error(new SQLException("Unknown statement: " + this.sql, "42000"));
+				}
+				return Mono.just(result);
+			});
+		}
+	}
+
+
+	private class InMemoryResult implements ReactiveResult {
+
+		private final String[] columns;
+
+		private final Object[][] rows;
+
+		private final Integer rowsUpdated;
+
+		InMemoryResult(String[] columns, Object[][] rows, Integer rowsUpdated) {
+			this.columns = columns;
+			this.rows = rows;
+			this.rowsUpdated = rowsUpdated;
+		}
+
+		@Override
+		public Publisher<Integer> getRowsUpdated() {
+			return Mono.justOrEmpty(this.rowsUpdated);
+		}
+
+		@Override
+		public <T> Publisher<T> map(Function<? super ReactiveRow, ? extends T> mappingFunction) {
+			return Flux.fromArray(this.rows)
+					.doOnRequest(n -> requestedRows.addAndGet(Math.min(n, this.rows.length)))
+					.map(values -> mappingFunction.apply(new InMemoryRow(this.columns, values)));
+		}
+	}
+
+
+	private static class InMemoryRow implements ReactiveRow {
+
+		private final String[] columns;
+
+		private final Object[] values;
+
+		InMemoryRow(String[] columns, Object[] values) {
+			this.columns = columns;
+			this.values = values;
+		}
+
+		@Override
+		public int getColumnCount() {
+			return this.columns.length;
+		}
+
+		@Override
+		public String getColumnLabel(int index) {
+			return this.columns[index - 1];
+		}
+
+		@Override
+		public Object getObject(int index) {
+			return this.values[index - 1];
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <T> T getObject(int index, Class<T> type) {
+			Object value = getObject(index);
+			if (value == null || type.isInstance(value)) {
+				return (T) value;
+			}
+			if (value instanceof Number && Number.class.isAssignableFrom(type)) {
+				return (T) NumberUtils.convertNumberToTargetClass((Number) value, (Class<Number>) type);
+			}
+			if (type == String.class) {
+				return (T) value.toString();
+			}
+			throw new IllegalArgumentException("Cannot convert " + value + " to " + type);
+		}
+
+		@Override
+		public Object getObject(String columnLabel) {
+			for (int i = 0; i < this.columns.length; i++) {
+				if (this.columns[i].equalsIgnoreCase(columnLabel)) {
+					return this.values[i];
+				}
+			}
+			throw new IllegalArgumentException("No column '" + columnLabel + "'");
+		}
+	}
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.reactive.connection;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.jdbc.reactive.InMemoryConnectionFactory;
+import org.springframework.jdbc.reactive.core.ReactiveJdbcTemplate;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link ReactiveJdbcTransactionManager}.
+ */
+public class ReactiveJdbcTransactionManagerTests {
+
+	private final InMemoryConnectionFactory connectionFactory = new InMemoryConnectionFactory();
+
+	private final ReactiveJdbcTemplate template = new ReactiveJdbcTemplate(this.connectionFactory);
+
+	private final ReactiveJdbcTransactionManager tm = new ReactiveJdbcTransactionManager(this.connectionFactory);
+
+
+	@Before
+	public void setup() {
+		this.connectionFactory.addUpdate("INSERT INTO CUSTOMER VALUES (?)", 1);
+		Object[][] rows = new Object[100][];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = new Object[] {i};
+		}
+		this.connectionFactory.addQuery("SELECT ID FROM CUSTOMER", new String[] {"ID"}, rows);
+	}
+
+
+	@Test
+	public void commitOnCompletion() {
+		Mono<Integer> insertions = this.template.update("INSERT INTO CUSTOMER VALUES (?)", 1)
+				.then(this.template.update("INSERT INTO CUSTOMER VALUES (?)", 2));
+
+		StepVerifier.create(this.tm.transactional(insertions)).expectNext(1).verifyComplete();
+		assertEquals(Arrays.asList("create", "begin",
+				"execute INSERT INTO CUSTOMER VALUES (?) [1]", "execute INSERT INTO CUSTOMER VALUES (?) [2]",
+				"commit", "close"), this.connectionFactory.getEvents());
+		assertEquals(0, this.connectionFactory.getOpenConnections());
+	}
+
+	@Test
+	public void rollbackOnError() {
+		Mono<Integer> insertions = this.template.update("INSERT INTO CUSTOMER VALUES (?)", 1)
+				.then(this.template.update("INSERT INTO NO_SUCH_TABLE VALUES (?)", 2));
+
+		StepVerifier.create(this.tm.transactional(insertions)).expectError().verify();
+		assertEquals(Arrays.asList("create", "begin",
+				"execute INSERT INTO CUSTOMER VALUES (?) [1]", "execute INSERT INTO NO_SUCH_TABLE VALUES (?) [2]",
+				"rollback", "close"), this.connectionFactory.getEvents());
+		assertEquals(0, this.connectionFactory.getOpenConnections());
+	}
+
+	@Test
+	public void rollbackOnCancel() {
+		StepVerifier.create(this.tm.transactional(this.template.queryForFlux("SELECT ID FROM CUSTOMER", Integer.class)), 0)
+				.thenRequest(2)
+				.expectNext(0, 1)
+				.thenCancel()
+				.verify();
+		assertEquals(Arrays.asList("create", "begin", "execute SELECT ID FROM CUSTOMER []", "rollback", "close"),
+				this.connectionFactory.getEvents());
+		assertEquals(0, this.connectionFactory.getOpenConnections());
+	}
+
+	@Test
+	public void participateInExistingTransaction() {
+		Mono<Integer> inner = this.tm.transactional(this.template.update("INSERT INTO CUSTOMER VALUES (?)", 1));
+		Mono<Integer> outer = this.tm.transactional(inner.then(this.template.update("INSERT INTO CUSTOMER VALUES (?)", 2)));
+
+		StepVerifier.create(outer).expectNext(1).verifyComplete();
+		assertEquals(Arrays.asList("create", "begin",
+				"execute INSERT INTO CUSTOMER VALUES (?) [1]", "execute INSERT INTO CUSTOMER VALUES (?) [2]",
+				"commit", "close"), this.connectionFactory.getEvents());
+	}
+
+	@Test
+	public void transactionActiveWithinTransactionalScope() {
+		StepVerifier.create(ConnectionFactoryUtils.isTransactionActive(this.connectionFactory))
+				.expectNext(false).verifyComplete();
+		StepVerifier.create(this.tm.transactional(ConnectionFactoryUtils.isTransactionActive(this.connectionFactory)))
+				.expectNext(true).verifyComplete();
+	}
+
+	@Test
+	public void beginFailure() {
+		ReactiveJdbcTransactionManager tm = new ReactiveJdbcTransactionManager(
+				() -> Mono.error(new SQLException("Connection refused", "08001")));
+		StepVerifier.create(tm.transactional(Mono.just(1)))
+				.verifyError(CannotCreateTransactionException.class);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void connectionFactoryIsRequired() {
+		new ReactiveJdbcTransactionManager().afterPropertiesSet();
+	}
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.reactive.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.IncorrectResultSetColumnCountException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.reactive.InMemoryConnectionFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link ReactiveJdbcTemplate}.
+ */
+public class ReactiveJdbcTemplateTests {
+
+	private static final String[] COLUMNS = new String[] {"ID", "NAME"};
+
+	private final InMemoryConnectionFactory connectionFactory = new InMemoryConnectionFactory();
+
+	private final ReactiveJdbcTemplate template = new ReactiveJdbcTemplate(this.connectionFactory);
+
+
+	@Before
+	public void setup() {
+		this.connectionFactory.addQuery("SELECT ID, NAME FROM CUSTOMER WHERE ID > ?", COLUMNS,
+				new Object[] {1, "Rod"}, new Object[] {2, "Juergen"});
+		this.connectionFactory.addQuery("SELECT NAME FROM CUSTOMER WHERE ID = ?", new String[] {"NAME"},
+				new Object[] {"Rod"});
+	}
+
+
+	@Test
+	public void queryWithPositionalArguments() {
+		Flux<String> names = this.template.query("SELECT ID, NAME FROM CUSTOMER WHERE ID > ?",
+				(row, rowNum) -> rowNum + ":" + row.getObject("name"), 0);
+
+		StepVerifier.create(names).expectNext("0:Rod", "1:Juergen").verifyComplete();
+		assertEquals(Arrays.asList("create", "execute SELECT ID, NAME FROM CUSTOMER WHERE ID > ? [0]", "close"),
+				this.connectionFactory.getEvents());
+		assertEquals(0, this.connectionFactory.getOpenConnections());
+	}
+
+	@Test
+	public void queryIsLazy() {
+		this.template.query("SELECT ID, NAME FROM CUSTOMER WHERE ID > ?", (row, rowNum) -> row.getObject(1), 0);
+		assertTrue(this.connectionFactory.getEvents().isEmpty());
+	}
+
+	@Test
+	public void queryStreamsRowsOnDemand() {
+		Object[][] rows = new Object[1000][];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = new Object[] {i};
+		}
+		this.connectionFactory.addQuery("SELECT ID FROM BIG_TABLE", new String[] {"ID"}, rows);
+
+		StepVerifier.create(this.template.queryForFlux("SELECT ID FROM BIG_TABLE", Integer.class), 0)
+				.thenRequest(3)
+				.expectNext(0, 1, 2)
+				.thenCancel()
+				.verify();
+		assertEquals(3, this.connectionFactory.getRequestedRows());
+		assertEquals(0, this.connectionFactory.getOpenConnections());
+	}
+
+	@Test
+	public void queryWithFetchSize() {
+		this.template.setFetchSize(50);
+		StepVerifier.create(this.template.queryForObject("SELECT NAME FROM CUSTOMER WHERE ID = ?", String.class, 1))
+				.expectNext("Rod").verifyComplete();
+		assertTrue(this.connectionFactory.getEvents().contains("fetchSize 50"));
+	}
+
+	@Test
+	public void queryWithNamedParameters() {
+		this.connectionFactory.addQuery("SELECT ID, NAME FROM CUSTOMER WHERE ID IN (?, ?, ?) AND NAME <> ?", COLUMNS,
+				new Object[] {1, "Rod"});
+		MapSqlParameterSource params = new MapSqlParameterSource()
+				.addValue("ids", Arrays.asList(1, 2, 3)).addValue("name", "Juergen");
+
+		StepVerifier.create(this.template.query("SELECT ID, NAME FROM CUSTOMER WHERE ID IN (:ids) AND NAME <> :name",
+				params, (row, rowNum) -> row.getObject(2))).expectNext("Rod").verifyComplete();
+		assertTrue(this.connectionFactory.getEvents().contains(
+				"execute SELECT ID, NAME FROM CUSTOMER WHERE ID IN (?, ?, ?) AND NAME <> ? [1, 2, 3, Juergen]"));
+	}
+
+	@Test
+	public void queryForObjectWithoutRows() {
+		this.connectionFactory.addQuery("SELECT NAME FROM CUSTOMER WHERE ID < 0", new String[] {"NAME"});
+		StepVerifier.create(this.template.queryForObject("SELECT NAME FROM CUSTOMER WHERE ID < 0", String.class))
+				.verifyError(EmptyResultDataAccessException.class);
+	}
+
+	@Test
+	public void queryForObjectWithMultipleRows() {
+		StepVerifier.create(this.template.queryForObject("SELECT ID, NAME FROM CUSTOMER WHERE ID > ?",
+				(row, rowNum) -> row.getObject(1), 0)).verifyError(IncorrectResultSizeDataAccessException.class);
+	}
+
+	@Test
+	public void queryForObjectWithMultipleColumns() {
+		this.connectionFactory.addQuery("SELECT ID, NAME FROM CUSTOMER", COLUMNS, new Object[] {1, "Rod"});
+		StepVerifier.create(this.template.queryForObject("SELECT ID, NAME FROM CUSTOMER", Integer.class))
+				.verifyError(IncorrectResultSetColumnCountException.class);
+	}
+
+	@Test
+	public void queryForObjectWithNullValue() {
+		this.connectionFactory.addQuery("SELECT MAX(ID) FROM CUSTOMER", new String[] {"ID"}, new Object[] {null});
+		StepVerifier.create(this.template.queryForObject("SELECT MAX(ID) FROM CUSTOMER", Integer.class))
+				.verifyComplete();
+	}
+
+	@Test
+	public void queryForFluxSkipsNullValues() {
+		this.connectionFactory.addQuery("SELECT AGE FROM CUSTOMER", new String[] {"AGE"},
+				new Object[] {30L}, new Object[] {null}, new Object[] {40L});
+		StepVerifier.create(this.template.queryForFlux("SELECT AGE FROM CUSTOMER", Integer.class))
+				.expectNext(30, 40).verifyComplete();
+	}
+
+	@Test
+	public void queryForMap() {
+		StepVerifier.create(this.template.queryForMap("SELECT NAME FROM CUSTOMER WHERE ID = ?", 1))
+				.assertNext(map -> assertEquals("Rod", map.get("name")))
+				.verifyComplete();
+	}
+
+	@Test
+	public void updateWithPositionalArguments() {
+		this.connectionFactory.addUpdate("UPDATE CUSTOMER SET NAME = ? WHERE ID = ?", 1);
+		StepVerifier.create(this.template.update("UPDATE CUSTOMER SET NAME = ? WHERE ID = ?", null, 1))
+				.expectNext(1).verifyComplete();
+		assertTrue(this.connectionFactory.getEvents().contains(
+				"execute UPDATE CUSTOMER SET NAME = ? WHERE ID = ? [null, 1]"));
+	}
+
+	@Test
+	public void updateWithNamedParameters() {
+		this.connectionFactory.addUpdate("DELETE FROM CUSTOMER WHERE ID = ?", 1);
+		Map<String, Object> params = new HashMap<>();
+		params.put("id", 5);
+		StepVerifier.create(this.template.update("DELETE FROM CUSTOMER WHERE ID = :id", params))
+				.expectNext(1).verifyComplete();
+		assertTrue(this.connectionFactory.getEvents().contains("execute DELETE FROM CUSTOMER WHERE ID = ? [5]"));
+	}
+
+	@Test
+	public void sqlExceptionIsTranslated() {
+		StepVerifier.create(this.template.update("DELETE FROM NO_SUCH_TABLE"))
+				.expectErrorSatisfies(ex -> {
+					assertTrue(ex instanceof BadSqlGrammarException);
+					assertEquals("DELETE FROM NO_SUCH_TABLE", ((BadSqlGrammarException) ex).getSql());
+				})
+				.verify();
+		assertEquals(0, this.connectionFactory.getOpenConnections());
+	}
+
+	@Test
+	public void executeWithConnectionCallback() {
+		this.connectionFactory.addUpdate("DELETE FROM CUSTOMER", 2);
+		Flux<Integer> counts = this.template.execute(con ->
+				Flux.from(con.createStatement("DELETE FROM CUSTOMER").execute()).flatMap(result -> result.getRowsUpdated()));
+		StepVerifier.create(counts).expectNext(2).verifyComplete();
+		assertEquals(0, this.connectionFactory.getOpenConnections());
+	}
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction;
+
+import reactor.core.publisher.Mono;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * This is the central interface in Spring's reactive transaction infrastructure.
+ * Applications can use this directly, but it is not primarily meant as API:
+ * Typically, applications will work with either a
+ * {@link org.springframework.transaction.reactive.TransactionalOperator} or
+ * declarative transaction demarcation through AOP.
+ *
+ * <p>Transaction state is not bound to the current thread but to the Reactor
+ * subscriber context, so that it follows a reactive pipeline across threads.
+ * For implementors, it is recommended to derive from the provided
+ * {@link org.springframework.transaction.reactive.AbstractReactiveTransactionManager}
+ * class, which pre-implements the defined propagation behavior and takes care
+ * of transaction synchronization handling.
+ *
+ * @since 5.1.13
+ * @see org.springframework.transaction.reactive.TransactionalOperator
+ * @see org.springframework.transaction.interceptor.TransactionInterceptor
+ * @see PlatformTransactionManager
+ */
+public interface ReactiveTransactionManager extends TransactionManager {
+
+	/**
+	 * Emit a currently active reactive transaction or create a new one, according to
+	 * the specified propagation behavior.
+	 * <p>Note that parameters like isolation level or timeout will only be applied
+	 * to new transactions, and thus be ignored when participating in active ones.
+	 * @param definition the TransactionDefinition instance (can be {@code null} for defaults),
+	 * describing propagation behavior, isolation level, timeout etc.
+	 * @return transaction object representing the new or current transaction
+	 * @throws TransactionException in case of lookup, creation, or system errors
+	 * @throws IllegalTransactionStateException if the given transaction definition
+	 * cannot be executed (for example, if a currently active transaction is in
+	 * conflict with the specified propagation behavior)
+	 * @see TransactionDefinition#getPropagationBehavior
+	 */
+	Mono<ReactiveTransaction> getReactiveTransaction(@Nullable TransactionDefinition definition)
+			throws TransactionException;
+
+	/**
+	 * Commit the given transaction, with regard to its status. If the transaction
+	 * has been marked rollback-only programmatically, perform a rollback.
+	 * <p>If the transaction wasn't a new one, omit the commit for proper
+	 * participation in the surrounding transaction. If a previous transaction
+	 * has been suspended to be able to create a new one, resume the previous
+	 * transaction after committing the new one.
+	 * @param transaction object returned by the {@code getReactiveTransaction} method
+	 * @throws UnexpectedRollbackException in case of an unexpected rollback
+	 * that the transaction coordinator initiated
+	 * @throws TransactionSystemException in case of commit or system errors
+	 * @throws IllegalTransactionStateException if the given transaction
+	 * is already completed (that is, committed or rolled back)
+	 * @see ReactiveTransaction#setRollbackOnly
+	 */
+	Mono<Void> commit(ReactiveTransaction transaction) throws TransactionException;
+
+	/**
+	 * Perform a rollback of the given transaction.
+	 * <p>If the transaction wasn't a new one, just set it rollback-only for proper
+	 * participation in the surrounding transaction. If a previous transaction
+	 * has been suspended to be able to create a new one, resume the previous
+	 * transaction after rolling back the new one.
+	 * @param transaction object returned by the {@code getReactiveTransaction} method
+	 * @throws TransactionSystemException in case of rollback or system errors
+	 * @throws IllegalTransactionStateException if the given transaction
+	 * is already completed (that is, committed or rolled back)
+	 */
+	Mono<Void> rollback(ReactiveTransaction transaction) throws TransactionException;
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,18 +18,26 @@ package org.springframework.transaction.interceptor;
 
 import java.lang.reflect.Method;
 import java.util.Properties;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.annotation.BeanFactoryAnnotationUtils;
+import org.springframework.core.MethodClassKey;
 import org.springframework.core.NamedThreadLocal;
+import org.springframework.core.ReactiveAdapter;
+import org.springframework.core.ReactiveAdapterRegistry;
 import org.springframework.lang.Nullable;
 import org.springframework.transaction.*;
+import org.springframework.transaction.reactive.TransactionContextManager;
 import org.springframework.transaction.support.AbstractPlatformTransactionManager;
 import org.springframework.transaction.support.CallbackPreferringPlatformTransactionManager;
 import org.springframework.util.Assert;
@@ -54,6 +62,11 @@ import org.springframework.util.StringUtils;
  * implementation will perform the actual transaction management, and a
  * {@code TransactionAttributeSource} is used for determining transaction definitions.
  *
+ * <p>Methods returning a reactive type such as {@code Mono} or {@code Flux} are
+ * driven by a {@link ReactiveTransactionManager} instead, if one is available:
+ * the transaction is bound to the Reactor subscriber context rather than to the
+ * current thread, and completes with the returned publisher's terminal signal.
+ *
  * <p>A transaction aspect is serializable if its {@code PlatformTransactionManager}
  * and {@code TransactionAttributeSource} are serializable.
  *
@@ -77,6 +90,20 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	 */
 	private static final Object DEFAULT_TRANSACTION_MANAGER_KEY = new Object();
 
+	/**
+	 * Canonical value held in the adapter cache to indicate a non-reactive return type.
+	 */
+	private static final Object NO_REACTIVE_ADAPTER = new Object();
+
+	/**
+	 * Canonical value held in the reactive transaction manager cache to indicate
+	 * that no reactive transaction manager is available.
+	 */
+	private static final Object NO_REACTIVE_TRANSACTION_MANAGER = new Object();
+
+	private static final boolean reactorPresent = ClassUtils.isPresent(
+			"reactor.core.publisher.Flux", TransactionAspectSupport.class.getClassLoader());
+
 	/**
 	 * Holder to support the {@code currentTransactionStatus()} method,
 	 * and to support communication between different cooperating advices
@@ -142,6 +169,24 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	private final ConcurrentMap<Object, PlatformTransactionManager> transactionManagerCache =
 			new ConcurrentReferenceHashMap<>(4);
 
+	@Nullable
+	private ReactiveTransactionManager reactiveTransactionManager;
+
+	private final ConcurrentMap<Object, Object> reactiveTransactionManagerCache =
+			new ConcurrentReferenceHashMap<>(4);
+
+	@Nullable
+	private final ReactiveAdapterRegistry reactiveAdapterRegistry;
+
+	private final ConcurrentMap<Method, Object> reactiveAdapterCache = new ConcurrentReferenceHashMap<>(1024);
+
+	private final ConcurrentMap<MethodClassKey, Joinpoint> joinpointCache = new ConcurrentReferenceHashMap<>(1024);
+
+
+	protected TransactionAspectSupport() {
+		this.reactiveAdapterRegistry = (reactorPresent ? ReactiveAdapterRegistry.getSharedInstance() : null);
+	}
+
 
 	/**
 	 * Specify the name of the default transaction manager bean.
@@ -177,6 +222,27 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 		return this.transactionManager;
 	}
 
+	/**
+	 * Specify the <em>default</em> reactive transaction manager to use to drive
+	 * transactions for methods with a reactive return type.
+	 * <p>Analogous to {@link #setTransactionManager}: a <em>qualifier</em> or an
+	 * explicit transaction manager bean name take precedence, if declared.
+	 * @since 5.1.13
+	 * @see #setTransactionManagerBeanName
+	 */
+	public void setReactiveTransactionManager(@Nullable ReactiveTransactionManager reactiveTransactionManager) {
+		this.reactiveTransactionManager = reactiveTransactionManager;
+	}
+
+	/**
+	 * Return the default reactive transaction manager, or {@code null} if unknown.
+	 * @since 5.1.13
+	 */
+	@Nullable
+	public ReactiveTransactionManager getReactiveTransactionManager() {
+		return this.reactiveTransactionManager;
+	}
+
 	/**
 	 * Set properties with method names as keys and transaction attribute
 	 * descriptors (parsed via TransactionAttributeEditor) as values:
@@ -249,7 +315,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	 */
 	@Override
 	public void afterPropertiesSet() {
-		if (getTransactionManager() == null && this.beanFactory == null) {
+		if (getTransactionManager() == null && getReactiveTransactionManager() == null && this.beanFactory == null) {
 			throw new IllegalStateException(
 					"Set the 'transactionManager' property or make sure to run within a BeanFactory " +
 					"containing a PlatformTransactionManager bean!");
@@ -280,17 +346,31 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 		TransactionAttributeSource tas = getTransactionAttributeSource();
 		// 获取注解@Transactional的属性值
 		final TransactionAttribute txAttr = (tas != null ? tas.getTransactionAttribute(method, targetClass) : null);
+
+		// Reactive return types: bind the transaction to the subscriber context instead.
+		if (txAttr != null && this.reactiveAdapterRegistry != null) {
+			ReactiveAdapter adapter = getReactiveAdapter(method);
+			if (adapter != null) {
+				ReactiveTransactionManager rtm = determineReactiveTransactionManager(txAttr);
+				if (rtm != null) {
+					return new ReactiveTransactionSupport(adapter).invokeWithinTransaction(
+							method, targetClass, invocation, txAttr, rtm);
+				}
+			}
+		}
+
 		// 确定事务管理器(spring5.3版本这里有改动)
 		final PlatformTransactionManager tm = determineTransactionManager(txAttr);
 		// 获取连接点唯一标识: 即获取当前执行的事务注解修饰的方法名
-		final String joinpointIdentification = methodIdentification(method, targetClass, txAttr);
+		Joinpoint joinpoint = getJoinpoint(method, targetClass, txAttr);
+		final String joinpointIdentification = joinpoint.identification;
 
 		if (txAttr == null || !(tm instanceof CallbackPreferringPlatformTransactionManager)) {
 			// Standard transaction demarcation with getTransaction and commit/rollback calls. 使用 getTransaction 和提交回滚调用进行标准事务划分。
 			/**
 			 * 如有必要，根据给定的事务属性创建事务, 返回事务信息对象, 其中包括: 事务挂起对象
 			 */
-			TransactionInfo txInfo = createTransactionIfNecessary(tm, txAttr, joinpointIdentification);
+			TransactionInfo txInfo = createTransactionIfNecessary(tm, joinpoint.namedAttribute, joinpointIdentification);
 
 			Object retVal;
 			try {
@@ -376,6 +456,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	 */
 	protected void clearTransactionManagerCache() {
 		this.transactionManagerCache.clear();
+		this.reactiveTransactionManagerCache.clear();
 		this.beanFactory = null;
 	}
 
@@ -420,6 +501,98 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 		return txManager;
 	}
 
+	/**
+	 * Determine the adapter for the given method's reactive return type, if any.
+	 * Eagerly executing {@link CompletionStage} return types are not considered,
+	 * since their transaction could not be bound to a subscription.
+	 */
+	@Nullable
+	private ReactiveAdapter getReactiveAdapter(Method method) {
+		Object adapter = this.reactiveAdapterCache.get(method);
+		if (adapter == null) {
+			Class<?> returnType = method.getReturnType();
+			adapter = (this.reactiveAdapterRegistry != null && !CompletionStage.class.isAssignableFrom(returnType) ?
+					this.reactiveAdapterRegistry.getAdapter(returnType) : null);
+			if (adapter == null) {
+				adapter = NO_REACTIVE_ADAPTER;
+			}
+			this.reactiveAdapterCache.put(method, adapter);
+		}
+		return (adapter != NO_REACTIVE_ADAPTER ? (ReactiveAdapter) adapter : null);
+	}
+
+	/**
+	 * Determine the specific reactive transaction manager to use for the given
+	 * transaction, if any: {@code null} indicates that the transaction should be
+	 * driven by a regular {@link PlatformTransactionManager} instead.
+	 * @since 5.1.13
+	 */
+	@Nullable
+	protected ReactiveTransactionManager determineReactiveTransactionManager(TransactionAttribute txAttr) {
+		if (this.beanFactory == null) {
+			return getReactiveTransactionManager();
+		}
+
+		String qualifier = txAttr.getQualifier();
+		if (StringUtils.hasText(qualifier)) {
+			return determineQualifiedReactiveTransactionManager(this.beanFactory, qualifier);
+		}
+		else if (StringUtils.hasText(this.transactionManagerBeanName)) {
+			return determineQualifiedReactiveTransactionManager(this.beanFactory, this.transactionManagerBeanName);
+		}
+		else {
+			ReactiveTransactionManager defaultTransactionManager = getReactiveTransactionManager();
+			if (defaultTransactionManager != null) {
+				return defaultTransactionManager;
+			}
+			Object txManager = this.reactiveTransactionManagerCache.get(DEFAULT_TRANSACTION_MANAGER_KEY);
+			if (txManager == null) {
+				txManager = this.beanFactory.getBeanProvider(ReactiveTransactionManager.class).getIfUnique();
+				if (txManager == null) {
+					txManager = NO_REACTIVE_TRANSACTION_MANAGER;
+				}
+				this.reactiveTransactionManagerCache.putIfAbsent(DEFAULT_TRANSACTION_MANAGER_KEY, txManager);
+			}
+			return (txManager != NO_REACTIVE_TRANSACTION_MANAGER ? (ReactiveTransactionManager) txManager : null);
+		}
+	}
+
+	@Nullable
+	private ReactiveTransactionManager determineQualifiedReactiveTransactionManager(
+			BeanFactory beanFactory, String qualifier) {
+
+		Object txManager = this.reactiveTransactionManagerCache.get(qualifier);
+		if (txManager == null) {
+			try {
+				txManager = BeanFactoryAnnotationUtils.qualifiedBeanOfType(
+						beanFactory, ReactiveTransactionManager.class, qualifier);
+			}
+			catch (NoSuchBeanDefinitionException ex) {
+				// Qualified transaction manager is not a reactive one.
+				txManager = NO_REACTIVE_TRANSACTION_MANAGER;
+			}
+			this.reactiveTransactionManagerCache.putIfAbsent(qualifier, txManager);
+		}
+		return (txManager != NO_REACTIVE_TRANSACTION_MANAGER ? (ReactiveTransactionManager) txManager : null);
+	}
+
+	/**
+	 * Return the identification and the named transaction attribute for the given
+	 * method, determined once per method and target class as long as the
+	 * {@link TransactionAttributeSource} keeps returning the same attribute.
+	 */
+	private Joinpoint getJoinpoint(Method method, @Nullable Class<?> targetClass,
+			@Nullable TransactionAttribute txAttr) {
+
+		MethodClassKey cacheKey = new MethodClassKey(method, targetClass);
+		Joinpoint joinpoint = this.joinpointCache.get(cacheKey);
+		if (joinpoint == null || joinpoint.attribute != txAttr) {
+			joinpoint = new Joinpoint(txAttr, methodIdentification(method, targetClass, txAttr));
+			this.joinpointCache.put(cacheKey, joinpoint);
+		}
+		return joinpoint;
+	}
+
 	private String methodIdentification(Method method, @Nullable Class<?> targetClass,
 			@Nullable TransactionAttribute txAttr) {
 
@@ -707,6 +880,50 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	}
 
 
+	/**
+	 * Cached identification of a transactional method, along with its transaction
+	 * attribute named after that identification (unless it declares a name itself),
+	 * so that neither needs to be built for every invocation.
+	 */
+	private static final class Joinpoint {
+
+		@Nullable
+		final TransactionAttribute attribute;
+
+		@Nullable
+		final TransactionAttribute namedAttribute;
+
+		final String identification;
+
+		Joinpoint(@Nullable TransactionAttribute attribute, String identification) {
+			this.attribute = attribute;
+			this.identification = identification;
+			this.namedAttribute = (attribute != null && attribute.getName() == null ?
+					new NamedTransactionAttribute(attribute, identification) : attribute);
+		}
+	}
+
+
+	/**
+	 * Transaction attribute exposing the identification of its method as name.
+	 */
+	@SuppressWarnings("serial")
+	private static class NamedTransactionAttribute extends DelegatingTransactionAttribute {
+
+		private final String name;
+
+		public NamedTransactionAttribute(TransactionAttribute targetAttribute, String name) {
+			super(targetAttribute);
+			this.name = name;
+		}
+
+		@Override
+		public String getName() {
+			return this.name;
+		}
+	}
+
+
 	/**
 	 * Simple callback interface for proceeding with the target invocation.
 	 * Concrete interceptors/aspects adapt this to their invocation mechanism.
@@ -718,6 +935,89 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	}
 
 
+	/**
+	 * Delegate for Reactor-based management of transactional methods with a
+	 * reactive return type, binding the transaction to the subscriber context.
+	 * <p>Kept in an inner class so that Reactor is only required on the classpath
+	 * when a reactive return type actually needs to be handled.
+	 */
+	private class ReactiveTransactionSupport {
+
+		private final ReactiveAdapter adapter;
+
+		public ReactiveTransactionSupport(ReactiveAdapter adapter) {
+			this.adapter = adapter;
+		}
+
+		public Object invokeWithinTransaction(Method method, @Nullable Class<?> targetClass,
+				InvocationCallback invocation, TransactionAttribute txAttr, ReactiveTransactionManager rtm) {
+
+			TransactionAttribute attrToUse = getJoinpoint(method, targetClass, txAttr).namedAttribute;
+			Assert.state(attrToUse != null, "No transaction attribute");
+
+			Flux<?> result = TransactionContextManager.currentContext().flatMapMany(context ->
+					Flux.usingWhen(rtm.getReactiveTransaction(attrToUse),
+							status -> proceed(invocation).onErrorResume(ex ->
+									completeTransactionAfterThrowing(rtm, status, attrToUse, ex).then(Mono.error(ex))),
+							rtm::commit,
+							status -> Mono.empty(),
+							rtm::rollback)
+							.onErrorMap(this::unwrapIfResourceCleanupFailure))
+					.subscriberContext(TransactionContextManager.getOrCreateContext());
+
+			return this.adapter.fromPublisher(this.adapter.isMultiValue() ? result : result.singleOrEmpty());
+		}
+
+		private Flux<?> proceed(InvocationCallback invocation) {
+			Object retVal;
+			try {
+				retVal = invocation.proceedWithInvocation();
+			}
+			catch (Throwable ex) {
+				return Flux.error(ex);
+			}
+			return (retVal != null ? Flux.from(this.adapter.toPublisher(retVal)) : Flux.empty());
+		}
+
+		/**
+		 * Complete the transaction for the given application exception: roll back
+		 * if the attribute demands it, otherwise commit. The transaction is thereby
+		 * completed before the exception gets propagated downstream.
+		 */
+		private Mono<Void> completeTransactionAfterThrowing(ReactiveTransactionManager rtm,
+				ReactiveTransaction status, TransactionAttribute txAttr, Throwable ex) {
+
+			if (logger.isTraceEnabled()) {
+				logger.trace("Completing transaction for [" + txAttr.getName() +
+						"] after exception: " + ex);
+			}
+			Mono<Void> completion = (txAttr.rollbackOn(ex) ? rtm.rollback(status) : rtm.commit(status));
+			return completion.onErrorMap(ex2 -> {
+				logger.error("Application exception overridden by transaction completion exception", ex);
+				if (ex2 instanceof TransactionSystemException) {
+					((TransactionSystemException) ex2).initApplicationException(ex);
+				}
+				return ex2;
+			});
+		}
+
+		/**
+		 * Unwrap the cause of a throwable, if produced by a failure
+		 * during the async resource cleanup in {@link Flux#usingWhen}.
+		 * @param ex the throwable to try to unwrap
+		 */
+		private Throwable unwrapIfResourceCleanupFailure(Throwable ex) {
+			if (ex instanceof RuntimeException && ex.getCause() != null) {
+				String msg = ex.getMessage();
+				if (msg != null && msg.startsWith("Async resource cleanup failed")) {
+					return ex.getCause();
+				}
+			}
+			return ex;
+		}
+	}
+
+
 	/**
 	 * Internal holder class for a Throwable in a callback transaction model.
 	 */
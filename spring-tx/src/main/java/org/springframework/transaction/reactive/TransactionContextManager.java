@@ -0,0 +1,69 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.reactive;
+
+import java.util.function.Function;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import org.springframework.transaction.NoTransactionException;
+
+/**
+ * Delegate to register and obtain transactional contexts.
+ *
+ * <p>Typically used by components that intercept or orchestrate transactional
+ * flows such as AOP interceptors or transactional operators: a
+ * {@link TransactionContext} is put into the Reactor subscriber context at the
+ * outermost transactional boundary, and shared by all transactional operations
+ * subscribed within it.
+ *
+ * @since 5.1.13
+ * @see TransactionSynchronization
+ */
+public abstract class TransactionContextManager {
+
+	/**
+	 * Obtain the current {@link TransactionContext} from the subscriber context.
+	 * @return the current transaction context
+	 * @throws NoTransactionException (signalled) if no transaction context is
+	 * associated with the current subscription
+	 */
+	public static Mono<TransactionContext> currentContext() throws NoTransactionException {
+		return Mono.subscriberContext().handle((context, sink) -> {
+			TransactionContext transactionContext = context.getOrDefault(TransactionContext.class, null);
+			if (transactionContext != null) {
+				sink.next(transactionContext);
+			}
+			else {
+				sink.error(new NoTransactionException("No transaction in context"));
+			}
+		});
+	}
+
+	/**
+	 * Return a function to create a {@link TransactionContext} if none exists yet,
+	 * to be applied via {@code subscriberContext(...)}. A new context gets created
+	 * for every subscription.
+	 * @return the function to create a transaction context if necessary
+	 */
+	public static Function<Context, Context> getOrCreateContext() {
+		return context -> (context.hasKey(TransactionContext.class) ? context :
+				context.put(TransactionContext.class, new TransactionContext()));
+	}
+
+}
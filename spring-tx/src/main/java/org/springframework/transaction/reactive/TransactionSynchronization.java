@@ -0,0 +1,110 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.reactive;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Interface for reactive transaction synchronization callbacks.
+ * Supported by {@link AbstractReactiveTransactionManager}.
+ *
+ * <p>The reactive counterpart of
+ * {@link org.springframework.transaction.support.TransactionSynchronization}:
+ * each callback returns a {@code Mono} that the transaction manager waits for
+ * before proceeding. Implementations can implement the
+ * {@link org.springframework.core.Ordered} interface to influence their
+ * execution order.
+ *
+ * @since 5.1.13
+ * @see TransactionSynchronizationManager
+ * @see AbstractReactiveTransactionManager
+ */
+public interface TransactionSynchronization {
+
+	/** Completion status in case of proper commit. */
+	int STATUS_COMMITTED = 0;
+
+	/** Completion status in case of proper rollback. */
+	int STATUS_ROLLED_BACK = 1;
+
+	/** Completion status in case of heuristic mixed completion or system errors. */
+	int STATUS_UNKNOWN = 2;
+
+
+	/**
+	 * Suspend this synchronization.
+	 * Supposed to unbind resources from TransactionSynchronizationManager if managing any.
+	 * @see TransactionSynchronizationManager#unbindResource
+	 */
+	default Mono<Void> suspend() {
+		return Mono.empty();
+	}
+
+	/**
+	 * Resume this synchronization.
+	 * Supposed to rebind resources to TransactionSynchronizationManager if managing any.
+	 * @see TransactionSynchronizationManager#bindResource
+	 */
+	default Mono<Void> resume() {
+		return Mono.empty();
+	}
+
+	/**
+	 * Invoked before transaction commit (before "beforeCompletion").
+	 * <p>This callback does <i>not</i> mean that the transaction will actually be committed.
+	 * A rollback decision can still occur after this method has been called.
+	 * @param readOnly whether the transaction is defined as read-only transaction
+	 * @see #beforeCompletion
+	 */
+	default Mono<Void> beforeCommit(boolean readOnly) {
+		return Mono.empty();
+	}
+
+	/**
+	 * Invoked before transaction commit/rollback.
+	 * Can perform resource cleanup <i>before</i> transaction completion.
+	 * <p>This method will be invoked after {@code beforeCommit}, even when
+	 * {@code beforeCommit} threw an exception.
+	 * @see #beforeCommit
+	 * @see #afterCompletion
+	 */
+	default Mono<Void> beforeCompletion() {
+		return Mono.empty();
+	}
+
+	/**
+	 * Invoked after transaction commit. Can perform further operations right
+	 * <i>after</i> the main transaction has <i>successfully</i> committed.
+	 */
+	default Mono<Void> afterCommit() {
+		return Mono.empty();
+	}
+
+	/**
+	 * Invoked after transaction commit/rollback.
+	 * Can perform resource cleanup <i>after</i> transaction completion.
+	 * @param status completion status according to the {@code STATUS_*} constants
+	 * @see #STATUS_COMMITTED
+	 * @see #STATUS_ROLLED_BACK
+	 * @see #STATUS_UNKNOWN
+	 * @see #beforeCompletion
+	 */
+	default Mono<Void> afterCompletion(int status) {
+		return Mono.empty();
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.reactive;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.transaction.ReactiveTransaction;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.util.Assert;
+
+/**
+ * Operator implementation that simplifies programmatic transaction demarcation
+ * and transaction exception handling.
+ *
+ * @since 5.1.13
+ * @see #execute
+ * @see ReactiveTransactionManager
+ */
+final class TransactionalOperatorImpl implements TransactionalOperator {
+
+	private static final Log logger = LogFactory.getLog(TransactionalOperatorImpl.class);
+
+	private final ReactiveTransactionManager transactionManager;
+
+	private final TransactionDefinition transactionDefinition;
+
+
+	/**
+	 * Create a new TransactionalOperatorImpl using the given transaction manager
+	 * and transaction definition.
+	 * @param transactionManager the transaction management strategy to be used
+	 * @param transactionDefinition the transaction definition to apply
+	 */
+	TransactionalOperatorImpl(ReactiveTransactionManager transactionManager, TransactionDefinition transactionDefinition) {
+		Assert.notNull(transactionManager, "ReactiveTransactionManager must not be null");
+		Assert.notNull(transactionDefinition, "TransactionDefinition must not be null");
+		this.transactionManager = transactionManager;
+		this.transactionDefinition = transactionDefinition;
+	}
+
+
+	/**
+	 * Return the transaction management strategy to be used.
+	 */
+	public ReactiveTransactionManager getTransactionManager() {
+		return this.transactionManager;
+	}
+
+	@Override
+	public <T> Mono<T> transactional(Mono<T> mono) {
+		return execute(status -> mono).singleOrEmpty();
+	}
+
+	@Override
+	public <T> Flux<T> execute(TransactionCallback<T> action) throws TransactionException {
+		return TransactionContextManager.currentContext().flatMapMany(context -> {
+			Mono<ReactiveTransaction> status = this.transactionManager.getReactiveTransaction(this.transactionDefinition);
+			// Roll back on error within the closure, since the error callback
+			// of usingWhen does not get hold of the exception.
+			return Flux.usingWhen(status,
+					it -> Flux.from(action.doInTransaction(it))
+							.onErrorResume(ex -> rollbackOnException(it, ex).then(Mono.error(ex))),
+					this.transactionManager::commit,
+					it -> Mono.empty(),
+					this.transactionManager::rollback)
+					.onErrorMap(TransactionalOperatorImpl::unwrapIfResourceCleanupFailure);
+		})
+		.subscriberContext(TransactionContextManager.getOrCreateContext());
+	}
+
+	/**
+	 * Perform a rollback, handling rollback exceptions properly.
+	 * @param status object representing the transaction
+	 * @param ex the thrown application exception or error
+	 * @throws TransactionException in case of a rollback error
+	 */
+	private Mono<Void> rollbackOnException(ReactiveTransaction status, Throwable ex) throws TransactionException {
+		logger.debug("Initiating transaction rollback on application exception", ex);
+		return this.transactionManager.rollback(status).onErrorMap(ex2 -> {
+			logger.error("Application exception overridden by rollback exception", ex);
+			if (ex2 instanceof TransactionSystemException) {
+				((TransactionSystemException) ex2).initApplicationException(ex);
+			}
+			return ex2;
+		});
+	}
+
+	/**
+	 * Unwrap the cause of a throwable, if produced by a failure
+	 * during the async resource cleanup in {@link Flux#usingWhen}.
+	 * @param ex the throwable to try to unwrap
+	 */
+	private static Throwable unwrapIfResourceCleanupFailure(Throwable ex) {
+		if (ex instanceof RuntimeException && ex.getCause() != null) {
+			String msg = ex.getMessage();
+			if (msg != null && msg.startsWith("Async resource cleanup failed")) {
+				return ex.getCause();
+			}
+		}
+		return ex;
+	}
+
+}
@@ -0,0 +1,12 @@
+/**
+ * Support classes for reactive transaction management.
+ * Provides an abstract base class for reactive transaction manager
+ * implementations, and an operator for programmatic transaction demarcation.
+ * Transaction state is bound to the Reactor subscriber context.
+ */
+@NonNullApi
+@NonNullFields
+package org.springframework.transaction.reactive;
+
+import org.springframework.lang.NonNullApi;
+import org.springframework.lang.NonNullFields;
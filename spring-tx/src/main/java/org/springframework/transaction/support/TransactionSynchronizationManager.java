@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -79,29 +79,14 @@ public abstract class TransactionSynchronizationManager {
 	private static final Log logger = LogFactory.getLog(TransactionSynchronizationManager.class);
 
 	/**
-	 * 用于缓存当前线程的资源: 包括数据库连接(Connection), 会话(Session)等
+	 * All transaction state for the current thread, kept in a single holder:
+	 * resources, synchronizations and transaction characteristics. The holder
+	 * and its collections are reused by subsequent transactions on the same
+	 * thread; their contents are cleared on completion, so that an idle thread
+	 * does not keep any resources or synchronizations reachable.
 	 */
-	private static final ThreadLocal<Map<Object, Object>> resources =
-			new NamedThreadLocal<>("Transactional resources");
-
-	/**
-	 * 用于缓存当前线程的事务同步器集合, 可通过{@link #registerSynchronization(TransactionSynchronization)}注册.
-	 *
-	 */
-	private static final ThreadLocal<Set<TransactionSynchronization>> synchronizations =
-			new NamedThreadLocal<>("Transaction synchronizations");
-
-	private static final ThreadLocal<String> currentTransactionName =
-			new NamedThreadLocal<>("Current transaction name");
-
-	private static final ThreadLocal<Boolean> currentTransactionReadOnly =
-			new NamedThreadLocal<>("Current transaction read-only status");
-
-	private static final ThreadLocal<Integer> currentTransactionIsolationLevel =
-			new NamedThreadLocal<>("Current transaction isolation level");
-
-	private static final ThreadLocal<Boolean> actualTransactionActive =
-			new NamedThreadLocal<>("Actual transaction active");
+	private static final ThreadLocal<TransactionState> transactionState =
+			new NamedThreadLocal<>("Transaction state");
 
 
 	//-------------------------------------------------------------------------
@@ -118,7 +103,8 @@ public abstract class TransactionSynchronizationManager {
 	 * @see #hasResource
 	 */
 	public static Map<Object, Object> getResourceMap() {
-		Map<Object, Object> map = resources.get();
+		TransactionState state = transactionState.get();
+		Map<Object, Object> map = (state != null ? state.resources : null);
 		return (map != null ? Collections.unmodifiableMap(map) : Collections.emptyMap());
 	}
 
@@ -160,7 +146,8 @@ public abstract class TransactionSynchronizationManager {
 	@Nullable
 	private static Object doGetResource(Object actualKey) {
 		// 从缓存中获取
-		Map<Object, Object> map = resources.get();
+		TransactionState state = transactionState.get();
+		Map<Object, Object> map = (state != null ? state.resources : null);
 		if (map == null) {
 			return null;
 		}
@@ -168,10 +155,6 @@ public abstract class TransactionSynchronizationManager {
 		// Transparently remove ResourceHolder that was marked as void...
 		if (value instanceof ResourceHolder && ((ResourceHolder) value).isVoid()) {
 			map.remove(actualKey);
-			// Remove entire ThreadLocal if empty...
-			if (map.isEmpty()) {
-				resources.remove();
-			}
 			value = null;
 		}
 		return value;
@@ -187,11 +170,12 @@ public abstract class TransactionSynchronizationManager {
 	public static void bindResource(Object key, Object value) throws IllegalStateException {
 		Object actualKey = TransactionSynchronizationUtils.unwrapResourceIfNecessary(key);
 		Assert.notNull(value, "Value must not be null");
-		Map<Object, Object> map = resources.get();
-		// set ThreadLocal Map if none found
+		TransactionState state = obtainTransactionState();
+		Map<Object, Object> map = state.resources;
+		// create resource Map if none found
 		if (map == null) {
 			map = new HashMap<>();
-			resources.set(map);
+			state.resources = map;
 		}
 		Object oldValue = map.put(actualKey, value);
 		// Transparently suppress a ResourceHolder that was marked as void...
@@ -245,15 +229,12 @@ public abstract class TransactionSynchronizationManager {
 	 */
 	@Nullable
 	private static Object doUnbindResource(Object actualKey) {
-		Map<Object, Object> map = resources.get();
+		TransactionState state = transactionState.get();
+		Map<Object, Object> map = (state != null ? state.resources : null);
 		if (map == null) {
 			return null;
 		}
 		Object value = map.remove(actualKey);
-		// Remove entire ThreadLocal if empty...
-		if (map.isEmpty()) {
-			resources.remove();
-		}
 		// Transparently suppress a ResourceHolder that was marked as void...
 		if (value instanceof ResourceHolder && ((ResourceHolder) value).isVoid()) {
 			value = null;
@@ -279,7 +260,8 @@ public abstract class TransactionSynchronizationManager {
 	 * @see #registerSynchronization
 	 */
 	public static boolean isSynchronizationActive() {
-		return (synchronizations.get() != null);
+		TransactionState state = transactionState.get();
+		return (state != null && state.synchronizationActive);
 	}
 
 	/**
@@ -294,7 +276,7 @@ public abstract class TransactionSynchronizationManager {
 			throw new IllegalStateException("Cannot activate transaction synchronization - already active");
 		}
 		logger.trace("Initializing transaction synchronization");
-		synchronizations.set(new LinkedHashSet<>());
+		obtainTransactionState().synchronizationActive = true;
 	}
 
 	/**
@@ -311,10 +293,15 @@ public abstract class TransactionSynchronizationManager {
 			throws IllegalStateException {
 
 		Assert.notNull(synchronization, "TransactionSynchronization must not be null");
-		Set<TransactionSynchronization> synchs = synchronizations.get();
-		if (synchs == null) {
+		TransactionState state = transactionState.get();
+		if (state == null || !state.synchronizationActive) {
 			throw new IllegalStateException("Transaction synchronization is not active");
 		}
+		Set<TransactionSynchronization> synchs = state.synchronizations;
+		if (synchs == null) {
+			synchs = new LinkedHashSet<>();
+			state.synchronizations = synchs;
+		}
 		synchs.add(synchronization);
 	}
 
@@ -329,14 +316,15 @@ public abstract class TransactionSynchronizationManager {
 	 * @see TransactionSynchronization
 	 */
 	public static List<TransactionSynchronization> getSynchronizations() throws IllegalStateException {
-		Set<TransactionSynchronization> synchs = synchronizations.get();
-		if (synchs == null) {
+		TransactionState state = transactionState.get();
+		if (state == null || !state.synchronizationActive) {
 			throw new IllegalStateException("Transaction synchronization is not active");
 		}
 		// Return unmodifiable snapshot, to avoid ConcurrentModificationExceptions
 		// while iterating and invoking synchronization callbacks that in turn
 		// might register further synchronizations.
-		if (synchs.isEmpty()) {
+		Set<TransactionSynchronization> synchs = state.synchronizations;
+		if (synchs == null || synchs.isEmpty()) {
 			return Collections.emptyList();
 		}
 		else {
@@ -358,7 +346,7 @@ public abstract class TransactionSynchronizationManager {
 			throw new IllegalStateException("Cannot deactivate transaction synchronization - not active");
 		}
 		logger.trace("Clearing transaction synchronization");
-		synchronizations.remove();
+		transactionState.get().clearSynchronization();
 	}
 
 
@@ -373,7 +361,10 @@ public abstract class TransactionSynchronizationManager {
 	 * @see org.springframework.transaction.TransactionDefinition#getName()
 	 */
 	public static void setCurrentTransactionName(@Nullable String name) {
-		currentTransactionName.set(name);
+		TransactionState state = (name != null ? obtainTransactionState() : transactionState.get());
+		if (state != null) {
+			state.name = name;
+		}
 	}
 
 	/**
@@ -384,7 +375,8 @@ public abstract class TransactionSynchronizationManager {
 	 */
 	@Nullable
 	public static String getCurrentTransactionName() {
-		return currentTransactionName.get();
+		TransactionState state = transactionState.get();
+		return (state != null ? state.name : null);
 	}
 
 	/**
@@ -395,7 +387,10 @@ public abstract class TransactionSynchronizationManager {
 	 * @see org.springframework.transaction.TransactionDefinition#isReadOnly()
 	 */
 	public static void setCurrentTransactionReadOnly(boolean readOnly) {
-		currentTransactionReadOnly.set(readOnly ? Boolean.TRUE : null);
+		TransactionState state = (readOnly ? obtainTransactionState() : transactionState.get());
+		if (state != null) {
+			state.readOnly = readOnly;
+		}
 	}
 
 	/**
@@ -411,7 +406,8 @@ public abstract class TransactionSynchronizationManager {
 	 * @see TransactionSynchronization#beforeCommit(boolean)
 	 */
 	public static boolean isCurrentTransactionReadOnly() {
-		return (currentTransactionReadOnly.get() != null);
+		TransactionState state = transactionState.get();
+		return (state != null && state.readOnly);
 	}
 
 	/**
@@ -431,7 +427,10 @@ public abstract class TransactionSynchronizationManager {
 	 * @see org.springframework.transaction.TransactionDefinition#getIsolationLevel()
 	 */
 	public static void setCurrentTransactionIsolationLevel(@Nullable Integer isolationLevel) {
-		currentTransactionIsolationLevel.set(isolationLevel);
+		TransactionState state = (isolationLevel != null ? obtainTransactionState() : transactionState.get());
+		if (state != null) {
+			state.isolationLevel = isolationLevel;
+		}
 	}
 
 	/**
@@ -453,7 +452,8 @@ public abstract class TransactionSynchronizationManager {
 	 */
 	@Nullable
 	public static Integer getCurrentTransactionIsolationLevel() {
-		return currentTransactionIsolationLevel.get();
+		TransactionState state = transactionState.get();
+		return (state != null ? state.isolationLevel : null);
 	}
 
 	/**
@@ -463,7 +463,10 @@ public abstract class TransactionSynchronizationManager {
 	 * with an actual transaction; {@code false} to reset that marker
 	 */
 	public static void setActualTransactionActive(boolean active) {
-		actualTransactionActive.set(active ? Boolean.TRUE : null);
+		TransactionState state = (active ? obtainTransactionState() : transactionState.get());
+		if (state != null) {
+			state.actualTransactionActive = active;
+		}
 	}
 
 	/**
@@ -478,7 +481,8 @@ public abstract class TransactionSynchronizationManager {
 	 * @see #isSynchronizationActive()
 	 */
 	public static boolean isActualTransactionActive() {
-		return (actualTransactionActive.get() != null);
+		TransactionState state = transactionState.get();
+		return (state != null && state.actualTransactionActive);
 	}
 
 
@@ -493,11 +497,66 @@ public abstract class TransactionSynchronizationManager {
 	 * @see #setActualTransactionActive
 	 */
 	public static void clear() {
-		synchronizations.remove();
-		currentTransactionName.remove();
-		currentTransactionReadOnly.remove();
-		currentTransactionIsolationLevel.remove();
-		actualTransactionActive.remove();
+		TransactionState state = transactionState.get();
+		if (state != null) {
+			state.clearSynchronization();
+			state.name = null;
+			state.readOnly = false;
+			state.isolationLevel = null;
+			state.actualTransactionActive = false;
+		}
+	}
+
+	/**
+	 * Return the state holder for the current thread, creating it if necessary.
+	 */
+	private static TransactionState obtainTransactionState() {
+		TransactionState state = transactionState.get();
+		if (state == null) {
+			state = new TransactionState();
+			transactionState.set(state);
+		}
+		return state;
+	}
+
+
+	/**
+	 * Holder for the transaction state of a thread.
+	 * The resource Map and the synchronization Set are created on first use
+	 * and emptied rather than discarded when a transaction completes.
+	 */
+	private static final class TransactionState {
+
+		/**
+		 * 用于缓存当前线程的资源: 包括数据库连接(Connection), 会话(Session)等
+		 */
+		@Nullable
+		Map<Object, Object> resources;
+
+		/**
+		 * 用于缓存当前线程的事务同步器集合, 可通过{@link TransactionSynchronizationManager#registerSynchronization}注册.
+		 */
+		@Nullable
+		Set<TransactionSynchronization> synchronizations;
+
+		boolean synchronizationActive;
+
+		@Nullable
+		String name;
+
+		boolean readOnly;
+
+		@Nullable
+		Integer isolationLevel;
+
+		boolean actualTransactionActive;
+
+		void clearSynchronization() {
+			this.synchronizationActive = false;
+			if (this.synchronizations != null) {
+				this.synchronizations.clear();
+			}
+		}
 	}
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,14 +16,19 @@
 
 package org.springframework.transaction;
 
+import java.lang.reflect.Field;
+
 import org.junit.After;
 import org.junit.Test;
 
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
 import org.springframework.transaction.support.DefaultTransactionStatus;
 import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ReflectionUtils;
 
 import static org.junit.Assert.*;
 
@@ -321,6 +326,49 @@ public class TransactionSupportTests {
 		assertEquals(template2, template3);
 	}
 
+	@Test
+	public void transactionStateResetAfterCompletion() {
+		TestTransactionManager tm = new TestTransactionManager(false, true);
+		tm.setTransactionSynchronization(AbstractPlatformTransactionManager.SYNCHRONIZATION_ALWAYS);
+		TransactionTemplate template = new TransactionTemplate(tm);
+		template.setName("tx");
+		template.setReadOnly(true);
+		template.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+
+		Object state = null;
+		for (int i = 0; i < 2; i++) {
+			template.execute(new TransactionCallbackWithoutResult() {
+				@Override
+				protected void doInTransactionWithoutResult(TransactionStatus status) {
+					assertEquals("tx", TransactionSynchronizationManager.getCurrentTransactionName());
+					assertTrue(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+					assertEquals(Integer.valueOf(TransactionDefinition.ISOLATION_SERIALIZABLE),
+							TransactionSynchronizationManager.getCurrentTransactionIsolationLevel());
+					assertTrue(TransactionSynchronizationManager.isActualTransactionActive());
+					assertTrue(TransactionSynchronizationManager.getSynchronizations().isEmpty());
+					TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {});
+					assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+				}
+			});
+
+			assertNull(TransactionSynchronizationManager.getCurrentTransactionName());
+			assertFalse(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+			assertNull(TransactionSynchronizationManager.getCurrentTransactionIsolationLevel());
+			assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+			assertNotNull("Transaction state not kept on thread", getTransactionState());
+			if (state != null) {
+				assertSame("Transaction state not reused", state, getTransactionState());
+			}
+			state = getTransactionState();
+		}
+	}
+
+	private static Object getTransactionState() {
+		Field field = ReflectionUtils.findField(TransactionSynchronizationManager.class, "transactionState");
+		ReflectionUtils.makeAccessible(field);
+		return ((ThreadLocal<?>) ReflectionUtils.getField(field, null)).get();
+	}
+
 
 	@After
 	public void clear() {
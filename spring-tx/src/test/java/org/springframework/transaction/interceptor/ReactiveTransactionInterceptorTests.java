@@ -0,0 +1,237 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.transaction.interceptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.ReactiveTransaction;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+
+import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * Unit tests for {@link TransactionInterceptor} applied to methods
+ * with a reactive return type.
+ */
+public class ReactiveTransactionInterceptorTests {
+
+	private final RecordingReactiveTransactionManager rtm = new RecordingReactiveTransactionManager();
+
+
+	@Test
+	public void commitOnMonoCompletion() {
+		StepVerifier.create(advised().monoValue("value")).expectNext("value").verifyComplete();
+		assertEquals(Arrays.asList("begin " + DefaultReactiveService.class.getName() + ".monoValue", "commit"),
+				this.rtm.events);
+	}
+
+	@Test
+	public void commitOnFluxCompletion() {
+		StepVerifier.create(advised().fluxValues(3)).expectNext(0, 1, 2).verifyComplete();
+		assertEquals(Arrays.asList("begin " + DefaultReactiveService.class.getName() + ".fluxValues", "commit"),
+				this.rtm.events);
+	}
+
+	@Test
+	public void transactionNotStartedBeforeSubscription() {
+		Mono<String> result = advised().monoValue("value");
+		assertEquals(Collections.emptyList(), this.rtm.events);
+
+		StepVerifier.create(result).expectNext("value").verifyComplete();
+		assertEquals(2, this.rtm.events.size());
+	}
+
+	@Test
+	public void transactionContextExposedToTarget() {
+		StepVerifier.create(advised().transactionContextPresent()).expectNext(true).verifyComplete();
+	}
+
+	@Test
+	public void rollbackOnRuntimeException() {
+		StepVerifier.create(advised().monoError(new IllegalStateException()))
+				.verifyError(IllegalStateException.class);
+		assertEquals("rollback", this.rtm.events.get(this.rtm.events.size() - 1));
+	}
+
+	@Test
+	public void commitOnCheckedException() {
+		StepVerifier.create(advised().monoError(new Exception()))
+				.verifyError(Exception.class);
+		assertEquals("commit", this.rtm.events.get(this.rtm.events.size() - 1));
+	}
+
+	@Test
+	public void rollbackOnExceptionThrownByTargetMethod() {
+		StepVerifier.create(advised().monoThrowing()).verifyError(IllegalStateException.class);
+		assertEquals("rollback", this.rtm.events.get(this.rtm.events.size() - 1));
+	}
+
+	@Test
+	public void rollbackOnCancel() {
+		StepVerifier.create(advised().fluxValues(10), 0)
+				.thenRequest(1)
+				.expectNext(0)
+				.thenCancel()
+				.verify();
+		assertEquals("rollback", this.rtm.events.get(this.rtm.events.size() - 1));
+	}
+
+	@Test
+	public void nonReactiveMethodNotHandledByReactiveTransactionManager() {
+		assertEquals("value", advised().plainValue("value"));
+		assertEquals(Collections.emptyList(), this.rtm.events);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void missingReactiveTransactionManagerLookedUpOnce() {
+		ObjectProvider<ReactiveTransactionManager> provider = mock(ObjectProvider.class);
+		BeanFactory beanFactory = mock(BeanFactory.class);
+		given(beanFactory.getBeanProvider(ReactiveTransactionManager.class)).willReturn(provider);
+		TransactionInterceptor ti = new TransactionInterceptor();
+		ti.setBeanFactory(beanFactory);
+
+		TransactionAttribute txAttr = new DefaultTransactionAttribute();
+		assertNull(ti.determineReactiveTransactionManager(txAttr));
+		assertNull(ti.determineReactiveTransactionManager(txAttr));
+		verify(provider, times(1)).getIfUnique();
+	}
+
+
+	private ReactiveService advised() {
+		TransactionInterceptor ti = new TransactionInterceptor();
+		ti.setReactiveTransactionManager(this.rtm);
+		assertSame(this.rtm, ti.getReactiveTransactionManager());
+		ti.setTransactionAttributeSource(new MatchAlwaysTransactionAttributeSource());
+
+		ProxyFactory pf = new ProxyFactory(new DefaultReactiveService());
+		pf.addAdvice(ti);
+		return (ReactiveService) pf.getProxy();
+	}
+
+
+	public interface ReactiveService {
+
+		Mono<String> monoValue(String value);
+
+		Flux<Integer> fluxValues(int count);
+
+		Mono<String> monoError(Exception ex);
+
+		Mono<String> monoThrowing();
+
+		Mono<Boolean> transactionContextPresent();
+
+		String plainValue(String value);
+	}
+
+
+	private static class DefaultReactiveService implements ReactiveService {
+
+		@Override
+		public Mono<String> monoValue(String value) {
+			return Mono.just(value);
+		}
+
+		@Override
+		public Flux<Integer> fluxValues(int count) {
+			return Flux.range(0, count);
+		}
+
+		@Override
+		public Mono<String> monoError(Exception ex) {
+			return Mono.error(ex);
+		}
+
+		@Override
+		public Mono<String> monoThrowing() {
+			throw new IllegalStateException();
+		}
+
+		@Override
+		public Mono<Boolean> transactionContextPresent() {
+			return TransactionSynchronizationManager.forCurrentTransaction().hasElement();
+		}
+
+		@Override
+		public String plainValue(String value) {
+			return value;
+		}
+	}
+
+
+	private static class RecordingReactiveTransactionManager implements ReactiveTransactionManager {
+
+		final List<String> events = new ArrayList<>();
+
+		@Override
+		public Mono<ReactiveTransaction> getReactiveTransaction(@Nullable TransactionDefinition definition) {
+			return Mono.fromSupplier(() -> {
+				this.events.add("begin " + (definition != null ? definition.getName() : null));
+				return new SimpleReactiveTransaction();
+			});
+		}
+
+		@Override
+		public Mono<Void> commit(ReactiveTransaction transaction) {
+			return Mono.fromRunnable(() -> this.events.add("commit"));
+		}
+
+		@Override
+		public Mono<Void> rollback(ReactiveTransaction transaction) {
+			return Mono.fromRunnable(() -> this.events.add("rollback"));
+		}
+	}
+
+
+	private static class SimpleReactiveTransaction implements ReactiveTransaction {
+
+		@Override
+		public boolean isNewTransaction() {
+			return true;
+		}
+
+		@Override
+		public void setRollbackOnly() {
+		}
+
+		@Override
+		public boolean isRollbackOnly() {
+			return false;
+		}
+
+		@Override
+		public boolean isCompleted() {
+			return false;
+		}
+	}
+
+}
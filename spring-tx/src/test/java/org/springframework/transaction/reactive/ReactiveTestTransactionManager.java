@@ -0,0 +1,154 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.transaction.reactive;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import reactor.core.publisher.Mono;
+
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SmartTransactionObject;
+
+/**
+ * Test implementation of {@link AbstractReactiveTransactionManager} which binds
+ * a simple transaction object to the transaction context and records the
+ * callbacks it receives.
+ */
+@SuppressWarnings("serial")
+class ReactiveTestTransactionManager extends AbstractReactiveTransactionManager {
+
+	static final Object RESOURCE_KEY = "resource";
+
+	private final boolean canCreateTransaction;
+
+	final List<String> events = new ArrayList<>();
+
+
+	ReactiveTestTransactionManager() {
+		this(true);
+	}
+
+	ReactiveTestTransactionManager(boolean canCreateTransaction) {
+		this.canCreateTransaction = canCreateTransaction;
+	}
+
+
+	@Override
+	protected Object doGetTransaction(TransactionSynchronizationManager synchronizationManager) {
+		return new TestTransactionObject((TestTransactionObject) synchronizationManager.getResource(RESOURCE_KEY));
+	}
+
+	@Override
+	protected boolean isExistingTransaction(Object transaction) {
+		return (((TestTransactionObject) transaction).existing != null);
+	}
+
+	@Override
+	protected Mono<Void> doBegin(TransactionSynchronizationManager synchronizationManager,
+			Object transaction, TransactionDefinition definition) {
+
+		return Mono.defer(() -> {
+			if (!this.canCreateTransaction) {
+				return Mono.error(new CannotCreateTransactionException("Cannot create transaction"));
+			}
+			this.events.add("begin");
+			((TestTransactionObject) transaction).begun = true;
+			synchronizationManager.bindResource(RESOURCE_KEY, transaction);
+			return Mono.empty();
+		});
+	}
+
+	@Override
+	protected Mono<Object> doSuspend(TransactionSynchronizationManager synchronizationManager, Object transaction) {
+		return Mono.fromSupplier(() -> {
+			this.events.add("suspend");
+			return synchronizationManager.unbindResource(RESOURCE_KEY);
+		});
+	}
+
+	@Override
+	protected Mono<Void> doResume(TransactionSynchronizationManager synchronizationManager,
+			@Nullable Object transaction, Object suspendedResources) {
+
+		return Mono.fromRunnable(() -> {
+			this.events.add("resume");
+			synchronizationManager.bindResource(RESOURCE_KEY, suspendedResources);
+		});
+	}
+
+	@Override
+	protected Mono<Void> doCommit(TransactionSynchronizationManager synchronizationManager,
+			GenericReactiveTransaction status) {
+
+		return Mono.fromRunnable(() -> this.events.add("commit"));
+	}
+
+	@Override
+	protected Mono<Void> doRollback(TransactionSynchronizationManager synchronizationManager,
+			GenericReactiveTransaction status) {
+
+		return Mono.fromRunnable(() -> this.events.add("rollback"));
+	}
+
+	@Override
+	protected Mono<Void> doSetRollbackOnly(TransactionSynchronizationManager synchronizationManager,
+			GenericReactiveTransaction status) {
+
+		return Mono.fromRunnable(() -> {
+			this.events.add("setRollbackOnly");
+			((TestTransactionObject) status.getTransaction()).existing.rollbackOnly = true;
+		});
+	}
+
+	@Override
+	protected Mono<Void> doCleanupAfterCompletion(TransactionSynchronizationManager synchronizationManager,
+			Object transaction) {
+
+		return Mono.fromRunnable(() -> {
+			if (((TestTransactionObject) transaction).begun) {
+				synchronizationManager.unbindResource(RESOURCE_KEY);
+			}
+		});
+	}
+
+
+	private static class TestTransactionObject implements SmartTransactionObject {
+
+		@Nullable
+		final TestTransactionObject existing;
+
+		boolean begun;
+
+		boolean rollbackOnly;
+
+		TestTransactionObject(@Nullable TestTransactionObject existing) {
+			this.existing = existing;
+		}
+
+		@Override
+		public boolean isRollbackOnly() {
+			return (this.begun || this.existing == null ? this.rollbackOnly : this.existing.rollbackOnly);
+		}
+
+		@Override
+		public void flush() {
+		}
+	}
+
+}
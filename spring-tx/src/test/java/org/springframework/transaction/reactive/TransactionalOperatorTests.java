@@ -0,0 +1,167 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.transaction.reactive;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.UnexpectedRollbackException;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link TransactionalOperator}, driving an
+ * {@link AbstractReactiveTransactionManager}.
+ */
+public class TransactionalOperatorTests {
+
+	private final ReactiveTestTransactionManager tm = new ReactiveTestTransactionManager();
+
+	private final TransactionalOperator operator = TransactionalOperator.create(this.tm);
+
+
+	@Test
+	public void commitOnCompletion() {
+		StepVerifier.create(this.operator.transactional(Mono.just(1))).expectNext(1).verifyComplete();
+		assertEquals(Arrays.asList("begin", "commit"), this.tm.events);
+	}
+
+	@Test
+	public void rollbackOnError() {
+		StepVerifier.create(this.operator.transactional(Mono.error(new IllegalStateException())))
+				.verifyError(IllegalStateException.class);
+		assertEquals(Arrays.asList("begin", "rollback"), this.tm.events);
+	}
+
+	@Test
+	public void rollbackOnCancel() {
+		StepVerifier.create(this.operator.transactional(Flux.range(0, 10)), 0)
+				.thenRequest(2)
+				.expectNext(0, 1)
+				.thenCancel()
+				.verify();
+		assertEquals(Arrays.asList("begin", "rollback"), this.tm.events);
+	}
+
+	@Test
+	public void transactionExposedToCallback() {
+		Flux<Boolean> result = this.operator.execute(status -> TransactionSynchronizationManager.forCurrentTransaction()
+				.map(synchronizationManager -> status.isNewTransaction() &&
+						synchronizationManager.isActualTransactionActive() &&
+						synchronizationManager.hasResource(ReactiveTestTransactionManager.RESOURCE_KEY)));
+
+		StepVerifier.create(result).expectNext(true).verifyComplete();
+	}
+
+	@Test
+	public void noTransactionContextOutsideOfOperator() {
+		StepVerifier.create(TransactionSynchronizationManager.forCurrentTransaction())
+				.verifyError(NoTransactionException.class);
+	}
+
+	@Test
+	public void participateInExistingTransaction() {
+		Flux<Boolean> result = this.operator.execute(status ->
+				this.operator.execute(inner -> Mono.just(inner.isNewTransaction())));
+
+		StepVerifier.create(result).expectNext(false).verifyComplete();
+		assertEquals(Arrays.asList("begin", "commit"), this.tm.events);
+	}
+
+	@Test
+	public void participatingRollbackMarksExistingTransactionRollbackOnly() {
+		Mono<Object> inner = this.operator.transactional(Mono.error(new IllegalStateException()));
+		Mono<Object> outer = this.operator.transactional(inner.onErrorResume(ex -> Mono.empty()));
+
+		StepVerifier.create(outer).verifyError(UnexpectedRollbackException.class);
+		assertEquals(Arrays.asList("begin", "setRollbackOnly", "rollback"), this.tm.events);
+	}
+
+	@Test
+	public void requiresNewSuspendsExistingTransaction() {
+		DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+		definition.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		TransactionalOperator requiresNew = TransactionalOperator.create(this.tm, definition);
+
+		Flux<Boolean> result = this.operator.execute(status ->
+				requiresNew.execute(inner -> Mono.just(inner.isNewTransaction())));
+
+		StepVerifier.create(result).expectNext(true).verifyComplete();
+		assertEquals(Arrays.asList("begin", "suspend", "begin", "commit", "resume", "commit"), this.tm.events);
+	}
+
+	@Test
+	public void mandatoryWithoutExistingTransaction() {
+		DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+		definition.setPropagationBehavior(TransactionDefinition.PROPAGATION_MANDATORY);
+
+		StepVerifier.create(TransactionalOperator.create(this.tm, definition).transactional(Mono.just(1)))
+				.verifyError(IllegalTransactionStateException.class);
+		assertEquals(Collections.emptyList(), this.tm.events);
+	}
+
+	@Test
+	public void beginFailure() {
+		TransactionalOperator operator = TransactionalOperator.create(new ReactiveTestTransactionManager(false));
+
+		StepVerifier.create(operator.transactional(Mono.just(1)))
+				.verifyError(CannotCreateTransactionException.class);
+	}
+
+	@Test
+	public void synchronizationCallbacks() {
+		List<String> callbacks = new ArrayList<>();
+		TransactionSynchronization synchronization = new TransactionSynchronization() {
+			@Override
+			public Mono<Void> beforeCommit(boolean readOnly) {
+				return Mono.fromRunnable(() -> callbacks.add("beforeCommit"));
+			}
+			@Override
+			public Mono<Void> beforeCompletion() {
+				return Mono.fromRunnable(() -> callbacks.add("beforeCompletion"));
+			}
+			@Override
+			public Mono<Void> afterCommit() {
+				return Mono.fromRunnable(() -> callbacks.add("afterCommit"));
+			}
+			@Override
+			public Mono<Void> afterCompletion(int status) {
+				return Mono.fromRunnable(() -> callbacks.add("afterCompletion " + status));
+			}
+		};
+
+		Mono<Void> registration = TransactionSynchronizationManager.forCurrentTransaction()
+				.doOnNext(synchronizationManager -> synchronizationManager.registerSynchronization(synchronization))
+				.then();
+
+		StepVerifier.create(this.operator.transactional(registration)).verifyComplete();
+		assertEquals(Arrays.asList("beforeCommit", "beforeCompletion", "afterCommit",
+				"afterCompletion " + TransactionSynchronization.STATUS_COMMITTED), callbacks);
+	}
+
+}
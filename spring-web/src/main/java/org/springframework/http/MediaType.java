@@ -30,6 +30,7 @@ import java.util.stream.Collectors;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.ConcurrentLruCache;
 import org.springframework.util.InvalidMimeTypeException;
 import org.springframework.util.MimeType;
 import org.springframework.util.MimeTypeUtils;
@@ -322,6 +323,9 @@ public class MediaType extends MimeType implements Serializable {
 
 	private static final String PARAM_QUALITY_FACTOR = "q";
 
+	private static final ConcurrentLruCache<String, MediaType> cachedMediaTypes =
+			new ConcurrentLruCache<>(64, MediaType::parseMediaTypeInternal);
+
 
 	static {
 		ALL = valueOf(ALL_VALUE);
@@ -522,11 +526,21 @@ public class MediaType extends MimeType implements Serializable {
 
 	/**
 	 * Parse the given String into a single {@code MediaType}.
+	 * <p>Recently parsed {@code MediaType} instances are cached for further retrieval,
+	 * except for multipart types which typically carry a unique boundary parameter.
 	 * @param mediaType the string to parse
 	 * @return the media type
 	 * @throws InvalidMediaTypeException if the media type value cannot be parsed
 	 */
 	public static MediaType parseMediaType(String mediaType) {
+		// do not cache multipart media types with random boundaries
+		if (!StringUtils.hasLength(mediaType) || mediaType.startsWith("multipart")) {
+			return parseMediaTypeInternal(mediaType);
+		}
+		return cachedMediaTypes.get(mediaType);
+	}
+
+	private static MediaType parseMediaTypeInternal(String mediaType) {
 		MimeType type;
 		try {
 			type = MimeTypeUtils.parseMimeType(mediaType);
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,10 +21,17 @@ import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import org.reactivestreams.Publisher;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import org.springframework.core.ResolvableType;
 import org.springframework.core.codec.CodecException;
@@ -45,6 +52,12 @@ import org.springframework.util.StringUtils;
 /**
  * {@code HttpMessageWriter} for {@code "text/event-stream"} responses.
  *
+ * <p>By default every event is written and flushed on its own. With a
+ * {@linkplain #setBatchWindow batch window}, events emitted close together
+ * are coalesced into one write and flush instead. A
+ * {@linkplain #setHeartbeatInterval heartbeat interval} keeps idle
+ * connections alive with comment lines.
+ *
  * @author Sebastien Deleuze
  * @author Arjen Poutsma
  * @author Rossen Stoyanchev
@@ -56,10 +69,24 @@ public class ServerSentEventHttpMessageWriter implements HttpMessageWriter<Objec
 
 	private static final List<MediaType> WRITABLE_MEDIA_TYPES = Collections.singletonList(MediaType.TEXT_EVENT_STREAM);
 
+	/** The default max number of events per batch, i.e. 256. */
+	public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+
+	/** The max number of batches held for a client which cannot keep up. */
+	private static final int MAX_PENDING_BATCHES = 16;
+
 
 	@Nullable
 	private final Encoder<?> encoder;
 
+	@Nullable
+	private Duration batchWindow;
+
+	private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+	@Nullable
+	private Heartbeats heartbeats;
+
 
 	/**
 	 * Constructor without an {@code Encoder}. In this mode only {@code String}
@@ -87,6 +114,80 @@ public class ServerSentEventHttpMessageWriter implements HttpMessageWriter<Objec
 		return this.encoder;
 	}
 
+	/**
+	 * Coalesce the events that are emitted within the given window of the
+	 * first one, up to the {@linkplain #setMaxBatchSize max batch size}, into
+	 * a single write and flush. This trades a bounded delay for fewer writes
+	 * and flushes when many subscribers receive small, frequent events.
+	 * <p>Note that in this mode events are requested from the source without
+	 * waiting for previous writes to complete. Up to 16 batches are held for a
+	 * client which cannot keep up, beyond which the response fails with an
+	 * overflow error, rather than buffering without bounds.
+	 * <p>By default this is not set, and each event is flushed as soon as it
+	 * has been written.
+	 * @param batchWindow the time window, or {@code null} to flush every event
+	 * @since 5.1.13
+	 */
+	public void setBatchWindow(@Nullable Duration batchWindow) {
+		Assert.isTrue(batchWindow == null || !batchWindow.isNegative() && !batchWindow.isZero(),
+				"'batchWindow' must be positive");
+		this.batchWindow = batchWindow;
+	}
+
+	/**
+	 * Return the {@link #setBatchWindow configured} batch window, if any.
+	 * @since 5.1.13
+	 */
+	@Nullable
+	public Duration getBatchWindow() {
+		return this.batchWindow;
+	}
+
+	/**
+	 * Set the max number of events to coalesce into one write when a
+	 * {@link #setBatchWindow batch window} is configured.
+	 * <p>By default this is set to {@value #DEFAULT_MAX_BATCH_SIZE}.
+	 * @param maxBatchSize the max number of events per write
+	 * @since 5.1.13
+	 */
+	public void setMaxBatchSize(int maxBatchSize) {
+		Assert.isTrue(maxBatchSize > 0, "'maxBatchSize' must be higher than 0");
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * Return the {@link #setMaxBatchSize configured} max batch size.
+	 * @since 5.1.13
+	 */
+	public int getMaxBatchSize() {
+		return this.maxBatchSize;
+	}
+
+	/**
+	 * Write an empty comment line to connections that have not received an
+	 * event for about the given interval, to prevent proxies and clients from
+	 * closing them as idle. A single periodic task on a shared scheduler
+	 * serves all connections of this writer, as opposed to one interval per
+	 * connection, so heartbeats may be delayed by up to half the interval.
+	 * <p>By default this is not set, and no heartbeats are sent.
+	 * @param heartbeatInterval the interval, or {@code null} for no heartbeats
+	 * @since 5.1.13
+	 */
+	public void setHeartbeatInterval(@Nullable Duration heartbeatInterval) {
+		Assert.isTrue(heartbeatInterval == null || !heartbeatInterval.isNegative() && !heartbeatInterval.isZero(),
+				"'heartbeatInterval' must be positive");
+		this.heartbeats = (heartbeatInterval != null ? new Heartbeats(heartbeatInterval) : null);
+	}
+
+	/**
+	 * Return the {@link #setHeartbeatInterval configured} heartbeat interval, if any.
+	 * @since 5.1.13
+	 */
+	@Nullable
+	public Duration getHeartbeatInterval() {
+		return (this.heartbeats != null ? this.heartbeats.interval : null);
+	}
+
 	@Override
 	public List<MediaType> getWritableMediaTypes() {
 		return WRITABLE_MEDIA_TYPES;
@@ -116,7 +217,7 @@ public class ServerSentEventHttpMessageWriter implements HttpMessageWriter<Objec
 		ResolvableType valueType = (ServerSentEvent.class.isAssignableFrom(elementType.toClass()) ?
 				elementType.getGeneric() : elementType);
 
-		return Flux.from(input).map(element -> {
+		Flux<Publisher<DataBuffer>> result = Flux.from(input).map(element -> {
 
 			ServerSentEvent<?> sse = (element instanceof ServerSentEvent ?
 					(ServerSentEvent<?>) element : ServerSentEvent.builder().data(element).build());
@@ -150,6 +251,19 @@ public class ServerSentEventHttpMessageWriter implements HttpMessageWriter<Objec
 
 			return flux.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
 		});
+
+		if (this.batchWindow != null) {
+			// The timer of bufferTimeout cannot wait for demand while a write is pending.
+			// Events are only encoded once written, so pending batches hold no buffers.
+			result = result.bufferTimeout(this.maxBatchSize, this.batchWindow)
+					.onBackpressureBuffer(MAX_PENDING_BATCHES)
+					.map(Flux::concat);
+		}
+		Heartbeats heartbeats = this.heartbeats;
+		if (heartbeats != null) {
+			result = heartbeats.merge(result, () -> encodeText(":\n\n", mediaType, factory));
+		}
+		return result;
 	}
 
 	private void writeField(String fieldName, Object fieldValue, StringBuilder sb) {
@@ -184,7 +298,8 @@ public class ServerSentEventHttpMessageWriter implements HttpMessageWriter<Objec
 	private Mono<DataBuffer> encodeText(CharSequence text, MediaType mediaType, DataBufferFactory bufferFactory) {
 		Assert.notNull(mediaType.getCharset(), "Expected MediaType with charset");
 		byte[] bytes = text.toString().getBytes(mediaType.getCharset());
-		return Mono.just(bufferFactory.wrap(bytes)); // wrapping, not allocating
+		// Wrapping, not allocating, and only once written: discarded events hold no buffers
+		return Mono.fromSupplier(() -> bufferFactory.wrap(bytes));
 	}
 
 	@Override
@@ -208,4 +323,91 @@ public class ServerSentEventHttpMessageWriter implements HttpMessageWriter<Objec
 		return Hints.none();
 	}
 
+
+
+	/**
+	 * Shared timer for the heartbeats of all connections of a writer. Every
+	 * half interval, a single task sends a heartbeat to the connections that
+	 * have been idle for at least the interval. The task is only scheduled
+	 * while there are open connections.
+	 */
+	private static class Heartbeats {
+
+		private final Duration interval;
+
+		private final long intervalNanos;
+
+		private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+		@Nullable
+		private Disposable task;
+
+		Heartbeats(Duration interval) {
+			this.interval = interval;
+			this.intervalNanos = interval.toNanos();
+		}
+
+		public Flux<Publisher<DataBuffer>> merge(
+				Flux<Publisher<DataBuffer>> events, Supplier<Publisher<DataBuffer>> heartbeat) {
+
+			return Flux.defer(() -> {
+				Connection connection = new Connection(heartbeat);
+				Flux<Publisher<DataBuffer>> heartbeats = Flux.create(sink -> {
+					connection.sink = sink;
+					sink.onDispose(() -> this.connections.remove(connection));
+					register(connection);
+				}, FluxSink.OverflowStrategy.LATEST);
+				return events
+						.doOnNext(publisher -> connection.lastActivity = System.nanoTime())
+						.publish(shared -> Flux.merge(shared, heartbeats.takeUntilOther(shared.then())));
+			});
+		}
+
+		private void register(Connection connection) {
+			this.connections.add(connection);
+			synchronized (this) {
+				if (this.task == null) {
+					long period = Math.max(1, this.interval.toMillis() / 2);
+					this.task = Schedulers.parallel().schedulePeriodically(
+							this::tick, period, period, TimeUnit.MILLISECONDS);
+				}
+			}
+		}
+
+		private void tick() {
+			if (this.connections.isEmpty()) {
+				synchronized (this) {
+					if (this.connections.isEmpty() && this.task != null) {
+						this.task.dispose();
+						this.task = null;
+					}
+				}
+				return;
+			}
+			long now = System.nanoTime();
+			for (Connection connection : this.connections) {
+				FluxSink<Publisher<DataBuffer>> sink = connection.sink;
+				if (sink != null && now - connection.lastActivity >= this.intervalNanos) {
+					connection.lastActivity = now;
+					sink.next(connection.heartbeat.get());
+				}
+			}
+		}
+	}
+
+
+	private static class Connection {
+
+		final Supplier<Publisher<DataBuffer>> heartbeat;
+
+		@Nullable
+		volatile FluxSink<Publisher<DataBuffer>> sink;
+
+		volatile long lastActivity = System.nanoTime();
+
+		Connection(Supplier<Publisher<DataBuffer>> heartbeat) {
+			this.heartbeat = heartbeat;
+		}
+	}
+
 }
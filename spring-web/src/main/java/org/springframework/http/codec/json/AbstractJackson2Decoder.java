@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 
 import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -39,6 +40,7 @@ import org.springframework.core.codec.DecodingException;
 import org.springframework.core.codec.Hints;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.core.log.LogFormatUtils;
 import org.springframework.http.codec.HttpMessageDecoder;
 import org.springframework.http.server.reactive.ServerHttpRequest;
@@ -67,6 +69,12 @@ public abstract class AbstractJackson2Decoder extends Jackson2CodecSupport imple
 	 */
 	private final JsonFactory jsonFactory;
 
+	/**
+	 * Whether the input is standard JSON text that {@link JsonElementScanner}
+	 * can split, as opposed to a binary format or lenient JSON.
+	 */
+	private final boolean standardJsonText;
+
 
 	/**
 	 * Constructor with a Jackson {@link ObjectMapper} to use.
@@ -75,6 +83,12 @@ public abstract class AbstractJackson2Decoder extends Jackson2CodecSupport imple
 		super(mapper, mimeTypes);
 		this.jsonFactory = mapper.getFactory().copy()
 				.disable(JsonFactory.Feature.USE_THREAD_LOCAL_FOR_BUFFER_RECYCLING);
+		this.standardJsonText = (JsonFactory.FORMAT_NAME_JSON.equals(this.jsonFactory.getFormatName()) &&
+				!this.jsonFactory.isEnabled(JsonParser.Feature.ALLOW_COMMENTS) &&
+				!this.jsonFactory.isEnabled(JsonParser.Feature.ALLOW_YAML_COMMENTS) &&
+				!this.jsonFactory.isEnabled(JsonParser.Feature.ALLOW_SINGLE_QUOTES) &&
+				!this.jsonFactory.isEnabled(JsonParser.Feature.ALLOW_MISSING_VALUES) &&
+				!this.jsonFactory.isEnabled(JsonParser.Feature.ALLOW_TRAILING_COMMA));
 	}
 
 
@@ -109,62 +123,118 @@ public abstract class AbstractJackson2Decoder extends Jackson2CodecSupport imple
 				getObjectMapper().canDeserialize(javaType) && supportsMimeType(mimeType));
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>For standard JSON text, each top-level value or array element is
+	 * deserialized straight from the non-blocking parser as soon as it has
+	 * been received in full. Other input is tokenized first.
+	 */
 	@Override
 	public Flux<Object> decode(Publisher<DataBuffer> input, ResolvableType elementType,
 			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
 
+		if (this.standardJsonText) {
+			ObjectReader reader = getObjectReader(elementType, hints);
+			return JsonElementScanner.decode(
+					Flux.from(input), this.jsonFactory, getObjectMapper(), reader, getMaxInMemorySize())
+					.doOnNext(value -> logValue(value, hints))
+					.onErrorMap(IOException.class, this::processException);
+		}
 		Flux<TokenBuffer> tokens = Jackson2Tokenizer.tokenize(
 				Flux.from(input), this.jsonFactory, getObjectMapper(), true, getMaxInMemorySize());
 		return decodeInternal(tokens, elementType, mimeType, hints);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>The input is {@linkplain DataBufferUtils#join joined} first, which
+	 * does not copy it for buffers from a {@code DefaultDataBufferFactory},
+	 * and the value is then read from the joined buffer as a stream.
+	 */
 	@Override
 	public Mono<Object> decodeToMono(Publisher<DataBuffer> input, ResolvableType elementType,
 			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
 
-		Flux<TokenBuffer> tokens = Jackson2Tokenizer.tokenize(
-				Flux.from(input), this.jsonFactory, getObjectMapper(), false, getMaxInMemorySize());
-		return decodeInternal(tokens, elementType, mimeType, hints).singleOrEmpty();
+		return DataBufferUtils.join(input, getMaxInMemorySize())
+				.flatMap(dataBuffer -> {
+					try {
+						Object value = readValue(getObjectReader(elementType, hints), dataBuffer);
+						logValue(value, hints);
+						return Mono.justOrEmpty(value);
+					}
+					catch (IOException ex) {
+						return Mono.error(processException(ex));
+					}
+					finally {
+						DataBufferUtils.release(dataBuffer);
+					}
+				});
+	}
+
+	@Nullable
+	private Object readValue(ObjectReader reader, DataBuffer dataBuffer) throws IOException {
+		try (JsonParser parser = reader.getFactory().createParser(dataBuffer.asInputStream())) {
+			// Empty or blank input means no value, as when tokenizing
+			if (parser.nextToken() == null) {
+				return null;
+			}
+			Object value = reader.readValue(parser);
+			if (parser.nextToken() != null) {
+				throw new DecodingException("JSON decoding error: Unexpected content after the value " +
+						"at " + parser.getCurrentLocation());
+			}
+			return value;
+		}
 	}
 
 	private Flux<Object> decodeInternal(Flux<TokenBuffer> tokens, ResolvableType elementType,
 			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
 
 		Assert.notNull(tokens, "'tokens' must not be null");
-		Assert.notNull(elementType, "'elementType' must not be null");
-
-		MethodParameter param = getParameter(elementType);
-		Class<?> contextClass = (param != null ? param.getContainingClass() : null);
-		JavaType javaType = getJavaType(elementType.getType(), contextClass);
-		Class<?> jsonView = (hints != null ? (Class<?>) hints.get(Jackson2CodecSupport.JSON_VIEW_HINT) : null);
-
-		ObjectReader reader = (jsonView != null ?
-				getObjectMapper().readerWithView(jsonView).forType(javaType) :
-				getObjectMapper().readerFor(javaType));
+		ObjectReader reader = getObjectReader(elementType, hints);
 
 		return tokens.flatMap(tokenBuffer -> {
 			try {
 				Object value = reader.readValue(tokenBuffer.asParser(getObjectMapper()));
-				if (!Hints.isLoggingSuppressed(hints)) {
-					LogFormatUtils.traceDebug(logger, traceOn -> {
-						String formatted = LogFormatUtils.formatValue(value, !traceOn);
-						return Hints.getLogPrefix(hints) + "Decoded [" + formatted + "]";
-					});
-				}
+				logValue(value, hints);
 				return Mono.justOrEmpty(value);
 			}
-			catch (InvalidDefinitionException ex) {
-				return Mono.error(new CodecException("Type definition error: " + ex.getType(), ex));
-			}
-			catch (JsonProcessingException ex) {
-				return Mono.error(new DecodingException("JSON decoding error: " + ex.getOriginalMessage(), ex));
-			}
 			catch (IOException ex) {
-				return Mono.error(new DecodingException("I/O error while parsing input stream", ex));
+				return Mono.error(processException(ex));
 			}
 		});
 	}
 
+	private ObjectReader getObjectReader(ResolvableType elementType, @Nullable Map<String, Object> hints) {
+		Assert.notNull(elementType, "'elementType' must not be null");
+		MethodParameter param = getParameter(elementType);
+		Class<?> contextClass = (param != null ? param.getContainingClass() : null);
+		JavaType javaType = getJavaType(elementType.getType(), contextClass);
+		Class<?> jsonView = (hints != null ? (Class<?>) hints.get(Jackson2CodecSupport.JSON_VIEW_HINT) : null);
+		return (jsonView != null ?
+				getObjectMapper().readerWithView(jsonView).forType(javaType) :
+				getObjectMapper().readerFor(javaType));
+	}
+
+	private void logValue(@Nullable Object value, @Nullable Map<String, Object> hints) {
+		if (!Hints.isLoggingSuppressed(hints)) {
+			LogFormatUtils.traceDebug(logger, traceOn -> {
+				String formatted = LogFormatUtils.formatValue(value, !traceOn);
+				return Hints.getLogPrefix(hints) + "Decoded [" + formatted + "]";
+			});
+		}
+	}
+
+	private CodecException processException(IOException ex) {
+		if (ex instanceof InvalidDefinitionException) {
+			return new CodecException("Type definition error: " + ((InvalidDefinitionException) ex).getType(), ex);
+		}
+		if (ex instanceof JsonProcessingException) {
+			return new DecodingException("JSON decoding error: " + ((JsonProcessingException) ex).getOriginalMessage(), ex);
+		}
+		return new DecodingException("I/O error while parsing input stream", ex);
+	}
+
 
 	// HttpMessageDecoder...
 
@@ -0,0 +1,401 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.json;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import reactor.core.publisher.Flux;
+
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.CompositeDataBuffer;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+/**
+ * Decodes a stream of JSON text into one value per top-level JSON value,
+ * where a top-level array is unwrapped into its elements.
+ *
+ * <p>The received chunks are fed into a single non-blocking parser, from
+ * which an {@link ObjectReader} bound to the target type deserializes each
+ * value. Unlike with the {@link Jackson2Tokenizer}, tokens are not copied
+ * into a {@code TokenBuffer} first: instead, a lightweight scan of the JSON
+ * structure holds back the bytes of an incomplete value, so that the parser
+ * is only ever fed complete values. Standard JSON is assumed, without
+ * comments or single-quoted strings.
+ *
+ * @since 5.1.13
+ * @see Jackson2Tokenizer
+ */
+final class JsonElementScanner {
+
+	private static final byte[] EMPTY_BYTES = new byte[0];
+
+	private static final byte[] WHITESPACE = {' '};
+
+
+	private final JsonParser parser;
+
+	private final ByteArrayFeeder inputFeeder;
+
+	private final ObjectReader reader;
+
+	private final int maxInMemorySize;
+
+	/** Opening brackets of the enclosing structures, including a top-level array. */
+	private byte[] nesting = new byte[16];
+
+	private int depth;
+
+	private boolean inTopLevelArray;
+
+	private boolean inString;
+
+	private boolean escaped;
+
+	private boolean inScalar;
+
+	/** Absolute position of the value in progress, or -1 if between values. */
+	private long valueStart = -1;
+
+	/** Absolute position up to which input has been fed into the parser. */
+	private long fedPosition;
+
+	/** Absolute position of the start of the current chunk. */
+	private long position;
+
+	/** Input received but not fed into the parser yet. */
+	private byte[] pending = EMPTY_BYTES;
+
+	private int pendingCount;
+
+	private byte[] scratch = EMPTY_BYTES;
+
+
+	private JsonElementScanner(JsonParser parser, ObjectCodec codec, ObjectReader reader, int maxInMemorySize) {
+		// Non-blocking parsers reject a codec, which is safe here since values are complete
+		this.parser = new JsonParserDelegate(parser) {
+			@Override
+			public ObjectCodec getCodec() {
+				return codec;
+			}
+			@Override
+			public void setCodec(ObjectCodec codec) {
+				throw new UnsupportedOperationException();
+			}
+		};
+		this.inputFeeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+		this.reader = reader;
+		this.maxInMemorySize = maxInMemorySize;
+	}
+
+
+	private Flux<Object> decode(DataBuffer dataBuffer) {
+		try {
+			if (dataBuffer instanceof CompositeDataBuffer) {
+				List<Object> result = new ArrayList<>();
+				for (ByteBuffer byteBuffer : ((CompositeDataBuffer) dataBuffer).asByteBuffers()) {
+					result.addAll(decode(byteBuffer));
+				}
+				return Flux.fromIterable(result);
+			}
+			return Flux.fromIterable(decode(dataBuffer.asByteBuffer()));
+		}
+		catch (IOException | RuntimeException ex) {
+			return Flux.error(ex);
+		}
+		finally {
+			DataBufferUtils.release(dataBuffer);
+		}
+	}
+
+	private Flux<Object> endOfInput() {
+		try {
+			if (this.inString || this.depth > 0) {
+				throw new DecodingException("JSON decoding error: Unexpected end-of-input");
+			}
+			if (this.inScalar) {
+				// Terminate a trailing top-level number or literal for the parser
+				appendPending(WHITESPACE, 0, 1);
+			}
+			if (this.pendingCount > 0) {
+				this.inputFeeder.feedInput(this.pending, 0, this.pendingCount);
+				this.pendingCount = 0;
+			}
+			this.inputFeeder.endOfInput();
+			return Flux.fromIterable(readValues());
+		}
+		catch (IOException | RuntimeException ex) {
+			return Flux.error(ex);
+		}
+	}
+
+	private List<Object> decode(ByteBuffer byteBuffer) throws IOException {
+		int length = byteBuffer.remaining();
+		if (byteBuffer.hasArray()) {
+			return decode(byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(), length);
+		}
+		if (this.scratch.length < length) {
+			this.scratch = new byte[length];
+		}
+		byteBuffer.get(this.scratch, 0, length);
+		return decode(this.scratch, 0, length);
+	}
+
+	private List<Object> decode(byte[] bytes, int offset, int length) throws IOException {
+		scan(bytes, offset, offset + length);
+		long end = this.position + length;
+		long safePosition = (this.valueStart != -1 ? this.valueStart : end);
+		List<Object> result = Collections.emptyList();
+		if (safePosition > this.fedPosition) {
+			int safeIndex = offset + (int) (safePosition - this.position);
+			if (this.pendingCount > 0) {
+				appendPending(bytes, offset, safeIndex);
+				this.inputFeeder.feedInput(this.pending, 0, this.pendingCount);
+				this.pendingCount = 0;
+			}
+			else {
+				this.inputFeeder.feedInput(bytes, offset, safeIndex);
+			}
+			this.fedPosition = safePosition;
+			result = readValues();
+			appendPending(bytes, safeIndex, offset + length);
+		}
+		else {
+			appendPending(bytes, offset, offset + length);
+		}
+		this.position = end;
+		return result;
+	}
+
+	private List<Object> readValues() throws IOException {
+		List<Object> result = Collections.emptyList();
+		while (true) {
+			JsonToken token = this.parser.nextToken();
+			if (token == null || token == JsonToken.NOT_AVAILABLE) {
+				return result;
+			}
+			if (isTopLevelArrayToken(token)) {
+				continue;
+			}
+			Object value = this.reader.readValue(this.parser);
+			if (value != null) {
+				if (result.isEmpty()) {
+					result = new ArrayList<>();
+				}
+				result.add(value);
+			}
+		}
+	}
+
+	private boolean isTopLevelArrayToken(JsonToken token) {
+		return ((token == JsonToken.START_ARRAY && this.parser.getParsingContext().getParent().inRoot()) ||
+				(token == JsonToken.END_ARRAY && this.parser.getParsingContext().inRoot()));
+	}
+
+	private void appendPending(byte[] bytes, int start, int end) {
+		int length = end - start;
+		if (this.pending.length < this.pendingCount + length) {
+			this.pending = Arrays.copyOf(this.pending, Math.max(this.pending.length * 2, this.pendingCount + length));
+		}
+		System.arraycopy(bytes, start, this.pending, this.pendingCount, length);
+		this.pendingCount += length;
+	}
+
+
+	// Structure scanning...
+
+	private void scan(byte[] bytes, int offset, int end) {
+		int start = offset;
+		if (this.position == 0 && end - offset >= 3 &&
+				bytes[offset] == (byte) 0xEF && bytes[offset + 1] == (byte) 0xBB && bytes[offset + 2] == (byte) 0xBF) {
+			start += 3;  // UTF-8 BOM
+		}
+		for (int i = start; i < end; i++) {
+			byte b = bytes[i];
+			if (this.inString) {
+				if (this.escaped) {
+					this.escaped = false;
+				}
+				else if (b == '\\') {
+					this.escaped = true;
+				}
+				else if (b == '"') {
+					this.inString = false;
+					if (this.depth == baseDepth()) {
+						endValue(i + 1 - offset);
+					}
+				}
+				continue;
+			}
+			if (this.inScalar) {
+				if (!isDelimiter(b)) {
+					continue;
+				}
+				this.inScalar = false;
+				endValue(i - offset);
+			}
+			switch (b) {
+				case ' ':
+				case '\t':
+				case '\n':
+				case '\r':
+				case ',':
+					break;
+				case '"':
+					startValue(i - offset);
+					this.inString = true;
+					break;
+				case '[':
+					if (this.depth == 0) {
+						this.inTopLevelArray = true;
+						push(b);
+						break;
+					}
+					startValue(i - offset);
+					push(b);
+					break;
+				case '{':
+					startValue(i - offset);
+					push(b);
+					break;
+				case ']':
+				case '}':
+					pop(b);
+					if (this.inTopLevelArray && this.depth == 0) {
+						this.inTopLevelArray = false;
+					}
+					else if (this.depth == baseDepth()) {
+						endValue(i + 1 - offset);
+					}
+					break;
+				default:
+					startValue(i - offset);
+					if (this.depth == baseDepth()) {
+						this.inScalar = true;
+					}
+			}
+		}
+		if (this.valueStart != -1) {
+			assertInMemorySize(this.position + (end - offset) - this.valueStart);
+		}
+	}
+
+	private int baseDepth() {
+		return (this.inTopLevelArray ? 1 : 0);
+	}
+
+	private static boolean isDelimiter(byte b) {
+		switch (b) {
+			case ' ':
+			case '\t':
+			case '\n':
+			case '\r':
+			case ',':
+			case ']':
+			case '}':
+				return true;
+			case '"':
+			case '[':
+			case '{':
+			case ':':
+				throw unexpected(b);
+			default:
+				return false;
+		}
+	}
+
+	private void startValue(int index) {
+		if (this.depth == baseDepth()) {
+			this.valueStart = this.position + index;
+		}
+	}
+
+	private void endValue(int index) {
+		assertInMemorySize(this.position + index - this.valueStart);
+		this.valueStart = -1;
+	}
+
+	private void push(byte b) {
+		if (this.depth == this.nesting.length) {
+			this.nesting = Arrays.copyOf(this.nesting, this.depth * 2);
+		}
+		this.nesting[this.depth++] = b;
+	}
+
+	private void pop(byte b) {
+		byte expected = (b == ']' ? (byte) '[' : (byte) '{');
+		if (this.depth == 0 || this.nesting[this.depth - 1] != expected) {
+			throw unexpected(b);
+		}
+		this.depth--;
+	}
+
+	private static DecodingException unexpected(byte b) {
+		return new DecodingException("JSON decoding error: Unexpected character '" + (char) b + "'");
+	}
+
+	private void assertInMemorySize(long byteCount) {
+		if (this.maxInMemorySize >= 0 && byteCount > this.maxInMemorySize) {
+			throw new DataBufferLimitException(
+					"Exceeded limit on max bytes per JSON object: " + this.maxInMemorySize);
+		}
+	}
+
+
+	/**
+	 * Decode the given {@code Flux<DataBuffer>} into a {@code Flux} of the
+	 * values read from each top-level JSON value or array element.
+	 * @param dataBuffers the source data buffers
+	 * @param jsonFactory the factory to use
+	 * @param objectMapper the current mapper instance, exposed as the parser's codec
+	 * @param reader the reader for each value
+	 * @param maxInMemorySize the max number of bytes per value, or -1 for unlimited
+	 * @return the resulting values; {@link IOException}s are not translated
+	 */
+	public static Flux<Object> decode(Flux<DataBuffer> dataBuffers, JsonFactory jsonFactory,
+			ObjectMapper objectMapper, ObjectReader reader, int maxInMemorySize) {
+
+		return Flux.defer(() -> {
+			try {
+				JsonParser parser = jsonFactory.createNonBlockingByteArrayParser();
+				// Values are read one at a time from a stream which continues after them
+				ObjectReader valueReader = reader.without(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+				JsonElementScanner scanner = new JsonElementScanner(parser, objectMapper, valueReader, maxInMemorySize);
+				return dataBuffers.flatMap(scanner::decode, Flux::error, scanner::endOfInput);
+			}
+			catch (IOException ex) {
+				return Flux.error(ex);
+			}
+		});
+	}
+
+}
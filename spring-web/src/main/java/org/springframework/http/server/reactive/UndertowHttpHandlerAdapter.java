@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -54,6 +54,12 @@ public class UndertowHttpHandlerAdapter implements io.undertow.server.HttpHandle
 	}
 
 
+	/**
+	 * Set the {@code DataBufferFactory} to use for request and response bodies.
+	 * <p>By default a {@link DefaultDataBufferFactory} for heap buffers is used.
+	 * Consider a {@link org.springframework.core.io.buffer.PooledDefaultDataBufferFactory}
+	 * to recycle released buffers instead.
+	 */
 	public void setDataBufferFactory(DataBufferFactory bufferFactory) {
 		Assert.notNull(bufferFactory, "DataBufferFactory must not be null");
 		this.bufferFactory = bufferFactory;
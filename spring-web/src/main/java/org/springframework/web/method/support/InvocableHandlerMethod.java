@@ -21,9 +21,11 @@ import java.lang.reflect.Method;
 import java.util.Arrays;
 
 import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.DirectMethodInvoker;
 import org.springframework.core.MethodParameter;
 import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.ReflectionUtils;
 import org.springframework.web.bind.WebDataBinder;
@@ -53,6 +55,9 @@ public class InvocableHandlerMethod extends HandlerMethod {
 
 	private ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
 
+	@Nullable
+	private HandlerMethodInvoker handlerMethodInvoker;
+
 
 	/**
 	 * Create an instance from a {@code HandlerMethod}.
@@ -107,6 +112,20 @@ public class InvocableHandlerMethod extends HandlerMethod {
 		this.parameterNameDiscoverer = parameterNameDiscoverer;
 	}
 
+	/**
+	 * Set a {@link HandlerMethodInvoker} prepared for this handler method,
+	 * providing pre-bound argument resolvers and a generated method invoker.
+	 * <p>By default, argument resolvers are looked up for each invocation
+	 * and the method is invoked through reflection.
+	 * @since 5.1.13
+	 * @see HandlerMethodInvoker#prepare
+	 */
+	public void setHandlerMethodInvoker(@Nullable HandlerMethodInvoker handlerMethodInvoker) {
+		Assert.isTrue(handlerMethodInvoker == null || handlerMethodInvoker.getMethod().equals(getBridgedMethod()),
+				"HandlerMethodInvoker has been prepared for a different method");
+		this.handlerMethodInvoker = handlerMethodInvoker;
+	}
+
 
 	/**
 	 * Invoke the method after resolving its argument values in the context of the given request.
@@ -160,11 +179,16 @@ public class InvocableHandlerMethod extends HandlerMethod {
 			if (args[i] != null) {
 				continue;
 			}
-			if (!this.resolvers.supportsParameter(parameter)) {
-				throw new IllegalStateException(formatArgumentError(parameter, "No suitable resolver"));
+			HandlerMethodArgumentResolver resolver =
+					(this.handlerMethodInvoker != null ? this.handlerMethodInvoker.getArgumentResolver(i) : null);
+			if (resolver == null) {
+				if (!this.resolvers.supportsParameter(parameter)) {
+					throw new IllegalStateException(formatArgumentError(parameter, "No suitable resolver"));
+				}
+				resolver = this.resolvers;
 			}
 			try {
-				args[i] = this.resolvers.resolveArgument(parameter, mavContainer, request, this.dataBinderFactory);
+				args[i] = resolver.resolveArgument(parameter, mavContainer, request, this.dataBinderFactory);
 			}
 			catch (Exception ex) {
 				// Leave stack trace for later, exception may actually be resolved and handled...
@@ -185,8 +209,13 @@ public class InvocableHandlerMethod extends HandlerMethod {
 	 */
 	@Nullable
 	protected Object doInvoke(Object... args) throws Exception {
-		ReflectionUtils.makeAccessible(getBridgedMethod());
+		DirectMethodInvoker directInvoker =
+				(this.handlerMethodInvoker != null ? this.handlerMethodInvoker.getDirectInvoker() : null);
 		try {
+			if (directInvoker != null) {
+				return directInvoker.invoke(getBean(), args);
+			}
+			ReflectionUtils.makeAccessible(getBridgedMethod());
 			return getBridgedMethod().invoke(getBean(), args);
 		}
 		catch (IllegalArgumentException ex) {
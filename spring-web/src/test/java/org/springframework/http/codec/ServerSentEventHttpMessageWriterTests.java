@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,19 +19,24 @@ package org.springframework.http.codec;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Before;
 import org.junit.Test;
 import org.reactivestreams.Publisher;
+import reactor.core.Exceptions;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import org.springframework.core.ResolvableType;
 import org.springframework.core.io.buffer.AbstractDataBufferAllocatingTestCase;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.core.io.buffer.support.DataBufferTestUtils;
 import org.springframework.http.MediaType;
@@ -227,6 +232,84 @@ public class ServerSentEventHttpMessageWriterTests extends AbstractDataBufferAll
 				.verify();
 	}
 
+	@Test
+	public void writeWithBatchWindow() {
+		this.messageWriter.setBatchWindow(Duration.ofSeconds(5));
+		this.messageWriter.setMaxBatchSize(2);
+		List<String> writes = new CopyOnWriteArrayList<>();
+
+		this.messageWriter.write(Flux.just("foo", "bar", "baz"), forClass(String.class),
+				MediaType.TEXT_EVENT_STREAM, recordingResponse(writes), HINTS).block(Duration.ofSeconds(5));
+
+		assertEquals(Arrays.asList("data:foo\n\ndata:bar\n\n", "data:baz\n\n"), writes);
+	}
+
+	@Test
+	public void writeWithBatchWindowElapsed() {
+		this.messageWriter.setBatchWindow(Duration.ofMillis(50));
+		List<String> writes = new CopyOnWriteArrayList<>();
+		Flux<String> source = Flux.concat(
+				Flux.just("foo", "bar"), Mono.delay(Duration.ofMillis(500)).map(aLong -> "baz"));
+
+		this.messageWriter.write(source, forClass(String.class),
+				MediaType.TEXT_EVENT_STREAM, recordingResponse(writes), HINTS).block(Duration.ofSeconds(5));
+
+		assertEquals(Arrays.asList("data:foo\n\ndata:bar\n\n", "data:baz\n\n"), writes);
+	}
+
+	@Test
+	public void writeWithBatchWindowToSlowClient() {
+		this.messageWriter.setBatchWindow(Duration.ofSeconds(5));
+		this.messageWriter.setMaxBatchSize(2);
+		MockServerHttpResponse response = new MockServerHttpResponse(this.bufferFactory) {
+			@Override
+			protected Mono<Void> writeAndFlushWithInternal(
+					Publisher<? extends Publisher<? extends DataBuffer>> body) {
+
+				// Write the first batch, but never complete it
+				return Flux.from(body)
+						.concatMap(write -> Flux.from(write).doOnNext(DataBufferUtils::release).then(Mono.never()), 1)
+						.then();
+			}
+		};
+
+		StepVerifier.create(this.messageWriter.write(Flux.range(0, 1000).map(String::valueOf),
+				forClass(String.class), MediaType.TEXT_EVENT_STREAM, response, HINTS))
+				.expectErrorMatches(Exceptions::isOverflow)
+				.verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	public void writeWithHeartbeats() {
+		this.messageWriter.setHeartbeatInterval(Duration.ofMillis(50));
+		List<String> writes = new CopyOnWriteArrayList<>();
+		Mono<String> source = Mono.delay(Duration.ofMillis(500)).map(aLong -> "foo");
+
+		this.messageWriter.write(source, forClass(String.class),
+				MediaType.TEXT_EVENT_STREAM, recordingResponse(writes), HINTS).block(Duration.ofSeconds(5));
+
+		assertTrue(writes.toString(), writes.size() > 1);
+		assertEquals("data:foo\n\n", writes.get(writes.size() - 1));
+		writes.subList(0, writes.size() - 1).forEach(write -> assertEquals(":\n\n", write));
+	}
+
+	private MockServerHttpResponse recordingResponse(List<String> writes) {
+		return new MockServerHttpResponse(this.bufferFactory) {
+			@Override
+			protected Mono<Void> writeAndFlushWithInternal(
+					Publisher<? extends Publisher<? extends DataBuffer>> body) {
+
+				return Flux.from(body)
+						.concatMap(write -> DataBufferUtils.join(write, -1))
+						.doOnNext(buffer -> {
+							writes.add(DataBufferTestUtils.dumpString(buffer, StandardCharsets.UTF_8));
+							DataBufferUtils.release(buffer);
+						})
+						.then();
+			}
+		};
+	}
+
 
 	private <T> void testWrite(Publisher<T> source, MockServerHttpResponse response, Class<T> clazz) {
 		testWrite(source, MediaType.TEXT_EVENT_STREAM, response, clazz);
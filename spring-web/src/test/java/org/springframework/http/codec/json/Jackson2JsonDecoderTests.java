@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@
 package org.springframework.http.codec.json;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
@@ -38,9 +39,13 @@ import org.springframework.core.codec.AbstractDecoderTestCase;
 import org.springframework.core.codec.CodecException;
 import org.springframework.core.codec.DecodingException;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.Pojo;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
 import org.springframework.util.MimeType;
+import org.springframework.util.StopWatch;
 
 import static java.util.Arrays.*;
 import static java.util.Collections.*;
@@ -124,6 +129,70 @@ public class Jackson2JsonDecoderTests extends AbstractDecoderTestCase<Jackson2Js
 	}
 
 
+	@Test
+	public void decodeToMonoWithTrailingContent() {
+		Flux<DataBuffer> input = Flux.concat(
+				stringBuffer("{\"bar\":\"b1\",\"foo\":\"f1\"}"),
+				stringBuffer("{\"bar\":\"b2\",\"foo\":\"f2\"}"));
+
+		testDecodeToMono(input, Pojo.class, step -> step
+				.expectError(DecodingException.class)
+				.verify());
+	}
+
+	@Test
+	public void decodeWithTokenizer() {
+		ObjectMapper mapper = new ObjectMapper().enable(JsonParser.Feature.ALLOW_COMMENTS);
+		Jackson2JsonDecoder decoder = new Jackson2JsonDecoder(mapper);
+		Flux<DataBuffer> input = Flux.concat(
+				stringBuffer("[{\"bar\":\"b1\",\"foo\":\"f1\"}, /* ] */"),
+				stringBuffer("{\"bar\":\"b2\",\"foo\":\"f2\"}]"));
+
+		StepVerifier.create(decoder.decode(input, forClass(Pojo.class), null, emptyMap()))
+				.expectNext(pojo1)
+				.expectNext(pojo2)
+				.verifyComplete();
+	}
+
+	@Test
+	public void decodeLargeArray() {
+		Assume.group(TestGroup.PERFORMANCE);
+
+		StringBuilder builder = new StringBuilder("[");
+		int count = 0;
+		while (builder.length() < 100 * 1024 * 1024) {
+			builder.append(count == 0 ? "" : ",").append("{\"bar\":\"bar").append(count)
+					.append("\",\"foo\":\"foo").append(count).append("\"}");
+			count++;
+		}
+		byte[] json = builder.append("]").toString().getBytes(StandardCharsets.UTF_8);
+
+		// Lenient JSON features are not supported by the scanner: this falls back on tokenizing
+		Jackson2JsonDecoder tokenizingDecoder =
+				new Jackson2JsonDecoder(new ObjectMapper().enable(JsonParser.Feature.ALLOW_TRAILING_COMMA));
+		Jackson2JsonDecoder scanningDecoder = new Jackson2JsonDecoder(new ObjectMapper());
+
+		StopWatch sw = new StopWatch(count + " elements in " + json.length / 1024 / 1024 + " MB");
+		for (int i = 0; i < 2; i++) {
+			sw.start("Jackson2Tokenizer, run " + i);
+			assertEquals(count, (long) decodeInChunks(tokenizingDecoder, json).count().block());
+			sw.stop();
+			sw.start("JsonElementScanner, run " + i);
+			assertEquals(count, (long) decodeInChunks(scanningDecoder, json).count().block());
+			sw.stop();
+		}
+		System.out.println(sw.prettyPrint());
+	}
+
+	private static Flux<Object> decodeInChunks(Jackson2JsonDecoder decoder, byte[] json) {
+		DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+		int chunkSize = 8192;
+		Flux<DataBuffer> input = Flux.range(0, (json.length + chunkSize - 1) / chunkSize)
+				.map(i -> bufferFactory.wrap(
+						ByteBuffer.wrap(json, i * chunkSize, Math.min(chunkSize, json.length - i * chunkSize))));
+		return decoder.decode(input, forClass(Pojo.class), null, emptyMap());
+	}
+
 	@Test
 	public void decodeEmptyArrayToFlux() {
 		Flux<DataBuffer> input = Flux.from(stringBuffer("[]"));
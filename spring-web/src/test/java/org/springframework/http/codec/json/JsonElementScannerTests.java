@@ -0,0 +1,162 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.json;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.AbstractLeakCheckingTestCase;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
+
+/**
+ * Unit tests for {@link JsonElementScanner}.
+ *
+ * @since 5.1.13
+ */
+public class JsonElementScannerTests extends AbstractLeakCheckingTestCase {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+
+	@Test
+	public void topLevelValues() {
+		testDecode(singletonList("{\"foo\": \"foofoo\", \"bar\": \"barbar\"}"),
+				singletonList("{\"foo\":\"foofoo\",\"bar\":\"barbar\"}"));
+		testDecode(asList("{\"foo\": \"foofoo\"", ", \"bar\": \"barbar\"}"),
+				singletonList("{\"foo\":\"foofoo\",\"bar\":\"barbar\"}"));
+		testDecode(asList("{\"id\":1}\n{\"id\"", ":2}\n"),
+				asList("{\"id\":1}", "{\"id\":2}"));
+		testDecode(asList("\"foo", "bar\""), singletonList("\"foobar\""));
+		testDecode(asList("12", "34"), singletonList("1234"));
+		testDecode(asList("12.", "34 true ", "false"), asList("12.34", "true", "false"));
+	}
+
+	@Test
+	public void arrayElements() {
+		testDecode(singletonList("[{\"foo\": \"bar\"},{\"foo\": \"baz\"}]"),
+				asList("{\"foo\":\"bar\"}", "{\"foo\":\"baz\"}"));
+		testDecode(asList("[", "{\"id\":1,\"name\":\"Robert\"}", ",", "{\"id\":2,\"name\":\"Raide\"}", "]"),
+				asList("{\"id\":1,\"name\":\"Robert\"}", "{\"id\":2,\"name\":\"Raide\"}"));
+		testDecode(singletonList("[{\"id\":\"0\",\"start\":[-999999999,1,1]},[1,[2]], \"x\" ]"),
+				asList("{\"id\":\"0\",\"start\":[-999999999,1,1]}", "[1,[2]]", "\"x\""));
+		testDecode(asList("[1", ",2,", "3]"), asList("1", "2", "3"));
+		testDecode(asList("[]", " [", "]"), emptyList());
+	}
+
+	@Test
+	public void structuralCharactersInStrings() {
+		testDecode(asList("[\"a]\\\"", ",}\", {\"b\\\\\":\"[\"}]"),
+				asList("\"a]\\\",}\"", "{\"b\\\\\":\"[\"}"));
+	}
+
+	@Test
+	public void nullValuesAreSkipped() {
+		Flux<DataBuffer> input = Flux.defer(() -> Flux.just(stringBuffer("[1, null, 3]")));
+		ObjectReader reader = this.objectMapper.readerFor(Integer.class);
+		StepVerifier.create(JsonElementScanner.decode(input, this.objectMapper.getFactory(), this.objectMapper, reader, -1))
+				.expectNext(1, 3)
+				.verifyComplete();
+	}
+
+	@Test
+	public void byteOrderMark() {
+		DataBuffer buffer = this.bufferFactory.allocateBuffer(8);
+		buffer.write(new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF, '[', '1', ']'});
+		StepVerifier.create(decode(Flux.just(buffer), -1))
+				.expectNext("1")
+				.verifyComplete();
+	}
+
+	@Test
+	public void invalidStructure() {
+		testError(singletonList("[1}"), DecodingException.class);
+		testError(singletonList("[1\"a\"]"), DecodingException.class);
+		testError(asList("[{\"foo\":", "1}"), DecodingException.class);
+		testError(singletonList("\"foo"), DecodingException.class);
+		testError(singletonList("[1 2]"), JsonProcessingException.class);
+		testError(singletonList("[1,]"), JsonProcessingException.class);
+		testError(singletonList("{}, {}"), JsonProcessingException.class);
+	}
+
+	@Test
+	public void limit() {
+		List<String> source = asList("[",
+				"{", "\"id\":1, \"name\":\"Dan\"", "},",
+				"{", "\"id\":2, \"name\":\"Ron\"", "},",
+				"{", "\"id\":3, \"name\":\"Bartholomew\"", "}",
+				"]");
+		int maxInMemorySize = "{\"id\":3, \"name\":\"Bartholomew\"}".length();
+
+		StepVerifier.create(decode(source, maxInMemorySize))
+				.expectNext("{\"id\":1,\"name\":\"Dan\"}")
+				.expectNext("{\"id\":2,\"name\":\"Ron\"}")
+				.expectNext("{\"id\":3,\"name\":\"Bartholomew\"}")
+				.verifyComplete();
+
+		StepVerifier.create(decode(source, maxInMemorySize - 1))
+				.expectNext("{\"id\":1,\"name\":\"Dan\"}")
+				.expectNext("{\"id\":2,\"name\":\"Ron\"}")
+				.verifyError(DataBufferLimitException.class);
+
+		StepVerifier.create(decode(singletonList("[{\"id\":1, \"name\":\"Bartholomew\"}]"), 10))
+				.verifyError(DataBufferLimitException.class);
+	}
+
+
+	private void testDecode(List<String> input, List<String> output) {
+		StepVerifier.create(decode(input, -1))
+				.expectNextSequence(output)
+				.verifyComplete();
+	}
+
+	private void testError(List<String> input, Class<? extends Throwable> errorType) {
+		StepVerifier.create(decode(input, -1))
+				.thenConsumeWhile(value -> true)
+				.verifyError(errorType);
+	}
+
+	private Flux<String> decode(List<String> input, int maxInMemorySize) {
+		return decode(Flux.defer(() -> Flux.fromIterable(input).map(this::stringBuffer)), maxInMemorySize);
+	}
+
+	private Flux<String> decode(Flux<DataBuffer> input, int maxInMemorySize) {
+		ObjectReader reader = this.objectMapper.readerFor(JsonNode.class);
+		return JsonElementScanner.decode(input, this.objectMapper.getFactory(), this.objectMapper, reader, maxInMemorySize)
+				.map(Object::toString);
+	}
+
+	private DataBuffer stringBuffer(String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		DataBuffer buffer = this.bufferFactory.allocateBuffer(bytes.length);
+		buffer.write(bytes);
+		return buffer;
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.server.reactive;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.netty.buffer.ByteBuf;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runners.Parameterized;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEventHttpMessageWriter;
+import org.springframework.http.server.reactive.bootstrap.ReactorHttpServer;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.util.StopWatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Load test for {@link ServerSentEventHttpMessageWriter} against an
+ * in-process Reactor Netty server, comparing a flush per event with
+ * batched flushes.
+ *
+ * @since 5.1.13
+ */
+public class ServerSentEventLoadTests extends AbstractHttpHandlerIntegrationTests {
+
+	private static final int CONNECTIONS = 200;
+
+	private static final int EVENTS = 2000;
+
+
+	private volatile ServerSentEventHttpMessageWriter writer = new ServerSentEventHttpMessageWriter();
+
+
+	@Parameterized.Parameters(name = "server [{0}]")
+	public static Object[][] arguments() {
+		return new Object[][] {
+				{new ReactorHttpServer()}
+		};
+	}
+
+	@BeforeClass
+	public static void performanceOnly() {
+		Assume.group(TestGroup.PERFORMANCE);
+	}
+
+
+	@Override
+	protected HttpHandler createHttpHandler() {
+		return (request, response) -> this.writer.write(
+				Flux.range(0, EVENTS).map(i -> "event-" + i), ResolvableType.forClass(String.class),
+				MediaType.TEXT_EVENT_STREAM, response, Collections.emptyMap());
+	}
+
+	@Test
+	public void flushPerEventVersusBatchWindow() {
+		StopWatch stopWatch = new StopWatch(CONNECTIONS + " connections x " + EVENTS + " events");
+		HttpClient client = HttpClient.create(ConnectionProvider.elastic("sse-load")).port(this.port);
+
+		for (int run = 0; run < 3; run++) {
+			this.writer = new ServerSentEventHttpMessageWriter();
+			run(client, stopWatch, "flush per event, run " + run);
+
+			ServerSentEventHttpMessageWriter batchingWriter = new ServerSentEventHttpMessageWriter();
+			batchingWriter.setBatchWindow(Duration.ofMillis(5));
+			this.writer = batchingWriter;
+			run(client, stopWatch, "batch window 5 ms, run " + run);
+		}
+		System.out.println(stopWatch.prettyPrint());
+	}
+
+	private void run(HttpClient client, StopWatch stopWatch, String name) {
+		AtomicLong chunks = new AtomicLong();
+
+		stopWatch.start(name);
+		Long bytes = Flux.range(0, CONNECTIONS)
+				.flatMap(i -> client.get().uri("/").responseContent()
+						.doOnNext(byteBuf -> chunks.incrementAndGet())
+						.map(ByteBuf::readableBytes)
+						.reduce(0L, (total, count) -> total + count), CONNECTIONS)
+				.reduce(0L, Long::sum)
+				.block(Duration.ofMinutes(2));
+		stopWatch.stop();
+
+		assertEquals(Long.valueOf(CONNECTIONS * expectedBytesPerConnection()), bytes);
+		System.out.println(name + ": " + chunks.get() / CONNECTIONS + " response chunks per connection");
+	}
+
+	private static long expectedBytesPerConnection() {
+		long bytes = 0;
+		for (int i = 0; i < EVENTS; i++) {
+			bytes += ("data:event-" + i + "\n\n").getBytes(StandardCharsets.UTF_8).length;
+		}
+		return bytes;
+	}
+
+}
@@ -189,6 +189,44 @@ public class InvocableHandlerMethodTests {
 		}
 	}
 
+	@Test
+	public void resolveArgWithPreparedInvoker() throws Exception {
+		this.composite.addResolver(new StubArgumentResolver(99));
+		this.composite.addResolver(new StubArgumentResolver("value"));
+
+		InvocableHandlerMethod invocable = getInvocable(Integer.class, String.class);
+		HandlerMethodInvoker invoker = HandlerMethodInvoker.prepare(invocable, this.composite);
+		invocable.setHandlerMethodInvoker(invoker);
+		Object value = invocable.invokeForRequest(request, null);
+
+		assertSame(getStubResolver(0), invoker.getArgumentResolver(0));
+		assertSame(getStubResolver(1), invoker.getArgumentResolver(1));
+		assertNotNull(invoker.getDirectInvoker());
+		assertEquals("99-value", value);
+	}
+
+	@Test
+	public void illegalArgumentExceptionWithPreparedInvoker() throws Exception {
+		this.composite.addResolver(new StubArgumentResolver(Integer.class, "__not_an_int__"));
+		this.composite.addResolver(new StubArgumentResolver("value"));
+		InvocableHandlerMethod invocable = getInvocable(Integer.class, String.class);
+		invocable.setHandlerMethodInvoker(HandlerMethodInvoker.prepare(invocable, this.composite));
+		try {
+			invocable.invokeForRequest(request, null);
+			fail("Expected exception");
+		}
+		catch (IllegalStateException ex) {
+			assertTrue(ex.getCause() instanceof IllegalArgumentException);
+			assertTrue(ex.getMessage().contains("[0] [type=java.lang.String] [value=__not_an_int__]"));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void preparedInvokerForDifferentMethod() throws Exception {
+		InvocableHandlerMethod invocable = getInvocable(Integer.class, String.class);
+		invocable.setHandlerMethodInvoker(HandlerMethodInvoker.prepare(getInvocable(double.class), this.composite));
+	}
+
 	private InvocableHandlerMethod getInvocable(Class<?>... argTypes) {
 		Method method = ResolvableMethod.on(Handler.class).argTypes(argTypes).resolveMethod();
 		InvocableHandlerMethod handlerMethod = new InvocableHandlerMethod(new Handler(), method);
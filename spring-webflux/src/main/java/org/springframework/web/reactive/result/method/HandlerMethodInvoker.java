@@ -0,0 +1,113 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.reactive.result.method;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.springframework.core.BridgeMethodResolver;
+import org.springframework.core.DirectMethodInvoker;
+import org.springframework.core.MethodParameter;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.web.method.HandlerMethod;
+
+/**
+ * Pre-linked invocation state for a handler method, meant to be prepared
+ * once and then shared across all {@link InvocableHandlerMethod} instances
+ * created for the same handler method.
+ *
+ * <p>Binds each method parameter to the {@link HandlerMethodArgumentResolver}
+ * that supports it, sparing the per-invocation resolver lookups, and holds a
+ * {@link DirectMethodInvoker} for calling the method without reflection
+ * where one could be generated.
+ *
+ * @since 5.1.13
+ * @see InvocableHandlerMethod#setHandlerMethodInvoker
+ */
+public final class HandlerMethodInvoker {
+
+	private final Method method;
+
+	private final HandlerMethodArgumentResolver[] argumentResolvers;
+
+	@Nullable
+	private final DirectMethodInvoker directInvoker;
+
+
+	private HandlerMethodInvoker(Method method, HandlerMethodArgumentResolver[] argumentResolvers,
+			@Nullable DirectMethodInvoker directInvoker) {
+
+		this.method = method;
+		this.argumentResolvers = argumentResolvers;
+		this.directInvoker = directInvoker;
+	}
+
+
+	/**
+	 * Return the (bridged) handler method that this invoker has been prepared for.
+	 */
+	public Method getMethod() {
+		return this.method;
+	}
+
+	/**
+	 * Return the argument resolver bound to the parameter at the given index,
+	 * or {@code null} if none of the resolvers supports that parameter.
+	 */
+	@Nullable
+	public HandlerMethodArgumentResolver getArgumentResolver(int parameterIndex) {
+		return this.argumentResolvers[parameterIndex];
+	}
+
+	/**
+	 * Return the generated invoker for the handler method, or {@code null}
+	 * if the method needs to be invoked through reflection.
+	 */
+	@Nullable
+	public DirectMethodInvoker getDirectInvoker() {
+		return this.directInvoker;
+	}
+
+
+	/**
+	 * Prepare an invoker for the given handler method.
+	 * @param handlerMethod the handler method
+	 * @param resolvers the argument resolvers to bind the method parameters to,
+	 * in the order in which they are to be checked
+	 * @return the prepared invoker
+	 */
+	public static HandlerMethodInvoker prepare(HandlerMethod handlerMethod,
+			List<? extends HandlerMethodArgumentResolver> resolvers) {
+
+		Assert.notNull(handlerMethod, "HandlerMethod must not be null");
+		Assert.notNull(resolvers, "HandlerMethodArgumentResolver List must not be null");
+		MethodParameter[] parameters = handlerMethod.getMethodParameters();
+		HandlerMethodArgumentResolver[] argumentResolvers = new HandlerMethodArgumentResolver[parameters.length];
+		for (int i = 0; i < parameters.length; i++) {
+			for (HandlerMethodArgumentResolver resolver : resolvers) {
+				if (resolver.supportsParameter(parameters[i])) {
+					argumentResolvers[i] = resolver;
+					break;
+				}
+			}
+		}
+		Method method = BridgeMethodResolver.findBridgedMethod(handlerMethod.getMethod());
+		return new HandlerMethodInvoker(method, argumentResolvers, DirectMethodInvoker.forMethod(method));
+	}
+
+}
@@ -27,6 +27,7 @@ import java.util.stream.Stream;
 import reactor.core.publisher.Mono;
 
 import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.DirectMethodInvoker;
 import org.springframework.core.MethodParameter;
 import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.core.ReactiveAdapter;
@@ -34,6 +35,7 @@ import org.springframework.core.ReactiveAdapterRegistry;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.ReflectionUtils;
 import org.springframework.web.method.HandlerMethod;
@@ -63,6 +65,9 @@ public class InvocableHandlerMethod extends HandlerMethod {
 
 	private ReactiveAdapterRegistry reactiveAdapterRegistry = ReactiveAdapterRegistry.getSharedInstance();
 
+	@Nullable
+	private HandlerMethodInvoker handlerMethodInvoker;
+
 
 	/**
 	 * Create an instance from a {@code HandlerMethod}.
@@ -119,6 +124,20 @@ public class InvocableHandlerMethod extends HandlerMethod {
 		this.reactiveAdapterRegistry = registry;
 	}
 
+	/**
+	 * Set a {@link HandlerMethodInvoker} prepared for this handler method,
+	 * providing pre-bound argument resolvers and a generated method invoker.
+	 * <p>By default, argument resolvers are looked up for each invocation
+	 * and the method is invoked through reflection.
+	 * @since 5.1.13
+	 * @see HandlerMethodInvoker#prepare
+	 */
+	public void setHandlerMethodInvoker(@Nullable HandlerMethodInvoker handlerMethodInvoker) {
+		Assert.isTrue(handlerMethodInvoker == null || handlerMethodInvoker.getMethod().equals(getBridgedMethod()),
+				"HandlerMethodInvoker has been prepared for a different method");
+		this.handlerMethodInvoker = handlerMethodInvoker;
+	}
+
 
 	/**
 	 * Invoke the method for the given exchange.
@@ -133,8 +152,7 @@ public class InvocableHandlerMethod extends HandlerMethod {
 		return getMethodArgumentValues(exchange, bindingContext, providedArgs).flatMap(args -> {
 			Object value;
 			try {
-				ReflectionUtils.makeAccessible(getBridgedMethod());
-				value = getBridgedMethod().invoke(getBean(), args);
+				value = doInvoke(args);
 			}
 			catch (IllegalArgumentException ex) {
 				assertTargetBean(getBridgedMethod(), getBean(), args);
@@ -166,6 +184,17 @@ public class InvocableHandlerMethod extends HandlerMethod {
 		});
 	}
 
+	@Nullable
+	private Object doInvoke(Object[] args) throws Exception {
+		DirectMethodInvoker directInvoker =
+				(this.handlerMethodInvoker != null ? this.handlerMethodInvoker.getDirectInvoker() : null);
+		if (directInvoker != null) {
+			return directInvoker.invoke(getBean(), args);
+		}
+		ReflectionUtils.makeAccessible(getBridgedMethod());
+		return getBridgedMethod().invoke(getBean(), args);
+	}
+
 	private Mono<Object[]> getMethodArgumentValues(
 			ServerWebExchange exchange, BindingContext bindingContext, Object... providedArgs) {
 
@@ -175,19 +204,25 @@ public class InvocableHandlerMethod extends HandlerMethod {
 		}
 
 		List<Mono<Object>> argMonos = new ArrayList<>(parameters.length);
-		for (MethodParameter parameter : parameters) {
+		for (int i = 0; i < parameters.length; i++) {
+			MethodParameter parameter = parameters[i];
 			parameter.initParameterNameDiscovery(this.parameterNameDiscoverer);
 			Object providedArg = findProvidedArgument(parameter, providedArgs);
 			if (providedArg != null) {
 				argMonos.add(Mono.just(providedArg));
 				continue;
 			}
-			if (!this.resolvers.supportsParameter(parameter)) {
-				return Mono.error(new IllegalStateException(
-						formatArgumentError(parameter, "No suitable resolver")));
+			HandlerMethodArgumentResolver resolver =
+					(this.handlerMethodInvoker != null ? this.handlerMethodInvoker.getArgumentResolver(i) : null);
+			if (resolver == null) {
+				if (!this.resolvers.supportsParameter(parameter)) {
+					return Mono.error(new IllegalStateException(
+							formatArgumentError(parameter, "No suitable resolver")));
+				}
+				resolver = this.resolvers;
 			}
 			try {
-				argMonos.add(this.resolvers.resolveArgument(parameter, bindingContext, exchange)
+				argMonos.add(resolver.resolveArgument(parameter, bindingContext, exchange)
 						.defaultIfEmpty(NO_ARG_VALUE)
 						.doOnError(ex -> logArgumentErrorIfNecessary(exchange, parameter, ex)));
 			}
@@ -32,6 +32,7 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.MethodClassKey;
 import org.springframework.core.MethodIntrospector;
 import org.springframework.core.ReactiveAdapterRegistry;
 import org.springframework.core.annotation.AnnotatedElementUtils;
@@ -47,6 +48,7 @@ import org.springframework.web.method.ControllerAdviceBean;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.method.annotation.ExceptionHandlerMethodResolver;
 import org.springframework.web.reactive.result.method.HandlerMethodArgumentResolver;
+import org.springframework.web.reactive.result.method.HandlerMethodInvoker;
 import org.springframework.web.reactive.result.method.InvocableHandlerMethod;
 import org.springframework.web.reactive.result.method.SyncHandlerMethodArgumentResolver;
 import org.springframework.web.reactive.result.method.SyncInvocableHandlerMethod;
@@ -112,6 +114,10 @@ class ControllerMethodResolver {
 
 	private final Map<Class<?>, SessionAttributesHandler> sessionAttributesHandlerCache = new ConcurrentHashMap<>(64);
 
+	private final Map<MethodClassKey, HandlerMethodInvoker> handlerMethodInvokerCache = new ConcurrentHashMap<>(64);
+
+	private boolean prepareHandlerMethodInvokers = false;
+
 
 	ControllerMethodResolver(ArgumentResolverConfigurer customResolvers, ReactiveAdapterRegistry adapterRegistry,
 			ConfigurableApplicationContext context, List<HttpMessageReader<?>> readers) {
@@ -254,6 +260,16 @@ class ControllerMethodResolver {
 	}
 
 
+	/**
+	 * Whether to prepare a {@link HandlerMethodInvoker} once per
+	 * {@code @RequestMapping} method, to be shared across invocations.
+	 * @since 5.1.13
+	 */
+	public void setPrepareHandlerMethodInvokers(boolean prepareHandlerMethodInvokers) {
+		this.prepareHandlerMethodInvokers = prepareHandlerMethodInvokers;
+	}
+
+
 	/**
 	 * Return an {@link InvocableHandlerMethod} for the given
 	 * {@code @RequestMapping} method initialized with argument resolvers.
@@ -262,6 +278,11 @@ class ControllerMethodResolver {
 		InvocableHandlerMethod invocable = new InvocableHandlerMethod(handlerMethod);
 		invocable.setArgumentResolvers(this.requestMappingResolvers);
 		invocable.setReactiveAdapterRegistry(this.reactiveAdapterRegistry);
+		if (this.prepareHandlerMethodInvokers) {
+			MethodClassKey key = new MethodClassKey(handlerMethod.getMethod(), handlerMethod.getBeanType());
+			invocable.setHandlerMethodInvoker(this.handlerMethodInvokerCache.computeIfAbsent(key,
+					k -> HandlerMethodInvoker.prepare(handlerMethod, this.requestMappingResolvers)));
+		}
 		return invocable;
 	}
 
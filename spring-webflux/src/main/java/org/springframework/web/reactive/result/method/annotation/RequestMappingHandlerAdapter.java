@@ -41,6 +41,7 @@ import org.springframework.web.reactive.BindingContext;
 import org.springframework.web.reactive.HandlerAdapter;
 import org.springframework.web.reactive.HandlerMapping;
 import org.springframework.web.reactive.HandlerResult;
+import org.springframework.web.reactive.result.method.HandlerMethodInvoker;
 import org.springframework.web.reactive.result.method.InvocableHandlerMethod;
 import org.springframework.web.server.ServerWebExchange;
 
@@ -74,6 +75,8 @@ public class RequestMappingHandlerAdapter implements HandlerAdapter, Application
 	@Nullable
 	private ControllerMethodResolver methodResolver;
 
+	private boolean prepareHandlerMethodInvokers = false;
+
 	@Nullable
 	private ModelInitializer modelInitializer;
 
@@ -142,6 +145,20 @@ public class RequestMappingHandlerAdapter implements HandlerAdapter, Application
 		return this.reactiveAdapterRegistry;
 	}
 
+	/**
+	 * Whether to prepare a {@link HandlerMethodInvoker} once per handler method,
+	 * binding each method parameter to its argument resolver and invoking the
+	 * method through generated bytecode rather than through reflection.
+	 * <p>Default is "false". Consider switching this flag on for applications
+	 * with many small, frequently called handler methods, where per-request
+	 * resolver lookups and reflective invocation become noticeable.
+	 * @since 5.1.13
+	 * @see HandlerMethodInvoker#prepare
+	 */
+	public void setPrepareHandlerMethodInvokers(boolean prepareHandlerMethodInvokers) {
+		this.prepareHandlerMethodInvokers = prepareHandlerMethodInvokers;
+	}
+
 	/**
 	 * A {@link ConfigurableApplicationContext} is expected for resolving
 	 * expressions in method argument default values as well as for
@@ -172,6 +189,7 @@ public class RequestMappingHandlerAdapter implements HandlerAdapter, Application
 
 		this.methodResolver = new ControllerMethodResolver(this.argumentResolverConfigurer,
 				this.reactiveAdapterRegistry, this.applicationContext, this.messageReaders);
+		this.methodResolver.setPrepareHandlerMethodInvokers(this.prepareHandlerMethodInvokers);
 
 		this.modelInitializer = new ModelInitializer(this.methodResolver, this.reactiveAdapterRegistry);
 	}
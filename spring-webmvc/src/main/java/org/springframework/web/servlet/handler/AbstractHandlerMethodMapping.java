@@ -94,6 +94,8 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 
 	private boolean detectHandlerMethodsInAncestorContexts = false;
 
+	private boolean usePathSegmentIndex = false;
+
 	@Nullable
 	private HandlerMethodMappingNamingStrategy<T> namingStrategy;
 
@@ -113,6 +115,33 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 		this.detectHandlerMethodsInAncestorContexts = detectHandlerMethodsInAncestorContexts;
 	}
 
+	/**
+	 * Whether to narrow down the mappings to check for a lookup path without
+	 * a direct URL match through an index of the leading literal segments of
+	 * the mapping patterns, rather than checking all registered mappings.
+	 * <p>Default is "false". Switch this flag on for a large number of
+	 * pattern-based mappings (e.g. {@code "/orders/{id}"}) where checking every
+	 * mapping on each request becomes noticeable. The selected best match
+	 * remains the same, provided that literal path segments are matched
+	 * exactly, as with the default case-sensitive
+	 * {@link org.springframework.util.AntPathMatcher}.
+	 * <p>The index is only built and maintained while this flag is on.
+	 * @since 5.1.13
+	 * @see #getMappingPathPatterns
+	 */
+	public void setUsePathSegmentIndex(boolean usePathSegmentIndex) {
+		this.mappingRegistry.setPathSegmentIndexEnabled(usePathSegmentIndex);
+		this.usePathSegmentIndex = usePathSegmentIndex;
+	}
+
+	/**
+	 * Whether to use an index of literal path segments for mapping lookups.
+	 * @since 5.1.13
+	 */
+	public boolean isUsePathSegmentIndex() {
+		return this.usePathSegmentIndex;
+	}
+
 	/**
 	 * Configure the naming strategy to use for assigning a default name to every
 	 * mapped handler method.
@@ -400,8 +429,14 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			addMatchingMappings(directPathMatches, matches, request);
 		}
 		if (matches.isEmpty()) {
-			// No choice but to go through all mappings...
-			addMatchingMappings(this.mappingRegistry.getMappings().keySet(), matches, request);
+			if (this.usePathSegmentIndex) {
+				// Only go through mappings sharing leading literal path segments...
+				addMatchingMappings(this.mappingRegistry.getMappingsByPathSegments(lookupPath), matches, request);
+			}
+			else {
+				// No choice but to go through all mappings...
+				addMatchingMappings(this.mappingRegistry.getMappings().keySet(), matches, request);
+			}
 		}
 
 		if (!matches.isEmpty()) {
@@ -540,6 +575,9 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 
 		private final MultiValueMap<String, T> urlLookup = new LinkedMultiValueMap<>();
 
+		@Nullable
+		private MappingPathSegmentIndex<T> pathSegmentIndex;
+
 		private final Map<String, List<HandlerMethod>> nameLookup = new ConcurrentHashMap<>();
 
 		private final Map<HandlerMethod, CorsConfiguration> corsLookup = new ConcurrentHashMap<>();
@@ -563,6 +601,40 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			return this.urlLookup.get(urlPath);
 		}
 
+		/**
+		 * Return the mappings that may match the given URL path, based on the
+		 * leading literal segments of their patterns. Not thread-safe.
+		 * @since 5.1.13
+		 * @see #acquireReadLock()
+		 */
+		public List<T> getMappingsByPathSegments(String urlPath) {
+			return (this.pathSegmentIndex != null ? this.pathSegmentIndex.getCandidates(urlPath) :
+					new ArrayList<>(this.mappingLookup.keySet()));
+		}
+
+		/**
+		 * Build the path segment index from the registered mappings, or drop it.
+		 * @since 5.1.13
+		 */
+		void setPathSegmentIndexEnabled(boolean enabled) {
+			this.readWriteLock.writeLock().lock();
+			try {
+				if (!enabled) {
+					this.pathSegmentIndex = null;
+				}
+				else if (this.pathSegmentIndex == null) {
+					MappingPathSegmentIndex<T> index = new MappingPathSegmentIndex<>();
+					for (T mapping : this.mappingLookup.keySet()) {
+						index.add(mapping, getMappingPathPatterns(mapping), getPathMatcher());
+					}
+					this.pathSegmentIndex = index;
+				}
+			}
+			finally {
+				this.readWriteLock.writeLock().unlock();
+			}
+		}
+
 		/**
 		 * Return handler methods by mapping name. Thread-safe for concurrent use.
 		 */
@@ -603,6 +675,9 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 				for (String url : directUrls) {
 					this.urlLookup.add(url, mapping);
 				}
+				if (this.pathSegmentIndex != null) {
+					this.pathSegmentIndex.add(mapping, getMappingPathPatterns(mapping), getPathMatcher());
+				}
 
 				String name = null;
 				if (getNamingStrategy() != null) {
@@ -680,6 +755,10 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 					}
 				}
 
+				if (this.pathSegmentIndex != null) {
+					this.pathSegmentIndex.remove(definition.getMapping());
+				}
+
 				removeMappingName(definition);
 
 				this.corsLookup.remove(definition.getHandlerMethod());
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet.handler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.util.PathMatcher;
+import org.springframework.util.StringUtils;
+
+/**
+ * A trie of mappings keyed by the leading literal path segments of their
+ * URL patterns, used to narrow down the candidate mappings for a lookup path
+ * before matching each of them against the request.
+ *
+ * <p>A pattern is indexed under its leading literal segments, up to the first
+ * segment that the {@link PathMatcher} considers a pattern: for example,
+ * {@code "/orders/{id}/items"} is indexed under {@code "orders"} only.
+ * The last segment of a pattern is never used as a key, since suffix pattern
+ * and trailing slash matching may apply to it. Mappings without any literal
+ * leading segment (e.g. {@code "/{tenant}/orders"} or no pattern at all) are
+ * kept at the root and therefore remain candidates for every lookup path.
+ *
+ * <p>The candidates for a lookup path are the mappings found on the way from
+ * the root down along the path's segments, returned in registration order so
+ * that sorting and ambiguity detection behave as with a full scan. This
+ * relies on literal segments having to match exactly, as with the default
+ * case-sensitive {@link org.springframework.util.AntPathMatcher} and "/" as
+ * the path separator.
+ *
+ * <p>Not thread-safe: access is guarded by the {@code MappingRegistry} lock.
+ *
+ * @since 5.1.13
+ * @param <T> the mapping type
+ * @see AbstractHandlerMethodMapping#setUsePathSegmentIndex
+ */
+class MappingPathSegmentIndex<T> {
+
+	private static final String PATH_SEPARATOR = "/";
+
+
+	private final Node<T> root = new Node<>();
+
+	private final Map<T, Registration<T>> registrations = new HashMap<>();
+
+	private long registrationCounter;
+
+
+	/**
+	 * Add the given mapping under the literal segments of its URL patterns.
+	 * @param mapping the mapping to add
+	 * @param patterns the URL patterns of the mapping
+	 * @param pathMatcher the path matcher to identify pattern segments with
+	 */
+	public void add(T mapping, Collection<String> patterns, PathMatcher pathMatcher) {
+		if (this.registrations.containsKey(mapping)) {
+			// Re-registration of an equal mapping keeps its original position
+			return;
+		}
+		Registration<T> registration = new Registration<>(mapping, this.registrationCounter++);
+		Set<Node<T>> nodes = new LinkedHashSet<>();
+		if (patterns.isEmpty()) {
+			nodes.add(this.root);
+		}
+		for (String pattern : patterns) {
+			String[] segments = StringUtils.tokenizeToStringArray(pattern, PATH_SEPARATOR, false, true);
+			Node<T> node = this.root;
+			for (int i = 0; i < segments.length - 1 && !pathMatcher.isPattern(segments[i]); i++) {
+				node = node.children.computeIfAbsent(segments[i], key -> new Node<>());
+			}
+			nodes.add(node);
+		}
+		for (Node<T> node : nodes) {
+			node.registrations.add(registration);
+		}
+		registration.nodes.addAll(nodes);
+		this.registrations.put(mapping, registration);
+	}
+
+	/**
+	 * Remove the given mapping from the index.
+	 * @param mapping the mapping to remove
+	 */
+	public void remove(T mapping) {
+		Registration<T> registration = this.registrations.remove(mapping);
+		if (registration != null) {
+			for (Node<T> node : registration.nodes) {
+				node.registrations.remove(registration);
+			}
+		}
+	}
+
+	/**
+	 * Return the candidate mappings for the given lookup path, in the order
+	 * in which they were registered.
+	 * @param lookupPath the lookup path of the current request
+	 * @return the candidate mappings (never {@code null})
+	 */
+	public List<T> getCandidates(String lookupPath) {
+		List<Registration<T>> found = new ArrayList<>(this.root.registrations);
+		int nodeCount = (found.isEmpty() ? 0 : 1);
+		String[] segments = StringUtils.tokenizeToStringArray(lookupPath, PATH_SEPARATOR, false, true);
+		Node<T> node = this.root;
+		for (String segment : segments) {
+			node = node.children.get(segment);
+			if (node == null) {
+				break;
+			}
+			if (!node.registrations.isEmpty()) {
+				found.addAll(node.registrations);
+				nodeCount++;
+			}
+		}
+		if (found.isEmpty()) {
+			return Collections.emptyList();
+		}
+		if (nodeCount > 1) {
+			// Restore registration order across trie levels
+			found.sort((r1, r2) -> Long.compare(r1.order, r2.order));
+		}
+		List<T> candidates = new ArrayList<>(found.size());
+		Registration<T> previous = null;
+		for (Registration<T> registration : found) {
+			// A mapping with several patterns may have been found at several levels
+			if (registration != previous) {
+				candidates.add(registration.mapping);
+			}
+			previous = registration;
+		}
+		return candidates;
+	}
+
+
+	private static class Node<T> {
+
+		final Map<String, Node<T>> children = new HashMap<>();
+
+		final List<Registration<T>> registrations = new ArrayList<>(1);
+	}
+
+
+	private static class Registration<T> {
+
+		final T mapping;
+
+		final long order;
+
+		final List<Node<T>> nodes = new ArrayList<>(1);
+
+		Registration(T mapping, long order) {
+			this.mapping = mapping;
+			this.order = order;
+		}
+	}
+
+}
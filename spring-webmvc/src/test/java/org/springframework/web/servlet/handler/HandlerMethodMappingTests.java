@@ -17,6 +17,7 @@
 package org.springframework.web.servlet.handler;
 
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -99,6 +100,28 @@ public class HandlerMethodMappingTests {
 		assertEquals(result, request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE));
 	}
 
+	@Test
+	public void patternMatchWithPathSegmentIndex() throws Exception {
+		this.mapping.registerMapping("/foo/{id}", this.handler, this.method1);
+		this.mapping.registerMapping("/bar/{id}", this.handler, this.method2);
+		this.mapping.setUsePathSegmentIndex(true);
+
+		// Mappings registered before the index got enabled are indexed too
+		assertEquals(Arrays.asList("/foo/{id}", "/bar/{id}"),
+				this.mapping.getMappingRegistry().getMappingsByPathSegments("/foo/1"));
+		HandlerMethod result = this.mapping.getHandlerInternal(new MockHttpServletRequest("GET", "/bar/1"));
+		assertEquals(method2, result.getMethod());
+
+		this.mapping.unregisterMapping("/foo/{id}");
+		assertEquals(Collections.singletonList("/bar/{id}"),
+				this.mapping.getMappingRegistry().getMappingsByPathSegments("/foo/1"));
+
+		this.mapping.setUsePathSegmentIndex(false);
+		this.mapping.registerMapping("/foo/{id}", this.handler, this.method1);
+		result = this.mapping.getHandlerInternal(new MockHttpServletRequest("GET", "/foo/1"));
+		assertEquals(method1, result.getMethod());
+	}
+
 	@Test(expected = IllegalStateException.class)
 	public void ambiguousMatch() throws Exception {
 		this.mapping.registerMapping("/f?o", this.handler, this.method1);
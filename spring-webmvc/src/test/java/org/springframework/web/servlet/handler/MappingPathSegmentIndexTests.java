@@ -0,0 +1,106 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet.handler;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link MappingPathSegmentIndex}.
+ */
+public class MappingPathSegmentIndexTests {
+
+	private final PathMatcher pathMatcher = new AntPathMatcher();
+
+	private final MappingPathSegmentIndex<String> index = new MappingPathSegmentIndex<>();
+
+
+	@Test
+	public void candidatesByLeadingLiteralSegments() {
+		add("orders", "/orders/{id}");
+		add("orderItems", "/orders/{id}/items");
+		add("orderLines", "/orders/lines/{line}");
+		add("customers", "/customers/{id}");
+
+		assertEquals(Arrays.asList("orders", "orderItems"), this.index.getCandidates("/orders/42"));
+		assertEquals(Arrays.asList("orders", "orderItems", "orderLines"), this.index.getCandidates("/orders/lines/1"));
+		assertEquals(Collections.singletonList("customers"), this.index.getCandidates("/customers/7"));
+		assertEquals(Collections.emptyList(), this.index.getCandidates("/products/7"));
+	}
+
+	@Test
+	public void lastSegmentIsNotIndexed() {
+		add("orders", "/orders");
+		add("orderSearch", "/orders/search");
+
+		assertEquals(Collections.singletonList("orders"), this.index.getCandidates("/orders.json"));
+		assertEquals(Arrays.asList("orders", "orderSearch"), this.index.getCandidates("/orders/search.json"));
+	}
+
+	@Test
+	public void mappingsWithoutLiteralPrefixAreAlwaysCandidates() {
+		add("tenantOrders", "/{tenant}/orders/{id}");
+		add("orders", "/orders/{id}");
+		add("all", "/**");
+		this.index.add("none", Collections.emptySet(), this.pathMatcher);
+
+		assertEquals(Arrays.asList("tenantOrders", "orders", "all", "none"), this.index.getCandidates("/orders/1"));
+		assertEquals(Arrays.asList("tenantOrders", "all", "none"), this.index.getCandidates("/acme/orders/1"));
+	}
+
+	@Test
+	public void registrationOrderAcrossLevels() {
+		add("deep", "/a/b/{c}");
+		add("root", "/{a}/b/c");
+		add("shallow", "/a/{b}/c");
+
+		assertEquals(Arrays.asList("deep", "root", "shallow"), this.index.getCandidates("/a/b/c"));
+	}
+
+	@Test
+	public void mappingWithMultiplePatternsReturnedOnce() {
+		this.index.add("multi", Arrays.asList("/a/{b}", "/a/b/{c}"), this.pathMatcher);
+		add("other", "/a/b/c/{d}");
+
+		assertEquals(Arrays.asList("multi", "other"), this.index.getCandidates("/a/b/c/d"));
+	}
+
+	@Test
+	public void remove() {
+		add("orders", "/orders/{id}");
+		add("tenantOrders", "/{tenant}/orders/{id}");
+
+		this.index.remove("orders");
+		this.index.remove("tenantOrders");
+		this.index.remove("unknown");
+
+		assertEquals(Collections.emptyList(), this.index.getCandidates("/orders/1"));
+	}
+
+
+	private void add(String mapping, String pattern) {
+		this.index.add(mapping, Collections.singleton(pattern), this.pathMatcher);
+	}
+
+}
@@ -34,7 +34,10 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.test.MockHttpServletRequest;
 import org.springframework.stereotype.Controller;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.StopWatch;
 import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.HttpMediaTypeNotSupportedException;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
@@ -385,6 +388,66 @@ public class RequestMappingInfoHandlerMappingTests {
 	}
 
 
+	@Test
+	public void getHandlerWithPathSegmentIndex() throws Exception {
+		this.handlerMapping.setUsePathSegmentIndex(true);
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/bar");
+		assertEquals(this.barMethod.getMethod(), getHandler(request).getMethod());
+
+		request = new MockHttpServletRequest("PUT", "/person/1");
+		request.setContentType("application/xml");
+		assertEquals("consumes", getHandler(request).getMethod().getName());
+
+		request = new MockHttpServletRequest("GET", "/persons.xml");
+		assertEquals("produces", getHandler(request).getMethod().getName());
+
+		testHttpMediaTypeNotSupportedException("/person/1");
+	}
+
+	@Test
+	public void lookupWithPathSegmentIndexIsFastEnough() throws Exception {
+		Assume.group(TestGroup.PERFORMANCE);
+
+		Method method = TestController.class.getMethod("foo");
+		TestController controller = new TestController();
+		for (int mappingCount : new int[] {10, 100, 1000, 10000}) {
+			TestRequestMappingInfoHandlerMapping scanning = new TestRequestMappingInfoHandlerMapping();
+			TestRequestMappingInfoHandlerMapping indexed = new TestRequestMappingInfoHandlerMapping();
+			indexed.setUsePathSegmentIndex(true);
+			for (int i = 0; i < mappingCount; i++) {
+				RequestMappingInfo info = RequestMappingInfo.paths("/resources" + i + "/{id}").build();
+				scanning.registerMapping(info, controller, method);
+				indexed.registerMapping(info, controller, method);
+			}
+
+			int lookups = 20000;
+			StopWatch sw = new StopWatch();
+			sw.start("scanning");
+			lookupAll(scanning, mappingCount, lookups);
+			sw.stop();
+			sw.start("indexed");
+			lookupAll(indexed, mappingCount, lookups);
+			sw.stop();
+
+			long scanningTime = sw.getTaskInfo()[0].getTimeMillis();
+			long indexedTime = sw.getTaskInfo()[1].getTimeMillis();
+			if (mappingCount >= 1000) {
+				assertTrue("Indexed lookup with " + mappingCount + " mappings took " + indexedTime +
+						"ms versus " + scanningTime + "ms for scanning", indexedTime < scanningTime);
+			}
+		}
+	}
+
+	private void lookupAll(RequestMappingInfoHandlerMapping mapping, int mappingCount, int lookups)
+			throws Exception {
+
+		for (int i = 0; i < lookups; i++) {
+			MockHttpServletRequest request = new MockHttpServletRequest("GET", "/resources" + (i % mappingCount) + "/42");
+			assertNotNull(mapping.getHandler(request));
+		}
+	}
+
 	private HandlerMethod getHandler(MockHttpServletRequest request) throws Exception {
 		HandlerExecutionChain chain = this.handlerMapping.getHandler(request);
 		assertNotNull(chain);